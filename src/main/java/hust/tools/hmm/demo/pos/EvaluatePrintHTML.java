@@ -37,11 +37,13 @@ public class EvaluatePrintHTML {
         
         FileWriter outFile;
         try {
-            for(SupervisedHMMSample sample : samples) {
+            List<StateSequence> predicts = POSEvaluator.predict(model, samples);
+            for(int n = 0; n < samples.size(); n++) {
+            	SupervisedHMMSample sample = samples.get(n);
             	StateSequence refStateSeuence = sample.getStateSequence();
     			ObservationSequence wordSequence = sample.getObservationSequence();
     			
-    			StateSequence preStateSeuence = model.bestStateSeqence(wordSequence);
+    			StateSequence preStateSeuence = predicts.get(n);
     			
     			String testPOS = null;
                 String outputPOS = null;
@@ -0,0 +1,86 @@
+package hust.tools.hmm.demo.pos;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import hust.tools.hmm.learn.SupervisedWittenBellHMMTrainer;
+import hust.tools.hmm.model.HMMWithAStar;
+import hust.tools.hmm.model.HMMWithHighOrderViterbi;
+import hust.tools.hmm.model.HMModel;
+import hust.tools.hmm.stream.SupervisedHMMSample;
+import hust.tools.hmm.utils.StateSequence;
+
+/**
+ *<ul>
+ *<li>Description: 高阶HMM的精确维特比解码与A*束搜索解码的对比，输出两者的标注准确率、解码速度以及维特比得分更高的句子数量
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月9日
+ *</ul>
+ */
+public class HighOrderDecodeBenchmark {
+
+	private static final int order = 2;
+	private static final int folds = 10;
+	private static final int beamSize = 5;
+
+	public static void main(String[] args) throws IOException {
+		File file = args.length > 0 ? new File(args[0]) : new File(HighOrderDecodeBenchmark.class.getClassLoader().getResource("corpus/conll.train").getFile());
+		int order = args.length > 1 ? Integer.parseInt(args[1]) : HighOrderDecodeBenchmark.order;
+		List<SupervisedHMMSample> samples = TrainCorpusReader.readSupervisedHMMSamples(file, order);
+
+		List<SupervisedHMMSample> trainSamples = new ArrayList<>();
+		List<SupervisedHMMSample> testSamples = new ArrayList<>();
+		for(int i = 0; i < samples.size(); i++) {
+			if(i % folds == 0)
+				testSamples.add(samples.get(i));
+			else
+				trainSamples.add(samples.get(i));
+		}
+		System.out.println("order = " + order + "\ttrainSize = " + trainSamples.size() + "\ttestSize = " + testSamples.size());
+
+		HMModel model = new SupervisedWittenBellHMMTrainer(trainSamples, order).train();
+		HMMWithAStar aStar = new HMMWithAStar(model);
+		HMMWithHighOrderViterbi viterbi = new HMMWithHighOrderViterbi(model);
+
+		List<StateSequence> aStarResults = new ArrayList<>();
+		List<StateSequence> viterbiResults = new ArrayList<>();
+
+		long start = System.nanoTime();
+		for(SupervisedHMMSample sample : testSamples)
+			aStarResults.add(aStar.bestKStateSeqences(sample.getObservationSequence(), beamSize).get(0));
+		long aStarTime = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		for(SupervisedHMMSample sample : testSamples)
+			viterbiResults.add(viterbi.bestStateSeqence(sample.getObservationSequence()));
+		long viterbiTime = System.nanoTime() - start;
+
+		int tokens = 0;
+		int aStarCorrect = 0;
+		int viterbiCorrect = 0;
+		int better = 0;
+		for(int n = 0; n < testSamples.size(); n++) {
+			SupervisedHMMSample sample = testSamples.get(n);
+			StateSequence ref = sample.getStateSequence();
+			for(int i = 0; i < ref.length(); i++) {
+				tokens++;
+				if(ref.get(i).equals(aStarResults.get(n).get(i)))
+					aStarCorrect++;
+				if(ref.get(i).equals(viterbiResults.get(n).get(i)))
+					viterbiCorrect++;
+			}
+
+			double aStarScore = viterbi.getLogProb(sample.getObservationSequence(), aStarResults.get(n));
+			double viterbiScore = viterbi.getLogProb(sample.getObservationSequence(), viterbiResults.get(n));
+			if(viterbiScore > aStarScore + 1e-9)
+				better++;
+		}
+
+		System.out.println("A*(k=" + beamSize + ")\taccuracy = " + 1.0 * aStarCorrect / tokens + "\tsentences/s = " + testSamples.size() / (aStarTime / 1e9));
+		System.out.println("Viterbi\taccuracy = " + 1.0 * viterbiCorrect / tokens + "\tsentences/s = " + testSamples.size() / (viterbiTime / 1e9));
+		System.out.println("维特比得分高于A*的句子数量：" + better);
+	}
+}
@@ -1,7 +1,9 @@
 package hust.tools.hmm.demo.pos;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import hust.tools.hmm.model.BatchHMM;
 import hust.tools.hmm.model.HMM;
 import hust.tools.hmm.stream.SupervisedHMMSample;
 import hust.tools.hmm.utils.ObservationSequence;
@@ -22,11 +24,13 @@ public class POSEvaluator {
 	
 	public void eval() {
 		EvaluateMeasure measure = new EvaluateMeasure(dict);
-		for(SupervisedHMMSample sample : samples) {
+		List<StateSequence> predicts = predict(model, samples);
+		for(int n = 0; n < samples.size(); n++) {
+			SupervisedHMMSample sample = samples.get(n);
 			StateSequence refStateSeuence = sample.getStateSequence();
 			ObservationSequence wordSequence = sample.getObservationSequence();
 			
-			StateSequence preStateSeuence = model.bestStateSeqence(wordSequence);
+			StateSequence preStateSeuence = predicts.get(n);
 			String[] words = new String[wordSequence.length()];
 			String[] refPOS = new String[refStateSeuence.length()];
 			String[] prePOS = new String[refStateSeuence.length()];
@@ -40,4 +44,25 @@ public class POSEvaluator {
 						
 		System.out.println(measure);
 	}
+	
+	/**
+	 * 对样本的观测序列解码，模型支持批量解码时一次解码全部样本
+	 * @param model		HMM模型
+	 * @param samples	样本
+	 * @return			预测的隐藏序列，与样本顺序一致
+	 */
+	static List<StateSequence> predict(HMM model, List<SupervisedHMMSample> samples) {
+		List<ObservationSequence> wordSequences = new ArrayList<>(samples.size());
+		for(SupervisedHMMSample sample : samples)
+			wordSequences.add(sample.getObservationSequence());
+		
+		if(model instanceof BatchHMM)
+			return ((BatchHMM) model).bestStateSeqences(wordSequences);
+		
+		List<StateSequence> predicts = new ArrayList<>(samples.size());
+		for(ObservationSequence wordSequence : wordSequences)
+			predicts.add(model.bestStateSeqence(wordSequence));
+		
+		return predicts;
+	}
 }
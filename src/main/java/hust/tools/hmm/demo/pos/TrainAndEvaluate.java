@@ -14,8 +14,8 @@ import hust.tools.hmm.io.ObjectFileHMMReader;
 import hust.tools.hmm.io.ObjectFileHMMWriter;
 import hust.tools.hmm.io.TextFileHMMReader;
 import hust.tools.hmm.io.TextFileHMMWriter;
-import hust.tools.hmm.learn.DefaultConvergencyJudge;
 import hust.tools.hmm.learn.HMMTrainer;
+import hust.tools.hmm.learn.LikelihoodConvergencyJudge;
 import hust.tools.hmm.learn.SupervisedAdditionHMMTrainer;
 import hust.tools.hmm.learn.SupervisedGoodTuringHMMTrainer;
 import hust.tools.hmm.learn.SupervisedInterpolationHMMTrainer;
@@ -133,7 +133,9 @@ public class TrainAndEvaluate {
 			trainer = new HMModelByRandom(observationsSet, statesSet, 3);
 			System.out.println("已建立初始模型");
 			HMModel model = trainer.train();
-			trainer = new UnSupervisedBaumWelchHMMTrainer(model, trainSamples, new DefaultConvergencyJudge());
+			LikelihoodConvergencyJudge judge = new LikelihoodConvergencyJudge();
+			judge.setDiagnostics(System.out);
+			trainer = new UnSupervisedBaumWelchHMMTrainer(model, trainSamples, judge);
 		}		
 		
 		return trainer.train();
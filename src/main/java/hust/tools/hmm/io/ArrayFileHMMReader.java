@@ -0,0 +1,181 @@
+package hust.tools.hmm.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+import hust.tools.hmm.model.HMModelBasedArray;
+import hust.tools.hmm.model.HMModelBasedBuffer;
+import hust.tools.hmm.utils.Dictionary;
+import hust.tools.hmm.utils.StringObservation;
+import hust.tools.hmm.utils.StringState;
+
+/**
+ *<ul>
+ *<li>Description: 通过内存映射读取ArrayFileHMMWriter写出的数组二进制模型文件，概率数组整块复制，不做任何解析
+ *<li>readBufferModel()不复制概率数组，返回直接读取映射文件的模型，多个JVM映射同一文件时共享页缓存
+ *<li>隐藏状态和观测状态还原为StringState和StringObservation，单个文件不能超过2GB
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月16日
+ *</ul>
+ */
+public class ArrayFileHMMReader {
+
+	/**
+	 * 映射的模型文件
+	 */
+	private MappedByteBuffer buffer;
+
+	private Dictionary dict;
+
+	/**
+	 * 隐藏状态数量
+	 */
+	private int N;
+
+	/**
+	 * 发射矩阵的列数(包含未登录观测)
+	 */
+	private int M;
+
+	/**
+	 * 概率是否以float存储
+	 */
+	private boolean useFloat;
+
+	private long piOffset;
+	private long transitionOffset;
+	private long emissionOffset;
+
+	public ArrayFileHMMReader(String pathname) throws IOException {
+		this(new File(pathname));
+	}
+
+	public ArrayFileHMMReader(File file) throws IOException {
+		this(file, 0);
+	}
+
+	/**
+	 * 构造方法，读取从文件中给定位置开始直到文件末尾的模型，用于读取附加在其他数据之后的模型
+	 * @param file		模型文件
+	 * @param position	模型在文件中的起始位置
+	 * @throws IOException
+	 */
+	public ArrayFileHMMReader(File file, long position) throws IOException {
+		try(RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+			if(position < 0 || position > channel.size())
+				throw new IllegalArgumentException("模型的起始位置超出文件范围：" + position);
+			if(channel.size() - position > Integer.MAX_VALUE)
+				throw new IllegalArgumentException("模型文件超过2GB，无法映射：" + file);
+
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, channel.size() - position);
+		}
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		readHeader(file);
+	}
+
+	/**
+	 * 读取文件头和字符串表
+	 * @param file	模型文件
+	 */
+	private void readHeader(File file) {
+		if(buffer.capacity() < ArrayFileHMMWriter.HEADER_BYTES || buffer.getInt(0) != ArrayFileHMMWriter.MAGIC)
+			throw new IllegalArgumentException("不是数组二进制模型文件：" + file);
+		if(buffer.getInt(4) != ArrayFileHMMWriter.VERSION)
+			throw new IllegalArgumentException("不支持的模型文件版本：" + buffer.getInt(4));
+
+		useFloat = (buffer.getInt(8) & ArrayFileHMMWriter.FLOAT) != 0;
+		N = buffer.getInt(16);
+		int observations = buffer.getInt(20);
+		M = buffer.getInt(24);
+		long tableOffset = buffer.getLong(32);
+		piOffset = buffer.getLong(40);
+		transitionOffset = buffer.getLong(48);
+		emissionOffset = buffer.getLong(56);
+		if(buffer.getLong(64) != buffer.capacity())
+			throw new IllegalArgumentException("模型文件不完整：" + file);
+
+		dict = new Dictionary();
+		int position = (int) tableOffset;
+		for(int i = 0; i < N + observations; i++) {
+			int length = buffer.getInt(position);
+			byte[] bytes = new byte[length];
+			ByteBuffer slice = buffer.duplicate();
+			slice.position(position + 4);
+			slice.get(bytes);
+			position += 4 + length;
+
+			String name = new String(bytes, StandardCharsets.UTF_8);
+			if(i < N)
+				dict.put(new StringState(name), i);
+			else
+				dict.put(new StringObservation(name), i - N);
+		}
+	}
+
+	/**
+	 * 读取模型，概率数组复制到堆内存
+	 * @return	基于数组的HMM模型
+	 */
+	public HMModelBasedArray readModel() {
+		double[] pi = readArray(piOffset, N);
+		double[] transitionMatrix = readArray(transitionOffset, N * N);
+		double[] emissionMatrix = readArray(emissionOffset, N * M);
+
+		return new HMModelBasedArray(dict, pi, transitionMatrix, emissionMatrix);
+	}
+
+	/**
+	 * 返回直接读取映射文件的模型，概率数组不复制到堆内存，只支持以double存储的模型文件
+	 * @return	基于缓冲区的HMM模型
+	 */
+	public HMModelBasedBuffer readBufferModel() {
+		if(useFloat)
+			throw new IllegalArgumentException("以float存储的模型文件只能通过readModel()读取");
+
+		return new HMModelBasedBuffer(dict, section(piOffset, N), section(transitionOffset, N * N), section(emissionOffset, N * M));
+	}
+
+	/**
+	 * 返回从offset开始、长度为length的double视图
+	 */
+	private DoubleBuffer section(long offset, int length) {
+		ByteBuffer slice = buffer.duplicate();
+		slice.position((int) offset);
+		slice = slice.slice();
+		slice.limit(length * 8);
+
+		return slice.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+	}
+
+	/**
+	 * 读取从offset开始的length个概率
+	 */
+	private double[] readArray(long offset, int length) {
+		ByteBuffer slice = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		slice.position((int) offset);
+		double[] array = new double[length];
+		if(useFloat) {
+			for(int i = 0; i < length; i++)
+				array[i] = slice.getFloat();
+		}else
+			slice.asDoubleBuffer().get(array);
+
+		return array;
+	}
+
+	/**
+	 * 返回模型文件中的字典
+	 * @return	隐藏状态和观测状态的索引
+	 */
+	public Dictionary getDictionary() {
+		return dict;
+	}
+}
@@ -0,0 +1,211 @@
+package hust.tools.hmm.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+import hust.tools.hmm.model.HMModel;
+import hust.tools.hmm.model.HMModelBasedArray;
+import hust.tools.hmm.utils.Dictionary;
+
+/**
+ *<ul>
+ *<li>Description: 将1阶HMM以数组二进制格式写入文件，概率直接以小端的double或float数组写出，读取时不需要解析
+ *<li>文件格式(小端)：
+ *<li>文件头：魔数、版本、标志(1表示float)、阶数、隐藏状态数量N、观测状态数量、发射矩阵列数M、保留字，
+ *<li>之后为字符串表、pi、转移矩阵、发射矩阵的偏移以及文件长度(long)
+ *<li>字符串表：按索引顺序的N个隐藏状态和所有观测状态，每个为字节数(int)加UTF-8字节
+ *<li>pi[N]、A[N * N]、B[N * M]：概率对数，各节起始位置按8字节对齐，与HMModelBasedArray的数组布局相同
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月16日
+ *</ul>
+ */
+public class ArrayFileHMMWriter {
+
+	/**
+	 * 文件魔数，"HMMA"
+	 */
+	static final int MAGIC = 0x484D4D41;
+
+	static final int VERSION = 1;
+
+	/**
+	 * 标志位，概率以float写出
+	 */
+	static final int FLOAT = 1;
+
+	/**
+	 * 文件头的字节数
+	 */
+	static final int HEADER_BYTES = 8 * 4 + 5 * 8;
+
+	/**
+	 * 写缓冲区的字节数
+	 */
+	private static final int BUFFER_BYTES = 1 << 16;
+
+	private HMModelBasedArray model;
+
+	private File file;
+
+	/**
+	 * 是否以float写出概率
+	 */
+	private boolean useFloat;
+
+	public ArrayFileHMMWriter(HMModel model, String pathname) {
+		this(model, new File(pathname), false);
+	}
+
+	public ArrayFileHMMWriter(HMModel model, File file) {
+		this(model, file, false);
+	}
+
+	/**
+	 * 构造方法
+	 * @param model		1阶HMM模型
+	 * @param file		模型文件
+	 * @param useFloat	是否以float写出概率，文件大小减半，精度降为float
+	 */
+	public ArrayFileHMMWriter(HMModel model, File file, boolean useFloat) {
+		if(model.getOrder() != 1)
+			throw new IllegalArgumentException("数组二进制格式只支持1阶HMM");
+
+		this.model = model instanceof HMModelBasedArray ? (HMModelBasedArray) model : new HMModelBasedArray(model);
+		this.file = file;
+		this.useFloat = useFloat;
+	}
+
+	/**
+	 * 保存模型
+	 * @throws IOException
+	 */
+	public void persist() throws IOException {
+		try(FileOutputStream fos = new FileOutputStream(file); FileChannel channel = fos.getChannel()) {
+			persist(channel);
+		}
+	}
+
+	/**
+	 * 从通道的当前位置开始写出模型，文件头中的偏移均相对于该位置，可用于在其他数据之后附加模型
+	 * 写出的内容可由ArrayFileHMMReader(File, long)从该位置读取
+	 * @param channel	文件通道
+	 * @throws IOException
+	 */
+	public void persist(FileChannel channel) throws IOException {
+		Dictionary dict = model.getDict();
+		int N = model.statesCount();
+		int observations = model.observationsCount();
+		int M = model.emissionColumns();
+		int width = useFloat ? 4 : 8;
+
+		byte[][] strings = new byte[N + observations][];
+		long tableBytes = 0;
+		for(int i = 0; i < N; i++) {
+			strings[i] = dict.getState(i).toString().getBytes(StandardCharsets.UTF_8);
+			tableBytes += 4 + strings[i].length;
+		}
+		for(int k = 0; k < observations; k++) {
+			strings[N + k] = dict.getObservation(k).toString().getBytes(StandardCharsets.UTF_8);
+			tableBytes += 4 + strings[N + k].length;
+		}
+
+		long tableOffset = HEADER_BYTES;
+		long piOffset = align(tableOffset + tableBytes);
+		long transitionOffset = align(piOffset + (long) N * width);
+		long emissionOffset = align(transitionOffset + (long) N * N * width);
+		long length = emissionOffset + (long) N * M * width;
+
+		long base = channel.position();
+		ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(useFloat ? FLOAT : 0);
+		buffer.putInt(model.getOrder());
+		buffer.putInt(N);
+		buffer.putInt(observations);
+		buffer.putInt(M);
+		buffer.putInt(0);
+		buffer.putLong(tableOffset);
+		buffer.putLong(piOffset);
+		buffer.putLong(transitionOffset);
+		buffer.putLong(emissionOffset);
+		buffer.putLong(length);
+
+		//字符串表
+		for(byte[] bytes : strings) {
+			ensureRemaining(channel, buffer, 4);
+			buffer.putInt(bytes.length);
+			for(int offset = 0; offset < bytes.length; ) {
+				ensureRemaining(channel, buffer, 1);
+				int count = Math.min(buffer.remaining(), bytes.length - offset);
+				buffer.put(bytes, offset, count);
+				offset += count;
+			}
+		}
+
+		//概率数组
+		pad(channel, buffer, base + piOffset);
+		for(int i = 0; i < N; i++)
+			putValue(channel, buffer, model.getLogPi(i));
+
+		pad(channel, buffer, base + transitionOffset);
+		for(int i = 0; i < N; i++) {
+			for(int j = 0; j < N; j++)
+				putValue(channel, buffer, model.transitionLogProb(i, j));
+		}
+
+		pad(channel, buffer, base + emissionOffset);
+		for(int i = 0; i < N; i++) {
+			for(int k = 0; k < M; k++)
+				putValue(channel, buffer, model.emissionLogProb(i, k));
+		}
+
+		flush(channel, buffer);
+	}
+
+	/**
+	 * 向上对齐到8字节
+	 */
+	static long align(long offset) {
+		return (offset + 7) & ~7L;
+	}
+
+	private void putValue(FileChannel channel, ByteBuffer buffer, double value) throws IOException {
+		if(useFloat) {
+			ensureRemaining(channel, buffer, 4);
+			buffer.putFloat((float) value);
+		}else {
+			ensureRemaining(channel, buffer, 8);
+			buffer.putDouble(value);
+		}
+	}
+
+	/**
+	 * 写入0直到文件位置到达offset
+	 */
+	private void pad(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+		long position = channel.position() + buffer.position();
+		for(; position < offset; position++) {
+			ensureRemaining(channel, buffer, 1);
+			buffer.put((byte) 0);
+		}
+	}
+
+	private void ensureRemaining(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+		if(buffer.remaining() < bytes)
+			flush(channel, buffer);
+	}
+
+	private void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+}
@@ -1,15 +1,22 @@
 package hust.tools.hmm.learn;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import hust.tools.hmm.model.BackoffTransitionTable;
 import hust.tools.hmm.model.EmissionProbEntry;
 import hust.tools.hmm.model.HMModel;
+import hust.tools.hmm.model.HMModelBasedArray;
+import hust.tools.hmm.model.HMModelBasedMap;
+import hust.tools.hmm.model.HMModelWithBackoff;
 import hust.tools.hmm.model.TransitionProbEntry;
 import hust.tools.hmm.stream.SupervisedHMMSample;
 import hust.tools.hmm.stream.SupervisedHMMSampleStream;
 import hust.tools.hmm.utils.Dictionary;
+import hust.tools.hmm.utils.EncodedCorpus;
 import hust.tools.hmm.utils.State;
+import hust.tools.hmm.utils.StateHistoryIndex;
 import hust.tools.hmm.utils.StateSequence;
 
 /**
@@ -69,9 +76,32 @@ public abstract class AbstractSupervisedHMMTrainer implements HMMTrainer {
 		emissionMatrix = new HashMap<>();
 	}
 	
+	public AbstractSupervisedHMMTrainer(EncodedCorpus corpus, int order) {
+		this(new TransitionAndEmissionCounter(corpus, order));
+	}
+	
 	@Override
 	public abstract HMModel train();
 	
+	/**
+	 * 训练并返回基于数组的稠密HMM模型，只支持1阶HMM
+	 * @return	基于数组的HMM模型
+	 */
+	public HMModelBasedArray trainBasedArray() {
+		if(order != 1)
+			throw new IllegalArgumentException("基于数组的模型只支持1阶HMM");
+		
+		return new HMModelBasedArray(train());
+	}
+	
+	/**
+	 * 返回训练使用的转移发射计数器，可与不同的平滑策略一起创建HMModelBasedCounter，不需要重新计数
+	 * @return	转移发射计数器
+	 */
+	public TransitionAndEmissionCounter getCounter() {
+		return counter;
+	}
+	
 	/**
 	 * 计算初始概率矩阵
 	 * @param counter	转移发射计数器
@@ -106,4 +136,117 @@ public abstract class AbstractSupervisedHMMTrainer implements HMMTrainer {
 		
 		return (0 == n_Count || 0 == n_Count) ? 0 : 1.0 * nCount / n_Count;
 	}
+	
+	/**
+	 * 按字典序将隐藏状态索引表示的历史变为下一个长度相同的历史，用于遍历所有可能的转移起点
+	 * @param history	隐藏状态索引，从全0开始
+	 * @param N			隐藏状态数量
+	 * @return			true-存在下一个历史/false-已遍历完，此时history恢复为全0
+	 */
+	protected static boolean nextHistory(int[] history, int N) {
+		for(int p = history.length - 1; p >= 0; p--) {
+			if(++history[p] < N)
+				return true;
+			
+			history[p] = 0;
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * 返回按索引排列的所有隐藏状态
+	 * @return	隐藏状态，下标为隐藏状态索引
+	 */
+	protected State[] statesByIndex() {
+		State[] states = new State[dict.stateCount()];
+		for(int i = 0; i < states.length; i++)
+			states[i] = dict.getState(i);
+		
+		return states;
+	}
+	
+	/**
+	 * 将隐藏状态索引表示的历史转换为隐藏状态序列
+	 * @param states	按索引排列的隐藏状态
+	 * @param history	隐藏状态索引
+	 * @return			隐藏状态序列
+	 */
+	protected static StateSequence toStateSequence(State[] states, int[] history) {
+		State[] sequence = new State[history.length];
+		for(int p = 0; p < history.length; p++)
+			sequence[p] = states[history[p]];
+		
+		return new StateSequence(sequence);
+	}
+	
+	/**
+	 * 返回训练语料中出现过的长度为length的转移起点
+	 * @param length	起点的长度
+	 * @return			以隐藏状态索引表示的起点
+	 */
+	protected List<int[]> observedHistories(int length) {
+		List<int[]> histories = new ArrayList<>();
+		if(length == 1) {
+			for(int i = 0; i < dict.stateCount(); i++) {
+				int[] start = new int[]{i};
+				if(counter.getTransitionStartCount(start, 0, 1) > 0)
+					histories.add(start);
+			}
+		}else {
+			StateHistoryIndex contexts = counter.getTransitionContexts();
+			for(int h = 0; h < contexts.size(); h++) {
+				if(contexts.length(h) == length)
+					histories.add(contexts.toArray(h));
+			}
+		}
+		
+		return histories;
+	}
+	
+	/**
+	 * 返回计数不为0的隐藏状态索引
+	 * @param counts	counts[j]为转移到隐藏状态j的数量
+	 * @return			升序排列的隐藏状态索引
+	 */
+	protected static int[] observedTargets(int[] counts) {
+		int types = 0;
+		for(int j = 0; j < counts.length; j++) {
+			if(counts[j] != 0)
+				types++;
+		}
+		
+		int[] targets = new int[types];
+		for(int j = 0, n = 0; j < counts.length; j++) {
+			if(counts[j] != 0)
+				targets[n++] = j;
+		}
+		
+		return targets;
+	}
+	
+	/**
+	 * 返回隐藏状态的最大似然概率对数，作为回退形式转移概率中长度为0的上文的转移概率
+	 * @return	按隐藏状态索引排列的概率对数
+	 */
+	protected double[] unigramLogProbs() {
+		double[] unigram = new double[dict.stateCount()];
+		for(int j = 0; j < unigram.length; j++) {
+			int count = counter.getEmissionStateCount(dict.getState(j));
+			unigram[j] = count == 0 ? Math.log10(Double.MIN_VALUE) : Math.log10(1.0 * count / counter.getTotalStatesCount());
+		}
+		
+		return unigram;
+	}
+	
+	/**
+	 * 以已计算的初始概率、发射概率和回退形式的转移概率创建模型
+	 * @param transitions	回退形式的转移概率
+	 * @return				回退形式的HMM模型
+	 */
+	protected HMModelWithBackoff backoffModel(BackoffTransitionTable transitions) {
+		HMModel model = new HMModelBasedMap(order, dict, pi, new HashMap<StateSequence, TransitionProbEntry>(), emissionMatrix);
+		
+		return new HMModelWithBackoff(model, transitions);
+	}
 }
@@ -0,0 +1,33 @@
+package hust.tools.hmm.learn;
+
+/**
+ *<ul>
+ *<li>Description: 加delta平滑，与SupervisedAdditionHMMTrainer的结果相同
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月24日
+ *</ul>
+ */
+public class AdditionSmoothingStrategy extends DeltaSmoothingStrategy {
+
+	public AdditionSmoothingStrategy() {
+		this(DEFAULT_DELTA);
+	}
+
+	/**
+	 * 构造方法
+	 * @param delta	平滑值，不大于0时使用缺省值
+	 */
+	public AdditionSmoothingStrategy(double delta) {
+		super(delta);
+	}
+
+	@Override
+	public void transitionLogProbs(TransitionAndEmissionCounter counter, int[] start, int from, int length, double[] logProbs) {
+		int N = logProbs.length;
+		int[] counts = new int[N];
+		int n_Count = counter.getTransitionCounts(start, from, length, counts);
+		for(int j = 0; j < N; j++)
+			logProbs[j] = Math.log10((delta + counts[j]) / (n_Count + N * delta));
+	}
+}
@@ -0,0 +1,134 @@
+package hust.tools.hmm.learn;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import hust.tools.hmm.io.ArrayFileHMMReader;
+import hust.tools.hmm.io.ArrayFileHMMWriter;
+import hust.tools.hmm.model.HMModel;
+
+/**
+ *<ul>
+ *<li>Description: Baum-Welch训练的检查点，包括当前模型、已完成的迭代次数和每次迭代E步得到的训练语料概率的对数
+ *<li>文件先写入同目录下的临时文件，写完后再重命名为目标文件，中途中断时不会破坏已有的检查点
+ *<li>文件格式：魔数、迭代次数、对数似然度数量、对数似然度，之后为ArrayFileHMMWriter写出的数组二进制模型，概率数组整块写出和读取
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月14日
+ *</ul>
+ */
+public class BaumWelchCheckpoint {
+
+	/**
+	 * 文件魔数，"HMMK"
+	 */
+	private static final int MAGIC = 0x484D4D4B;
+
+	/**
+	 * 当前模型
+	 */
+	private final HMModel model;
+
+	/**
+	 * 已完成的迭代次数
+	 */
+	private final int iteration;
+
+	/**
+	 * logLikelihoods[i]为第i + 1次迭代E步得到的训练语料概率的对数
+	 */
+	private final double[] logLikelihoods;
+
+	public BaumWelchCheckpoint(HMModel model, int iteration, double[] logLikelihoods) {
+		this.model = model;
+		this.iteration = iteration;
+		this.logLikelihoods = logLikelihoods;
+	}
+
+	/**
+	 * 读取检查点文件
+	 * @param file	检查点文件
+	 * @return		检查点
+	 * @throws IOException
+	 */
+	public static BaumWelchCheckpoint read(File file) throws IOException {
+		int iteration;
+		double[] logLikelihoods;
+		try(DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if(dis.readInt() != MAGIC)
+				throw new IllegalArgumentException("不是Baum-Welch检查点文件：" + file);
+
+			iteration = dis.readInt();
+			logLikelihoods = new double[dis.readInt()];
+			for(int i = 0; i < logLikelihoods.length; i++)
+				logLikelihoods[i] = dis.readDouble();
+		}
+
+		long position = 3 * 4 + 8L * logLikelihoods.length;
+		HMModel model = new ArrayFileHMMReader(file, position).readModel();
+
+		return new BaumWelchCheckpoint(model, iteration, logLikelihoods);
+	}
+
+	/**
+	 * 将检查点原子地写入文件：先写入临时文件并强制刷到磁盘，再重命名为目标文件，模型须为1阶HMM
+	 * 重命名前刷盘保证系统崩溃或断电后目标文件要么是旧的检查点，要么是完整的新检查点
+	 * @param file	检查点文件
+	 * @throws IOException
+	 */
+	public void write(File file) throws IOException {
+		File temp = new File(file.getPath() + ".tmp");
+		try(FileOutputStream fos = new FileOutputStream(temp); FileChannel channel = fos.getChannel()) {
+			DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(fos));
+			dos.writeInt(MAGIC);
+			dos.writeInt(iteration);
+			dos.writeInt(logLikelihoods.length);
+			for(double logLikelihood : logLikelihoods)
+				dos.writeDouble(logLikelihood);
+			dos.flush();
+
+			new ArrayFileHMMWriter(model, temp).persist(channel);
+			channel.force(true);
+		}
+
+		try {
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * 返回检查点的模型
+	 * @return	HMM模型
+	 */
+	public HMModel getModel() {
+		return model;
+	}
+
+	/**
+	 * 返回已完成的迭代次数
+	 * @return	迭代次数
+	 */
+	public int getIteration() {
+		return iteration;
+	}
+
+	/**
+	 * 返回每次迭代E步得到的训练语料概率的对数
+	 * @return	对数似然度
+	 */
+	public double[] getLogLikelihoods() {
+		return logLikelihoods;
+	}
+}
@@ -0,0 +1,294 @@
+package hust.tools.hmm.learn;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import hust.tools.hmm.model.EmissionProbEntry;
+import hust.tools.hmm.model.HMModel;
+import hust.tools.hmm.model.HMModelBasedMap;
+import hust.tools.hmm.model.ScaledForwardBackwardAlgorithm;
+import hust.tools.hmm.model.TransitionProbEntry;
+import hust.tools.hmm.utils.Dictionary;
+import hust.tools.hmm.utils.Observation;
+import hust.tools.hmm.utils.State;
+import hust.tools.hmm.utils.StateSequence;
+
+/**
+ *<ul>
+ *<li>Description: Baum-Welch算法E步累计的期望统计量，每个分片一个实例，迭代结束时按分片顺序合并
+ *<li>xi按时刻计算到可复用的N*N缓冲区后直接累加，不保存整个句子的T*N*N张量
+ *<li>在线训练时以interpolate()按步长将小批量的统计量插值到累计的统计量
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月11日
+ *</ul>
+ */
+class BaumWelchStatistics {
+
+	/**
+	 * piNumerator[i]初始转移为i的概率之和
+	 */
+	final double[] piNumerator;
+
+	/**
+	 * 所有初始转移概率之和
+	 */
+	double piDenominator;
+
+	/**
+	 * transitionNumerator[i][j]由i转移到j的概率之和
+	 */
+	final double[][] transitionNumerator;
+
+	/**
+	 * transitionDenominator[i]由i转移的概率之和
+	 */
+	final double[] transitionDenominator;
+
+	/**
+	 * emissionNumerator[i][k]由i发射到k的概率之和
+	 */
+	final double[][] emissionNumerator;
+
+	/**
+	 * emissionDenominator[i]由i发射的概率之和
+	 */
+	final double[] emissionDenominator;
+
+	/**
+	 * 已累加观测序列的概率的对数之和
+	 */
+	double logLikelihood;
+
+	/**
+	 * 当前时刻的xi，xi[i * N + j]
+	 */
+	private final double[] xi;
+
+	/**
+	 * 当前时刻的gamma
+	 */
+	private final double[] gamma;
+
+	/**
+	 * 后向概率与发射概率的乘积
+	 */
+	private final double[] temp;
+
+	/**
+	 * 构造方法
+	 * @param N	隐藏状态数量
+	 * @param M	观测状态数量
+	 */
+	BaumWelchStatistics(int N, int M) {
+		piNumerator = new double[N];
+		piDenominator = 0.0;
+		transitionNumerator = new double[N][N];
+		transitionDenominator = new double[N];
+		emissionNumerator = new double[N][M];
+		emissionDenominator = new double[N];
+		xi = new double[N * N];
+		gamma = new double[N];
+		temp = new double[N];
+	}
+
+	/**
+	 * 计算observations[from, from + T)的前向、后向概率，并将gamma和xi累加到统计量
+	 * @param algorithm		前向-后向算法
+	 * @param observations	观测索引序列，小于0的索引视为未登录观测
+	 * @param from			起始位置
+	 * @param T				观测序列长度
+	 * @return				观测序列概率的对数
+	 */
+	double accumulate(ScaledForwardBackwardAlgorithm algorithm, int[] observations, int from, int T) {
+		double logProb = algorithm.forward(observations, from, T);
+		algorithm.backward(observations, from, T);
+		logLikelihood += logProb;
+
+		int N = piNumerator.length;
+		int M = emissionDenominator.length == 0 ? 0 : emissionNumerator[0].length;
+		double[] alpha = algorithm.getAlpha();
+		double[] beta = algorithm.getBeta();
+		double[] scale = algorithm.getScale();
+		double[] A = algorithm.getTransition();
+		double[] BT = algorithm.getEmission();
+
+		for(int t = 0; t < T; t++) {
+			int current = t * N;
+
+			//gamma[i] = alpha[t][i] * beta[t][i] * scale[t]，归一化消除舍入误差
+			double sum = 0.0;
+			for(int i = 0; i < N; i++) {
+				gamma[i] = alpha[current + i] * beta[current + i] * scale[t];
+				sum += gamma[i];
+			}
+			if(sum > 0.0) {
+				for(int i = 0; i < N; i++)
+					gamma[i] /= sum;
+			}
+
+			int k = observations[from + t];
+			for(int i = 0; i < N; i++) {
+				if(t == 0) {
+					piNumerator[i] += gamma[i];
+					piDenominator += gamma[i];
+				}
+
+				if(t < T - 1)
+					transitionDenominator[i] += gamma[i];
+
+				emissionDenominator[i] += gamma[i];
+				if(k >= 0 && k < M)
+					emissionNumerator[i][k] += gamma[i];
+			}
+
+			if(t == T - 1)
+				break;
+
+			//xi[i][j] = alpha[t][i] * A[i][j] * B[j][O(t+1)] * beta[t+1][j]
+			int next = current + N;
+			int column = algorithm.emissionColumn(observations[from + t + 1]) * N;
+			for(int j = 0; j < N; j++)
+				temp[j] = BT[column + j] * beta[next + j];
+
+			sum = 0.0;
+			for(int i = 0; i < N; i++) {
+				double a = alpha[current + i];
+				int row = i * N;
+				for(int j = 0; j < N; j++) {
+					double value = a * A[row + j] * temp[j];
+					xi[row + j] = value;
+					sum += value;
+				}
+			}
+
+			if(sum > 0.0) {
+				for(int i = 0; i < N; i++) {
+					double[] numerator = transitionNumerator[i];
+					int row = i * N;
+					for(int j = 0; j < N; j++)
+						numerator[j] += xi[row + j] / sum;
+				}
+			}
+		}
+
+		return logProb;
+	}
+
+	/**
+	 * 将另一个分片的统计量累加到当前统计量
+	 * @param other	另一个分片的统计量
+	 */
+	void merge(BaumWelchStatistics other) {
+		int N = piNumerator.length;
+		piDenominator += other.piDenominator;
+		logLikelihood += other.logLikelihood;
+		for(int i = 0; i < N; i++) {
+			piNumerator[i] += other.piNumerator[i];
+			transitionDenominator[i] += other.transitionDenominator[i];
+			emissionDenominator[i] += other.emissionDenominator[i];
+
+			for(int j = 0; j < N; j++)
+				transitionNumerator[i][j] += other.transitionNumerator[i][j];
+
+			double[] emission = emissionNumerator[i];
+			double[] otherEmission = other.emissionNumerator[i];
+			for(int k = 0; k < emission.length; k++)
+				emission[k] += otherEmission[k];
+		}
+	}
+
+	/**
+	 * 按步长eta将另一组统计量插值到当前统计量，即s = (1 - eta) * s + eta * other
+	 * @param other	小批量的统计量
+	 * @param eta	步长，(0, 1]
+	 */
+	void interpolate(BaumWelchStatistics other, double eta) {
+		int N = piNumerator.length;
+		double keep = 1.0 - eta;
+		piDenominator = keep * piDenominator + eta * other.piDenominator;
+		for(int i = 0; i < N; i++) {
+			piNumerator[i] = keep * piNumerator[i] + eta * other.piNumerator[i];
+			transitionDenominator[i] = keep * transitionDenominator[i] + eta * other.transitionDenominator[i];
+			emissionDenominator[i] = keep * emissionDenominator[i] + eta * other.emissionDenominator[i];
+
+			double[] transition = transitionNumerator[i];
+			double[] otherTransition = other.transitionNumerator[i];
+			for(int j = 0; j < N; j++)
+				transition[j] = keep * transition[j] + eta * otherTransition[j];
+
+			double[] emission = emissionNumerator[i];
+			double[] otherEmission = other.emissionNumerator[i];
+			for(int k = 0; k < emission.length; k++)
+				emission[k] = keep * emission[k] + eta * otherEmission[k];
+		}
+	}
+
+	/**
+	 * 清空统计量，以便复用
+	 */
+	void clear() {
+		piDenominator = 0.0;
+		logLikelihood = 0.0;
+		Arrays.fill(piNumerator, 0.0);
+		Arrays.fill(transitionDenominator, 0.0);
+		Arrays.fill(emissionDenominator, 0.0);
+		for(int i = 0; i < piNumerator.length; i++) {
+			Arrays.fill(transitionNumerator[i], 0.0);
+			Arrays.fill(emissionNumerator[i], 0.0);
+		}
+	}
+
+	/**
+	 * 根据期望统计量重新估算模型参数，没有期望次数的隐藏状态沿用当前模型的参数
+	 * @param model	当前模型
+	 * @return		新的HMM模型
+	 */
+	HMModel maximization(HMModel model) {
+		Dictionary dict = model.getDict();
+		HashMap<State, Double> pi = new HashMap<>();
+		HashMap<StateSequence, TransitionProbEntry> transitionMatrix = new HashMap<>();
+		HashMap<StateSequence, TransitionProbEntry> tempTransitionMatrix = model.getTransitionMatrix();
+		HashMap<State, EmissionProbEntry> emissionMatrix = new HashMap<>();
+		
+		int N = model.statesCount();
+		int M = model.observationsCount();
+		
+		double prob = 0.0;
+		for(int i = 0; i < N; i++) {
+			State state = dict.getState(i);
+			
+			//计算初始转移概率
+			prob = 0.001 + 0.999 * piNumerator[i] / piDenominator;
+			pi.put(state, Math.log10(prob));
+			
+			//计算转移概率
+			StateSequence start = new StateSequence(state);
+			TransitionProbEntry transitionProbEntry = new TransitionProbEntry();
+			for(int j = 0; j < N; j++) {
+				State target = dict.getState(j);
+				if(transitionDenominator[i] == 0)
+					prob = Math.pow(10, tempTransitionMatrix.get(start).getTransitionLogProb(target));
+				else
+					prob = 0.001 + 0.999 * transitionNumerator[i][j] / transitionDenominator[i];
+				
+				transitionProbEntry.put(target, Math.log10(prob));
+			}
+			transitionMatrix.put(start, transitionProbEntry);
+		
+			//计算发射概率
+			EmissionProbEntry emissionProbEntry = new EmissionProbEntry();
+			for(int j = 0; j < M; j++) {
+				Observation observation = dict.getObservation(j);
+				if(emissionDenominator[i] == 0)
+					prob = Math.pow(10, model.emissionLogProb(i, j));
+				else
+					prob = 0.001 + 0.999 * emissionNumerator[i][j] / emissionDenominator[i];
+				emissionProbEntry.put(observation, Math.log10(prob));
+			}
+			emissionMatrix.put(state, emissionProbEntry);
+		}
+
+		return new HMModelBasedMap(1, dict, pi, transitionMatrix, emissionMatrix);
+	}
+}
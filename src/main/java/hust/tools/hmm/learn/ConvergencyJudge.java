@@ -23,4 +23,25 @@ public interface ConvergencyJudge {
 	 * @return						true-收敛/false-不收敛
 	 */
 	public boolean isConvergency(HMModel preModel, HMModel currentModel, List<ObservationSequence> trainSequences, int iteration);
+	
+	/**
+	 * 返回模型是否收敛，训练器在E步已经计算出训练语料在上一次迭代模型下的概率的对数时调用，默认忽略该值
+	 * @param preModel			上一次迭代的模型
+	 * @param currentModel		当前模型
+	 * @param trainSequences	观测序列集，流式训练或使用编码语料时为空
+	 * @param logLikelihood		E步计算的训练语料在preModel下的概率的对数
+	 * @param iteration			迭代次数
+	 * @return					true-收敛/false-不收敛
+	 */
+	public default boolean isConvergency(HMModel preModel, HMModel currentModel, List<ObservationSequence> trainSequences, double logLikelihood, int iteration) {
+		return isConvergency(preModel, currentModel, trainSequences, iteration);
+	}
+	
+	/**
+	 * 从检查点恢复训练时调用，给出检查点中最后一次迭代E步的对数似然度，默认忽略
+	 * @param previous	恢复前最后一次迭代E步计算的训练语料概率的对数
+	 */
+	public default void reset(double previous) {
+		
+	}
 }
@@ -8,7 +8,7 @@ import java.io.OutputStreamWriter;
 import java.util.List;
 import java.util.Set;
 
-import hust.tools.hmm.model.ForwardAlgorithm;
+import hust.tools.hmm.model.ScaledForwardBackwardAlgorithm;
 import hust.tools.hmm.model.HMModel;
 import hust.tools.hmm.utils.Observation;
 import hust.tools.hmm.utils.ObservationSequence;
@@ -37,7 +37,8 @@ public class DefaultConvergencyJudge implements ConvergencyJudge {
 	public boolean isConvergency(HMModel preModel, HMModel currentModel, List<ObservationSequence> trainSequences, int iteration) {	
 		double preLogProb, currentLogProb;
 		preLogProb = currentLogProb = 0.0;
-		ForwardAlgorithm algorithm = null;
+		ScaledForwardBackwardAlgorithm preAlgorithm = new ScaledForwardBackwardAlgorithm(preModel);
+		ScaledForwardBackwardAlgorithm currentAlgorithm = new ScaledForwardBackwardAlgorithm(currentModel);
 		
 		try {
 			write(preModel, currentModel, iteration);
@@ -46,13 +47,11 @@ public class DefaultConvergencyJudge implements ConvergencyJudge {
 		}
 		
 		for(ObservationSequence sequence : trainSequences) {
-			algorithm = new ForwardAlgorithm(preModel, sequence);
-			preLogProb += algorithm.getProb();
-			algorithm = new ForwardAlgorithm(currentModel, sequence);
-			currentLogProb += algorithm.getProb();
+			preLogProb += preAlgorithm.logLikelihood(sequence);
+			currentLogProb += currentAlgorithm.logLikelihood(sequence);
 		}
 		
-		System.out.println("iter = " + iteration + "\tpreLogProb = " + Math.log10(preLogProb) +"\tcurrentLogProb = " + Math.log10(currentLogProb));
+		System.out.println("iter = " + iteration + "\tpreLogProb = " + preLogProb +"\tcurrentLogProb = " + currentLogProb);
 		System.out.println("max = " + max + "\tmin = " + min);
 		
 		if(iteration >= DEFAULT_ITERATION)
@@ -0,0 +1,63 @@
+package hust.tools.hmm.learn;
+
+/**
+ *<ul>
+ *<li>Description: 初始概率和发射概率采用加delta平滑的平滑策略，子类只需计算转移概率
+ *<li>初始概率p=(C+delta)/(M+N*delta)，发射概率p=(C+delta)/(M+N*delta+delta)，N为隐藏状态或观测状态的类型数
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月24日
+ *</ul>
+ */
+public abstract class DeltaSmoothingStrategy implements SmoothingStrategy {
+
+	/**
+	 * 平滑值
+	 */
+	protected final double delta;
+
+	/**
+	 * 构造方法
+	 * @param delta	平滑值，不大于0时使用缺省值
+	 */
+	public DeltaSmoothingStrategy(double delta) {
+		this.delta = delta <= 0 ? DEFAULT_DELTA : delta;
+	}
+
+	@Override
+	public double logPi(TransitionAndEmissionCounter counter, int i) {
+		int N = counter.getDictionary().stateCount();
+		int M = counter.getTotalStartStatesCount();
+
+		return Math.log10((counter.getStartStateCount(i) + delta) / (M + N * delta));
+	}
+
+	@Override
+	public double emissionLogProb(TransitionAndEmissionCounter counter, int i, int k) {
+		int N = counter.getDictionary().observationCount();
+		int M = counter.getEmissionStateCount(i);
+		int C = counter.getEmissionCount(i, k);
+		if(C == 0)
+			return unknownEmissionLogProb(M, N);
+
+		return Math.log10((C + delta) / (M + N * delta + delta));
+	}
+
+	/**
+	 * 返回隐藏状态发射未登录观测(或该状态未发射过的观测)的概率对数
+	 * @param M	隐藏状态发射的总数量
+	 * @param N	观测状态的类型数
+	 * @return	发射概率对数
+	 */
+	protected double unknownEmissionLogProb(int M, int N) {
+		return Math.log10(delta / (M + N * delta + delta));
+	}
+
+	/**
+	 * 返回平滑值
+	 * @return	平滑值
+	 */
+	public double getDelta() {
+		return delta;
+	}
+}
@@ -45,12 +45,21 @@ public class EmissionCountEntry {
 	 * @param observation	待增加的目标观测状态
 	 */
 	public void add(Observation observation) {
+		add(observation, 1);
+	}
+	
+	/**
+	 * 增加count个发射的目标观测状态
+	 * @param observation	待增加的目标观测状态
+	 * @param count			增加的数量
+	 */
+	public void add(Observation observation, int count) {
 		if(emissionCount.containsKey(observation))
-			emissionCount.put(observation, emissionCount.get(observation) + 1);
+			emissionCount.put(observation, emissionCount.get(observation) + count);
 		else
-			emissionCount.put(observation, 1);
+			emissionCount.put(observation, count);
 		
-		total++;
+		total += count;
 	}
 	
 	/**
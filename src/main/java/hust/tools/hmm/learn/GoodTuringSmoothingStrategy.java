@@ -0,0 +1,93 @@
+package hust.tools.hmm.learn;
+
+/**
+ *<ul>
+ *<li>Description: 转移概率采用Good-Turing折扣，初始概率和发射概率加0.01平滑，与SupervisedGoodTuringHMMTrainer的结果相同
+ *<li>折扣系数在第一次查询某个计数器时统计并缓存，计数器更新后应创建新的策略
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月24日
+ *</ul>
+ */
+public class GoodTuringSmoothingStrategy extends DeltaSmoothingStrategy {
+
+	/**
+	 * 缺省的计数折扣阈值
+	 */
+	private final static int DEFALUE_K = 7;
+
+	/**
+	 * 计数折扣阈值，大于此值不进行折扣
+	 */
+	private int K;
+
+	/**
+	 * 已统计折扣系数的计数器
+	 */
+	private TransitionAndEmissionCounter counted;
+
+	/**
+	 * counted的折扣系数
+	 */
+	private GoodTuringCounts goodTuringCounts;
+
+	public GoodTuringSmoothingStrategy() {
+		this(DEFALUE_K);
+	}
+
+	/**
+	 * 构造方法
+	 * @param K	计数折扣阈值，不大于0时使用缺省值
+	 */
+	public GoodTuringSmoothingStrategy(int K) {
+		super(DEFAULT_DELTA);
+		this.K = K > 0 ? K : DEFALUE_K;
+	}
+
+	/**
+	 * 返回给定计数器的折扣系数
+	 * @param counter	转移发射计数器
+	 * @return			折扣系数
+	 */
+	private synchronized GoodTuringCounts goodTuringCounts(TransitionAndEmissionCounter counter) {
+		if(counter != counted) {
+			goodTuringCounts = new GoodTuringCounts(counter.getTransitionCount(), counter.getOrder(), K);
+			counted = counter;
+		}
+
+		return goodTuringCounts;
+	}
+
+	@Override
+	public void transitionLogProbs(TransitionAndEmissionCounter counter, int[] start, int from, int length, double[] logProbs) {
+		GoodTuringCounts goodTuringCounts = goodTuringCounts(counter);
+		int N = logProbs.length;
+		int[] counts = new int[N];
+		counter.getTransitionCounts(start, from, length, counts);
+
+		double unseen = goodTuringCounts.getN1ByOrder(length) / goodTuringCounts.getTotalByOrder(length) / (Math.pow(N, length));
+		for(int j = 0; j < N; j++) {
+			int r = counts[j];
+			if(r != 0)
+				logProbs[j] = Math.log10(r * goodTuringCounts.getDiscountCoeff(length, r) / goodTuringCounts.getTotalByOrder(length));
+			else
+				logProbs[j] = Math.log10(unseen);
+		}
+	}
+
+	/**
+	 * 与训练器相同，未登录观测的发射概率p=delta/(M+N*delta)
+	 */
+	@Override
+	protected double unknownEmissionLogProb(int M, int N) {
+		return Math.log10(delta / (M + N * delta));
+	}
+
+	/**
+	 * 返回计数折扣阈值
+	 * @return	计数折扣阈值
+	 */
+	public int getK() {
+		return K;
+	}
+}
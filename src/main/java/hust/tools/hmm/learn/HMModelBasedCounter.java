@@ -0,0 +1,405 @@
+package hust.tools.hmm.learn;
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import hust.tools.hmm.model.EmissionProbEntry;
+import hust.tools.hmm.model.HMModel;
+import hust.tools.hmm.model.HMModelBasedArray;
+import hust.tools.hmm.model.HMModelBasedMap;
+import hust.tools.hmm.model.TransitionProbEntry;
+import hust.tools.hmm.utils.CommonUtils;
+import hust.tools.hmm.utils.Dictionary;
+import hust.tools.hmm.utils.Observation;
+import hust.tools.hmm.utils.State;
+import hust.tools.hmm.utils.StateSequence;
+
+/**
+ *<ul>
+ *<li>Description: 直接基于计数器的HMM模型，概率在查询时由平滑策略按需计算，不预先构造概率矩阵
+ *<li>转移概率按起点整行计算，缓存在有界的直接映射缓存中：起点打包为long键，按哈希值放入固定的槽，冲突时替换槽中原有的行
+ *<li>缓存的槽为AtomicReferenceArray，查询和写入都不加锁，键不装箱；初始概率在第一次查询时计算，发射概率每次直接由计数计算
+ *<li>更换平滑策略或平滑值只需用同一个计数器创建新的模型，不需要重新计数和训练；计数器更新后应调用clearCache()
+ *<li>计数器和平滑策略不支持序列化，序列化本模型会抛出NotSerializableException，用于解码服务或保存模型前应调用freeze()转换为基于数组或哈希表的模型
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月24日
+ *</ul>
+ */
+public class HMModelBasedCounter implements HMModel {
+
+	/**
+	 * 版本序列号
+	 */
+	private static final long serialVersionUID = -6950329414526751093L;
+
+	/**
+	 * 概率为0时的对数
+	 */
+	private static final double LOG_ZERO = Math.log10(Double.MIN_VALUE);
+
+	/**
+	 * 缺省缓存的转移概率行数
+	 */
+	private static final int DEFAULT_CACHE_ROWS = 4096;
+
+	/**
+	 * 转移发射计数器
+	 */
+	private TransitionAndEmissionCounter counter;
+
+	/**
+	 * 平滑策略
+	 */
+	private SmoothingStrategy strategy;
+
+	/**
+	 * 隐藏状态和观测状态的索引
+	 */
+	private Dictionary dict;
+
+	/**
+	 * 模型阶数
+	 */
+	private int order;
+
+	/**
+	 * 隐藏状态数量
+	 */
+	private int N;
+
+	/**
+	 * 打包起点时每个隐藏状态占用的位数
+	 */
+	private int bits;
+
+	/**
+	 * 初始概率对数，第一次查询时计算
+	 */
+	private volatile double[] pi;
+
+	/**
+	 * 缓存的转移概率行，起点打包后的键决定所在的槽，长度为缓存行数
+	 */
+	private AtomicReferenceArray<CachedRow> cache;
+
+	/**
+	 * 构造方法，缓存缺省行数的转移概率
+	 * @param counter	转移发射计数器
+	 * @param strategy	平滑策略
+	 */
+	public HMModelBasedCounter(TransitionAndEmissionCounter counter, SmoothingStrategy strategy) {
+		this(counter, strategy, DEFAULT_CACHE_ROWS);
+	}
+
+	/**
+	 * 构造方法
+	 * @param counter	转移发射计数器
+	 * @param strategy	平滑策略
+	 * @param cacheRows	最多缓存的转移概率行数，为0时不缓存
+	 */
+	public HMModelBasedCounter(TransitionAndEmissionCounter counter, SmoothingStrategy strategy, int cacheRows) {
+		if(cacheRows < 0)
+			throw new IllegalArgumentException("缓存行数不能为负数： cacheRows = " + cacheRows);
+
+		this.counter = counter;
+		this.strategy = strategy;
+		dict = counter.getDictionary();
+		order = counter.getOrder();
+		N = dict.stateCount();
+		bits = 32 - Integer.numberOfLeadingZeros(N);
+		cache = new AtomicReferenceArray<>(cacheRows);
+	}
+
+	/**
+	 * 返回由给定起点转移到所有隐藏状态的概率对数，起点可打包时使用缓存
+	 * @param start	隐藏状态索引，长度在1至order之间
+	 * @return		转移概率对数，不应修改
+	 */
+	private double[] row(int[] start) {
+		int capacity = cache.length();
+		if(capacity == 0 || bits * start.length > 63) {
+			double[] logProbs = new double[N];
+			strategy.transitionLogProbs(counter, start, 0, start.length, logProbs);
+
+			return logProbs;
+		}
+
+		long key = 0;
+		for(int p = 0; p < start.length; p++)
+			key = (key << bits) | (start[p] + 1);
+
+		int slot = (int) (((key * 0x9E3779B97F4A7C15L) >>> 1) % capacity);
+		CachedRow row = cache.get(slot);
+		if(row != null && row.key == key)
+			return row.logProbs;
+
+		//多个线程同时未命中时各自计算，结果相同，后写入的覆盖先写入的
+		double[] logProbs = new double[N];
+		strategy.transitionLogProbs(counter, start, 0, start.length, logProbs);
+		cache.set(slot, new CachedRow(key, logProbs));
+
+		return logProbs;
+	}
+
+	/**
+	 * 清空缓存的初始概率和转移概率，计数器更新后调用
+	 */
+	public void clearCache() {
+		pi = null;
+		for(int slot = 0; slot < cache.length(); slot++)
+			cache.set(slot, null);
+	}
+
+	/**
+	 * 返回已缓存的转移概率行数，需要遍历所有的槽，用于监控和测试
+	 * @return	缓存的行数
+	 */
+	public int cacheSize() {
+		int size = 0;
+		for(int slot = 0; slot < cache.length(); slot++) {
+			if(cache.get(slot) != null)
+				size++;
+		}
+
+		return size;
+	}
+
+	/**
+	 * 返回转移发射计数器
+	 * @return	计数器
+	 */
+	public TransitionAndEmissionCounter getCounter() {
+		return counter;
+	}
+
+	/**
+	 * 返回平滑策略
+	 * @return	平滑策略
+	 */
+	public SmoothingStrategy getStrategy() {
+		return strategy;
+	}
+
+	/**
+	 * 计算所有参数并转换为可序列化的模型：1阶时为基于数组的稠密模型，高阶时为展开所有1至order阶起点的基于哈希表的模型
+	 * @return	与当前模型概率相同的模型
+	 */
+	public HMModel freeze() {
+		if(order == 1)
+			return new HMModelBasedArray(this);
+
+		return new HMModelBasedMap(order, dict, getPi(), getTransitionMatrix(), getEmissionMatrix());
+	}
+
+	@Override
+	public double getLogPi(State i) {
+		return getLogPi(dict.getIndex(i));
+	}
+
+	@Override
+	public double getLogPi(int i) {
+		if(i < 0 || i >= N)
+			return LOG_ZERO;
+
+		double[] pi = this.pi;
+		if(pi == null) {
+			pi = new double[N];
+			for(int j = 0; j < N; j++)
+				pi[j] = strategy.logPi(counter, j);
+			this.pi = pi;
+		}
+
+		return pi[i];
+	}
+
+	@Override
+	public double transitionLogProb(int[] start, int target) {
+		if(start.length < 1 || start.length > order || target < 0 || target >= N)
+			return LOG_ZERO;
+		for(int p = 0; p < start.length; p++) {
+			if(start[p] < 0 || start[p] >= N)
+				return LOG_ZERO;
+		}
+
+		return row(start)[target];
+	}
+
+	@Override
+	public double transitionLogProb(StateSequence start, State target) {
+		int[] indexes = new int[start.length()];
+		for(int p = 0; p < indexes.length; p++)
+			indexes[p] = dict.getIndex(start.get(p));
+
+		return transitionLogProb(indexes, dict.getIndex(target));
+	}
+
+	@Override
+	public double emissionLogProb(State state, Observation observation) {
+		return emissionLogProb(dict.getIndex(state), dict.getIndex(observation));
+	}
+
+	@Override
+	public double emissionLogProb(int i, int t) {
+		if(i < 0 || i >= N)
+			return LOG_ZERO;
+
+		return strategy.emissionLogProb(counter, i, t);
+	}
+
+	@Override
+	public Observation[] getObservations() {
+		Set<Observation> set = dict.getObservations();
+
+		return set.toArray(new Observation[set.size()]);
+	}
+
+	@Override
+	public State[] getStates() {
+		Set<State> set = dict.getStates();
+
+		return set.toArray(new State[set.size()]);
+	}
+
+	@Override
+	public State getState(int index) {
+		return dict.getState(index);
+	}
+
+	@Override
+	public int statesCount() {
+		return N;
+	}
+
+	@Override
+	public int observationsCount() {
+		return dict.observationCount();
+	}
+
+	@Override
+	public int getObservationIndex(Observation observation) {
+		if(!dict.containObservation(observation))
+			return dict.getIndex(CommonUtils.UNKNOWN);
+
+		return dict.getIndex(observation);
+	}
+
+	@Override
+	public int getOrder() {
+		return order;
+	}
+
+	@Override
+	public Dictionary getDict() {
+		return dict;
+	}
+
+	@Override
+	public HashMap<State, Double> getPi() {
+		HashMap<State, Double> map = new HashMap<>();
+		for(int i = 0; i < N; i++)
+			map.put(dict.getState(i), getLogPi(i));
+
+		return map;
+	}
+
+	/**
+	 * 展开所有1至order阶起点的转移概率，不经过缓存
+	 * @return	转移概率矩阵
+	 */
+	@Override
+	public HashMap<StateSequence, TransitionProbEntry> getTransitionMatrix() {
+		State[] states = new State[N];
+		for(int i = 0; i < N; i++)
+			states[i] = dict.getState(i);
+
+		HashMap<StateSequence, TransitionProbEntry> map = new HashMap<>();
+		double[] logProbs = new double[N];
+		for(int length = 1; length <= order; length++) {
+			int[] start = new int[length];
+			do {
+				strategy.transitionLogProbs(counter, start, 0, length, logProbs);
+				TransitionProbEntry entry = new TransitionProbEntry();
+				for(int j = 0; j < N; j++)
+					entry.put(states[j], logProbs[j]);
+
+				map.put(AbstractSupervisedHMMTrainer.toStateSequence(states, start), entry);
+			}while(AbstractSupervisedHMMTrainer.nextHistory(start, N));
+		}
+
+		return map;
+	}
+
+	/**
+	 * 返回有发射的隐藏状态的已登录观测和未登录观测的发射概率
+	 * @return	发射概率矩阵
+	 */
+	@Override
+	public HashMap<State, EmissionProbEntry> getEmissionMatrix() {
+		HashMap<State, EmissionProbEntry> map = new HashMap<>();
+		Iterator<State> iterator = counter.emissionIterator();
+		while(iterator.hasNext()) {
+			State state = iterator.next();
+			int i = dict.getIndex(state);
+			EmissionProbEntry entry = new EmissionProbEntry();
+			Iterator<Observation> observations = counter.iterator(state);
+			while(observations.hasNext()) {
+				Observation observation = observations.next();
+				entry.put(observation, emissionLogProb(i, dict.getIndex(observation)));
+			}
+
+			entry.put(CommonUtils.UNKNOWN, emissionLogProb(i, -1));
+			map.put(state, entry);
+		}
+
+		return map;
+	}
+
+	/**
+	 * 计数器和平滑策略不支持序列化，明确拒绝而不是写出无法使用的模型
+	 * @param out			对象输出流
+	 * @throws IOException	总是抛出NotSerializableException
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		throw new NotSerializableException("基于计数器的模型不支持序列化，请先调用freeze()转换为基于数组或哈希表的模型");
+	}
+
+	@Override
+	public HMModel clone(){
+        try {
+			return (HMModel)super.clone();
+		} catch (CloneNotSupportedException e) {
+			e.printStackTrace();
+		}
+
+		return null;
+    }
+
+	/**
+	 *<ul>
+	 *<li>Description: 缓存槽中的一行转移概率，构造后不再修改，可以被多个线程安全读取
+	 *</ul>
+	 */
+	private static final class CachedRow {
+
+		/**
+		 * 打包后的起点
+		 */
+		private final long key;
+
+		/**
+		 * 由起点转移到所有隐藏状态的概率对数
+		 */
+		private final double[] logProbs;
+
+		private CachedRow(long key, double[] logProbs) {
+			this.key = key;
+			this.logProbs = logProbs;
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package hust.tools.hmm.learn;
+
+/**
+ *<ul>
+ *<li>Description: 转移概率为各阶最大似然概率的线性插值，初始概率和发射概率加0.01平滑，与SupervisedInterpolationHMMTrainer的结果相同
+ *<li>插值权重由留存数据计算，见SupervisedInterpolationHMMTrainer.getLamdas()
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月24日
+ *</ul>
+ */
+public class InterpolationSmoothingStrategy extends DeltaSmoothingStrategy {
+
+	/**
+	 * 插值权重，lamdas[L]为长度为L的起点的最大似然概率的权重
+	 */
+	private double[] lamdas;
+
+	/**
+	 * 构造方法
+	 * @param lamdas	插值权重，长度为模型阶数加一
+	 */
+	public InterpolationSmoothingStrategy(double[] lamdas) {
+		super(DEFAULT_DELTA);
+		if(lamdas.length < 2)
+			throw new IllegalArgumentException("插值权重的长度应为模型阶数加一");
+
+		this.lamdas = lamdas.clone();
+	}
+
+	/**
+	 * 计算插值平滑p*(d|abc) = lamda3*P(d|abc) + lamda2*P(d|bc) + lamda1*P(d|c)
+	 */
+	@Override
+	public void transitionLogProbs(TransitionAndEmissionCounter counter, int[] start, int from, int length, double[] logProbs) {
+		if(length >= lamdas.length)
+			throw new IllegalArgumentException("起点的长度超过插值权重的阶数： length = " + length);
+
+		int N = logProbs.length;
+		int[] counts = new int[N];
+		double[] probs = new double[N];
+		for(int n = 0; n < length; n++) {//起点为start[from + n, from + length)
+			int n_Count = counter.getTransitionCounts(start, from + n, length - n, counts);
+			for(int j = 0; j < N; j++) {
+				double mlProb = n_Count != 0 ? 1.0 * counts[j] / n_Count : 0.0;
+				probs[j] += mlProb * lamdas[length - n];
+			}
+		}
+
+		for(int j = 0; j < N; j++)
+			logProbs[j] = Math.log10(probs[j]);
+	}
+
+	/**
+	 * 返回插值权重
+	 * @return	插值权重
+	 */
+	public double[] getLamdas() {
+		return lamdas.clone();
+	}
+}
@@ -0,0 +1,205 @@
+package hust.tools.hmm.learn;
+
+import java.io.PrintStream;
+import java.util.List;
+
+import hust.tools.hmm.model.HMModel;
+import hust.tools.hmm.model.HMModelBasedArray;
+import hust.tools.hmm.model.ScaledForwardBackwardAlgorithm;
+import hust.tools.hmm.utils.ObservationSequence;
+
+/**
+ *<ul>
+ *<li>Description: 基于E步对数似然度的收敛判断，相邻两次迭代训练语料概率的对数的相对提升小于阈值，或者迭代次数达到上限时收敛
+ *<li>对数似然度直接使用训练器E步的计算结果，不再额外执行前向算法；参数变化量只在被读取或设置了诊断输出时计算
+ *<li>默认不做任何输出，设置诊断输出后每次迭代输出一行对数似然度、相对提升和参数变化量
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月15日
+ *</ul>
+ */
+public class LikelihoodConvergencyJudge implements ConvergencyJudge {
+
+	/**
+	 * 默认的相对提升阈值
+	 */
+	private static final double DEFAULT_THRESHOLD = 0.0001;
+	
+	/**
+	 * 默认的最大迭代次数
+	 */
+	private static final int DEFAULT_MAX_ITERATION = 100;
+	
+	private double threshold;
+	
+	private int maxIteration;
+	
+	/**
+	 * 诊断输出，为null时不输出
+	 */
+	private PrintStream diagnostics;
+	
+	/**
+	 * 本次迭代的对数似然度
+	 */
+	private double logLikelihood = Double.NaN;
+	
+	/**
+	 * 本次迭代对数似然度的相对提升，第一次迭代时为NaN
+	 */
+	private double improvement = Double.NaN;
+	
+	/**
+	 * 最近一次判断的两个模型，用于计算参数变化量
+	 */
+	private HMModel preModel;
+	private HMModel currentModel;
+	
+	/**
+	 * 参数(线性概率)变化量的最大值和平均值，未计算时为NaN
+	 */
+	private double maxDelta = Double.NaN;
+	private double meanDelta = Double.NaN;
+	
+	public LikelihoodConvergencyJudge() {
+		this(DEFAULT_THRESHOLD, DEFAULT_MAX_ITERATION);
+	}
+	
+	/**
+	 * 构造方法
+	 * @param threshold		对数似然度相对提升的阈值
+	 * @param maxIteration	最大迭代次数
+	 */
+	public LikelihoodConvergencyJudge(double threshold, int maxIteration) {
+		if(threshold < 0)
+			throw new IllegalArgumentException("收敛阈值不能为负数");
+		if(maxIteration < 1)
+			throw new IllegalArgumentException("最大迭代次数必须为正数");
+		
+		this.threshold = threshold;
+		this.maxIteration = maxIteration;
+	}
+	
+	/**
+	 * 设置诊断输出，每次迭代输出一行统计信息
+	 * @param diagnostics	诊断输出，为null时不输出
+	 */
+	public void setDiagnostics(PrintStream diagnostics) {
+		this.diagnostics = diagnostics;
+	}
+	
+	/**
+	 * 训练器没有提供E步对数似然度时，在上一次迭代的模型下计算一遍训练语料的对数似然度
+	 */
+	@Override
+	public boolean isConvergency(HMModel preModel, HMModel currentModel, List<ObservationSequence> trainSequences, int iteration) {
+		ScaledForwardBackwardAlgorithm algorithm = new ScaledForwardBackwardAlgorithm(preModel);
+		double logLikelihood = 0.0;
+		for(ObservationSequence sequence : trainSequences)
+			logLikelihood += algorithm.logLikelihood(sequence);
+		
+		return isConvergency(preModel, currentModel, trainSequences, logLikelihood, iteration);
+	}
+	
+	@Override
+	public boolean isConvergency(HMModel preModel, HMModel currentModel, List<ObservationSequence> trainSequences, double logLikelihood, int iteration) {
+		this.preModel = preModel;
+		this.currentModel = currentModel;
+		maxDelta = meanDelta = Double.NaN;
+		
+		improvement = Double.isNaN(this.logLikelihood) ? Double.NaN : (logLikelihood - this.logLikelihood) / Math.abs(this.logLikelihood);
+		this.logLikelihood = logLikelihood;
+		
+		if(diagnostics != null)
+			diagnostics.println("iter = " + iteration + "\tlogLikelihood = " + logLikelihood + "\timprovement = " + improvement + "\tmaxDelta = " + getMaxDelta() + "\tmeanDelta = " + getMeanDelta());
+		
+		if(iteration >= maxIteration)
+			return true;
+		
+		return !Double.isNaN(improvement) && improvement < threshold;
+	}
+	
+	/**
+	 * 以给定的对数似然度作为上一次判断的结果，恢复训练后第一次判断即可计算相对提升
+	 * @param previous	上一次迭代E步的对数似然度，为NaN时相当于重新开始
+	 */
+	@Override
+	public void reset(double previous) {
+		logLikelihood = previous;
+		improvement = Double.NaN;
+		preModel = currentModel = null;
+		maxDelta = meanDelta = Double.NaN;
+	}
+	
+	/**
+	 * 返回最近一次判断时E步的对数似然度
+	 * @return	对数似然度
+	 */
+	public double getLogLikelihood() {
+		return logLikelihood;
+	}
+	
+	/**
+	 * 返回最近一次判断时对数似然度的相对提升，第一次判断时为NaN
+	 * @return	相对提升
+	 */
+	public double getImprovement() {
+		return improvement;
+	}
+	
+	/**
+	 * 返回最近一次判断的两个模型之间初始、转移和发射概率变化量的最大值
+	 * @return	参数变化量的最大值
+	 */
+	public double getMaxDelta() {
+		calcDelta();
+		
+		return maxDelta;
+	}
+	
+	/**
+	 * 返回最近一次判断的两个模型之间初始、转移和发射概率变化量的平均值
+	 * @return	参数变化量的平均值
+	 */
+	public double getMeanDelta() {
+		calcDelta();
+		
+		return meanDelta;
+	}
+	
+	/**
+	 * 在基于数组的模型上计算参数变化量，每对模型只计算一次
+	 */
+	private void calcDelta() {
+		if(!Double.isNaN(maxDelta) || preModel == null)
+			return;
+		
+		HMModelBasedArray pre = preModel instanceof HMModelBasedArray ? (HMModelBasedArray) preModel : new HMModelBasedArray(preModel);
+		HMModelBasedArray current = currentModel instanceof HMModelBasedArray ? (HMModelBasedArray) currentModel : new HMModelBasedArray(currentModel);
+		int N = pre.statesCount();
+		int M = pre.observationsCount();
+		
+		double max = 0.0;
+		double sum = 0.0;
+		for(int i = 0; i < N; i++) {
+			double delta = Math.abs(Math.pow(10, current.getLogPi(i)) - Math.pow(10, pre.getLogPi(i)));
+			max = Math.max(max, delta);
+			sum += delta;
+			
+			for(int j = 0; j < N; j++) {
+				delta = Math.abs(Math.pow(10, current.transitionLogProb(i, j)) - Math.pow(10, pre.transitionLogProb(i, j)));
+				max = Math.max(max, delta);
+				sum += delta;
+			}
+			
+			for(int k = 0; k < M; k++) {
+				delta = Math.abs(Math.pow(10, current.emissionLogProb(i, k)) - Math.pow(10, pre.emissionLogProb(i, k)));
+				max = Math.max(max, delta);
+				sum += delta;
+			}
+		}
+		
+		maxDelta = max;
+		meanDelta = sum / (N * (1 + N + M));
+	}
+}
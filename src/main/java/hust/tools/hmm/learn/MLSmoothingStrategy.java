@@ -0,0 +1,43 @@
+package hust.tools.hmm.learn;
+
+/**
+ *<ul>
+ *<li>Description: 最大似然估计，不做平滑，与SupervisedMLHMMTrainer的结果相同
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月24日
+ *</ul>
+ */
+public class MLSmoothingStrategy implements SmoothingStrategy {
+
+	/**
+	 * 概率为0时的对数
+	 */
+	private static final double LOG_ZERO = Math.log10(Double.MIN_VALUE);
+
+	@Override
+	public double logPi(TransitionAndEmissionCounter counter, int i) {
+		int count = counter.getStartStateCount(i);
+
+		return count == 0 ? LOG_ZERO : Math.log10(1.0 * count / counter.getTotalStartStatesCount());
+	}
+
+	@Override
+	public void transitionLogProbs(TransitionAndEmissionCounter counter, int[] start, int from, int length, double[] logProbs) {
+		int[] counts = new int[logProbs.length];
+		int n_Count = counter.getTransitionCounts(start, from, length, counts);
+		for(int j = 0; j < logProbs.length; j++) {
+			if(counts[j] != 0 || (length > 1 && n_Count != 0))
+				logProbs[j] = Math.log10(1.0 * counts[j] / n_Count);
+			else
+				logProbs[j] = LOG_ZERO;
+		}
+	}
+
+	@Override
+	public double emissionLogProb(TransitionAndEmissionCounter counter, int i, int k) {
+		int C = counter.getEmissionCount(i, k);
+
+		return C == 0 ? LOG_ZERO : Math.log10(1.0 * C / counter.getEmissionStateCount(i));
+	}
+}
@@ -0,0 +1,45 @@
+package hust.tools.hmm.learn;
+
+/**
+ *<ul>
+ *<li>Description: 由计数计算模型参数的平滑策略，供HMModelBasedCounter在查询时按需计算概率
+ *<li>所有概率均为以10为底的对数，与对应的监督学习训练器计算的结果相同
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月24日
+ *</ul>
+ */
+public interface SmoothingStrategy {
+
+	/**
+	 * 初始概率和发射概率的缺省平滑值
+	 */
+	public static final double DEFAULT_DELTA = 0.01;
+
+	/**
+	 * 返回隐藏状态i的初始概率对数
+	 * @param counter	转移发射计数器
+	 * @param i			隐藏状态索引
+	 * @return			初始概率对数
+	 */
+	public double logPi(TransitionAndEmissionCounter counter, int i);
+
+	/**
+	 * 计算由给定起点转移到所有隐藏状态的概率对数
+	 * @param counter	转移发射计数器
+	 * @param start		隐藏状态索引
+	 * @param from		起点在数组中的起始位置
+	 * @param length	起点的长度，在1至模型阶数之间
+	 * @param logProbs	logProbs[j]为转移到隐藏状态j的概率对数，长度为隐藏状态数量
+	 */
+	public void transitionLogProbs(TransitionAndEmissionCounter counter, int[] start, int from, int length, double[] logProbs);
+
+	/**
+	 * 返回隐藏状态i发射观测k的概率对数
+	 * @param counter	转移发射计数器
+	 * @param i			隐藏状态索引
+	 * @param k			观测索引，-1表示未登录观测
+	 * @return			发射概率对数
+	 */
+	public double emissionLogProb(TransitionAndEmissionCounter counter, int i, int k);
+}
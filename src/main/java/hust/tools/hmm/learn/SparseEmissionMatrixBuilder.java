@@ -0,0 +1,116 @@
+package hust.tools.hmm.learn;
+
+import java.util.Arrays;
+
+import hust.tools.hmm.model.HMModelBasedSparse;
+import hust.tools.hmm.model.SparseEmissionMatrix;
+import hust.tools.hmm.utils.CommonUtils;
+import hust.tools.hmm.utils.Dictionary;
+
+/**
+ *<ul>
+ *<li>Description: 由计数器直接构造稀疏发射矩阵，只遍历每个隐藏状态发射过的观测，不计算N*M的稠密矩阵
+ *<li>每个隐藏状态的底值取该状态未发射过的观测的概率，要求平滑策略对同一状态的所有未见观测给出相同的概率，本包中的平滑策略均满足
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月25日
+ *</ul>
+ */
+public class SparseEmissionMatrixBuilder {
+
+	/**
+	 * 转移发射计数器
+	 */
+	private TransitionAndEmissionCounter counter;
+
+	/**
+	 * 构造方法
+	 * @param counter	转移发射计数器
+	 */
+	public SparseEmissionMatrixBuilder(TransitionAndEmissionCounter counter) {
+		this.counter = counter;
+	}
+
+	/**
+	 * 由平滑策略构造稀疏发射矩阵，与由HMModelBasedCounter压缩得到的矩阵的概率相同
+	 * @param strategy	平滑策略
+	 * @return			稀疏发射矩阵
+	 */
+	public SparseEmissionMatrix build(SmoothingStrategy strategy) {
+		return build(strategy, 0);
+	}
+
+	/**
+	 * 构造稀疏发射矩阵，发射过的观测取最大似然概率，其余观测取给定的底值
+	 * @param logFloor	未发射过的观测的概率对数
+	 * @return			稀疏发射矩阵
+	 */
+	public SparseEmissionMatrix build(double logFloor) {
+		return build(null, logFloor);
+	}
+
+	/**
+	 * 构造发射概率稀疏存储的1阶模型，初始概率和1阶转移概率由平滑策略计算
+	 * @param strategy	平滑策略
+	 * @return			发射概率稀疏存储的模型
+	 */
+	public HMModelBasedSparse buildModel(SmoothingStrategy strategy) {
+		Dictionary dict = counter.getDictionary();
+		int N = dict.stateCount();
+		double[] pi = new double[N];
+		double[] transitionMatrix = new double[N * N];
+		double[] logProbs = new double[N];
+		int[] start = new int[1];
+		for(int i = 0; i < N; i++) {
+			pi[i] = strategy.logPi(counter, i);
+			start[0] = i;
+			strategy.transitionLogProbs(counter, start, 0, 1, logProbs);
+			System.arraycopy(logProbs, 0, transitionMatrix, i * N, N);
+		}
+
+		return new HMModelBasedSparse(dict, pi, transitionMatrix, build(strategy));
+	}
+
+	/**
+	 * 构造稀疏发射矩阵
+	 * @param strategy	平滑策略，为null时发射过的观测取最大似然概率
+	 * @param logFloor	平滑策略为null时未发射过的观测的概率对数
+	 * @return			稀疏发射矩阵
+	 */
+	private SparseEmissionMatrix build(SmoothingStrategy strategy, double logFloor) {
+		Dictionary dict = counter.getDictionary();
+		int N = dict.stateCount();
+		int M = dict.containObservation(CommonUtils.UNKNOWN) ? dict.observationCount() : dict.observationCount() + 1;
+
+		int total = 0;
+		for(int i = 0; i < N; i++)
+			total += counter.getEmissionTypeCount(i);
+
+		int[] rowOffsets = new int[N + 1];
+		int[] columns = new int[total];
+		double[] values = new double[total];
+		double[] floor = new double[N];
+		int size = 0;
+		for(int i = 0; i < N; i++) {
+			floor[i] = strategy == null ? logFloor : strategy.emissionLogProb(counter, i, -1);
+
+			int types = counter.getEmissionTypeCount(i);
+			for(int p = 0; p < types; p++)
+				columns[size + p] = counter.getEmissionTarget(i, p);
+			Arrays.sort(columns, size, size + types);
+
+			//与底值相同的发射不保存，原地压缩
+			for(int p = size, end = size + types; p < end; p++) {
+				int k = columns[p];
+				double value = strategy == null ? Math.log10(1.0 * counter.getEmissionCount(i, k) / counter.getEmissionStateCount(i)) : strategy.emissionLogProb(counter, i, k);
+				if(value != floor[i]) {
+					columns[size] = k;
+					values[size++] = value;
+				}
+			}
+			rowOffsets[i + 1] = size;
+		}
+
+		return new SparseEmissionMatrix(N, M, rowOffsets, Arrays.copyOf(columns, size), Arrays.copyOf(values, size), floor);
+	}
+}
@@ -11,9 +11,9 @@ import hust.tools.hmm.model.TransitionProbEntry;
 import hust.tools.hmm.stream.SupervisedHMMSample;
 import hust.tools.hmm.stream.SupervisedHMMSampleStream;
 import hust.tools.hmm.utils.CommonUtils;
+import hust.tools.hmm.utils.EncodedCorpus;
 import hust.tools.hmm.utils.Observation;
 import hust.tools.hmm.utils.State;
-import hust.tools.hmm.utils.StateSequence;
 
 /**
  *<ul>
@@ -50,6 +50,26 @@ public class SupervisedAdditionHMMTrainer extends AbstractSupervisedHMMTrainer {
 		this.delta = delta <= 0 ? DEFAULT_DELTA : delta;
 	}
 	
+	public SupervisedAdditionHMMTrainer(EncodedCorpus corpus, int order, double delta) {
+		super(corpus, order);
+		this.delta = delta <= 0 ? DEFAULT_DELTA : delta;
+	}
+	
+	public SupervisedAdditionHMMTrainer(TransitionAndEmissionCounter counter) {
+		super(counter);
+		this.delta = DEFAULT_DELTA;
+	}
+	
+	/**
+	 * 构造方法，使用已有的计数器，如TransitionAndEmissionCounter(samples, order, threads)并行计数的结果
+	 * @param counter	转移发射计数器，模型阶数与计数器一致
+	 * @param delta		加法平滑中加数大小
+	 */
+	public SupervisedAdditionHMMTrainer(TransitionAndEmissionCounter counter, double delta) {
+		super(counter);
+		this.delta = delta <= 0 ? DEFAULT_DELTA : delta;
+	}
+	
 	@Override
 	public HMModel train() {
 		calcPi(counter);
@@ -80,41 +100,21 @@ public class SupervisedAdditionHMMTrainer extends AbstractSupervisedHMMTrainer {
 	
 	@Override
 	protected void calcTransitionMatrix(TransitionAndEmissionCounter counter) {
-		Set<State> statesSet = counter.getDictionary().getStates();
-		int N = statesSet.size();
-				
-		for(State state : statesSet) {//遍历所有隐藏状态，增加所有可能的一阶转移
-			StateSequence start = new StateSequence(state);
-			int n_Count = counter.getTransitionStartCount(start);
-			TransitionProbEntry entry = new TransitionProbEntry();
-			for(State target : statesSet) {
-				int count = counter.getTransitionCount(start, target);
-				double prob = (delta + count) / (n_Count + N * delta);
-				entry.put(target, Math.log10(prob));
-			}
-			
-			transitionMatrix.put(start, entry);
-		}
-		
-		for(int i = 1; i < order; i++) {//遍历增加所有2-order阶的转移概率
-			StateSequence[] sequences = transitionMatrix.keySet().toArray(new StateSequence[transitionMatrix.size()]);
-			for(StateSequence sequence : sequences) {
-				if(sequence.length() == i) {
-					for(State state : statesSet) {
-						StateSequence start = sequence.addLast(state);
-						int n_Count = counter.getTransitionStartCount(start);
-						
-						TransitionProbEntry entry = new TransitionProbEntry();
-						for(State target : statesSet) {
-							int count = counter.getTransitionCount(start, target);
-							double prob = (delta + count) / (n_Count + N * delta);
-							entry.put(target, Math.log10(prob));
-						}
-						
-						transitionMatrix.put(start, entry);
-					}
+		State[] states = statesByIndex();
+		int N = states.length;
+		int[] counts = new int[N];
+		for(int length = 1; length <= order; length++) {//遍历增加所有1-order阶的转移概率
+			int[] start = new int[length];
+			do {
+				int n_Count = counter.getTransitionCounts(start, 0, length, counts);
+				TransitionProbEntry entry = new TransitionProbEntry();
+				for(int j = 0; j < N; j++) {
+					double prob = (delta + counts[j]) / (n_Count + N * delta);
+					entry.put(states[j], Math.log10(prob));
 				}
-			}
+				
+				transitionMatrix.put(toStateSequence(states, start), entry);
+			}while(nextHistory(start, N));
 		}
 	}
 	
@@ -12,9 +12,9 @@ import hust.tools.hmm.model.TransitionProbEntry;
 import hust.tools.hmm.stream.SupervisedHMMSample;
 import hust.tools.hmm.stream.SupervisedHMMSampleStream;
 import hust.tools.hmm.utils.CommonUtils;
+import hust.tools.hmm.utils.EncodedCorpus;
 import hust.tools.hmm.utils.Observation;
 import hust.tools.hmm.utils.State;
-import hust.tools.hmm.utils.StateSequence;
 
 /**
  *<ul>
@@ -48,6 +48,27 @@ public class SupervisedGoodTuringHMMTrainer extends AbstractSupervisedHMMTrainer
 		this(samples, order, DEFALUE_K);
 	}
 	
+	public SupervisedGoodTuringHMMTrainer(EncodedCorpus corpus, int order, int K) {
+		super(corpus, order);
+		this.K = K > 0 ? K : DEFALUE_K;
+	}
+	public SupervisedGoodTuringHMMTrainer(EncodedCorpus corpus, int order) {
+		this(corpus, order, DEFALUE_K);
+	}
+	
+	/**
+	 * 构造方法，使用已有的计数器，如TransitionAndEmissionCounter(samples, order, threads)并行计数的结果
+	 * @param counter	转移发射计数器，模型阶数与计数器一致
+	 * @param K			计数折扣的阈值
+	 */
+	public SupervisedGoodTuringHMMTrainer(TransitionAndEmissionCounter counter, int K) {
+		super(counter);
+		this.K = K > 0 ? K : DEFALUE_K;
+	}
+	public SupervisedGoodTuringHMMTrainer(TransitionAndEmissionCounter counter) {
+		this(counter, DEFALUE_K);
+	}
+	
 	@Override
 	public HMModel train() {
 		calcPi(counter);
@@ -80,48 +101,28 @@ public class SupervisedGoodTuringHMMTrainer extends AbstractSupervisedHMMTrainer
 	protected void calcTransitionMatrix(TransitionAndEmissionCounter counter) {
 		GoodTuringCounts goodTuringCounts = new GoodTuringCounts(counter.getTransitionCount(), order, K);
 		
-		Set<State> statesSet = counter.getDictionary().getStates();
-		for(State state : statesSet) {//遍历所有隐藏状态，增加所有可能的一阶转移
-			StateSequence start = new StateSequence(state);
-			TransitionProbEntry entry = new TransitionProbEntry();
-			for(State target : statesSet) {//计算分母
-				int len = start.length();
-				int r = counter.getTransitionCount(start, target);
-				
-				double prob = 0.0;
-				if(r != 0)
-					prob =  r * goodTuringCounts.getDiscountCoeff(len, r) / goodTuringCounts.getTotalByOrder(len);
-				else
-					prob = goodTuringCounts.getN1ByOrder(len) / goodTuringCounts.getTotalByOrder(len) / (Math.pow(statesSet.size(), len));
-				entry.put(target, Math.log10(prob));
-			}
-			
-			transitionMatrix.put(start, entry);
-		}
-		
-		for(int i = 1; i < order; i++) {//遍历增加所有2-order阶的转移概率
-			StateSequence[] sequences = transitionMatrix.keySet().toArray(new StateSequence[transitionMatrix.size()]);
-			for(StateSequence sequence : sequences) {
-				if(sequence.length() == i) {
-					for(State state : statesSet) {
-						StateSequence start = sequence.addLast(state);						
-						TransitionProbEntry entry = new TransitionProbEntry();
-						for(State target : statesSet) {//计算分母
-							int len = start.length();
-							int r = counter.getTransitionCount(start, target);
-							
-							double prob = 0.0;
-							if(r != 0)
-								prob =  r * goodTuringCounts.getDiscountCoeff(len, r) / goodTuringCounts.getTotalByOrder(len);
-							else
-								prob = goodTuringCounts.getN1ByOrder(len) / goodTuringCounts.getTotalByOrder(len) / (Math.pow(statesSet.size(), len));
-							entry.put(target, Math.log10(prob));
-						}
-						
-						transitionMatrix.put(start, entry);
-					}
+		State[] states = statesByIndex();
+		int N = states.length;
+		int[] counts = new int[N];
+		for(int len = 1; len <= order; len++) {//遍历增加所有1-order阶的转移概率
+			double unseen = goodTuringCounts.getN1ByOrder(len) / goodTuringCounts.getTotalByOrder(len) / (Math.pow(N, len));
+			int[] start = new int[len];
+			do {
+				counter.getTransitionCounts(start, 0, len, counts);
+				TransitionProbEntry entry = new TransitionProbEntry();
+				for(int j = 0; j < N; j++) {
+					int r = counts[j];
+					
+					double prob = 0.0;
+					if(r != 0)
+						prob =  r * goodTuringCounts.getDiscountCoeff(len, r) / goodTuringCounts.getTotalByOrder(len);
+					else
+						prob = unseen;
+					entry.put(states[j], Math.log10(prob));
 				}
-			}
+				
+				transitionMatrix.put(toStateSequence(states, start), entry);
+			}while(nextHistory(start, N));
 		}
 	}
 	
@@ -5,19 +5,21 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map.Entry;
-
 import java.util.Set;
 
+import hust.tools.hmm.model.BackoffTransitionTable;
 import hust.tools.hmm.model.EmissionProbEntry;
 import hust.tools.hmm.model.HMModel;
 import hust.tools.hmm.model.HMModelBasedMap;
+import hust.tools.hmm.model.HMModelWithBackoff;
 import hust.tools.hmm.model.TransitionProbEntry;
 import hust.tools.hmm.stream.SupervisedHMMSample;
 import hust.tools.hmm.stream.SupervisedHMMSampleStream;
 import hust.tools.hmm.utils.CommonUtils;
+import hust.tools.hmm.utils.Dictionary;
 import hust.tools.hmm.utils.Observation;
 import hust.tools.hmm.utils.State;
+import hust.tools.hmm.utils.StateHistoryIndex;
 import hust.tools.hmm.utils.StateSequence;
 
 /**
@@ -90,6 +92,16 @@ public class SupervisedInterpolationHMMTrainer extends AbstractSupervisedHMMTrai
 		held = new TransitionAndEmissionCounter(heldSamples);
 	}
 	
+	/**
+	 * 构造方法，使用已有的训练语料和留存语料的计数器，如TransitionAndEmissionCounter(samples, order, threads)并行计数的结果
+	 * @param counter	训练语料的转移发射计数器，模型阶数与计数器一致
+	 * @param held		留存语料的转移发射计数器，阶数应与counter相同
+	 */
+	public SupervisedInterpolationHMMTrainer(TransitionAndEmissionCounter counter, TransitionAndEmissionCounter held) {
+		super(counter);
+		this.held = held;
+	}
+	
 	/**
 	 * 初始化数据和模型参数
 	 * @param trainSamples	训练样本
@@ -117,6 +129,56 @@ public class SupervisedInterpolationHMMTrainer extends AbstractSupervisedHMMTrai
 		return model;
 	}
 	
+	/**
+	 * 训练转移概率以回退形式稀疏存储的模型，只保存出现过的n元转移，不展开所有N^order个上文
+	 * 记W(L) = lamda0 + ... + lamdaL，长度为L的上文h的插值概率按递归形式计算：
+	 * P(w|h) = (lamdaL * Pml(w|h) + W(L - 1) * P(w|h')) / W(L)，h'为h去掉首个隐藏状态的上文，P(w|空上文)为隐藏状态的最大似然概率
+	 * 未出现的转移Pml(w|h)=0，因此h的回退权重为W(L - 1) / W(L)
+	 * @return	回退形式的HMM模型
+	 */
+	public HMModelWithBackoff trainBackoff() {
+		calculateLamda();
+		calcPi(counter);
+		calcEmissionMatrix(counter);
+		
+		double[] weights = new double[order + 1];
+		weights[0] = lamdas[0];
+		for(int length = 1; length <= order; length++)
+			weights[length] = weights[length - 1] + lamdas[length];
+		
+		int N = dict.stateCount();
+		int[] counts = new int[N];
+		BackoffTransitionTable table = new BackoffTransitionTable(N, order, unigramLogProbs());
+		for(int length = 1; length <= order; length++) {//从低阶到高阶增加出现过的上文
+			for(int[] start : observedHistories(length)) {
+				int total = counter.getTransitionCounts(start, 0, length, counts);
+				int[] targets = observedTargets(counts);
+				
+				double[] logProbs = new double[targets.length];
+				for(int n = 0; n < targets.length; n++) {
+					double lower = Math.pow(10, table.logProb(start, 1, length - 1, targets[n]));
+					double prob = lamdas[length] * counts[targets[n]] / total + weights[length - 1] * lower;
+					logProbs[n] = Math.log10(prob / weights[length]);
+				}
+				
+				table.addContext(start, 0, length, targets, logProbs, Math.log10(weights[length - 1] / weights[length]));
+			}
+		}
+		
+		return backoffModel(table);
+	}
+	
+	/**
+	 * 返回由留存数据计算的插值权重，用于创建InterpolationSmoothingStrategy
+	 * @return	插值权重，lamdas[L]为长度为L的起点的权重
+	 */
+	public double[] getLamdas() {
+		if(lamdas == null)
+			calculateLamda();
+		
+		return lamdas.clone();
+	}
+	
 	/**
 	 * 计算初始概率矩阵（已确保概率之和为1，不需要归一化）
 	 * @param counter	转移发射计数器
@@ -138,70 +200,48 @@ public class SupervisedInterpolationHMMTrainer extends AbstractSupervisedHMMTrai
 	protected void calcTransitionMatrix(TransitionAndEmissionCounter counter) {
 		calculateLamda();
 		
-		Set<State> statesSet = counter.getDictionary().getStates();				
-		for(State state : statesSet) {//遍历所有隐藏状态，增加所有可能的一阶转移
-			StateSequence start = new StateSequence(state);
-			int n_Count = counter.getTransitionStartCount(start);
-			TransitionProbEntry entry = new TransitionProbEntry();
-			for(State target : statesSet) {
-				int count = counter.getTransitionCount(start, target);
-				double prob = 0.0;
-				if(n_Count != 0)
-					prob = 1.0 * count / n_Count;
-				
-				entry.put(target, prob);
-			}
-			
-			transitionMatrix.put(start, entry);
-		}
+		State[] states = statesByIndex();
+		int N = states.length;
+		int[] counts = new int[N];
+		int[] unigram = new int[N];
+		for(int j = 0; j < N; j++)
+			unigram[j] = counter.getEmissionStateCount(states[j]) / counter.getTotalStatesCount();
 		
-		StateSequence[] sequences = null;
-		for(int i = 1; i < order; i++) {//遍历增加所有2——order阶的转移概率
-			sequences = transitionMatrix.keySet().toArray(new StateSequence[transitionMatrix.size()]);
-			for(StateSequence sequence : sequences) {
-				if(sequence.length() == i) {
-					for(State state : statesSet) {
-						StateSequence start = sequence.addLast(state);
-						int n_Count = counter.getTransitionStartCount(start);
-						
-						TransitionProbEntry entry = new TransitionProbEntry();
-						for(State target : statesSet) {
-							int count = counter.getTransitionCount(start, target);
-							double prob = 0.0;
-							if(n_Count != 0)
-								prob = 1.0 * count / n_Count;
-							
-							entry.put(target, prob);
-						}
-						
-						transitionMatrix.put(start, entry);
-					}
+		//以历史编号为下标保存所有1-order阶起点的最大似然概率
+		StateHistoryIndex histories = new StateHistoryIndex(N);
+		List<double[]> mlProbs = new ArrayList<>();
+		for(int length = 1; length <= order; length++) {
+			int[] start = new int[length];
+			do {
+				int n_Count = counter.getTransitionCounts(start, 0, length, counts);
+				double[] probs = new double[N];
+				for(int j = 0; j < N; j++) {
+					if(n_Count != 0)
+						probs[j] = 1.0 * counts[j] / n_Count;
 				}
-			}
+				
+				histories.add(start, 0, length);
+				mlProbs.add(probs);
+			}while(nextHistory(start, N));
 		}
 		
 		//计算插值平滑p*(d|abc) = lamda4*P(d|abc) + lamda3*P(c|ab)  + lamda2*P(b|a) +lamda1*p(a) 
-		for(int i = order; i > 0; i--) {
-			sequences = transitionMatrix.keySet().toArray(new StateSequence[transitionMatrix.size()]);
-			for(StateSequence sequence : sequences) {
-				int len = sequence.length();
-				if(len == i) {
-					double prob = 0.0;
-					TransitionProbEntry entry = new TransitionProbEntry();
-					for(State target : statesSet) {
-							StateSequence _sSequence = sequence;
-							prob = transitionMatrix.get(_sSequence).getTransitionLogProb(target) * lamdas[_sSequence.length()];
-							for(int j = 1; j < len; j++) {
-								_sSequence = _sSequence.remove(0);
-								prob += transitionMatrix.get(_sSequence).getTransitionLogProb(target) * lamdas[_sSequence.length()];
-							}
-							prob += counter.getEmissionStateCount(target) / counter.getTotalStatesCount();
-							
-							entry.put(target, Math.log10(prob));
-					}
-					transitionMatrix.put(sequence, entry);
+		for(int h = 0; h < histories.size(); h++) {
+			int len = histories.length(h);
+			TransitionProbEntry entry = new TransitionProbEntry();
+			for(int j = 0; j < N; j++) {
+				int history = h;
+				double prob = mlProbs.get(history)[j] * lamdas[len];
+				for(int n = 1; n < len; n++) {
+					history = histories.suffix(history);
+					prob += mlProbs.get(history)[j] * lamdas[len - n];
 				}
+				prob += unigram[j];
+				
+				entry.put(states[j], Math.log10(prob));
 			}
+			
+			transitionMatrix.put(toStateSequence(states, histories.toArray(h)), entry);
 		}
 	}
 	
@@ -237,37 +277,42 @@ public class SupervisedInterpolationHMMTrainer extends AbstractSupervisedHMMTrai
 	 */
 	private void calculateLamda() {
 		lamdas = new double[order + 1];
-		Iterator<StateSequence> iterator = held.transitionIterator();
+		Dictionary heldDict = held.getDictionary();
+		int N = heldDict.stateCount();
+		int[] counts = new int[N];
+		int[] sequence = new int[order + 1];
 		
-		iterator = held.transitionIterator();
+		Iterator<StateSequence> iterator = held.transitionIterator();
 		while(iterator.hasNext()) {	//对每一个计数大于零的order阶转移遍历
-			StateSequence sequence = iterator.next();
-			if(sequence.length() == order) {
-				Iterator<Entry<State, Integer>> countIterator = held.transitionTargetCountIterator(sequence);
-				while(countIterator.hasNext()) {
-					Entry<State, Integer> entry = countIterator.next();
+			StateSequence start = iterator.next();
+			if(start.length() == order) {
+				for(int p = 0; p < order; p++)
+					sequence[p] = heldDict.getIndex(start.get(p));
+				held.getTransitionCounts(sequence, 0, order, counts);
+				
+				for(int target = 0; target < N; target++) {
+					if(counts[target] == 0)
+						continue;
+					
+					sequence[order] = target;
 					double max = 0.0;	   	//最大数量
 					int max_index = 0;		//最大数量对应的n元长度
-					double accumulation = entry.getValue();	//lamda累加的值
+					double accumulation = counts[target];	//lamda累加的值
 					
-					for(int i = 0; i <= order; i++) {
-						StateSequence n_Sequence = sequence.addLast(entry.getKey());
-						for(int j = 0; j < i; j++)
-							n_Sequence = n_Sequence.remove(0);
-						
+					for(int i = 0; i <= order; i++) {//n元序列为sequence[i, order]
 						int count = 0;
 						int n_count = 0;
 						double prob = 0.0;
-						int len = n_Sequence.length();
+						int len = order + 1 - i;
 						
 						if(len > 2) {
-							count = held.getTransitionCount(n_Sequence.remove(len - 1), n_Sequence.get(len - 1));
-							n_count = held.getTransitionCount(n_Sequence.remove(len - 1), n_Sequence.get(len - 2));
+							count = held.getTransitionCount(sequence, i, len - 1, sequence[order]);
+							n_count = held.getTransitionCount(sequence, i, len - 1, sequence[order - 1]);
 						}else if(2  == len) {
-							count = held.getTransitionCount(n_Sequence.remove(len - 1), n_Sequence.get(len - 1));
-							n_count	= held.getEmissionStateCount(n_Sequence.get(0));
+							count = held.getTransitionCount(sequence, i, 1, sequence[order]);
+							n_count	= held.getEmissionStateCount(heldDict.getState(sequence[i]));
 						}else if(1 == len) {
-							count = held.getEmissionStateCount(n_Sequence.get(0));
+							count = held.getEmissionStateCount(heldDict.getState(sequence[i]));
 							n_count	= held.getTotalStatesCount();
 						}							
 
@@ -12,9 +12,9 @@ import hust.tools.hmm.model.TransitionProbEntry;
 import hust.tools.hmm.stream.SupervisedHMMSample;
 import hust.tools.hmm.stream.SupervisedHMMSampleStream;
 import hust.tools.hmm.utils.CommonUtils;
+import hust.tools.hmm.utils.EncodedCorpus;
 import hust.tools.hmm.utils.Observation;
 import hust.tools.hmm.utils.State;
-import hust.tools.hmm.utils.StateSequence;
 
 /**
  *<ul>
@@ -33,6 +33,18 @@ public class SupervisedMLHMMTrainer extends AbstractSupervisedHMMTrainer {
 	public SupervisedMLHMMTrainer(List<SupervisedHMMSample> samples, int order) throws IOException {
 		super(samples, order);
 	}
+	
+	public SupervisedMLHMMTrainer(EncodedCorpus corpus, int order) {
+		super(corpus, order);
+	}
+	
+	/**
+	 * 构造方法，使用已有的计数器，如TransitionAndEmissionCounter(samples, order, threads)并行计数的结果
+	 * @param counter	转移发射计数器，模型阶数与计数器一致
+	 */
+	public SupervisedMLHMMTrainer(TransitionAndEmissionCounter counter) {
+		super(counter);
+	}
 
 	@Override
 	public HMModel train() {
@@ -65,43 +77,23 @@ public class SupervisedMLHMMTrainer extends AbstractSupervisedHMMTrainer {
 	
 	@Override
 	protected void calcTransitionMatrix(TransitionAndEmissionCounter counter) {
-		Set<State> statesSet = counter.getDictionary().getStates();
-		for(State state : statesSet) {//遍历所有隐藏状态，增加所有可能的一阶转移
-			StateSequence start = new StateSequence(state);
-			int n_Count = counter.getTransitionStartCount(start);
-			TransitionProbEntry entry = new TransitionProbEntry();
-			for(State target : statesSet) {
-				int count = counter.getTransitionCount(start, target);
-				if(count != 0 && n_Count != 0)
-					entry.put(target, Math.log10(1.0 * count / n_Count));
-				else
-					entry.put(target, Math.log10(Double.MIN_VALUE));
-			}
-			
-			transitionMatrix.put(start, entry);
-		}
-		
-		for(int i = 1; i < order; i++) {//遍历增加所有2-order阶的转移概率
-			StateSequence[] sequences = transitionMatrix.keySet().toArray(new StateSequence[transitionMatrix.size()]);
-			for(StateSequence sequence : sequences) {
-				if(sequence.length() == i) {
-					for(State state : statesSet) {
-						StateSequence start = sequence.addLast(state);
-						int n_Count = counter.getTransitionStartCount(start);
-						
-						TransitionProbEntry entry = new TransitionProbEntry();
-						for(State target : statesSet) {
-							int count = counter.getTransitionCount(start, target);
-							if(count != 0 || n_Count != 0)
-								entry.put(target, Math.log10(1.0 * count / n_Count));
-							else
-								entry.put(target, Math.log10(Double.MIN_VALUE));
-						}
-						
-						transitionMatrix.put(start, entry);
-					}
+		State[] states = statesByIndex();
+		int N = states.length;
+		int[] counts = new int[N];
+		for(int length = 1; length <= order; length++) {//遍历增加所有1-order阶的转移概率
+			int[] start = new int[length];
+			do {
+				int n_Count = counter.getTransitionCounts(start, 0, length, counts);
+				TransitionProbEntry entry = new TransitionProbEntry();
+				for(int j = 0; j < N; j++) {
+					if(counts[j] != 0 || (length > 1 && n_Count != 0))
+						entry.put(states[j], Math.log10(1.0 * counts[j] / n_Count));
+					else
+						entry.put(states[j], Math.log10(Double.MIN_VALUE));
 				}
-			}
+				
+				transitionMatrix.put(toStateSequence(states, start), entry);
+			}while(nextHistory(start, N));
 		}
 	}
 	
@@ -1,20 +1,23 @@
 package hust.tools.hmm.learn;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import hust.tools.hmm.model.BackoffTransitionTable;
 import hust.tools.hmm.model.EmissionProbEntry;
 import hust.tools.hmm.model.HMModel;
 import hust.tools.hmm.model.HMModelBasedMap;
+import hust.tools.hmm.model.HMModelWithBackoff;
 import hust.tools.hmm.model.TransitionProbEntry;
 import hust.tools.hmm.stream.SupervisedHMMSample;
 import hust.tools.hmm.stream.SupervisedHMMSampleStream;
 import hust.tools.hmm.utils.CommonUtils;
+import hust.tools.hmm.utils.EncodedCorpus;
 import hust.tools.hmm.utils.Observation;
 import hust.tools.hmm.utils.State;
-import hust.tools.hmm.utils.StateSequence;
+import hust.tools.hmm.utils.StateHistoryIndex;
 
 /**
  *<ul>
@@ -34,6 +37,18 @@ public class SupervisedWittenBellHMMTrainer extends AbstractSupervisedHMMTrainer
 		super(samples, order);
 	}
 	
+	public SupervisedWittenBellHMMTrainer(EncodedCorpus corpus, int order) {
+		super(corpus, order);
+	}
+	
+	/**
+	 * 构造方法，使用已有的计数器，如TransitionAndEmissionCounter(samples, order, threads)并行计数的结果
+	 * @param counter	转移发射计数器，模型阶数与计数器一致
+	 */
+	public SupervisedWittenBellHMMTrainer(TransitionAndEmissionCounter counter) {
+		super(counter);
+	}
+	
 	@Override
 	public HMModel train() {
 		calcPi(counter);
@@ -45,6 +60,38 @@ public class SupervisedWittenBellHMMTrainer extends AbstractSupervisedHMMTrainer
 		return model;
 	}
 	
+	/**
+	 * 训练转移概率以回退形式稀疏存储的模型，只保存出现过的n元转移，不展开所有N^order个上文
+	 * Pwb(w|h) = (C(h, w) + T(h) * Pwb(w|h')) / (C(h) + T(h))，T(h)为h之后出现过的隐藏状态类型数，h'为h去掉首个隐藏状态的上文
+	 * 未出现的转移Pwb(w|h) = T(h) / (C(h) + T(h)) * Pwb(w|h')，即h的回退权重为T(h) / (C(h) + T(h))
+	 * @return	回退形式的HMM模型
+	 */
+	public HMModelWithBackoff trainBackoff() {
+		calcPi(counter);
+		calcEmissionMatrix(counter);
+		
+		int N = dict.stateCount();
+		int[] counts = new int[N];
+		BackoffTransitionTable table = new BackoffTransitionTable(N, order, unigramLogProbs());
+		for(int length = 1; length <= order; length++) {//从低阶到高阶增加出现过的上文
+			for(int[] start : observedHistories(length)) {
+				int total = counter.getTransitionCounts(start, 0, length, counts);
+				int[] targets = observedTargets(counts);
+				int types = targets.length;
+				
+				double[] logProbs = new double[types];
+				for(int n = 0; n < types; n++) {
+					double lower = Math.pow(10, table.logProb(start, 1, length - 1, targets[n]));
+					logProbs[n] = Math.log10((counts[targets[n]] + types * lower) / (total + types));
+				}
+				
+				table.addContext(start, 0, length, targets, logProbs, Math.log10(1.0 * types / (total + types)));
+			}
+		}
+		
+		return backoffModel(table);
+	}
+	
 	/**
 	 * 计算初始概率矩阵（已确保概率之和为1，不需要归一化）为处理没有在句首出现过的隐藏状态，为每个状态加上0.01平滑
 	 * @param counter	转移发射计数器
@@ -70,71 +117,62 @@ public class SupervisedWittenBellHMMTrainer extends AbstractSupervisedHMMTrainer
 	 */
 	@Override
 	protected void calcTransitionMatrix(TransitionAndEmissionCounter counter) {
-		HashMap<StateSequence, Double> estimateCount = new HashMap<>();
+		State[] states = statesByIndex();
+		int N = states.length;
+		int[] counts = new int[N];
+		double[] unigram = new double[N];
+		for(int j = 0; j < N; j++)
+			unigram[j] = 1.0 * counter.getEmissionStateCount(states[j]) / counter.getTotalStatesCount();
 		
-		Set<State> statesSet = counter.getDictionary().getStates();
-		int N = statesSet.size();
-		for(State state : statesSet) {//遍历所有隐藏状态，增加所有可能的一阶转移概率WittenBell概率
-			StateSequence start = new StateSequence(state);
-			int n_Count = counter.getTransitionStartCount(start);
-			TransitionProbEntry entry = new TransitionProbEntry();
-			double normalization_factor = 0.0;
-			for(State target : statesSet) {
-				int count = counter.getTransitionCount(start, target);
-				double prob = 1.0 * count / n_Count + 1.0 * counter.getEmissionStateCount(target) / counter.getTotalStatesCount();
-				normalization_factor += prob;
-				entry.put(target, prob);
-			}
-			
-			//归一化
-			for(State target : statesSet) {
-				double prob = entry.getTransitionLogProb(target);
-				entry.put(target, Math.log10(prob / normalization_factor));
-				estimateCount.put(start.addLast(target), 1 / prob);
-			}
-			
-			transitionMatrix.put(start, entry);
-		}
+		//以历史编号为下标保存低阶的未归一化概率(其倒数为高阶起点的估计数量)和概率对数，供高阶转移回退
+		StateHistoryIndex histories = new StateHistoryIndex(N);
+		List<double[]> estimates = new ArrayList<>();
+		List<double[]> logProbs = new ArrayList<>();
 		
-		for(int i = 1; i < order; i++) {//遍历增加所有2-order阶的转移概率
-			StateSequence[] sequences = transitionMatrix.keySet().toArray(new StateSequence[transitionMatrix.size()]);
-			for(StateSequence sequence : sequences) {
-				if(sequence.length() == i) {
-					for(State state : statesSet) {
-						double normalization_factor = 0.0;
-						StateSequence start = sequence.addLast(state);
-						if(!estimateCount.containsKey(start))
-							throw new IllegalArgumentException("不存在 " + start);
-						double n_Count = estimateCount.containsKey(start) ? estimateCount.get(start) : 0.0;
-						double lamda = 0;
-						if(n_Count != 0)
-							lamda = 1.0 - 1.0 *  N / (N + n_Count);
-						else
-							lamda = 1.0;
-						
-						TransitionProbEntry entry = new TransitionProbEntry();
-						for(State target : statesSet) {
-							double sequenceMLProb = 1.0 * counter.getTransitionCount(start, target) / n_Count;
-							double _sequenceWBProb = Math.pow(10, transitionMatrix.get(start.remove(0)).getTransitionLogProb(target));
-							double sequenceWBProb = lamda * sequenceMLProb + (1.0 - lamda) * _sequenceWBProb;
-							
-							normalization_factor += sequenceWBProb;
-							entry.put(target, sequenceWBProb);
-						}
-						
-						for(State target : statesSet) {
-							double sequenceWBProb = entry.getTransitionLogProb(target);
-							entry.put(target, Math.log10(sequenceWBProb / normalization_factor));
-							
-							estimateCount.put(start.addLast(target), 1 / sequenceWBProb);
-						}
-						
-						transitionMatrix.put(start, entry);
+		for(int length = 1; length <= order; length++) {//遍历增加所有1-order阶的转移概率
+			int[] start = new int[length];
+			do {
+				int n_Count = counter.getTransitionCounts(start, 0, length, counts);
+				double[] probs = new double[N];
+				double normalization_factor = 0.0;
+				if(length == 1) {
+					for(int j = 0; j < N; j++) {
+						probs[j] = 1.0 * counts[j] / n_Count + unigram[j];
+						normalization_factor += probs[j];
+					}
+				}else {
+					double estimateCount = 1 / estimates.get(histories.get(start, 0, length - 1))[start[length - 1]];
+					double[] lower = logProbs.get(histories.get(start, 1, length - 1));
+					double lamda = 0;
+					if(estimateCount != 0)
+						lamda = 1.0 - 1.0 *  N / (N + estimateCount);
+					else
+						lamda = 1.0;
+					
+					for(int j = 0; j < N; j++) {
+						double sequenceMLProb = 1.0 * counts[j] / estimateCount;
+						double _sequenceWBProb = Math.pow(10, lower[j]);
+						probs[j] = lamda * sequenceMLProb + (1.0 - lamda) * _sequenceWBProb;
+						normalization_factor += probs[j];
 					}
 				}
-			}
+				
+				//归一化
+				TransitionProbEntry entry = new TransitionProbEntry();
+				double[] logs = new double[N];
+				for(int j = 0; j < N; j++) {
+					logs[j] = Math.log10(probs[j] / normalization_factor);
+					entry.put(states[j], logs[j]);
+				}
+				
+				if(length < order) {
+					histories.add(start, 0, length);
+					estimates.add(probs);
+					logProbs.add(logs);
+				}
+				transitionMatrix.put(toStateSequence(states, start), entry);
+			}while(nextHistory(start, N));
 		}
-		estimateCount.clear();
 	}
 	
 	/**
@@ -1,23 +1,39 @@
 package hust.tools.hmm.learn;
 
 import java.io.IOException;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import hust.tools.hmm.stream.SupervisedHMMSample;
 import hust.tools.hmm.stream.SupervisedHMMSampleStream;
 import hust.tools.hmm.utils.CommonUtils;
 import hust.tools.hmm.utils.Dictionary;
+import hust.tools.hmm.utils.EncodedCorpus;
+import hust.tools.hmm.utils.LongIntHashMap;
 import hust.tools.hmm.utils.Observation;
 import hust.tools.hmm.utils.ObservationSequence;
 import hust.tools.hmm.utils.State;
+import hust.tools.hmm.utils.StateHistoryIndex;
 import hust.tools.hmm.utils.StateSequence;
 
 /**
  *<ul>
  *<li>Description: 统计转移和发射的数量 
+ *<li>计数以字典索引为键保存在基本类型的表中：1阶转移为按起点分行的int[]，高阶转移的起点由StateHistoryIndex编号后与目标索引打包为long键，
+ *<li>发射以(隐藏状态索引, 观测索引)打包为long键，计数时不产生装箱对象
+ *<li>计数器可以用merge()合并，多线程计数时样本按顺序分片，每个线程使用各自的计数器，最后按分片顺序合并，
+ *<li>合并后字典中的索引与单线程计数时相同
  *<li>Company: HUST
  *<li>@author Sonly
  *<li>Date: 2018年1月8日
@@ -31,20 +47,73 @@ public class TransitionAndEmissionCounter {
 	private Dictionary dict;
 	
 	/**
-	 * 序列的计数
+	 * 出现在样本开始位置的隐藏状态计数，用于计算初始转移概率，startCount[i]
 	 */
-	private HashMap<StateSequence, TransitionCountEntry> transitionCountMap;
-
+	private int[] startCount;
+	
+	/**
+	 * 1阶转移计数，bigram[i][j]为由i转移到j的数量，行在首次出现时分配
+	 */
+	private int[][] bigram;
+	
+	/**
+	 * 由隐藏状态i转移的1阶转移总数量
+	 */
+	private int[] bigramTotal;
+	
+	/**
+	 * 由隐藏状态i转移的1阶转移的目标类型数
+	 */
+	private int[] bigramTypes;
+	
+	/**
+	 * 长度大于1的转移起点(以隐藏状态索引表示)的编号
+	 */
+	private StateHistoryIndex contexts;
+	
 	/**
-	 * 隐藏状态发射到观测的计数
+	 * 由编号为c的起点转移的总数量
 	 */
-	private HashMap<State, EmissionCountEntry> emissionCountMap;
+	private int[] contextTotal;
 	
 	/**
-	 * 出现在样本开始位置的隐藏状态计数，用于计算初始转移概率
+	 * 由编号为c的起点转移的目标类型数，即contextTargets[c]中有效元素的数量
 	 */
-	private HashMap<State, Integer> startStateCount;
+	private int[] contextTypes;
 	
+	/**
+	 * 由编号为c的起点转移的目标隐藏状态索引
+	 */
+	private int[][] contextTargets;
+	
+	/**
+	 * 高阶转移计数，键为(起点编号 << 32) | 目标索引
+	 */
+	private LongIntHashMap transitionCounts;
+	
+	/**
+	 * 发射计数，键为(隐藏状态索引 << 32) | 观测索引
+	 */
+	private LongIntHashMap emissionCounts;
+	
+	/**
+	 * 隐藏状态i发射的总数量
+	 */
+	private int[] emissionTotal;
+	
+	/**
+	 * 隐藏状态i发射的观测类型数，即emissionTargets[i]中有效元素的数量
+	 */
+	private int[] emissionTypes;
+	
+	/**
+	 * 隐藏状态i发射的观测索引
+	 */
+	private int[][] emissionTargets;
+	
+	/**
+	 * transitionTypeCount[n - 1]为n阶转移的类型数
+	 */
 	private int[] transitionTypeCount;
 
 	/**
@@ -58,10 +127,17 @@ public class TransitionAndEmissionCounter {
 	private int totalStatesCount;
 	
 	/**
-	 * 默认HMM阶数
+	 * 样本的隐藏状态索引，在样本间复用
 	 */
+	private int[] stateBuffer;
+	
 	private final static int DEFAULT_ORDER = 1;
 	
+	/**
+	 * 多线程读取样本流时每个分片的样本数量
+	 */
+	private final static int CHUNK_SIZE = 4096;
+	
 	private int order;
 	
 	public TransitionAndEmissionCounter() {
@@ -100,98 +176,341 @@ public class TransitionAndEmissionCounter {
 			update(sample);
 	}
 	
+	/**
+	 * 构造方法，由多个线程并行计数，调用线程读取样本流并按读取顺序合并各分片的计数
+	 * @param sampleStream	样本流
+	 * @param order			模型阶数
+	 * @param threads		计数线程数
+	 * @throws IOException
+	 */
+	public TransitionAndEmissionCounter(SupervisedHMMSampleStream<?> sampleStream, int order, int threads) throws IOException {
+		if(order < 1)
+			throw new IllegalArgumentException("模型阶数和阈值应为正整数： order = " + order);
+		if(threads < 1)
+			throw new IllegalArgumentException("线程数必须为正数");
+		this.order = order;
+		
+		init();
+		
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		ArrayDeque<Future<TransitionAndEmissionCounter>> pending = new ArrayDeque<>();
+		try {
+			List<SupervisedHMMSample> chunk = new ArrayList<>(CHUNK_SIZE);
+			SupervisedHMMSample sample = null;
+			while((sample = (SupervisedHMMSample) sampleStream.read()) != null) {
+				chunk.add(sample);
+				if(chunk.size() == CHUNK_SIZE) {
+					pending.add(executor.submit(new CountTask(chunk, order)));
+					chunk = new ArrayList<>(CHUNK_SIZE);
+					
+					//限制读入内存但尚未合并的分片数量
+					if(pending.size() >= 2 * threads)
+						merge(await(pending.poll()));
+				}
+			}
+			if(!chunk.isEmpty())
+				pending.add(executor.submit(new CountTask(chunk, order)));
+			
+			while(!pending.isEmpty())
+				merge(await(pending.poll()));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * 构造方法，将样本按顺序分为threads个分片并行计数，再按分片顺序合并
+	 * @param samples	样本
+	 * @param order		模型阶数
+	 * @param threads	计数线程数
+	 */
+	public TransitionAndEmissionCounter(List<SupervisedHMMSample> samples, int order, int threads) {
+		if(order < 1)
+			throw new IllegalArgumentException("模型阶数和阈值应为正整数： order = " + order);
+		if(threads < 1)
+			throw new IllegalArgumentException("线程数必须为正数");
+		this.order = order;
+		
+		init();
+		
+		int size = samples.size();
+		int shards = Math.max(1, Math.min(threads, size));
+		ExecutorService executor = Executors.newFixedThreadPool(shards);
+		try {
+			List<Future<TransitionAndEmissionCounter>> futures = new ArrayList<>(shards);
+			for(int shard = 0; shard < shards; shard++) {
+				int from = (int) ((long) size * shard / shards);
+				int to = (int) ((long) size * (shard + 1) / shards);
+				futures.add(executor.submit(new CountTask(samples.subList(from, to), order)));
+			}
+			
+			for(Future<TransitionAndEmissionCounter> future : futures)
+				merge(await(future));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * 构造方法，直接扫描预先编码的语料，使用语料的字典
+	 * @param corpus	包含隐藏状态的编码语料
+	 * @param order		模型阶数
+	 */
+	public TransitionAndEmissionCounter(EncodedCorpus corpus, int order) {
+		if(order < 1)
+			throw new IllegalArgumentException("模型阶数和阈值应为正整数： order = " + order);
+		if(!corpus.hasStates())
+			throw new IllegalArgumentException("语料不包含隐藏状态");
+		this.order = order;
+		
+		init();
+		dict = corpus.getDictionary();
+		ensureStateCapacity(dict.stateCount());
+		
+		int[] states = null;
+		int[] observations = null;
+		for(int n = 0; n < corpus.size(); n++) {
+			states = corpus.states(n, states);
+			observations = corpus.observations(n, observations);
+			update(states, observations, corpus.length(n));
+		}
+	}
+	
 	/**
 	 * 初始化数据
 	 */
 	private void init() {
 		dict = new Dictionary();
-		transitionCountMap = new HashMap<>();
-		emissionCountMap = new HashMap<>();
-		startStateCount = new HashMap<>();
+		startCount = new int[0];
+		bigram = new int[0][];
+		bigramTotal = new int[0];
+		bigramTypes = new int[0];
+		contexts = new StateHistoryIndex();
+		contextTotal = new int[0];
+		contextTypes = new int[0];
+		contextTargets = new int[0][];
+		transitionCounts = new LongIntHashMap();
+		emissionCounts = new LongIntHashMap();
+		emissionTotal = new int[0];
+		emissionTypes = new int[0];
+		emissionTargets = new int[0][];
 		transitionTypeCount = new int[order];
 		totalStartStateCount = 0;
 		totalStatesCount = 0;
+		stateBuffer = new int[0];
 	}
 	
 	public void update(SupervisedHMMSample sample) {
 		StateSequence stateSequence = sample.getStateSequence();
 		ObservationSequence observationSequence = sample.getObservationSequence();
+		int T = stateSequence.length();
+		if(stateBuffer.length < T)
+			stateBuffer = new int[Math.max(T, stateBuffer.length << 1)];
 		
 		//统计观测和隐藏状态的类型并建立索引
-		dict.add(stateSequence);
-		dict.add(observationSequence);
+		for(int t = 0; t < T; t++)
+			stateBuffer[t] = dict.add(stateSequence.get(t));
+		ensureStateCapacity(dict.stateCount());
 		
-		totalStatesCount += stateSequence.length();
+		count(stateBuffer, T);
+		
+		//统计隐藏状态到观测状态的发射计数
+		for(int t = 0; t < T; t++)
+			addEmission(stateBuffer[t], dict.add(observationSequence.get(t)), 1);
+	}
+	
+	/**
+	 * 根据编码后的样本更新计数，索引须来自当前计数器的字典
+	 * @param states		隐藏状态索引
+	 * @param observations	观测索引
+	 * @param T				样本长度
+	 */
+	public void update(int[] states, int[] observations, int T) {
+		ensureStateCapacity(dict.stateCount());
+		count(states, T);
+		
+		//统计隐藏状态到观测状态的发射计数
+		for(int t = 0; t < T; t++)
+			addEmission(states[t], observations[t], 1);
+	}
+	
+	/**
+	 * 统计样本的起始隐藏状态和各阶转移
+	 * @param states	隐藏状态索引
+	 * @param T			样本长度
+	 */
+	private void count(int[] states, int T) {
+		totalStatesCount += T;
 		totalStartStateCount++;
 		
 		//统计起始隐藏状态
-		add(stateSequence.get(0));		
+		startCount[states[0]]++;
 		
-		//统计转移计数
-		for(int i = 2; i <= order + 1; i++) {//遍历n元的阶数，将隐藏序列切分成不同阶的n元序列
-			List<StateSequence> list = CommonUtils.generate(stateSequence, i);
-			
-			for(int j = 0; j < list.size(); j++) 			
-				add(list.get(j));
+		//统计1阶转移计数
+		for(int t = 1; t < T; t++)
+			addBigram(states[t - 1], states[t], 1);
+		
+		//统计高阶转移计数，将隐藏序列切分成不同阶的n元序列
+		for(int i = 3; i <= order + 1; i++) {
+			for(int j = 0; j + i <= T; j++)
+				addContext(contexts.add(states, j, i - 1), states[j + i - 1], 1);
 		}
+	}
+	
+	/**
+	 * 确保按隐藏状态索引的数组能容纳n个隐藏状态，不足时按1.5倍增长
+	 * @param n	隐藏状态数量
+	 */
+	private void ensureStateCapacity(int n) {
+		if(n <= startCount.length)
+			return;
 		
-		//统计隐藏状态到观测状态的发射计数
-		for(int i = 0; i < observationSequence.length(); i++) {//当为终点发射时，state大小为1，当为边发射时为2
-			State state = stateSequence.get(i);
-			Observation observation = observationSequence.get(i);
-			add(state, observation);
+		int capacity = Math.max(n, startCount.length + (startCount.length >> 1));
+		startCount = Arrays.copyOf(startCount, capacity);
+		bigram = Arrays.copyOf(bigram, capacity);
+		bigramTotal = Arrays.copyOf(bigramTotal, capacity);
+		bigramTypes = Arrays.copyOf(bigramTypes, capacity);
+		emissionTotal = Arrays.copyOf(emissionTotal, capacity);
+		emissionTypes = Arrays.copyOf(emissionTypes, capacity);
+		emissionTargets = Arrays.copyOf(emissionTargets, capacity);
+	}
+	
+	/**
+	 * 返回容量不小于n的数组，不足时按2倍增长并复制原有元素
+	 * @param array	原数组，可以为null
+	 * @param n		需要的容量
+	 * @return		容量不小于n的数组
+	 */
+	private static int[] grow(int[] array, int n) {
+		if(array == null)
+			return new int[Math.max(n, 4)];
+		if(n <= array.length)
+			return array;
+		
+		return Arrays.copyOf(array, Math.max(n, array.length << 1));
+	}
+	
+	/**
+	 * 增加count条由隐藏状态i转移到隐藏状态j的1阶转移
+	 * @param i		起点的索引
+	 * @param j		终点的索引
+	 * @param count	增加的数量
+	 */
+	private void addBigram(int i, int j, int count) {
+		int[] row = bigram[i] = grow(bigram[i], Math.max(j + 1, dict.stateCount()));
+		if(row[j] == 0) {
+			bigramTypes[i]++;
+			transitionTypeCount[0]++;
+		}
+		
+		row[j] += count;
+		bigramTotal[i] += count;
+	}
+	
+	/**
+	 * 增加count条由编号为c的长度大于1的起点转移到隐藏状态j的转移
+	 * @param c		起点的编号
+	 * @param j		终点的索引
+	 * @param count	增加的数量
+	 */
+	private void addContext(int c, int j, int count) {
+		if(c == contextTotal.length) {
+			int capacity = Math.max(16, c << 1);
+			contextTotal = Arrays.copyOf(contextTotal, capacity);
+			contextTypes = Arrays.copyOf(contextTypes, capacity);
+			contextTargets = Arrays.copyOf(contextTargets, capacity);
+		}
+		
+		if(transitionCounts.addTo(pack(c, j), count) == count) {
+			int types = contextTypes[c]++;
+			contextTargets[c] = grow(contextTargets[c], types + 1);
+			contextTargets[c][types] = j;
+			transitionTypeCount[contexts.length(c) - 1]++;
 		}
+		contextTotal[c] += count;
 	}
 	
 	/**
-	 * 增加一个隐藏状态序列的首部
-	 * @param state 隐藏状态序列的首部
+	 * 增加count个由隐藏状态i发射观测k的发射
+	 * @param i		隐藏状态索引
+	 * @param k		观测索引
+	 * @param count	增加的数量
 	 */
-	private void add(State state) {
-		if(startStateCount.containsKey(state))
-			startStateCount.put(state, startStateCount.get(state) + 1);
-		else 
-			startStateCount.put(state, 1);
+	private void addEmission(int i, int k, int count) {
+		if(emissionCounts.addTo(pack(i, k), count) == count) {
+			int types = emissionTypes[i]++;
+			emissionTargets[i] = grow(emissionTargets[i], types + 1);
+			emissionTargets[i][types] = k;
+		}
+		emissionTotal[i] += count;
 	}
 	
 	/**
-	 * 增加一条转移，并统计历史转移的所有目标状态（统计n元串计数及其后缀）
-	 * @param sequence	发射
+	 * 将两个非负索引打包为long键
+	 * @param high	高32位的索引
+	 * @param low	低32位的索引
+	 * @return		打包后的键
 	 */
-	private void add(StateSequence transition) {
-		StateSequence start = transition.remove(transition.length() - 1);
-		State target = transition.get(transition.length() - 1);
+	private static long pack(int high, int low) {
+		return ((long) high << 32) | (low & 0xFFFFFFFFL);
+	}
+	
+	/**
+	 * 将另一个计数器的计数合并到当前计数器，另一个计数器的字典按索引顺序合并到当前字典
+	 * @param other	阶数相同的计数器
+	 */
+	public void merge(TransitionAndEmissionCounter other) {
+		if(other.order != order)
+			throw new IllegalArgumentException("计数器的阶数不一致： " + order + " != " + other.order);
+		
+		int[] states = dict.mergeStates(other.dict);
+		int[] observations = dict.mergeObservations(other.dict);
+		ensureStateCapacity(dict.stateCount());
+		
+		totalStatesCount += other.totalStatesCount;
+		totalStartStateCount += other.totalStartStateCount;
 		
-		TransitionCountEntry entry = null;
-		if(transitionCountMap.containsKey(start)) {
-			entry = transitionCountMap.get(start);
-			if(!entry.contain(target))
-				transitionTypeCount[start.length() - 1]++;
+		int n = Math.min(states.length, other.startCount.length);
+		for(int i = 0; i < n; i++) {
+			startCount[states[i]] += other.startCount[i];
 			
-			entry.add(target);
-		}else {
-			entry = new TransitionCountEntry();
-			entry.add(target);
-			transitionTypeCount[start.length() - 1]++;
+			int[] row = other.bigram[i];
+			for(int j = 0; row != null && j < row.length; j++) {
+				if(row[j] > 0)
+					addBigram(states[i], states[j], row[j]);
+			}
+			
+			int[] targets = other.emissionTargets[i];
+			for(int p = 0; p < other.emissionTypes[i]; p++)
+				addEmission(states[i], observations[targets[p]], other.emissionCounts.get(pack(i, targets[p])));
 		}
 		
-		transitionCountMap.put(start, entry);
+		for(int c = 0; c < other.contexts.size(); c++) {
+			int[] start = other.contexts.toArray(c);
+			for(int p = 0; p < start.length; p++)
+				start[p] = states[start[p]];
+			
+			int context = contexts.add(start, 0, start.length);
+			int[] targets = other.contextTargets[c];
+			for(int p = 0; p < other.contextTypes[c]; p++)
+				addContext(context, states[targets[p]], other.transitionCounts.get(pack(c, targets[p])));
+		}
 	}
 	
 	/**
-	 * 增加一个状态为state，观测为observation的发射
-	 * @param state			发射的状态
-	 * @param observation	发射的观测
+	 * 等待分片计数完成
+	 * @param future	分片计数任务
+	 * @return			分片的计数器
 	 */
-	private void add(State state, Observation observation) {
-		EmissionCountEntry entry = null;
-		if(emissionCountMap.containsKey(state)) 
-			entry = emissionCountMap.get(state);
-		else 
-			entry = new EmissionCountEntry();
-		
-		entry.add(observation);
-		emissionCountMap.put(state, entry);
+	private static TransitionAndEmissionCounter await(Future<TransitionAndEmissionCounter> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("计数被中断", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("计数失败", e.getCause());
+		}
 	}
 	
 	/**
@@ -202,8 +521,25 @@ public class TransitionAndEmissionCounter {
 		return order;
 	}
 
+	/**
+	 * 返回所有转移的计数，每次调用时由计数表生成
+	 * @return	转移起点到转移目标计数的映射
+	 */
 	public HashMap<StateSequence, TransitionCountEntry> getTransitionCount() {
-		return transitionCountMap;
+		HashMap<StateSequence, TransitionCountEntry> map = new HashMap<>();
+		Iterator<StateSequence> iterator = transitionIterator();
+		while(iterator.hasNext()) {
+			StateSequence start = iterator.next();
+			TransitionCountEntry entry = new TransitionCountEntry();
+			Iterator<Entry<State, Integer>> targets = transitionTargetCountIterator(start);
+			while(targets.hasNext()) {
+				Entry<State, Integer> target = targets.next();
+				entry.add(target.getKey(), target.getValue());
+			}
+			map.put(start, entry);
+		}
+		
+		return map;
 	}
 	
 	/**
@@ -222,6 +558,33 @@ public class TransitionAndEmissionCounter {
 	public int getTotalStatesCount() {
 		return totalStatesCount;
 	}
+	
+	/**
+	 * 返回长度大于1的转移起点的编号
+	 * @param start	转移的起点
+	 * @return		编号，不存在时返回-1
+	 */
+	private int contextOf(StateSequence start) {
+		int[] indices = new int[start.length()];
+		for(int p = 0; p < indices.length; p++) {
+			indices[p] = dict.getIndex(start.get(p));
+			if(indices[p] == -1)
+				return -1;
+		}
+		
+		return contexts.get(indices, 0, indices.length);
+	}
+	
+	/**
+	 * 返回长度为1的转移起点的隐藏状态索引
+	 * @param start	转移的起点
+	 * @return		隐藏状态索引，不存在时返回-1
+	 */
+	private int stateOf(StateSequence start) {
+		int i = dict.getIndex(start.get(0));
+		
+		return i < startCount.length ? i : -1;
+	}
 		
 	/**
 	 * 返回序列的总数量
@@ -229,17 +592,27 @@ public class TransitionAndEmissionCounter {
 	 * @return			序列的总数量
 	 */
 	public int getTransitionStartCount(StateSequence start) {
-		if(transitionCountMap.containsKey(start))
-			return transitionCountMap.get(start).getTotal();
+		if(start.length() == 1) {
+			int i = stateOf(start);
+			
+			return i == -1 ? 0 : bigramTotal[i];
+		}
+		
+		int c = contextOf(start);
 		
-		return 0;
+		return c == -1 ? 0 : contextTotal[c];
 	}
 	
 	public int getTransitionSuffixCount(StateSequence start) {
-		if(transitionCountMap.containsKey(start))
-			return transitionCountMap.get(start).size();
+		if(start.length() == 1) {
+			int i = stateOf(start);
+			
+			return i == -1 ? 0 : bigramTypes[i];
+		}
 		
-		return 0;
+		int c = contextOf(start);
+		
+		return c == -1 ? 0 : contextTypes[c];
 	}
 	
 	/**
@@ -249,10 +622,97 @@ public class TransitionAndEmissionCounter {
 	 * @return			发射的数量
 	 */
 	public int getTransitionCount(StateSequence start, State target) {
-		if(transitionCountMap.containsKey(start))
-			return transitionCountMap.get(start).getTransitionTargetCount(target);
+		int j = dict.getIndex(target);
+		if(j == -1)
+			return 0;
+		
+		if(start.length() == 1) {
+			int i = stateOf(start);
+			
+			return i == -1 ? 0 : getTransitionCount(i, j);
+		}
+		
+		int c = contextOf(start);
+		
+		return c == -1 ? 0 : transitionCounts.get(pack(c, j));
+	}
+	
+	/**
+	 * 返回由隐藏状态i转移到隐藏状态j的1阶转移的数量
+	 * @param i	起点的索引
+	 * @param j	终点的索引
+	 * @return	转移的数量
+	 */
+	public int getTransitionCount(int i, int j) {
+		if(i < 0 || i >= bigram.length || bigram[i] == null || j < 0 || j >= bigram[i].length)
+			return 0;
 		
-		return 0;
+		return bigram[i][j];
+	}
+	
+	/**
+	 * 返回以隐藏状态索引表示的起点的转移总数量
+	 * @param start		隐藏状态索引
+	 * @param from		起点在数组中的起始位置
+	 * @param length	起点的长度
+	 * @return			转移的总数量
+	 */
+	public int getTransitionStartCount(int[] start, int from, int length) {
+		if(length == 1)
+			return start[from] < 0 || start[from] >= bigramTotal.length ? 0 : bigramTotal[start[from]];
+		
+		int c = contexts.get(start, from, length);
+		
+		return c == -1 ? 0 : contextTotal[c];
+	}
+	
+	/**
+	 * 返回由以隐藏状态索引表示的起点转移到隐藏状态target的数量
+	 * @param start		隐藏状态索引
+	 * @param from		起点在数组中的起始位置
+	 * @param length	起点的长度
+	 * @param target	终点的索引
+	 * @return			转移的数量
+	 */
+	public int getTransitionCount(int[] start, int from, int length, int target) {
+		if(length == 1)
+			return getTransitionCount(start[from], target);
+		
+		int c = contexts.get(start, from, length);
+		
+		return c == -1 || target < 0 ? 0 : transitionCounts.get(pack(c, target));
+	}
+	
+	/**
+	 * 将由以隐藏状态索引表示的起点转移到各隐藏状态的数量写入counts，只查找一次起点
+	 * @param start		隐藏状态索引
+	 * @param from		起点在数组中的起始位置
+	 * @param length	起点的长度
+	 * @param counts	counts[j]为转移到隐藏状态j的数量，长度不小于隐藏状态数量
+	 * @return			转移的总数量
+	 */
+	public int getTransitionCounts(int[] start, int from, int length, int[] counts) {
+		Arrays.fill(counts, 0);
+		if(length == 1) {
+			int i = start[from];
+			if(i < 0 || i >= bigram.length || bigram[i] == null)
+				return 0;
+			
+			System.arraycopy(bigram[i], 0, counts, 0, Math.min(bigram[i].length, counts.length));
+			
+			return bigramTotal[i];
+		}
+		
+		int c = contexts.get(start, from, length);
+		if(c == -1)
+			return 0;
+		
+		for(int p = 0; p < contextTypes[c]; p++) {
+			int j = contextTargets[c][p];
+			counts[j] = transitionCounts.get(pack(c, j));
+		}
+		
+		return contextTotal[c];
 	}
 
 	/**
@@ -261,7 +721,18 @@ public class TransitionAndEmissionCounter {
 	 * @return		发射的总数量
 	 */
 	public int getEmissionStateCount(State state) {
-		return emissionCountMap.get(state).getTotal();
+		int i = dict.getIndex(state);
+		
+		return getEmissionStateCount(i);
+	}
+	
+	/**
+	 * 返回隐藏状态i发射的总数量
+	 * @param i	隐藏状态索引
+	 * @return	发射的总数量
+	 */
+	public int getEmissionStateCount(int i) {
+		return i < 0 || i >= emissionTotal.length ? 0 : emissionTotal[i];
 	}
 
 	/**
@@ -271,11 +742,42 @@ public class TransitionAndEmissionCounter {
 	 * @return				发射的数量
 	 */
 	public int getEmissionCount(State state, Observation observation) {
-		if(emissionCountMap.containsKey(state))
-			if(emissionCountMap.get(state).contain(observation))
-				return emissionCountMap.get(state).getObservationCount(observation);
+		return getEmissionCount(dict.getIndex(state), dict.getIndex(observation));
+	}
+	
+	/**
+	 * 返回隐藏状态i发射观测k的数量
+	 * @param i	隐藏状态索引
+	 * @param k	观测索引
+	 * @return	发射的数量
+	 */
+	public int getEmissionCount(int i, int k) {
+		if(i < 0 || k < 0)
+			return 0;
+		
+		return emissionCounts.get(pack(i, k));
+	}
+	
+	/**
+	 * 返回隐藏状态i发射的观测类型数
+	 * @param i	隐藏状态索引
+	 * @return	发射的观测类型数
+	 */
+	public int getEmissionTypeCount(int i) {
+		return i < 0 || i >= emissionTypes.length ? 0 : emissionTypes[i];
+	}
+	
+	/**
+	 * 返回隐藏状态i发射的第p个观测的索引，按第一次出现的顺序排列
+	 * @param i	隐藏状态索引
+	 * @param p	在[0, getEmissionTypeCount(i))之间
+	 * @return	观测索引
+	 */
+	public int getEmissionTarget(int i, int p) {
+		if(p < 0 || p >= getEmissionTypeCount(i))
+			throw new IllegalArgumentException("发射目标的位置越界： p = " + p);
 		
-		return 0;
+		return emissionTargets[i][p];
 	}
 	
 	/**
@@ -284,10 +786,18 @@ public class TransitionAndEmissionCounter {
 	 * @return		隐藏状态出现在样本起点的次数
 	 */
 	public int getStartStateCount(State state) {
-		if(startStateCount.containsKey(state))
-			return startStateCount.get(state);
+		int i = dict.getIndex(state);
 		
-		return 0;
+		return getStartStateCount(i);
+	}
+	
+	/**
+	 * 返回隐藏状态i出现在样本起点的次数
+	 * @param i	隐藏状态索引
+	 * @return	隐藏状态出现在样本起点的次数
+	 */
+	public int getStartStateCount(int i) {
+		return i < 0 || i >= startCount.length ? 0 : startCount[i];
 	}
 	
 	/**
@@ -298,6 +808,14 @@ public class TransitionAndEmissionCounter {
 		return totalStartStateCount;
 	}
 	
+	/**
+	 * 返回出现过的长度大于1的转移起点，编号与计数器内部一致，不应修改
+	 * @return	转移起点的编号
+	 */
+	public StateHistoryIndex getTransitionContexts() {
+		return contexts;
+	}
+	
 	/**
 	 * 返回观测状态和隐藏状态的索引信息
 	 * @return	观测状态和隐藏状态的索引信息
@@ -307,11 +825,23 @@ public class TransitionAndEmissionCounter {
 	}
 	
 	/**
-	 * 返回转移起点的迭代器
+	 * 返回转移起点的迭代器，先按隐藏状态索引返回长度为1的起点，再按首次出现的顺序返回更长的起点
 	 * @return	迭代器
 	 */
 	public Iterator<StateSequence> transitionIterator() {
-		return transitionCountMap.keySet().iterator();
+		List<StateSequence> starts = new ArrayList<>();
+		for(int i = 0; i < bigramTotal.length; i++) {
+			if(bigramTotal[i] > 0)
+				starts.add(new StateSequence(dict.getState(i)));
+		}
+		for(int c = 0; c < contexts.size(); c++) {
+			State[] states = new State[contexts.length(c)];
+			for(int p = 0; p < states.length; p++)
+				states[p] = dict.getState(contexts.state(c, p));
+			starts.add(new StateSequence(states));
+		}
+		
+		return starts.iterator();
 	}
 	
 	/**
@@ -320,7 +850,23 @@ public class TransitionAndEmissionCounter {
 	 * @return		所有转移目标及其数量
 	 */
 	public Iterator<Entry<State, Integer>> transitionTargetCountIterator(StateSequence start) {
-		return transitionCountMap.get(start).entryIterator();
+		List<Entry<State, Integer>> targets = new ArrayList<>();
+		if(start.length() == 1) {
+			int i = stateOf(start);
+			int[] row = i == -1 ? null : bigram[i];
+			for(int j = 0; row != null && j < row.length; j++) {
+				if(row[j] > 0)
+					targets.add(new SimpleEntry<State, Integer>(dict.getState(j), row[j]));
+			}
+		} else {
+			int c = contextOf(start);
+			for(int p = 0; c != -1 && p < contextTypes[c]; p++) {
+				int j = contextTargets[c][p];
+				targets.add(new SimpleEntry<State, Integer>(dict.getState(j), transitionCounts.get(pack(c, j))));
+			}
+		}
+		
+		return targets.iterator();
 	}
 	
 	/**
@@ -328,7 +874,13 @@ public class TransitionAndEmissionCounter {
 	 * @return	迭代器
 	 */
 	public Iterator<State> emissionIterator() {
-		return emissionCountMap.keySet().iterator();
+		List<State> states = new ArrayList<>();
+		for(int i = 0; i < emissionTotal.length; i++) {
+			if(emissionTotal[i] > 0)
+				states.add(dict.getState(i));
+		}
+		
+		return states.iterator();
 	}
 
 	/**
@@ -337,6 +889,33 @@ public class TransitionAndEmissionCounter {
 	 * @return		目标观测状态的迭代器
 	 */
 	public Iterator<Observation> iterator(State state) {
-		return emissionCountMap.get(state).observationsIterator();
+		int i = dict.getIndex(state);
+		List<Observation> observations = new ArrayList<>();
+		for(int p = 0; i != -1 && i < emissionTypes.length && p < emissionTypes[i]; p++)
+			observations.add(dict.getObservation(emissionTargets[i][p]));
+		
+		return observations.iterator();
+	}
+	
+	/**
+	 *<ul>
+	 *<li>Description: 统计一个分片的样本，返回分片的计数器
+	 *</ul>
+	 */
+	private static class CountTask implements Callable<TransitionAndEmissionCounter> {
+		
+		private final List<SupervisedHMMSample> samples;
+		
+		private final int order;
+		
+		CountTask(List<SupervisedHMMSample> samples, int order) {
+			this.samples = samples;
+			this.order = order;
+		}
+
+		@Override
+		public TransitionAndEmissionCounter call() {
+			return new TransitionAndEmissionCounter(samples, order);
+		}
 	}
-}
\ No newline at end of file
+}
@@ -45,12 +45,21 @@ public class TransitionCountEntry {
 	 * @param state	待增加的目标状态
 	 */
 	public void add(State state) {
+		add(state, 1);
+	}
+	
+	/**
+	 * 增加count个转移的目标状态
+	 * @param state	待增加的目标状态
+	 * @param count	增加的数量
+	 */
+	public void add(State state, int count) {
 		if(transitionCount.containsKey(state))
-			transitionCount.put(state, transitionCount.get(state) + 1);
+			transitionCount.put(state, transitionCount.get(state) + count);
 		else
-			transitionCount.put(state, 1);
+			transitionCount.put(state, count);
 		
-		total++;
+		total += count;
 	}
 	
 	/**
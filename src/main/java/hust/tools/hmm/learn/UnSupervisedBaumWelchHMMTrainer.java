@@ -1,29 +1,31 @@
 package hust.tools.hmm.learn;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import hust.tools.hmm.model.BackwardAlgorithm;
-import hust.tools.hmm.model.EmissionProbEntry;
-import hust.tools.hmm.model.ForwardAlgorithm;
 import hust.tools.hmm.model.HMModel;
-import hust.tools.hmm.model.HMModelBasedMap;
-import hust.tools.hmm.model.TransitionProbEntry;
+import hust.tools.hmm.model.ScaledForwardBackwardAlgorithm;
 import hust.tools.hmm.stream.UnSupervisedHMMSample;
 import hust.tools.hmm.stream.UnSupervisedHMMSampleStream;
-import hust.tools.hmm.utils.Dictionary;
-import hust.tools.hmm.utils.Observation;
+import hust.tools.hmm.utils.EncodedCorpus;
 import hust.tools.hmm.utils.ObservationSequence;
-import hust.tools.hmm.utils.State;
-import hust.tools.hmm.utils.StateSequence;
 
 /**
  *<ul>
  *<li>Description: 基于Baum-Welch的非监督HMM训练器(目前只支持1阶HMM训练)
  *<li>训练器需有初始模型，初始模型可以导入现有的模型，也可以随机生成
+ *<li>训练语料在构造时一次性编码为整数语料，每次迭代只扫描观测索引，也可以直接使用预先编码(或内存映射加载)的语料
+ *<li>可设置每隔若干次迭代在后台线程中写出检查点，训练中断后通过resume()从检查点继续训练
+ *<li>E步可将训练语料按顺序切分为与线程数相同的分片并行计算，每个分片使用独立的统计量，迭代结束时按分片顺序合并，线程数相同时结果可重现
  *<li>Company: HUST
  *<li>@author Sonly
  *<li>Date: 2018年1月23日
@@ -37,10 +39,56 @@ public class UnSupervisedBaumWelchHMMTrainer extends AbstractUnSupervisedHMMTrai
 	private ConvergencyJudge convergencyJudge;
 	
 	/**
-	 * 训练语料
+	 * 训练语料，用于收敛判断
 	 */
 	private List<ObservationSequence> trainSequences;
 	
+	/**
+	 * 编码后的训练语料，流式训练时为null
+	 */
+	private EncodedCorpus corpus;
+	
+	/**
+	 * 流式训练的样本流，每次迭代开始时重置并重新读取，非流式训练时为null
+	 */
+	private UnSupervisedHMMSampleStream<?> sampleStream;
+	
+	/**
+	 * 多线程流式训练时每批读入的观测序列数量，每批再切分给各线程，
+	 * 因此累加顺序与非流式训练不同，两者的结果只在浮点求和的舍入误差范围内相同，线程数相同的流式训练结果可重现
+	 */
+	private static final int STREAM_BATCH_SIZE = 1024;
+	
+	/**
+	 * E步使用的线程数
+	 */
+	private int threads = 1;
+	
+	/**
+	 * 检查点文件，为null时不写出检查点
+	 */
+	private File checkpointFile;
+	
+	/**
+	 * 写出检查点的迭代间隔
+	 */
+	private int checkpointInterval;
+	
+	/**
+	 * 最近一次提交的检查点写出任务，提交下一个检查点前和训练结束时检查其结果
+	 */
+	private Future<Void> pendingCheckpoint;
+	
+	/**
+	 * 第一次迭代的编号，从检查点恢复时为检查点的迭代次数加1
+	 */
+	private int startIteration = 1;
+	
+	/**
+	 * 每次迭代E步得到的训练语料概率的对数
+	 */
+	private List<Double> logLikelihoods = new ArrayList<>();
+	
 	/**
 	 * 构造方法
 	 * @param initHMModel		初始模型
@@ -49,18 +97,36 @@ public class UnSupervisedBaumWelchHMMTrainer extends AbstractUnSupervisedHMMTrai
 	 * @throws IOException
 	 */
 	public UnSupervisedBaumWelchHMMTrainer(HMModel initHMModel, UnSupervisedHMMSampleStream<?> sampleStream, ConvergencyJudge convergencyJudge) throws IOException {
+		this(initHMModel, sampleStream, convergencyJudge, false);
+	}
+	public UnSupervisedBaumWelchHMMTrainer(HMModel initHMModel, UnSupervisedHMMSampleStream<?> sampleStream) throws IOException {
+		this(initHMModel, sampleStream, new LikelihoodConvergencyJudge());
+	}
+	/**
+	 * 构造方法
+	 * @param initHMModel		初始模型
+	 * @param sampleStream		训练样本（观测样本）流，流式训练时须支持reset()
+	 * @param convergencyJudge	收敛判断
+	 * @param streaming			是否流式训练，流式训练时不将语料读入内存，每次迭代重新读取样本流，训练结束后关闭样本流
+	 * @throws IOException
+	 */
+	public UnSupervisedBaumWelchHMMTrainer(HMModel initHMModel, UnSupervisedHMMSampleStream<?> sampleStream, ConvergencyJudge convergencyJudge, boolean streaming) throws IOException {
 		super(initHMModel);
 		this.convergencyJudge = convergencyJudge;
-		trainSequences = new ArrayList<>();
 		
-		UnSupervisedHMMSample sample = null;
-		while((sample = (UnSupervisedHMMSample) sampleStream.read()) != null) {
-			trainSequences.add(sample.getObservationSequence());
+		if(streaming) {
+			this.sampleStream = sampleStream;
+			trainSequences = Collections.emptyList();
+		}else {
+			trainSequences = new ArrayList<>();
+			
+			UnSupervisedHMMSample sample = null;
+			while((sample = (UnSupervisedHMMSample) sampleStream.read()) != null) {
+				trainSequences.add(sample.getObservationSequence());
+			}
+			sampleStream.close();
+			corpus = EncodedCorpus.encode(initHMModel.getDict(), trainSequences);
 		}
-		sampleStream.close();
-	}
-	public UnSupervisedBaumWelchHMMTrainer(HMModel initHMModel, UnSupervisedHMMSampleStream<?> sampleStream) throws IOException {
-		this(initHMModel, sampleStream, new DefaultConvergencyJudge());
 	}
 	public UnSupervisedBaumWelchHMMTrainer(HMModel initHMModel, List<UnSupervisedHMMSample> trainSamples, ConvergencyJudge convergencyJudge) throws IOException {
 		super(initHMModel);
@@ -69,11 +135,81 @@ public class UnSupervisedBaumWelchHMMTrainer extends AbstractUnSupervisedHMMTrai
 		trainSequences = new ArrayList<>();
 		for(UnSupervisedHMMSample sample : trainSamples)
 			trainSequences.add(sample.getObservationSequence());
+		corpus = EncodedCorpus.encode(initHMModel.getDict(), trainSequences);
 	}
 	public UnSupervisedBaumWelchHMMTrainer(HMModel initHMModel, List<ObservationSequence> trainSequences) throws IOException {
 		super(initHMModel);
 		this.trainSequences = trainSequences;
-		convergencyJudge = new DefaultConvergencyJudge();
+		convergencyJudge = new LikelihoodConvergencyJudge();
+		corpus = EncodedCorpus.encode(initHMModel.getDict(), trainSequences);
+	}
+	/**
+	 * 构造方法，直接使用编码后的语料，收敛判断得到的训练语料为空
+	 * @param initHMModel		初始模型
+	 * @param corpus			编码后的训练语料，须使用初始模型的字典编码
+	 * @param convergencyJudge	收敛判断
+	 */
+	public UnSupervisedBaumWelchHMMTrainer(HMModel initHMModel, EncodedCorpus corpus, ConvergencyJudge convergencyJudge) {
+		super(initHMModel);
+		if(!initHMModel.getDict().equals(corpus.getDictionary()))
+			throw new IllegalArgumentException("语料与模型的字典不一致");
+		
+		this.convergencyJudge = convergencyJudge;
+		this.corpus = corpus;
+		trainSequences = Collections.emptyList();
+	}
+	
+	/**
+	 * 设置E步使用的线程数，默认为1
+	 * @param threads	线程数
+	 */
+	public void setThreads(int threads) {
+		if(threads < 1)
+			throw new IllegalArgumentException("线程数必须为正数");
+		
+		this.threads = threads;
+	}
+	
+	/**
+	 * 设置检查点，每隔interval次迭代以及训练结束时在后台线程中将模型、迭代次数和对数似然度写入file
+	 * @param file		检查点文件
+	 * @param interval	写出检查点的迭代间隔
+	 */
+	public void setCheckpoint(File file, int interval) {
+		if(interval < 1)
+			throw new IllegalArgumentException("检查点间隔必须为正数");
+		
+		this.checkpointFile = file;
+		this.checkpointInterval = interval;
+	}
+	
+	/**
+	 * 从检查点恢复模型、迭代次数和对数似然度，之后调用train()继续训练，须在train()之前调用
+	 * 最后一次迭代的对数似然度同时传给收敛判断，使恢复后第一次迭代即可判断收敛
+	 * @param file	检查点文件
+	 * @throws IOException
+	 */
+	public void resume(File file) throws IOException {
+		BaumWelchCheckpoint checkpoint = BaumWelchCheckpoint.read(file);
+		if(!model.getDict().equals(checkpoint.getModel().getDict()))
+			throw new IllegalArgumentException("检查点与初始模型的字典不一致");
+		
+		model = checkpoint.getModel();
+		startIteration = checkpoint.getIteration() + 1;
+		logLikelihoods = new ArrayList<>();
+		for(double logLikelihood : checkpoint.getLogLikelihoods())
+			logLikelihoods.add(logLikelihood);
+		
+		if(!logLikelihoods.isEmpty())
+			convergencyJudge.reset(logLikelihoods.get(logLikelihoods.size() - 1));
+	}
+	
+	/**
+	 * 返回每次迭代E步得到的训练语料概率的对数，第i个元素对应第i + 1次迭代前的模型
+	 * @return	对数似然度
+	 */
+	public List<Double> getLogLikelihoods() {
+		return Collections.unmodifiableList(logLikelihoods);
 	}
 	
 	@Override
@@ -81,195 +217,198 @@ public class UnSupervisedBaumWelchHMMTrainer extends AbstractUnSupervisedHMMTrai
 		HMModel preModel, currentModel;
 		currentModel = model;
 		model = null;
-		int iteration = 1;
+		int iteration = startIteration;
+		boolean convergency = false;
+		pendingCheckpoint = null;
 		
-		do{
-			preModel = currentModel;
-			currentModel = iterate(preModel, trainSequences);
-		}while(!convergencyJudge.isConvergency(preModel, currentModel, trainSequences, iteration++));
+		ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+		ExecutorService checkpointExecutor = checkpointFile == null ? null : Executors.newSingleThreadExecutor();
+		try {
+			do{
+				preModel = currentModel;
+				currentModel = iterate(preModel, executor);
+				convergency = convergencyJudge.isConvergency(preModel, currentModel, trainSequences, logLikelihoods.get(logLikelihoods.size() - 1), iteration);
+				
+				if(checkpointExecutor != null && (convergency || iteration % checkpointInterval == 0))
+					checkpoint(checkpointExecutor, currentModel, iteration);
+				iteration++;
+			}while(!convergency);
+		} catch (IOException e) {
+			throw new UncheckedIOException("读取训练语料失败", e);
+		} finally {
+			if(executor != null)
+				executor.shutdown();
+			closeStream();
+			if(checkpointExecutor != null)
+				checkpointExecutor.shutdown();
+		}
+		awaitCheckpoint();
 		
 		return currentModel;
 	}
 	
+	/**
+	 * 在后台线程中写出检查点，模型在迭代之间不会被修改，对数似然度在提交前复制
+	 * 提交前先等待上一个检查点写完，上一个检查点写出失败时抛出异常，不会在没有可用检查点的情况下继续训练
+	 * @param checkpointExecutor	写检查点的单线程线程池
+	 * @param model					当前模型
+	 * @param iteration				已完成的迭代次数
+	 */
+	private void checkpoint(ExecutorService checkpointExecutor, HMModel model, int iteration) {
+		double[] history = new double[logLikelihoods.size()];
+		for(int i = 0; i < history.length; i++)
+			history[i] = logLikelihoods.get(i);
+		
+		final BaumWelchCheckpoint checkpoint = new BaumWelchCheckpoint(model, iteration, history);
+		final File file = checkpointFile;
+		awaitCheckpoint();
+		pendingCheckpoint = checkpointExecutor.submit(new Callable<Void>() {
+			@Override
+			public Void call() throws IOException {
+				checkpoint.write(file);
+				
+				return null;
+			}
+		});
+	}
+	
+	/**
+	 * 等待最近一次提交的检查点写完
+	 * @throws UncheckedIOException	检查点写出失败
+	 */
+	private void awaitCheckpoint() {
+		if(pendingCheckpoint == null)
+			return;
+		
+		Future<Void> future = pendingCheckpoint;
+		pendingCheckpoint = null;
+		try {
+			future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("等待检查点写出被中断", e);
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof IOException)
+				throw new UncheckedIOException("写出检查点失败：" + checkpointFile, (IOException) e.getCause());
+			
+			throw new IllegalStateException("写出检查点失败：" + checkpointFile, e.getCause());
+		}
+	}
+	
 	/**
 	 * 一次迭代，在当前HMM模型的基础上生成一个新的HMM模型
+	 * 流式训练时先重置样本流，每次只读入一批观测序列
 	 * @param model		当前模型
-	 * @param sequences	训练语料(观测序列集)
+	 * @param executor	E步使用的线程池，为null时在当前线程计算
 	 * @return			新的HMM模型
+	 * @throws IOException
 	 */
-	private HMModel iterate(HMModel model, final List<ObservationSequence> sequences) {
-		Dictionary dict = model.getDict();
-		HashMap<State, Double> pi = new HashMap<>();
-		HashMap<StateSequence, TransitionProbEntry> transitionMatrix = new HashMap<>();
-		HashMap<StateSequence, TransitionProbEntry> tempTransitionMatrix = model.getTransitionMatrix();
-		HashMap<State, EmissionProbEntry> emissionMatrix = new HashMap<>();
-		
-		int N = model.statesCount();
-		int M = model.observationsCount();
-		
-		double[][] 	alpha, beta;										//前向概率和后向概率
-		double[] 	tempPiNumerator = new double[N];					//tempPiNumerator[i]初始转移为i的概率之和
-		double 		tempPiDenominator = 0.0;							//所有初始转移之和的总和
-		double[][] 	tempTransitionMatrixNumerator = new double[N][N];	//tempTransitionMatrixNumerator[i][j]由i转移到j的概率之和
-		double[] 	tempTransitionMatrixDenominator = new double[N];	//tempTransitionMatrixDenominator[i]由i转移的概率之和
-		double[][] 	tempEmissionMatrixNumerator = new double[N][M];		//tempEmissionMatrixNumerator[i][j]由i发射到j，且在训练语料中Ot=vj的概率之和
-		double[] 	tempEmissionMatrixDenominator = new double[N];	//tempEmissionMatrixDenominator[i]由i发射的概率之和
-		
-		Arrays.fill(tempPiNumerator, 0.0);
-		
-		Arrays.fill(tempTransitionMatrixDenominator, 0.0);
-		for(int i = 0; i < tempTransitionMatrixNumerator.length; i++)
-			Arrays.fill(tempTransitionMatrixNumerator[i], 0.0);
-		
-		Arrays.fill(tempEmissionMatrixDenominator, 0.0);
-		for(int i = 0; i < tempEmissionMatrixNumerator.length; i++)
-			Arrays.fill(tempEmissionMatrixNumerator[i], 0.0);
-		
+	private HMModel iterate(HMModel model, ExecutorService executor) throws IOException {
+		int shards = executor == null ? 1 : threads;
+		ScaledForwardBackwardAlgorithm algorithm = new ScaledForwardBackwardAlgorithm(model);
+		ScaledForwardBackwardAlgorithm[] algorithms = new ScaledForwardBackwardAlgorithm[shards];
+		BaumWelchStatistics[] statistics = new BaumWelchStatistics[shards];
+		for(int shard = 0; shard < shards; shard++) {
+			algorithms[shard] = shard == 0 ? algorithm : algorithm.fork();
+			statistics[shard] = new BaumWelchStatistics(model.statesCount(), model.observationsCount());
+		}
 		
-		BackwardAlgorithm backward = null;
-		ForwardAlgorithm forward = null;
-		for(int no = 0; no < trainSequences.size(); no++) {
-			ObservationSequence sequence = trainSequences.get(no);
-			
-			forward = new ForwardAlgorithm(model, sequence);
-			alpha = forward.getAlpha();
-			backward = new BackwardAlgorithm(model, sequence);
-			beta = backward.getBeta();
-			
-			int T = sequence.length();
-			int[] observationsIndex = new int[T];
-			for(int i = 0; i < observationsIndex.length; i++)//观测序列的索引序列
-				observationsIndex[i] = dict.getIndex(sequence.get(i));
-			
-			double[][][] xi = calcXi(model, observationsIndex, alpha, beta);
-			double[][] gamma = calcGamma(model, T, alpha, beta);
+		if(sampleStream == null) {
+			expectation(corpus, algorithms, statistics, executor);
+		}else {
+			sampleStream.reset();
+			int batchSize = executor == null ? 1 : STREAM_BATCH_SIZE;
+			List<ObservationSequence> batch = new ArrayList<>(batchSize);
 			
-			for(int i = 0; i < N; i++) {//遍历所有隐藏状态
-				//计算初始转移概率
-				tempPiNumerator[i] += gamma[0][i];
-				tempPiDenominator += tempPiNumerator[i];
-				
-				//计算转移概率
-				for(int t = 0; t < T - 1; t++) {
-					tempTransitionMatrixDenominator[i] += gamma[t][i];
-					
-					for(int j = 0; j < N; j++) 
-						tempTransitionMatrixNumerator[i][j] += xi[t][i][j];
-				}
-			
-				//计算发射概率
-				for(int t = 0; t < T; t++) {
-					for(int k = 0; k < M; k++) {//遍历所有观测
-						tempEmissionMatrixDenominator[i] += gamma[t][i];
-						
-						if(sequence.get(t).equals(dict.getObservation(k)))
-							tempEmissionMatrixNumerator[i][k] += gamma[t][i];
-					}
+			UnSupervisedHMMSample sample = null;
+			while((sample = (UnSupervisedHMMSample) sampleStream.read()) != null) {
+				batch.add(sample.getObservationSequence());
+				if(batch.size() == batchSize) {
+					expectation(EncodedCorpus.encode(model.getDict(), batch), algorithms, statistics, executor);
+					batch.clear();
 				}
 			}
-		}//训练语料遍历结束
-		
-		/**
-		 * 重新估算模型参数
-		 */		
-		double prob = 0.0;
-		for(int i = 0; i < N; i++) {
-			State state = dict.getState(i);
 			
-			//计算初始转移概率
-			prob = 0.001 + 0.999 * tempPiNumerator[i] / tempPiDenominator;
-			pi.put(state, Math.log10(prob));
+			if(!batch.isEmpty())
+				expectation(EncodedCorpus.encode(model.getDict(), batch), algorithms, statistics, executor);
+		}
+		
+		//按分片顺序合并统计量
+		for(int shard = 1; shard < shards; shard++)
+			statistics[0].merge(statistics[shard]);
+		logLikelihoods.add(statistics[0].logLikelihood);
+		
+		return statistics[0].maximization(model);
+	}
+	
+	/**
+	 * 将观测序列按顺序切分为与统计量数量相同的分片，第i个分片累加到第i个统计量，多个分片时并行计算
+	 * @param sequences		编码后的观测序列
+	 * @param algorithms	每个分片的前向-后向算法
+	 * @param statistics	每个分片的统计量
+	 * @param executor		线程池，为null时在当前线程计算
+	 */
+	private void expectation(final EncodedCorpus sequences, ScaledForwardBackwardAlgorithm[] algorithms, BaumWelchStatistics[] statistics, ExecutorService executor) {
+		if(executor == null) {
+			expectation(sequences, 0, sequences.size(), algorithms[0], statistics[0]);
 			
-			//计算转移概率
-			StateSequence start = new StateSequence(state);
-			TransitionProbEntry transitionProbEntry = new TransitionProbEntry();
-			for(int j = 0; j < N; j++) {
-				State target = dict.getState(j);
-				if(tempTransitionMatrixDenominator[i] == 0)
-					prob = Math.pow(10, tempTransitionMatrix.get(start).getTransitionLogProb(target));
-				else
-					prob = 0.001 + 0.999 * tempTransitionMatrixNumerator[i][j] / tempTransitionMatrixDenominator[i];
-				
-				transitionProbEntry.put(target, Math.log10(prob));
-			}
-			transitionMatrix.put(start, transitionProbEntry);
+			return;
+		}
 		
-			//计算发射概率
-			EmissionProbEntry emissionProbEntry = new EmissionProbEntry();
-			for(int j = 0; j < M; j++) {
-				Observation observation = dict.getObservation(j);
-				prob = 0.001 + 0.999 * tempEmissionMatrixNumerator[i][j] / tempEmissionMatrixDenominator[i];
-				emissionProbEntry.put(observation, Math.log10(prob));
-			}
-			emissionMatrix.put(state, emissionProbEntry);
+		int size = sequences.size();
+		int shards = statistics.length;
+		List<Future<?>> futures = new ArrayList<>(shards);
+		for(int shard = 0; shard < shards; shard++) {
+			final int from = (int) ((long) size * shard / shards);
+			final int to = (int) ((long) size * (shard + 1) / shards);
+			final ScaledForwardBackwardAlgorithm shardAlgorithm = algorithms[shard];
+			final BaumWelchStatistics shardStatistics = statistics[shard];
+			futures.add(executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					expectation(sequences, from, to, shardAlgorithm, shardStatistics);
+				}
+			}));
+		}
+		
+		try {
+			for(Future<?> future : futures)
+				future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("E步计算被中断", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("E步计算失败", e.getCause());
 		}
-
-		return new HMModelBasedMap(1, dict, pi, transitionMatrix, emissionMatrix);
 	}
 	
 	/**
-	 * 给定模型和观测，计算在t时刻处于状态i的概率gamma[t][i]
-	 * gamma[t][i] = SUMj{xi[t][i][j]}
-	 * @param model	HMM模型
-	 * @param xi	
-	 * @return		gamma
+	 * 将观测序列[from, to)区间的期望统计量累加到statistics
+	 * @param sequences		编码后的观测序列
+	 * @param from			起始位置
+	 * @param to			结束位置(不包含)
+	 * @param algorithm		当前模型的前向-后向算法
+	 * @param statistics	期望统计量
 	 */
-	private double[][] calcGamma(HMModel model, int T, double[][] alpha, double[][] beta) {
-		if(T <= 1)
-			throw new IllegalArgumentException("观测序列太短");
-
-		int N = model.statesCount();
-		double[][] gamma = new double[T][N];
-
-		for(int t = 0; t < T; t++) {
-			double normalization_factor = 0.0;
-			for(int i = 0; i < N; i++) {
-				gamma[t][i] = Math.pow(10, alpha[t][i]) * Math.pow(10, beta[t][i]);
-				normalization_factor += gamma[t][i];
-			}
-
-			//归一化
-			for(int i = 0; i < N; i++)
-				gamma[t][i] /= normalization_factor;
+	private void expectation(EncodedCorpus sequences, int from, int to, ScaledForwardBackwardAlgorithm algorithm, BaumWelchStatistics statistics) {
+		int[] observations = null;
+		for(int no = from; no < to; no++) {
+			observations = sequences.observations(no, observations);
+			statistics.accumulate(algorithm, observations, 0, sequences.length(no));
 		}
-
-		return gamma;
 	}
 	
 	/**
-	 * 给定模型和观测，计算在t时刻处于状态i，且在t+1时刻处于状态j的概率xi[t][i][j]
-	 * xi[t][i][j] = alpha[t][i]*A[i][j]*B[j][t+1]*beta[j][t+1]/denominator
-	 * @param model			HMM模型
-	 * @param T				观测序列长度
-	 * @param observations	观测序列
-	 * @param alpha			前向概率
-	 * @param beta			后向概率
-	 * @return				xi
+	 * 关闭流式训练的样本流
 	 */
-	private double[][][] calcXi(HMModel model, int[] observations, double[][] alpha, double[][] beta) {
-		int T = observations.length;
-		if(T <= 1)
-			throw new IllegalArgumentException("观测序列太短:" + model.getDict().getObservationSequence(observations));
-
-		int N = model.statesCount();
-		double[][][] xi = new double[T - 1][N][N];
-
-		for(int t = 0; t < T - 1; t++) {
-			double normalization_factor = 0.0;
-			for(int i = 0; i < N; i++) {
-				for(int j = 0; j < N; j++) {
-					xi[t][i][j] = Math.pow(10, alpha[t][i]) * Math.pow(10, beta[t+1][j]) * Math.pow(10, model.transitionLogProb(new int[]{i}, j)) * Math.pow(10, model.emissionLogProb(j, observations[t+1]));
-					normalization_factor += xi[t][i][j];
-				}
-			}
-
-			//归一化
-			for(int i = 0; i < N; i++) {
-				for(int j = 0; j < N; j++)
-					xi[t][i][j]  /= normalization_factor;
-			}
+	private void closeStream() {
+		if(sampleStream == null)
+			return;
+		
+		try {
+			sampleStream.close();
+		} catch (IOException e) {
+			e.printStackTrace();
 		}
-
-		return xi;
 	}
 }
\ No newline at end of file
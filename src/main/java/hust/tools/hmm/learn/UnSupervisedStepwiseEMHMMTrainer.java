@@ -0,0 +1,192 @@
+package hust.tools.hmm.learn;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import hust.tools.hmm.model.HMModel;
+import hust.tools.hmm.model.ScaledForwardBackwardAlgorithm;
+import hust.tools.hmm.stream.UnSupervisedHMMSample;
+import hust.tools.hmm.stream.UnSupervisedHMMSampleStream;
+import hust.tools.hmm.utils.EncodedCorpus;
+import hust.tools.hmm.utils.ObservationSequence;
+
+/**
+ *<ul>
+ *<li>Description: 基于小批量的在线(stepwise)EM非监督HMM训练器(只支持1阶HMM训练)
+ *<li>每读入一批观测序列就计算该批的期望统计量，按步长eta(k) = (k + 2)^(-decay)插值到累计的统计量，并立即重新估算模型参数，
+ *<li>一遍语料即可多次更新参数，通常2至3遍即可达到全量Baum-Welch多次迭代的似然度
+ *<li>每遍语料结束后调用收敛判断，收敛判断得到的训练语料为空，对数似然度为该遍中各批在更新前的模型下的概率的对数之和；每遍开始时重置样本流，训练结束后关闭样本流
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月13日
+ *</ul>
+ */
+public class UnSupervisedStepwiseEMHMMTrainer extends AbstractUnSupervisedHMMTrainer {
+
+	/**
+	 * 默认每批观测序列的数量
+	 */
+	private static final int DEFAULT_BATCH_SIZE = 1000;
+	
+	/**
+	 * 默认步长的衰减指数
+	 */
+	private static final double DEFAULT_DECAY = 0.7;
+	
+	/**
+	 * 每遍语料结束后的收敛判断，返回true时结束训练
+	 */
+	private ConvergencyJudge convergencyJudge;
+	
+	/**
+	 * 训练样本流，须支持reset()
+	 */
+	private UnSupervisedHMMSampleStream<?> sampleStream;
+	
+	/**
+	 * 每批观测序列的数量
+	 */
+	private int batchSize = DEFAULT_BATCH_SIZE;
+	
+	/**
+	 * 步长的衰减指数，取值(0.5, 1]
+	 */
+	private double decay = DEFAULT_DECAY;
+	
+	/**
+	 * 已进行的参数更新次数
+	 */
+	private int updates;
+	
+	/**
+	 * 当前这遍语料的对数似然度
+	 */
+	private double logLikelihood;
+	
+	/**
+	 * 构造方法
+	 * @param initHMModel		初始模型
+	 * @param sampleStream		训练样本（观测样本）流，须支持reset()
+	 * @param convergencyJudge	每遍语料结束后的收敛判断
+	 */
+	public UnSupervisedStepwiseEMHMMTrainer(HMModel initHMModel, UnSupervisedHMMSampleStream<?> sampleStream, ConvergencyJudge convergencyJudge) {
+		super(initHMModel);
+		this.sampleStream = sampleStream;
+		this.convergencyJudge = convergencyJudge;
+	}
+	
+	public UnSupervisedStepwiseEMHMMTrainer(HMModel initHMModel, UnSupervisedHMMSampleStream<?> sampleStream) {
+		this(initHMModel, sampleStream, new LikelihoodConvergencyJudge());
+	}
+	
+	/**
+	 * 设置每批观测序列的数量，默认为1000
+	 * @param batchSize	每批观测序列的数量
+	 */
+	public void setBatchSize(int batchSize) {
+		if(batchSize < 1)
+			throw new IllegalArgumentException("批大小必须为正数");
+		
+		this.batchSize = batchSize;
+	}
+	
+	/**
+	 * 设置步长的衰减指数，默认为0.7，越小则新批次的权重越大
+	 * @param decay	衰减指数，(0.5, 1]
+	 */
+	public void setDecay(double decay) {
+		if(decay <= 0.5 || decay > 1.0)
+			throw new IllegalArgumentException("衰减指数不合法:(0.5, 1.0]");
+		
+		this.decay = decay;
+	}
+	
+	@Override
+	public HMModel train() {
+		HMModel preModel, currentModel;
+		currentModel = model;
+		model = null;
+		int pass = 1;
+		updates = 0;
+		
+		int N = currentModel.statesCount();
+		int M = currentModel.observationsCount();
+		BaumWelchStatistics statistics = new BaumWelchStatistics(N, M);
+		BaumWelchStatistics batchStatistics = new BaumWelchStatistics(N, M);
+		List<ObservationSequence> trainSequences = Collections.emptyList();
+		try {
+			do{
+				preModel = currentModel;
+				currentModel = pass(preModel, statistics, batchStatistics);
+			}while(!convergencyJudge.isConvergency(preModel, currentModel, trainSequences, logLikelihood, pass++));
+		} catch (IOException e) {
+			throw new UncheckedIOException("读取训练语料失败", e);
+		} finally {
+			try {
+				sampleStream.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		
+		return currentModel;
+	}
+	
+	/**
+	 * 遍历一遍样本流，每读满一批更新一次模型
+	 * @param model				当前模型
+	 * @param statistics		累计的统计量
+	 * @param batchStatistics	小批量的统计量
+	 * @return					一遍语料结束后的模型
+	 * @throws IOException
+	 */
+	private HMModel pass(HMModel model, BaumWelchStatistics statistics, BaumWelchStatistics batchStatistics) throws IOException {
+		sampleStream.reset();
+		logLikelihood = 0.0;
+		List<ObservationSequence> batch = new ArrayList<>(batchSize);
+		
+		UnSupervisedHMMSample sample = null;
+		while((sample = (UnSupervisedHMMSample) sampleStream.read()) != null) {
+			batch.add(sample.getObservationSequence());
+			if(batch.size() == batchSize) {
+				model = update(model, batch, statistics, batchStatistics);
+				batch.clear();
+			}
+		}
+		
+		if(!batch.isEmpty())
+			model = update(model, batch, statistics, batchStatistics);
+		
+		return model;
+	}
+	
+	/**
+	 * 计算一批观测序列的期望统计量，插值到累计的统计量后重新估算模型参数
+	 * @param model				当前模型
+	 * @param batch				一批观测序列
+	 * @param statistics		累计的统计量
+	 * @param batchStatistics	小批量的统计量
+	 * @return					新的HMM模型
+	 */
+	private HMModel update(HMModel model, List<ObservationSequence> batch, BaumWelchStatistics statistics, BaumWelchStatistics batchStatistics) {
+		ScaledForwardBackwardAlgorithm algorithm = new ScaledForwardBackwardAlgorithm(model);
+		EncodedCorpus corpus = EncodedCorpus.encode(model.getDict(), batch);
+		
+		batchStatistics.clear();
+		int[] observations = null;
+		for(int no = 0; no < corpus.size(); no++) {
+			observations = corpus.observations(no, observations);
+			batchStatistics.accumulate(algorithm, observations, 0, corpus.length(no));
+		}
+		
+		logLikelihood += batchStatistics.logLikelihood;
+		double eta = Math.pow(updates + 2, -decay);
+		updates++;
+		statistics.interpolate(batchStatistics, eta);
+		
+		return statistics.maximization(model);
+	}
+}
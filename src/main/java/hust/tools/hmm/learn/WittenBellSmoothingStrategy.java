@@ -0,0 +1,74 @@
+package hust.tools.hmm.learn;
+
+/**
+ *<ul>
+ *<li>Description: 转移概率采用Witten-Bell平滑，初始概率和发射概率加0.01平滑，与SupervisedWittenBellHMMTrainer的结果相同
+ *<li>长度为L的起点需要长度为L-1的前缀和后缀的未归一化概率，递归计算，不缓存低阶结果
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月24日
+ *</ul>
+ */
+public class WittenBellSmoothingStrategy extends DeltaSmoothingStrategy {
+
+	public WittenBellSmoothingStrategy() {
+		super(DEFAULT_DELTA);
+	}
+
+	@Override
+	public void transitionLogProbs(TransitionAndEmissionCounter counter, int[] start, int from, int length, double[] logProbs) {
+		double[] probs = estimate(counter, start, from, length, logProbs.length);
+		double normalization_factor = 0.0;
+		for(int j = 0; j < probs.length; j++)
+			normalization_factor += probs[j];
+
+		for(int j = 0; j < probs.length; j++)
+			logProbs[j] = Math.log10(probs[j] / normalization_factor);
+	}
+
+	/**
+	 * 返回由给定起点转移到所有隐藏状态的未归一化概率
+	 * @param counter	转移发射计数器
+	 * @param start		隐藏状态索引
+	 * @param from		起点在数组中的起始位置
+	 * @param length	起点的长度
+	 * @param N			隐藏状态数量
+	 * @return			未归一化概率
+	 */
+	private double[] estimate(TransitionAndEmissionCounter counter, int[] start, int from, int length, int N) {
+		int[] counts = new int[N];
+		int n_Count = counter.getTransitionCounts(start, from, length, counts);
+		double[] probs = new double[N];
+		if(length == 1) {
+			for(int j = 0; j < N; j++)
+				probs[j] = 1.0 * counts[j] / n_Count + 1.0 * counter.getEmissionStateCount(j) / counter.getTotalStatesCount();
+
+			return probs;
+		}
+
+		double estimateCount = 1 / estimate(counter, start, from, length - 1, N)[start[from + length - 1]];
+		double[] lower = new double[N];
+		transitionLogProbs(counter, start, from + 1, length - 1, lower);
+		double lamda = 0;
+		if(estimateCount != 0)
+			lamda = 1.0 - 1.0 *  N / (N + estimateCount);
+		else
+			lamda = 1.0;
+
+		for(int j = 0; j < N; j++) {
+			double sequenceMLProb = 1.0 * counts[j] / estimateCount;
+			double _sequenceWBProb = Math.pow(10, lower[j]);
+			probs[j] = lamda * sequenceMLProb + (1.0 - lamda) * _sequenceWBProb;
+		}
+
+		return probs;
+	}
+
+	/**
+	 * 与训练器相同，未登录观测的发射概率p=delta/(M+N*delta)
+	 */
+	@Override
+	protected double unknownEmissionLogProb(int M, int N) {
+		return Math.log10(delta / (M + N * delta));
+	}
+}
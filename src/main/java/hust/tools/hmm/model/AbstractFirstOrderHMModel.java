@@ -0,0 +1,285 @@
+package hust.tools.hmm.model;
+
+import java.util.HashMap;
+import java.util.Set;
+
+import hust.tools.hmm.utils.CommonUtils;
+import hust.tools.hmm.utils.Dictionary;
+import hust.tools.hmm.utils.Observation;
+import hust.tools.hmm.utils.ObservationSequence;
+import hust.tools.hmm.utils.State;
+import hust.tools.hmm.utils.StateSequence;
+
+/**
+ *<ul>
+ *<li>Description: 以字典索引定位概率的1阶隐式马尔科夫模型的基类，pi[N]、A[N*N]、B[N*M]的存储方式由子类决定
+ *<li>B的最后一列（或字典中UNKNOWN的索引列）存放未登录观测的发射概率
+ *<li>子类只需按索引返回初始概率、转移概率和发射概率，字典查询和Map形式的参数由基类实现
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月25日
+ *</ul>
+ */
+abstract class AbstractFirstOrderHMModel implements HMModel {
+
+	/**
+	 * 版本序列号
+	 */
+	private static final long serialVersionUID = -6127018873307591562L;
+
+	/**
+	 * 不存在的转移的概率对数
+	 */
+	protected static final double LOG_ZERO = Math.log10(Double.MIN_VALUE);
+
+	protected Dictionary dict;
+
+	/**
+	 * 隐藏状态数量
+	 */
+	protected int N;
+
+	/**
+	 * 发射矩阵的列数(包含未登录观测)
+	 */
+	protected int M;
+
+	/**
+	 * 未登录观测在发射矩阵中的列索引
+	 */
+	protected int unknownIndex;
+
+	/**
+	 * 构造方法，根据字典初始化模型的维度信息
+	 * @param dict	隐藏状态和观测状态的索引
+	 */
+	protected AbstractFirstOrderHMModel(Dictionary dict) {
+		this.dict = dict;
+		N = dict.stateCount();
+		M = emissionColumns(dict);
+		unknownIndex = dict.containObservation(CommonUtils.UNKNOWN) ? dict.getIndex(CommonUtils.UNKNOWN) : dict.observationCount();
+	}
+
+	/**
+	 * 检查模型是否为1阶HMM，返回模型的字典，供子类由已有模型构造时使用
+	 * @param model		HMM模型
+	 * @param message	模型不是1阶HMM时的异常信息
+	 * @return			模型的字典
+	 */
+	static Dictionary firstOrderDict(HMModel model, String message) {
+		if(model.getOrder() != 1)
+			throw new IllegalArgumentException(message);
+
+		return model.getDict();
+	}
+
+	/**
+	 * 返回发射矩阵的列数，字典中不包含未登录观测时额外增加一列
+	 * @param dict	隐藏状态和观测状态的索引
+	 * @return		发射矩阵的列数
+	 */
+	static int emissionColumns(Dictionary dict) {
+		return dict.containObservation(CommonUtils.UNKNOWN) ? dict.observationCount() : dict.observationCount() + 1;
+	}
+
+	/**
+	 * 返回由隐藏状态i转移到隐藏状态j的转移概率对数
+	 * @param i	起始隐藏状态索引
+	 * @param j	目的隐藏状态索引
+	 * @return	转移概率对数
+	 */
+	public abstract double transitionLogProb(int i, int j);
+
+	@Override
+	public double getLogPi(State state) {
+		int i = dict.getIndex(state);
+		if(i == -1)
+			return 0;
+
+		return getLogPi(i);
+	}
+
+	@Override
+	public double transitionLogProb(int[] start, int target) {
+		if(start.length != 1)
+			return LOG_ZERO;
+
+		return transitionLogProb(start[0], target);
+	}
+
+	@Override
+	public double transitionLogProb(StateSequence start, State target) {
+		if(start.length() != 1)
+			return LOG_ZERO;
+
+		int i = dict.getIndex(start.get(0));
+		int j = dict.getIndex(target);
+		if(i == -1 || j == -1)
+			return LOG_ZERO;
+
+		return transitionLogProb(i, j);
+	}
+
+	@Override
+	public double emissionLogProb(State state, Observation observation) {
+		return emissionLogProb(dict.getIndex(state), getObservationIndex(observation));
+	}
+
+	/**
+	 * 返回给定观测序列和隐藏状态序列在模型中的概率的对数
+	 * @param observations	观测序列
+	 * @param states		隐藏状态序列
+	 * @return				概率的对数
+	 */
+	public double getLogProb(ObservationSequence observations, StateSequence states) {
+		int prev = dict.getIndex(states.get(0));
+		double logProb = getLogPi(prev) + emissionLogProb(prev, getObservationIndex(observations.get(0)));
+		for(int t = 1; t < states.length(); t++) {
+			int current = dict.getIndex(states.get(t));
+			logProb += transitionLogProb(prev, current) + emissionLogProb(current, getObservationIndex(observations.get(t)));
+			prev = current;
+		}
+
+		return logProb;
+	}
+
+	@Override
+	public Observation[] getObservations() {
+		Set<Observation> set = dict.getObservations();
+
+		return set.toArray(new Observation[set.size()]);
+	}
+
+	@Override
+	public State[] getStates() {
+		Set<State> set = dict.getStates();
+
+		return set.toArray(new State[set.size()]);
+	}
+
+	@Override
+	public State getState(int index) {
+		return dict.getState(index);
+	}
+
+	@Override
+	public int statesCount() {
+		return N;
+	}
+
+	@Override
+	public int observationsCount() {
+		return dict.observationCount();
+	}
+
+	@Override
+	public int getObservationIndex(Observation observation) {
+		if(!dict.containObservation(observation))
+			return unknownIndex;
+
+		return dict.getIndex(observation);
+	}
+
+	@Override
+	public int getOrder() {
+		return 1;
+	}
+
+	@Override
+	public Dictionary getDict() {
+		return dict;
+	}
+
+	/**
+	 * 返回未登录观测在发射矩阵中的列索引
+	 * @return	未登录观测的列索引
+	 */
+	public int getUnknownIndex() {
+		return unknownIndex;
+	}
+
+	/**
+	 * 返回发射矩阵的列数(包含未登录观测)
+	 * @return	发射矩阵的列数
+	 */
+	public int emissionColumns() {
+		return M;
+	}
+
+	/**
+	 * 将给定隐藏状态发射观测k的概率对数写入column[i]，供解码器在每个时刻读取一列发射概率
+	 * @param k			观测索引，小于0时为未登录观测
+	 * @param states	隐藏状态索引，为null时写入全部隐藏状态
+	 * @param column	长度不小于N的数组
+	 */
+	void emissionColumn(int k, int[] states, double[] column) {
+		if(states == null) {
+			for(int i = 0; i < N; i++)
+				column[i] = emissionLogProb(i, k);
+		} else {
+			for(int i : states)
+				column[i] = emissionLogProb(i, k);
+		}
+	}
+
+	/**
+	 * 返回发射矩阵各列对应的观测，未登录观测的列为UNKNOWN
+	 * @return	发射矩阵各列的观测
+	 */
+	protected Observation[] columnObservations() {
+		Observation[] observations = new Observation[M];
+		for(int k = 0; k < M; k++)
+			observations[k] = k == unknownIndex ? CommonUtils.UNKNOWN : dict.getObservation(k);
+
+		return observations;
+	}
+
+	@Override
+	public HashMap<State, Double> getPi() {
+		HashMap<State, Double> map = new HashMap<>();
+		for(int i = 0; i < N; i++)
+			map.put(dict.getState(i), getLogPi(i));
+
+		return map;
+	}
+
+	@Override
+	public HashMap<StateSequence, TransitionProbEntry> getTransitionMatrix() {
+		HashMap<StateSequence, TransitionProbEntry> map = new HashMap<>();
+		for(int i = 0; i < N; i++) {
+			TransitionProbEntry entry = new TransitionProbEntry();
+			for(int j = 0; j < N; j++)
+				entry.put(dict.getState(j), transitionLogProb(i, j));
+
+			map.put(new StateSequence(dict.getState(i)), entry);
+		}
+
+		return map;
+	}
+
+	@Override
+	public HashMap<State, EmissionProbEntry> getEmissionMatrix() {
+		Observation[] observations = columnObservations();
+		HashMap<State, EmissionProbEntry> map = new HashMap<>();
+		for(int i = 0; i < N; i++) {
+			EmissionProbEntry entry = new EmissionProbEntry();
+			for(int k = 0; k < M; k++)
+				entry.put(observations[k], emissionLogProb(i, k));
+
+			map.put(dict.getState(i), entry);
+		}
+
+		return map;
+	}
+
+	@Override
+	public HMModel clone(){
+        try {
+			return (HMModel)super.clone();
+		} catch (CloneNotSupportedException e) {
+			e.printStackTrace();
+		}
+
+		return null;
+    }
+}
@@ -0,0 +1,280 @@
+package hust.tools.hmm.model;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import hust.tools.hmm.utils.StateHistoryIndex;
+
+/**
+ *<ul>
+ *<li>Description: 回退形式(ARPA)的稀疏转移概率表，只保存训练语料中出现过的n元转移及每个上文的回退权重
+ *<li>查询P(w|h)时从最长上文开始：(h, w)存在时返回其概率，否则乘以h的回退权重并对去掉首个隐藏状态的上文重复，
+ *<li>直到长度为0的上文，即对所有隐藏状态稠密保存的unigram概率；不存在的上文回退权重为1
+ *<li>平滑时应按长度从短到长增加上文，以便计算高阶概率时查询已增加的低阶概率；概率和权重均为以10为底的对数
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月23日
+ *</ul>
+ */
+public class BackoffTransitionTable implements Serializable {
+
+	/**
+	 * 版本序列号
+	 */
+	private static final long serialVersionUID = -5178004137914733029L;
+
+	/**
+	 * 概率为0时的对数
+	 */
+	private static final double LOG_ZERO = Math.log10(Double.MIN_VALUE);
+
+	/**
+	 * 隐藏状态数量
+	 */
+	private int N;
+
+	/**
+	 * 最长上文的长度，即模型的阶数
+	 */
+	private int order;
+
+	/**
+	 * 长度为0的上文的转移概率对数，unigram[j]
+	 */
+	private double[] unigram;
+
+	/**
+	 * 出现过的上文的编号
+	 */
+	private StateHistoryIndex contexts;
+
+	/**
+	 * 编号为h的上文的转移目标位于[offsets[h], offsets[h + 1])
+	 */
+	private int[] offsets;
+
+	/**
+	 * 按上文依次存放的转移目标隐藏状态索引，每个上文内升序排列
+	 */
+	private int[] targets;
+
+	/**
+	 * 与targets位置相同的转移概率对数
+	 */
+	private double[] logProbs;
+
+	/**
+	 * 编号为h的上文的回退权重对数
+	 */
+	private double[] backoffWeights;
+
+	/**
+	 * 构造方法
+	 * @param N			隐藏状态数量
+	 * @param order		最长上文的长度
+	 * @param unigram	长度为0的上文的转移概率对数，长度为N
+	 */
+	public BackoffTransitionTable(int N, int order, double[] unigram) {
+		if(order < 1)
+			throw new IllegalArgumentException("模型阶数应为正整数： order = " + order);
+		if(unigram.length != N)
+			throw new IllegalArgumentException("unigram概率的长度与隐藏状态数量不一致");
+
+		this.N = N;
+		this.order = order;
+		this.unigram = unigram;
+		contexts = new StateHistoryIndex(N);
+		offsets = new int[17];
+		targets = new int[64];
+		logProbs = new double[64];
+		backoffWeights = new double[16];
+	}
+
+	/**
+	 * 增加一个出现过的上文及其转移
+	 * @param context		隐藏状态索引
+	 * @param from			上文在数组中的起始位置
+	 * @param length		上文的长度，不超过阶数
+	 * @param targets		转移目标隐藏状态索引，升序排列
+	 * @param logProbs		与targets位置相同的转移概率对数
+	 * @param backoffWeight	回退权重对数
+	 */
+	public void addContext(int[] context, int from, int length, int[] targets, double[] logProbs, double backoffWeight) {
+		if(length < 1 || length > order)
+			throw new IllegalArgumentException("上文的长度应在1至" + order + "之间： length = " + length);
+		if(targets.length != logProbs.length)
+			throw new IllegalArgumentException("转移目标与概率的数量不一致");
+		if(contexts.get(context, from, length) != -1)
+			throw new IllegalArgumentException("上文已存在");
+		for(int n = 1; n < targets.length; n++) {
+			if(targets[n - 1] >= targets[n])
+				throw new IllegalArgumentException("转移目标应严格升序排列");
+		}
+
+		int h = contexts.add(context, from, length);
+		if(h + 1 >= offsets.length) {
+			offsets = Arrays.copyOf(offsets, offsets.length << 1);
+			backoffWeights = Arrays.copyOf(backoffWeights, offsets.length - 1);
+		}
+
+		int start = offsets[h];
+		int end = start + targets.length;
+		if(end > this.targets.length) {
+			int capacity = Math.max(end, this.targets.length + (this.targets.length >> 1));
+			this.targets = Arrays.copyOf(this.targets, capacity);
+			this.logProbs = Arrays.copyOf(this.logProbs, capacity);
+		}
+
+		System.arraycopy(targets, 0, this.targets, start, targets.length);
+		System.arraycopy(logProbs, 0, this.logProbs, start, logProbs.length);
+		offsets[h + 1] = end;
+		backoffWeights[h] = backoffWeight;
+	}
+
+	/**
+	 * 返回由给定上文转移到隐藏状态target的概率对数，上文超过阶数时只使用最后order个隐藏状态
+	 * @param context	隐藏状态索引
+	 * @param from		上文在数组中的起始位置
+	 * @param length	上文的长度，可以为0
+	 * @param target	目标隐藏状态索引
+	 * @return			转移概率对数
+	 */
+	public double logProb(int[] context, int from, int length, int target) {
+		if(target < 0 || target >= N)
+			return LOG_ZERO;
+
+		if(length > order) {
+			from += length - order;
+			length = order;
+		}
+
+		double backoff = 0.0;
+		for(int p = from; p < from + length; p++) {
+			int h = contexts.get(context, p, from + length - p);
+			if(h == -1)
+				continue;
+
+			int k = Arrays.binarySearch(targets, offsets[h], offsets[h + 1], target);
+			if(k >= 0)
+				return backoff + logProbs[k];
+
+			backoff += backoffWeights[h];
+		}
+
+		return backoff + unigram[target];
+	}
+
+	/**
+	 * 返回给定上文的回退权重对数
+	 * @param context	隐藏状态索引
+	 * @param from		上文在数组中的起始位置
+	 * @param length	上文的长度
+	 * @return			回退权重对数，上文不存在时返回0
+	 */
+	public double backoffWeight(int[] context, int from, int length) {
+		int h = contexts.get(context, from, length);
+
+		return h == -1 ? 0.0 : backoffWeights[h];
+	}
+
+	/**
+	 * 返回给定上文是否出现过
+	 * @param context	隐藏状态索引
+	 * @param from		上文在数组中的起始位置
+	 * @param length	上文的长度
+	 * @return			true-出现过/false-未出现
+	 */
+	public boolean containsContext(int[] context, int from, int length) {
+		return contexts.get(context, from, length) != -1;
+	}
+
+	/**
+	 * 返回出现过的上文
+	 * @return	上文的编号
+	 */
+	public StateHistoryIndex getContexts() {
+		return contexts;
+	}
+
+	/**
+	 * 返回隐藏状态数量
+	 * @return	隐藏状态数量
+	 */
+	public int statesCount() {
+		return N;
+	}
+
+	/**
+	 * 返回最长上文的长度
+	 * @return	阶数
+	 */
+	public int getOrder() {
+		return order;
+	}
+
+	/**
+	 * 返回出现过的上文数量
+	 * @return	上文数量
+	 */
+	public int contextCount() {
+		return contexts.size();
+	}
+
+	/**
+	 * 返回保存的n元转移数量(不含unigram)
+	 * @return	n元转移数量
+	 */
+	public int size() {
+		return offsets[contexts.size()];
+	}
+
+	/**
+	 * 返回转移目标、概率和回退权重占用的字节数的估计值，不含上文编号的哈希表
+	 * @return	字节数
+	 */
+	public long memoryBytes() {
+		return 12L * size() + 12L * contextCount() + 8L * N;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + N;
+		result = prime * result + order;
+		result = prime * result + contexts.hashCode();
+		result = prime * result + Arrays.hashCode(unigram);
+		result = prime * result + Arrays.hashCode(Arrays.copyOf(targets, size()));
+		result = prime * result + Arrays.hashCode(Arrays.copyOf(logProbs, size()));
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		BackoffTransitionTable other = (BackoffTransitionTable) obj;
+		if (N != other.N)
+			return false;
+		if (order != other.order)
+			return false;
+		if (!contexts.equals(other.contexts))
+			return false;
+		if (!Arrays.equals(unigram, other.unigram))
+			return false;
+		int n = contextCount();
+		if (!Arrays.equals(Arrays.copyOf(offsets, n + 1), Arrays.copyOf(other.offsets, n + 1)))
+			return false;
+		if (!Arrays.equals(Arrays.copyOf(backoffWeights, n), Arrays.copyOf(other.backoffWeights, n)))
+			return false;
+		if (!Arrays.equals(Arrays.copyOf(targets, size()), Arrays.copyOf(other.targets, size())))
+			return false;
+		if (!Arrays.equals(Arrays.copyOf(logProbs, size()), Arrays.copyOf(other.logProbs, size())))
+			return false;
+		return true;
+	}
+}
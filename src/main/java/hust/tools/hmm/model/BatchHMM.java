@@ -0,0 +1,24 @@
+package hust.tools.hmm.model;
+
+import java.util.List;
+
+import hust.tools.hmm.utils.ObservationSequence;
+import hust.tools.hmm.utils.StateSequence;
+
+/**
+ *<ul>
+ *<li>Description: 支持批量解码的隐式马尔科夫模型接口
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月7日
+ *</ul>
+ */
+public interface BatchHMM extends HMM {
+
+	/**
+	 * 返回给定的一批观测状态序列的最优隐藏序列
+	 * @param observations	观测状态序列列表
+	 * @return				最优隐藏序列列表，与输入的顺序一致
+	 */
+	public List<StateSequence> bestStateSeqences(List<ObservationSequence> observations);
+}
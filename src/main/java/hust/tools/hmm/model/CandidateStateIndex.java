@@ -0,0 +1,136 @@
+package hust.tools.hmm.model;
+
+import hust.tools.hmm.utils.CommonUtils;
+import hust.tools.hmm.utils.Dictionary;
+
+/**
+ *<ul>
+ *<li>Description: 观测到候选隐藏状态的倒排索引，用于维特比解码时剪枝
+ *<li>对每个登录观测，只保留发射概率不为0且不小于阈值的隐藏状态；未登录观测、超出字典的索引以及没有候选状态的观测使用全部隐藏状态
+ *<li>阈值为0时只剪掉发射概率为0的状态，只要存在概率不为0的路径，剪枝后的解码结果就与不剪枝时相同
+ *<li>所有路径的概率都为0(对数不大于log10(Double.MIN_VALUE))时，例如最大似然模型遇到未登录观测或未见过的观测与隐藏状态组合，剪枝后只在候选状态中选择，结果可能与不剪枝时不同
+ *<li>模型为HMModelBasedSparse且各隐藏状态的底值都被剪掉时，直接由稀疏发射矩阵的列视图构造，不必遍历N*M个发射
+ *<li>索引在构造后只读，可以被多个线程共享
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月18日
+ *</ul>
+ */
+public class CandidateStateIndex {
+
+	/**
+	 * 概率为0时的对数
+	 */
+	private static final double LOG_ZERO = Math.log10(Double.MIN_VALUE);
+
+	/**
+	 * 全部隐藏状态的索引
+	 */
+	private final int[] allStates;
+
+	/**
+	 * candidates[k]为观测k的候选隐藏状态，按索引升序排列
+	 */
+	private final int[][] candidates;
+
+	/**
+	 * 构造方法
+	 * @param model		1阶HMM模型
+	 * @param threshold	发射概率的阈值，[0, 1)，发射概率小于阈值的隐藏状态被剪掉
+	 */
+	public CandidateStateIndex(HMModel model, double threshold) {
+		if(threshold < 0 || threshold >= 1)
+			throw new IllegalArgumentException("剪枝阈值必须在[0, 1)之间");
+
+		Dictionary dict = model.getDict();
+		int N = model.statesCount();
+		int C = dict.observationCount();
+		int unknown = dict.containObservation(CommonUtils.UNKNOWN) ? dict.getIndex(CommonUtils.UNKNOWN) : -1;
+		double logThreshold = Math.log10(threshold);
+
+		allStates = new int[N];
+		for(int i = 0; i < N; i++)
+			allStates[i] = i;
+
+		//底值都被剪掉时只需检查稀疏矩阵中保存的发射
+		SparseEmissionMatrix sparse = model instanceof HMModelBasedSparse ? ((HMModelBasedSparse) model).getSparseEmissionMatrix() : null;
+		for(int i = 0; sparse != null && i < N; i++) {
+			if(accept(sparse.floor(i), logThreshold))
+				sparse = null;
+		}
+
+		candidates = new int[C][];
+		int[] buffer = new int[N];
+		for(int k = 0; k < C; k++) {
+			if(k == unknown) {
+				candidates[k] = allStates;
+				continue;
+			}
+
+			int size = 0;
+			if(sparse != null) {
+				for(int q = sparse.columnStart(k); q < sparse.columnEnd(k); q++) {
+					if(accept(sparse.columnValue(q), logThreshold))
+						buffer[size++] = sparse.columnState(q);
+				}
+			} else {
+				for(int i = 0; i < N; i++) {
+					if(accept(model.emissionLogProb(i, k), logThreshold))
+						buffer[size++] = i;
+				}
+			}
+
+			if(size == 0 || size == N) {
+				candidates[k] = allStates;
+			} else {
+				candidates[k] = new int[size];
+				System.arraycopy(buffer, 0, candidates[k], 0, size);
+			}
+		}
+	}
+
+	/**
+	 * 返回发射概率是否保留
+	 * @param logProb		发射概率对数
+	 * @param logThreshold	阈值的对数
+	 * @return				true-保留/false-剪掉
+	 */
+	private static boolean accept(double logProb, double logThreshold) {
+		return logProb > LOG_ZERO && logProb >= logThreshold;
+	}
+
+	/**
+	 * 返回观测的候选隐藏状态
+	 * @param observation	观测索引，未登录观测或超出字典的索引返回全部隐藏状态
+	 * @return				候选隐藏状态的索引，调用方不能修改
+	 */
+	public int[] get(int observation) {
+		if(observation < 0 || observation >= candidates.length)
+			return allStates;
+
+		return candidates[observation];
+	}
+
+	/**
+	 * 返回隐藏状态数量
+	 * @return	隐藏状态数量
+	 */
+	public int statesCount() {
+		return allStates.length;
+	}
+
+	/**
+	 * 返回登录观测的平均候选隐藏状态数量
+	 * @return	平均候选隐藏状态数量
+	 */
+	public double averageCandidates() {
+		if(candidates.length == 0)
+			return allStates.length;
+
+		long total = 0;
+		for(int[] states : candidates)
+			total += states.length;
+
+		return 1.0 * total / candidates.length;
+	}
+}
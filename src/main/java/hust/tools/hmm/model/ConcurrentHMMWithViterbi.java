@@ -0,0 +1,281 @@
+package hust.tools.hmm.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import hust.tools.hmm.utils.ObservationSequence;
+import hust.tools.hmm.utils.State;
+import hust.tools.hmm.utils.StateSequence;
+
+/**
+ *<ul>
+ *<li>Description: 线程安全的维特比解码HMM，用于1阶HMM
+ *<li>编译后的模型参数在构造后不再修改，可被任意多个线程共享；解码使用的工作区从池中借出，用完归还，池的大小随并发度增长
+ *<li>批量解码时按序列长度排序后划分到ForkJoinPool中并行执行，长度相近的序列共用一个工作区，结果按输入顺序返回
+ *<li>给定剪枝阈值时，每个时刻只在观测的候选隐藏状态之间计算，候选状态索引与模型参数一样被所有线程共享
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月6日
+ *</ul>
+ */
+public class ConcurrentHMMWithViterbi implements BatchHMM {
+
+	/**
+	 * 以字典索引定位概率的1阶HMM模型，构造后只读
+	 */
+	private final AbstractFirstOrderHMModel model;
+	
+	/**
+	 * 初始转移概率对数
+	 */
+	private final double[] logPi;
+	
+	/**
+	 * 转置的转移概率对数矩阵，logAT[j * N + i]为由i转移到j的概率对数
+	 */
+	private final double[] logAT;
+	
+	/**
+	 * 空闲的解码工作区
+	 */
+	private final ConcurrentLinkedQueue<ViterbiWorkspace> workspaces;
+	
+	/**
+	 * 批量解码使用的线程池
+	 */
+	private final ForkJoinPool pool;
+	
+	/**
+	 * 批量解码时每个任务处理的最大序列数量
+	 */
+	private final int batchSize;
+	
+	/**
+	 * 观测到候选隐藏状态的索引，为null时不剪枝
+	 */
+	private final CandidateStateIndex candidates;
+	
+	public ConcurrentHMMWithViterbi(HMModel model) {
+		this(model, ForkJoinPool.commonPool(), 64);
+	}
+	
+	/**
+	 * 构造方法，解码时按发射概率剪枝
+	 * @param model		1阶HMM模型
+	 * @param threshold	发射概率的剪枝阈值，为0时只要存在概率不为0的路径，解码结果与不剪枝相同
+	 */
+	public ConcurrentHMMWithViterbi(HMModel model, double threshold) {
+		this(model, ForkJoinPool.commonPool(), 64, threshold);
+	}
+	
+	/**
+	 * 构造方法
+	 * @param model		1阶HMM模型
+	 * @param pool		批量解码使用的线程池
+	 * @param batchSize	批量解码时每个任务处理的最大序列数量
+	 */
+	public ConcurrentHMMWithViterbi(HMModel model, ForkJoinPool pool, int batchSize) {
+		this(model, pool, batchSize, -1);
+	}
+	
+	/**
+	 * 构造方法
+	 * @param model		1阶HMM模型
+	 * @param pool		批量解码使用的线程池
+	 * @param batchSize	批量解码时每个任务处理的最大序列数量
+	 * @param threshold	发射概率的剪枝阈值，小于0时不剪枝
+	 */
+	public ConcurrentHMMWithViterbi(HMModel model, ForkJoinPool pool, int batchSize, double threshold) {
+		if(model.getOrder() != 1)
+			throw new IllegalArgumentException("不支持高阶HMM解码");
+		if(batchSize < 1)
+			throw new IllegalArgumentException("批量解码的任务大小必须为正数");
+		
+		this.model = ViterbiWorkspace.compile(model);
+		logPi = ViterbiWorkspace.pi(this.model);
+		logAT = ViterbiWorkspace.transpose(this.model);
+		workspaces = new ConcurrentLinkedQueue<>();
+		this.pool = pool;
+		this.batchSize = batchSize;
+		candidates = threshold < 0 ? null : new CandidateStateIndex(this.model, threshold);
+	}
+
+	@Override
+	public double getLogProb(ObservationSequence observations, StateSequence states) {
+		return model.getLogProb(observations, states);
+	}
+
+	@Override
+	public double getLogProb(ObservationSequence observations) {
+		ForwardAlgorithm algorithm = new ForwardAlgorithm(model, observations);
+		
+		return algorithm.getProb();
+	}
+
+	@Override
+	public StateSequence bestStateSeqence(ObservationSequence observations) {
+		return decode(observations, false).getStateSequence();
+	}
+	
+	/**
+	 * 计算给定观测序列的最优隐藏序列
+	 * @param observations	观测序列
+	 * @param withLattice	是否返回Viterbi变量网格
+	 * @return				解码结果
+	 */
+	public ViterbiResult decode(ObservationSequence observations, boolean withLattice) {
+		ViterbiWorkspace workspace = acquire();
+		try {
+			int N = model.statesCount();
+			int T = workspace.encode(model, observations);
+			double logProb = viterbi(workspace, T);
+			
+			int[] path = new int[T];
+			State[] states = new State[T];
+			for(int t = 0; t < T; t++) {
+				path[t] = workspace.path[t];
+				states[t] = model.getState(path[t]);
+			}
+			
+			double[][] lattice = withLattice ? workspace.copyLattice(T, N) : null;
+			
+			return new ViterbiResult(new StateSequence(states), path, logProb, lattice);
+		} finally {
+			release(workspace);
+		}
+	}
+	
+	@Override
+	public List<StateSequence> bestStateSeqences(List<ObservationSequence> observations) {
+		int size = observations.size();
+		ObservationSequence[] sequences = observations.toArray(new ObservationSequence[size]);
+		
+		//按长度排序，高32位为长度，低32位为输入中的位置
+		long[] order = new long[size];
+		for(int n = 0; n < size; n++)
+			order[n] = ((long) sequences[n].length() << 32) | n;
+		Arrays.sort(order);
+		
+		StateSequence[] results = new StateSequence[size];
+		if(size > 0)
+			pool.invoke(new BatchDecodeTask(sequences, order, results, 0, size));
+		
+		List<StateSequence> list = new ArrayList<>(size);
+		for(StateSequence result : results)
+			list.add(result);
+		
+		return list;
+	}
+	
+	/**
+	 * 使用给定的工作区解码一个观测序列
+	 * @param workspace		解码工作区
+	 * @param observations	观测序列
+	 * @return				最优隐藏序列
+	 */
+	private StateSequence decode(ViterbiWorkspace workspace, ObservationSequence observations) {
+		int T = workspace.encode(model, observations);
+		viterbi(workspace, T);
+		
+		State[] states = new State[T];
+		for(int t = 0; t < T; t++)
+			states[t] = model.getState(workspace.path[t]);
+		
+		return new StateSequence(states);
+	}
+	
+	/**
+	 * 对工作区中长度为T的观测索引序列解码，有候选状态索引时剪枝
+	 * @param workspace	解码工作区
+	 * @param T			观测序列长度
+	 * @return			最优路径的概率对数
+	 */
+	private double viterbi(ViterbiWorkspace workspace, int T) {
+		if(candidates != null)
+			return workspace.viterbi(model.statesCount(), T, logPi, logAT, model, candidates);
+		
+		return workspace.viterbi(model.statesCount(), T, logPi, logAT, model);
+	}
+	
+	/**
+	 * 返回编译后的模型，基于数组、缓冲区或稀疏发射矩阵的模型原样返回，其余模型转换为基于数组的模型
+	 * @return	1阶HMM模型
+	 */
+	public HMModel getModel() {
+		return model;
+	}
+	
+	/**
+	 * 借出一个解码工作区，池中没有空闲工作区时新建
+	 * @return	解码工作区
+	 */
+	private ViterbiWorkspace acquire() {
+		ViterbiWorkspace workspace = workspaces.poll();
+		
+		return workspace != null ? workspace : new ViterbiWorkspace();
+	}
+	
+	/**
+	 * 归还解码工作区
+	 * @param workspace	解码工作区
+	 */
+	private void release(ViterbiWorkspace workspace) {
+		workspaces.offer(workspace);
+	}
+	
+	/**
+	 *<ul>
+	 *<li>Description: 批量解码任务，将按长度排序后的序列区间二分，区间不超过batchSize时使用一个工作区顺序解码
+	 *</ul>
+	 */
+	private class BatchDecodeTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 5163938374720251427L;
+
+		private final ObservationSequence[] sequences;
+		
+		/**
+		 * 按长度排序后的序列，低32位为输入中的位置
+		 */
+		private final long[] order;
+		
+		private final StateSequence[] results;
+		
+		private final int from;
+		
+		private final int to;
+		
+		BatchDecodeTask(ObservationSequence[] sequences, long[] order, StateSequence[] results, int from, int to) {
+			this.sequences = sequences;
+			this.order = order;
+			this.results = results;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if(to - from > batchSize) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new BatchDecodeTask(sequences, order, results, from, middle),
+						new BatchDecodeTask(sequences, order, results, middle, to));
+				
+				return;
+			}
+			
+			ViterbiWorkspace workspace = acquire();
+			try {
+				for(int n = from; n < to; n++) {
+					int index = (int) order[n];
+					results[index] = decode(workspace, sequences[index]);
+				}
+			} finally {
+				release(workspace);
+			}
+		}
+	}
+}
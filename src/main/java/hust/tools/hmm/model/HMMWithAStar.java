@@ -1,6 +1,7 @@
 package hust.tools.hmm.model;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.PriorityQueue;
 import java.util.Queue;
@@ -95,52 +96,156 @@ public class HMMWithAStar implements HMM {
 	
 	/**
 	 * A*算法计算给定观测序列的最优的k个隐藏序列
+	 * 每个假设保存截至当前时刻的得分和指向前一时刻假设的回退指针，扩展时只累加新增的转移和发射概率，
+	 * 转移的上文由回退指针取得最近的order个状态，完整的隐藏序列只在需要验证或输出时才生成
 	 * @param observationSequence	给定的观测序列
+	 * @param k						保留的候选数量
 	 */
 	public List<StateSequence> bestKStateSeqences(ObservationSequence observationSequence, int k) {
-		Queue<StateSequenceWithScore> prev = new PriorityQueue<>(k);
-	    Queue<StateSequenceWithScore> next = new PriorityQueue<>(k);
-	    Queue<StateSequenceWithScore> tmp;
-	    
-	    ObservationSequence observations = new ObservationSequence(observationSequence.get(0));
-	    for(int i = 0; i < model.statesCount(); i++) {
-	    	StateSequence states = new StateSequence(model.getState(i));
-	    	double score = getLogProb(observations, states);
-	    	prev.add(new StateSequenceWithScore(states, score));
-	    }
-	    
-	    for(int t = 1; t < observationSequence.length(); t++) {
-	    	observations = observations.addLast(observationSequence.get(t));
-	    	
-	    	int sz = Math.min(k, prev.size());
-	    	for(int sc = 0; prev.size() > 0 && sc < sz; sc++) {
-	    		StateSequenceWithScore top = prev.remove();
-	    		StateSequence sequence = top.getStateSequence();
-		    	
-	    		for(int i = 0; i < model.statesCount(); i++) {
-	    			State candState = model.getState(i);
-	    			if(validator.validStateSequence(t, observationSequence, sequence, candState)) {
-	    				StateSequence newStateSequence = sequence.addLast(candState);
-	    				double score = getLogProb(observations, newStateSequence);
-			    		
-	    				next.add(new StateSequenceWithScore(newStateSequence, score));
-	    			}
-	    		}
-	    	}
-	    	
-	    	prev.clear();
-	    	tmp = prev;
-	    	prev = next;
-	    	next = tmp;
-	    }
-	    	    
-	    //选取得分最高的bestSize个候选句子
-	    ArrayList<StateSequence> result = new ArrayList<>();
-	    int num = Math.min(k, prev.size());
-
-	    for(int i = 0; i < num; i++) 
-	    	result.add(prev.remove().getStateSequence());
-	    
-	    return result;
+		if(k < 1)
+			throw new IllegalArgumentException("候选数量必须为正数");
+		
+		int T = observationSequence.length();
+		if(T == 0)
+			throw new IllegalArgumentException("观测序列不能为空");
+		
+		int N = model.statesCount();
+		int[] observations = new int[T];
+		for(int t = 0; t < T; t++)
+			observations[t] = model.getObservationIndex(observationSequence.get(t));
+		
+		//验证总是返回true时无需生成隐藏序列
+		boolean validate = !validator.alwaysValid();
+		
+		//contexts[n]为长度为n的上文缓冲区
+		int[][] contexts = new int[order + 1][];
+		for(int n = 0; n <= order; n++)
+			contexts[n] = new int[n];
+		
+		Queue<Hypothesis> prev = new PriorityQueue<>(k);
+		Queue<Hypothesis> next = new PriorityQueue<>(k);
+		Queue<Hypothesis> tmp;
+		
+		for(int i = 0; i < N; i++) {
+			double score = model.getLogPi(i) + model.emissionLogProb(i, observations[0]);
+			offer(prev, k, new Hypothesis(i, score, null));
+		}
+		
+		for(int t = 1; t < T; t++) {
+			int[] context = contexts[Math.min(t, order)];
+			
+			for(Hypothesis top : prev) {
+				top.fillContext(context);
+				StateSequence sequence = validate ? top.toStateSequence(model) : null;
+				
+				for(int i = 0; i < N; i++) {
+					if(validate && !validator.validStateSequence(t, observationSequence, sequence, model.getState(i)))
+						continue;
+					
+					double score = top.score + model.transitionLogProb(context, i) + model.emissionLogProb(i, observations[t]);
+					if(next.size() < k || next.peek().score < score)
+						offer(next, k, new Hypothesis(i, score, top));
+				}
+			}
+			
+			prev.clear();
+			tmp = prev;
+			prev = next;
+			next = tmp;
+		}
+		
+		//按得分由高到低输出候选序列
+		List<Hypothesis> best = new ArrayList<>(prev);
+		Collections.sort(best);
+		Collections.reverse(best);
+		
+		ArrayList<StateSequence> result = new ArrayList<>(best.size());
+		for(Hypothesis hypothesis : best)
+			result.add(hypothesis.toStateSequence(model));
+		
+		return result;
+	}
+	
+	/**
+	 * 将假设加入最多保留k个假设的小顶堆，超出时移除得分最低的假设
+	 * @param beam			小顶堆
+	 * @param k				保留的假设数量
+	 * @param hypothesis	待加入的假设
+	 */
+	private static void offer(Queue<Hypothesis> beam, int k, Hypothesis hypothesis) {
+		beam.add(hypothesis);
+		if(beam.size() > k)
+			beam.remove();
+	}
+	
+	/**
+	 *<ul>
+	 *<li>Description: 搜索中的一个假设，由当前时刻的隐藏状态、累计得分和前一时刻的假设组成
+	 *</ul>
+	 */
+	private static final class Hypothesis implements Comparable<Hypothesis> {
+		
+		/**
+		 * 当前时刻的隐藏状态索引
+		 */
+		private final int state;
+		
+		/**
+		 * 截至当前时刻的概率对数
+		 */
+		private final double score;
+		
+		/**
+		 * 前一时刻的假设
+		 */
+		private final Hypothesis prev;
+		
+		/**
+		 * 假设对应的隐藏序列长度
+		 */
+		private final int length;
+		
+		Hypothesis(int state, double score, Hypothesis prev) {
+			this.state = state;
+			this.score = score;
+			this.prev = prev;
+			length = prev == null ? 1 : prev.length + 1;
+		}
+		
+		/**
+		 * 将最近的context.length个隐藏状态按时间顺序写入context
+		 * @param context	上文缓冲区
+		 */
+		void fillContext(int[] context) {
+			Hypothesis hypothesis = this;
+			for(int n = context.length - 1; n >= 0; n--) {
+				context[n] = hypothesis.state;
+				hypothesis = hypothesis.prev;
+			}
+		}
+		
+		/**
+		 * 沿回退指针生成完整的隐藏序列
+		 * @param model	HMM模型
+		 * @return		隐藏序列
+		 */
+		StateSequence toStateSequence(HMModel model) {
+			State[] states = new State[length];
+			Hypothesis hypothesis = this;
+			for(int t = length - 1; t >= 0; t--) {
+				states[t] = model.getState(hypothesis.state);
+				hypothesis = hypothesis.prev;
+			}
+			
+			return new StateSequence(states);
+		}
+		
+		/**
+		 * 按得分由低到高排序，用于小顶堆
+		 */
+		@Override
+		public int compareTo(Hypothesis o) {
+			return Double.compare(score, o.score);
+		}
 	}
 }
@@ -0,0 +1,115 @@
+package hust.tools.hmm.model;
+
+import hust.tools.hmm.utils.ObservationSequence;
+import hust.tools.hmm.utils.State;
+import hust.tools.hmm.utils.StateSequence;
+
+/**
+ *<ul>
+ *<li>Description: 基于可复用工作区的维特比解码HMM，用于1阶HMM
+ *<li>转移概率预先转置为N*N的对数矩阵，delta、psi等缓冲区按最长序列增长并在多次解码间复用，解码过程不产生临时对象
+ *<li>基于数组、缓冲区和稀疏发射矩阵的模型直接使用，稀疏模型的发射概率由列视图读取，不展开为稠密矩阵
+ *<li>实例之间不共享可变状态，每个线程使用一个实例即可安全地并发解码
+ *<li>给定剪枝阈值时，每个时刻只在观测的候选隐藏状态之间计算，见CandidateStateIndex
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月4日
+ *</ul>
+ */
+public class HMMWithFastViterbi implements HMM {
+
+	/**
+	 * 以字典索引定位概率的1阶HMM模型
+	 */
+	private AbstractFirstOrderHMModel model;
+
+	/**
+	 * 初始转移概率对数
+	 */
+	private double[] logPi;
+
+	/**
+	 * 转置的转移概率对数矩阵，logAT[j * N + i]为由i转移到j的概率对数
+	 */
+	private double[] logAT;
+
+	/**
+	 * 解码工作区
+	 */
+	private ViterbiWorkspace workspace;
+
+	/**
+	 * 观测到候选隐藏状态的索引，为null时不剪枝
+	 */
+	private CandidateStateIndex index;
+
+	public HMMWithFastViterbi(HMModel model) {
+		this.model = ViterbiWorkspace.compile(model);
+		logPi = ViterbiWorkspace.pi(this.model);
+		logAT = ViterbiWorkspace.transpose(this.model);
+		workspace = new ViterbiWorkspace();
+	}
+
+	/**
+	 * 构造方法，解码时按发射概率剪枝
+	 * @param model		1阶HMM模型
+	 * @param threshold	发射概率的剪枝阈值，为0时只要存在概率不为0的路径，解码结果与不剪枝相同
+	 */
+	public HMMWithFastViterbi(HMModel model, double threshold) {
+		this(model);
+		index = new CandidateStateIndex(this.model, threshold);
+	}
+
+	@Override
+	public double getLogProb(ObservationSequence observations, StateSequence states) {
+		return model.getLogProb(observations, states);
+	}
+
+	@Override
+	public double getLogProb(ObservationSequence observations) {
+		ForwardAlgorithm algorithm = new ForwardAlgorithm(model, observations);
+
+		return algorithm.getProb();
+	}
+
+	@Override
+	public StateSequence bestStateSeqence(ObservationSequence observations) {
+		decode(observations);
+
+		int T = observations.length();
+		State[] states = new State[T];
+		for(int t = 0; t < T; t++)
+			states[t] = model.getState(workspace.path[t]);
+
+		return new StateSequence(states);
+	}
+
+	/**
+	 * 计算给定观测序列的最优隐藏序列，将隐藏状态索引写入path，不产生临时对象
+	 * @param observations	观测序列
+	 * @param path			存放最优隐藏状态索引的数组，长度不小于观测序列长度
+	 * @return				最优隐藏序列的概率对数
+	 */
+	public double bestStateSeqence(ObservationSequence observations, int[] path) {
+		if(path.length < observations.length())
+			throw new IllegalArgumentException("路径数组长度小于观测序列长度");
+
+		double logProb = decode(observations);
+		System.arraycopy(workspace.path, 0, path, 0, observations.length());
+
+		return logProb;
+	}
+
+	/**
+	 * 对观测序列解码，最优路径保存在工作区中
+	 * @param observations	观测序列
+	 * @return				最优隐藏序列的概率对数
+	 */
+	private double decode(ObservationSequence observations) {
+		int T = workspace.encode(model, observations);
+		if(index != null)
+			return workspace.viterbi(model.statesCount(), T, logPi, logAT, model, index);
+
+		return workspace.viterbi(model.statesCount(), T, logPi, logAT, model);
+	}
+}
@@ -0,0 +1,349 @@
+package hust.tools.hmm.model;
+
+import java.util.Arrays;
+
+import hust.tools.hmm.learn.HMModelBasedCounter;
+import hust.tools.hmm.utils.Dictionary;
+import hust.tools.hmm.utils.ObservationSequence;
+import hust.tools.hmm.utils.State;
+import hust.tools.hmm.utils.StateSequence;
+
+/**
+ *<ul>
+ *<li>Description: 基于状态元组展开的精确高阶维特比解码HMM，用于1至3阶HMM
+ *<li>t时刻的历史为最近min(t+1, order)个隐藏状态组成的元组，以N进制编码为整数；每个时刻只保存出现过的历史，
+ *<li>并以长度为N^order的槽数组定位，转移表中不存在的上文不再扩展。转移概率按上文惰性展开为长度为N的行并缓存
+ *<li>得分与HMMWithAStar.getLogProb一致：t小于order时上文逐渐增长，之后固定为order个状态
+ *<li>实例内的缓冲区在多次解码间复用，不是线程安全的
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月9日
+ *</ul>
+ */
+public class HMMWithHighOrderViterbi implements HMM {
+
+	/**
+	 * 支持的最高阶数
+	 */
+	public static final int MAX_ORDER = 3;
+
+	/**
+	 * 概率为0时的对数
+	 */
+	private static final double LOG_ZERO = Math.log10(Double.MIN_VALUE);
+
+	/**
+	 * HMM模型
+	 */
+	private HMModel model;
+
+	private int order;
+
+	/**
+	 * 隐藏状态数量
+	 */
+	private int N;
+
+	/**
+	 * power[L] = N^L
+	 */
+	private int[] power;
+
+	/**
+	 * 初始转移概率对数
+	 */
+	private double[] logPi;
+
+	/**
+	 * known[L][c]表示编码为c、长度为L的上文在转移表中存在
+	 */
+	private boolean[][] known;
+
+	/**
+	 * rows[L][c]为编码为c、长度为L的上文的转移概率对数行，惰性计算
+	 */
+	private double[][][] rows;
+
+	/**
+	 * 历史编码到当前时刻历史列表位置的映射，-1表示未出现
+	 */
+	private int[] slots;
+
+	/**
+	 * 所有时刻的历史编码，第t时刻的历史位于[start[t], start[t + 1])
+	 */
+	private int[] codes;
+
+	/**
+	 * 历史对应的最大概率对数
+	 */
+	private double[] scores;
+
+	/**
+	 * 历史在前一时刻的最优前驱在codes中的位置
+	 */
+	private int[] backs;
+
+	/**
+	 * 每个时刻历史的起始位置
+	 */
+	private int[] start;
+
+	/**
+	 * 当前时刻的发射概率对数
+	 */
+	private double[] emission;
+
+	public HMMWithHighOrderViterbi(HMModel model) {
+		order = model.getOrder();
+		if(order < 1 || order > MAX_ORDER)
+			throw new IllegalArgumentException("只支持1至" + MAX_ORDER + "阶HMM解码");
+
+		this.model = model;
+		N = model.statesCount();
+		power = new int[order + 1];
+		power[0] = 1;
+		for(int L = 1; L <= order; L++) {
+			if((long) power[L - 1] * N > Integer.MAX_VALUE / 2)
+				throw new IllegalArgumentException("隐藏状态数量过多，无法展开" + order + "阶历史");
+			power[L] = power[L - 1] * N;
+		}
+
+		logPi = new double[N];
+		for(int i = 0; i < N; i++)
+			logPi[i] = model.getLogPi(i);
+
+		known = new boolean[order + 1][];
+		rows = new double[order + 1][][];
+		for(int L = 1; L <= order; L++) {
+			known[L] = new boolean[power[L]];
+			rows[L] = new double[power[L]][];
+		}
+		initKnownContexts();
+
+		slots = new int[power[order]];
+		Arrays.fill(slots, -1);
+		codes = new int[0];
+		scores = new double[0];
+		backs = new int[0];
+		start = new int[0];
+		emission = new double[N];
+	}
+
+	/**
+	 * 根据转移表的键标记存在的上文，回退模型和基于计数器的模型对所有上文都给出平滑后的概率，视为都存在
+	 * 基于计数器的模型展开转移表需要枚举N^order个上文，因此不读取其转移表
+	 */
+	private void initKnownContexts() {
+		if(model instanceof HMModelWithBackoff || model instanceof HMModelBasedCounter) {
+			for(int L = 1; L <= order; L++)
+				Arrays.fill(known[L], true);
+
+			return;
+		}
+
+		Dictionary dict = model.getDict();
+		for(StateSequence context : model.getTransitionMatrix().keySet()) {
+			int L = context.length();
+			if(L < 1 || L > order)
+				continue;
+
+			int code = 0;
+			for(int n = 0; n < L && code >= 0; n++) {
+				int index = dict.getIndex(context.get(n));
+				code = index < 0 ? -1 : code * N + index;
+			}
+
+			if(code >= 0)
+				known[L][code] = true;
+		}
+	}
+
+	@Override
+	public double getLogProb(ObservationSequence observations, StateSequence states) {
+		if(observations.length() == 0 || states.length() == 0)
+			throw new IllegalArgumentException("状态序列或观测序列不能为空。");
+		else if(observations.length() != states.length())
+			throw new IllegalArgumentException("状态序列或观测序列长度不同。");
+
+		double logProb = model.getLogPi(states.get(0)) + model.emissionLogProb(states.get(0), observations.get(0));
+		for(int t = 1; t < states.length(); t++) {
+			StateSequence context = new StateSequence();
+			for(int n = Math.max(0, t - order); n < t; n++)
+				context = context.addLast(states.get(n));
+
+			logProb += model.transitionLogProb(context, states.get(t)) + model.emissionLogProb(states.get(t), observations.get(t));
+		}
+
+		return logProb;
+	}
+
+	@Override
+	public double getLogProb(ObservationSequence observations) {
+		BackwardAlgorithm algorithm = new BackwardAlgorithm(model, observations);
+
+		return algorithm.getProb();
+	}
+
+	@Override
+	public StateSequence bestStateSeqence(ObservationSequence observations) {
+		int T = observations.length();
+		int[] path = new int[T];
+		bestStateSeqence(observations, path);
+
+		State[] states = new State[T];
+		for(int t = 0; t < T; t++)
+			states[t] = model.getState(path[t]);
+
+		return new StateSequence(states);
+	}
+
+	/**
+	 * 计算给定观测序列的最优隐藏序列，将隐藏状态索引写入path
+	 * @param observations	观测序列
+	 * @param path			存放最优隐藏状态索引的数组，长度不小于观测序列长度
+	 * @return				最优隐藏序列的概率对数
+	 */
+	public double bestStateSeqence(ObservationSequence observations, int[] path) {
+		int T = observations.length();
+		if(T == 0)
+			throw new IllegalArgumentException("观测序列不能为空");
+		if(path.length < T)
+			throw new IllegalArgumentException("路径数组长度小于观测序列长度");
+
+		if(start.length < T + 1)
+			start = new int[T + 1];
+
+		//初始化，历史为单个隐藏状态
+		fillEmission(observations, 0);
+		ensureCapacity(N);
+		for(int i = 0; i < N; i++) {
+			codes[i] = i;
+			scores[i] = logPi[i] + emission[i];
+			backs[i] = -1;
+		}
+		start[0] = 0;
+		start[1] = N;
+
+		//归纳计算
+		for(int t = 1; t < T; t++) {
+			fillEmission(observations, t);
+			if(!extend(t, true))
+				extend(t, false);//所有上文都不在转移表中时不做剪枝
+		}
+
+		//结束
+		int best = start[T - 1];
+		for(int n = start[T - 1] + 1; n < start[T]; n++) {
+			if(scores[best] < scores[n])
+				best = n;
+		}
+		double logProb = scores[best];
+
+		//路径回溯
+		for(int t = T - 1, n = best; t >= 0; t--, n = backs[n])
+			path[t] = codes[n] % N;
+
+		return logProb;
+	}
+
+	/**
+	 * 由t-1时刻的历史扩展出t时刻的历史
+	 * @param t			当前时刻
+	 * @param prune		是否跳过转移表中不存在的上文
+	 * @return			是否产生了t时刻的历史
+	 */
+	private boolean extend(int t, boolean prune) {
+		int from = start[t - 1];
+		int to = start[t];
+		int L = Math.min(t, order);
+		int mod = power[order - 1];
+		int size = to;
+
+		for(int n = from; n < to; n++) {
+			int code = codes[n];
+			if(prune && !known[L][code])
+				continue;
+
+			double[] row = row(L, code);
+			int base = L < order ? code * N : (code % mod) * N;
+			double score = scores[n];
+
+			for(int j = 0; j < N; j++) {
+				double current = score + row[j] + emission[j];
+				int next = base + j;
+				int slot = slots[next];
+				if(slot < 0) {
+					ensureCapacity(size + 1);
+					slots[next] = size;
+					codes[size] = next;
+					scores[size] = current;
+					backs[size] = n;
+					size++;
+				}else if(scores[slot] < current) {
+					scores[slot] = current;
+					backs[slot] = n;
+				}
+			}
+		}
+
+		//清空槽位供下一时刻使用
+		for(int n = to; n < size; n++)
+			slots[codes[n]] = -1;
+		start[t + 1] = size;
+
+		return size > to;
+	}
+
+	/**
+	 * 返回上文的转移概率对数行，第一次访问时计算并缓存
+	 * @param L		上文长度
+	 * @param code	上文编码
+	 * @return		转移概率对数行
+	 */
+	private double[] row(int L, int code) {
+		double[] row = rows[L][code];
+		if(row != null)
+			return row;
+
+		row = new double[N];
+		if(known[L][code]) {
+			int[] context = new int[L];
+			for(int n = L - 1, c = code; n >= 0; n--, c /= N)
+				context[n] = c % N;
+
+			for(int j = 0; j < N; j++)
+				row[j] = model.transitionLogProb(context, j);
+		}else
+			Arrays.fill(row, LOG_ZERO);
+
+		rows[L][code] = row;
+
+		return row;
+	}
+
+	/**
+	 * 计算t时刻各隐藏状态的发射概率对数
+	 * @param observations	观测序列
+	 * @param t				当前时刻
+	 */
+	private void fillEmission(ObservationSequence observations, int t) {
+		int o = model.getObservationIndex(observations.get(t));
+		for(int j = 0; j < N; j++)
+			emission[j] = model.emissionLogProb(j, o);
+	}
+
+	/**
+	 * 确保历史缓冲区能容纳capacity个历史，不足时按1.5倍增长
+	 * @param capacity	需要的容量
+	 */
+	private void ensureCapacity(int capacity) {
+		if(capacity <= codes.length)
+			return;
+
+		int newCapacity = Math.max(capacity, codes.length + (codes.length >> 1));
+		codes = Arrays.copyOf(codes, newCapacity);
+		scores = Arrays.copyOf(scores, newCapacity);
+		backs = Arrays.copyOf(backs, newCapacity);
+	}
+}
@@ -6,6 +6,7 @@ import hust.tools.hmm.utils.StateSequence;
 /**
  *<ul>
  *<li>Description: 基于维特比解码和前向算法的的HMM，用于1阶HMM
+ *<li>给定剪枝阈值时，每个时刻只在观测的候选隐藏状态之间计算，见CandidateStateIndex
  *<li>Company: HUST
  *<li>@author Sonly
  *<li>Date: 2018年1月15日
@@ -38,11 +39,26 @@ public class HMMWithViterbi implements HMM {
 	 */
 	private double logProb;
 	
+	/**
+	 * 观测到候选隐藏状态的索引，为null时不剪枝
+	 */
+	private CandidateStateIndex index;
+	
 	public HMMWithViterbi(HMModel model) {
 		this.model = model;
 		if(model.getOrder() != 1)
 			throw new IllegalArgumentException("不支持高阶HMM解码");
 	}
+	
+	/**
+	 * 构造方法，解码时按发射概率剪枝
+	 * @param model		1阶HMM模型
+	 * @param threshold	发射概率的剪枝阈值，为0时只要存在概率不为0的路径，解码结果与不剪枝相同
+	 */
+	public HMMWithViterbi(HMModel model, double threshold) {
+		this(model);
+		index = new CandidateStateIndex(model, threshold);
+	}
 
 	@Override
 	public double getLogProb(ObservationSequence observations, StateSequence states) {
@@ -92,21 +108,33 @@ public class HMMWithViterbi implements HMM {
 		for(int t = 0; t < observaionLength; t++) 
 			observationSequenceIndex[t] = model.getObservationIndex(observationSequence.get(t));
 		
+		//每个时刻的候选隐藏状态
+		int[][] candidates = new int[observaionLength][];
+		int[] allStates = null;
+		if(index == null) {
+			allStates = new int[stateTypesCount];
+			for(int i = 0; i < stateTypesCount; i++)
+				allStates[i] = i;
+		}
+		for(int t = 0; t < observaionLength; t++)
+			candidates[t] = index == null ? allStates : index.get(observationSequenceIndex[t]);
+		
 		//Viterbi解码
 		//初始化参数
-		for(int i = 0; i < stateTypesCount; i++) {
+		for(int i : candidates[0]) {
 			delta[0][i] = model.getLogPi(i) + model.emissionLogProb(i, observationSequenceIndex[0]);
 			psi[0][i] = 0;
 		}
 		
 		//归纳计算
 		for(int t = 1; t < observationSequenceIndex.length; t++)
-			for(int i = 0; i < stateTypesCount; i++)
-				viterbiStep(observationSequenceIndex[t], t, i);
+			for(int i : candidates[t])
+				viterbiStep(observationSequenceIndex[t], t, i, candidates[t - 1]);
 		
 		//结束
 		logProb = Math.log10(Double.MIN_VALUE);
-		for(int i = 0; i < stateTypesCount; i++) {
+		stateSequenceIndex[observaionLength - 1] = candidates[observaionLength - 1][0];
+		for(int i : candidates[observaionLength - 1]) {
 			double currentLogProb = delta[observaionLength - 1][i];
 			
 			if (logProb < currentLogProb) {
@@ -125,12 +153,13 @@ public class HMMWithViterbi implements HMM {
 	 * @param observationIndex	t时刻的观测状态
 	 * @param t					时刻t
 	 * @param j					隐藏状态
+	 * @param previous			t-1时刻的候选隐藏状态
 	 */
-	private void viterbiStep(int observation, int t, int j) {
+	private void viterbiStep(int observation, int t, int j, int[] previous) {
 		double maxDelta = Math.log10(Double.MIN_VALUE);
-		int max_psi = 0;//概率最大的路径t-1时刻的结点
+		int max_psi = previous[0];//概率最大的路径t-1时刻的结点
 		
-		for(int i = 0; i < model.statesCount(); i++) {
+		for(int i : previous) {
 			double currentDelta = delta[t - 1][i] + model.transitionLogProb(new int[]{i}, j);
 			
 			if(maxDelta < currentDelta) {
@@ -0,0 +1,172 @@
+package hust.tools.hmm.model;
+
+import java.util.Arrays;
+
+import hust.tools.hmm.utils.CommonUtils;
+import hust.tools.hmm.utils.Dictionary;
+import hust.tools.hmm.utils.State;
+
+/**
+ *<ul>
+ *<li>Description: 基于一维数组的稠密1阶隐式马尔科夫模型，pi[N]、A[N*N]、B[N*M]直接以字典索引定位
+ *<li>B的最后一列（或字典中UNKNOWN的索引列）存放未登录观测的发射概率
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月2日
+ *</ul>
+ */
+public class HMModelBasedArray extends AbstractFirstOrderHMModel {
+
+	/**
+	 * 版本序列号
+	 */
+	private static final long serialVersionUID = -3017645520977432873L;
+
+	/**
+	 * 初始转移概率对数，pi[i]
+	 */
+	private double[] pi;
+
+	/**
+	 * 转移概率对数，A[i * N + j]
+	 */
+	private double[] transitionMatrix;
+
+	/**
+	 * 发射概率对数，B[i * M + k]
+	 */
+	private double[] emissionMatrix;
+
+	/**
+	 * 构造方法，将给定的1阶HMM模型转换为基于数组的模型
+	 * @param model	1阶HMM模型
+	 */
+	public HMModelBasedArray(HMModel model) {
+		super(firstOrderDict(model, "基于数组的模型只支持1阶HMM"));
+		pi = new double[N];
+		transitionMatrix = new double[N * N];
+		emissionMatrix = new double[N * M];
+
+		for(int i = 0; i < N; i++) {
+			State state = model.getState(i);
+			pi[i] = model.getLogPi(i);
+
+			for(int j = 0; j < N; j++)
+				transitionMatrix[i * N + j] = model.transitionLogProb(new int[]{i}, j);
+
+			for(int k = 0; k < M; k++) {
+				if(k == unknownIndex)
+					emissionMatrix[i * M + k] = model.emissionLogProb(state, CommonUtils.UNKNOWN);
+				else
+					emissionMatrix[i * M + k] = model.emissionLogProb(i, k);
+			}
+		}
+	}
+
+	/**
+	 * 构造方法
+	 * @param dict				隐藏状态和观测状态的索引
+	 * @param pi				初始转移概率对数，长度为N
+	 * @param transitionMatrix	转移概率对数，长度为N*N
+	 * @param emissionMatrix	发射概率对数，长度为N*M(M包含未登录观测)
+	 */
+	public HMModelBasedArray(Dictionary dict, double[] pi, double[] transitionMatrix, double[] emissionMatrix) {
+		super(dict);
+		if(pi.length != N || transitionMatrix.length != N * N || emissionMatrix.length != N * M)
+			throw new IllegalArgumentException("模型参数的维度与字典不一致");
+
+		this.pi = pi;
+		this.transitionMatrix = transitionMatrix;
+		this.emissionMatrix = emissionMatrix;
+	}
+
+	@Override
+	public double getLogPi(int i) {
+		return pi[i];
+	}
+
+	@Override
+	public double transitionLogProb(int i, int j) {
+		return transitionMatrix[i * N + j];
+	}
+
+	@Override
+	public double emissionLogProb(int i, int t) {
+		if(t < 0)
+			t = unknownIndex;
+
+		return emissionMatrix[i * M + t];
+	}
+
+	@Override
+	void emissionColumn(int k, int[] states, double[] column) {
+		if(k < 0)
+			k = unknownIndex;
+
+		if(states == null) {
+			for(int i = 0; i < N; i++)
+				column[i] = emissionMatrix[i * M + k];
+		} else {
+			for(int i : states)
+				column[i] = emissionMatrix[i * M + k];
+		}
+	}
+
+	/**
+	 * 返回初始转移概率对数数组，供解码器直接读取
+	 * @return	初始转移概率对数数组
+	 */
+	double[] piArray() {
+		return pi;
+	}
+	
+	/**
+	 * 返回转移概率对数数组，供解码器直接读取
+	 * @return	转移概率对数数组
+	 */
+	double[] transitionArray() {
+		return transitionMatrix;
+	}
+	
+	/**
+	 * 返回发射概率对数数组，供解码器直接读取
+	 * @return	发射概率对数数组
+	 */
+	double[] emissionArray() {
+		return emissionMatrix;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((dict == null) ? 0 : dict.hashCode());
+		result = prime * result + Arrays.hashCode(emissionMatrix);
+		result = prime * result + Arrays.hashCode(pi);
+		result = prime * result + Arrays.hashCode(transitionMatrix);
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		HMModelBasedArray other = (HMModelBasedArray) obj;
+		if (dict == null) {
+			if (other.dict != null)
+				return false;
+		} else if (!dict.equals(other.dict))
+			return false;
+		if (!Arrays.equals(emissionMatrix, other.emissionMatrix))
+			return false;
+		if (!Arrays.equals(pi, other.pi))
+			return false;
+		if (!Arrays.equals(transitionMatrix, other.transitionMatrix))
+			return false;
+		return true;
+	}
+}
@@ -0,0 +1,179 @@
+package hust.tools.hmm.model;
+
+import java.io.ObjectStreamException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+
+import hust.tools.hmm.utils.CommonUtils;
+import hust.tools.hmm.utils.Dictionary;
+import hust.tools.hmm.utils.State;
+
+/**
+ *<ul>
+ *<li>Description: 概率表存放在堆外缓冲区中的稠密1阶隐式马尔科夫模型，布局与HMModelBasedArray相同：pi[N]、A[N*N]、B[N*M]
+ *<li>缓冲区可以是直接缓冲区，也可以是ArrayFileHMMReader映射的模型文件，后者使同一主机上的多个JVM共享页缓存中的同一份模型，
+ *<li>概率表不在堆中，GC不会扫描；按索引查询概率只是一次有界的缓冲区读取，只使用绝对位置读取，可以被多个线程同时使用
+ *<li>只依赖HMModel接口的解码器(如HMMWithViterbi)可以直接使用
+ *<li>缓冲区不能序列化，序列化时写出等价的HMModelBasedArray，反序列化得到的是堆内的数组模型
+ *<li>hashCode只由字典和维度计算，不扫描概率表；equals在缓冲区不是同一个对象时逐个比较概率
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月17日
+ *</ul>
+ */
+public class HMModelBasedBuffer extends AbstractFirstOrderHMModel {
+
+	/**
+	 * 版本序列号
+	 */
+	private static final long serialVersionUID = 5262398318740262139L;
+
+	/**
+	 * 初始转移概率对数，pi[i]
+	 */
+	private transient DoubleBuffer pi;
+
+	/**
+	 * 转移概率对数，A[i * N + j]
+	 */
+	private transient DoubleBuffer transitionMatrix;
+
+	/**
+	 * 发射概率对数，B[i * M + k]
+	 */
+	private transient DoubleBuffer emissionMatrix;
+
+	/**
+	 * 构造方法，将给定的1阶HMM模型复制到直接缓冲区
+	 * @param model	1阶HMM模型
+	 */
+	public HMModelBasedBuffer(HMModel model) {
+		super(firstOrderDict(model, "基于缓冲区的模型只支持1阶HMM"));
+		checkDimension();
+		pi = allocate(N);
+		transitionMatrix = allocate(N * N);
+		emissionMatrix = allocate(N * M);
+
+		for(int i = 0; i < N; i++) {
+			State state = model.getState(i);
+			pi.put(i, model.getLogPi(i));
+
+			for(int j = 0; j < N; j++)
+				transitionMatrix.put(i * N + j, model.transitionLogProb(new int[]{i}, j));
+
+			for(int k = 0; k < M; k++) {
+				if(k == unknownIndex)
+					emissionMatrix.put(i * M + k, model.emissionLogProb(state, CommonUtils.UNKNOWN));
+				else
+					emissionMatrix.put(i * M + k, model.emissionLogProb(i, k));
+			}
+		}
+	}
+
+	/**
+	 * 构造方法，直接使用给定的缓冲区，缓冲区从位置0开始存放概率对数
+	 * @param dict				隐藏状态和观测状态的索引
+	 * @param pi				初始转移概率对数，长度为N
+	 * @param transitionMatrix	转移概率对数，长度为N*N
+	 * @param emissionMatrix	发射概率对数，长度为N*M(M包含未登录观测)
+	 */
+	public HMModelBasedBuffer(Dictionary dict, DoubleBuffer pi, DoubleBuffer transitionMatrix, DoubleBuffer emissionMatrix) {
+		super(dict);
+		checkDimension();
+		if(pi.limit() != N || transitionMatrix.limit() != N * N || emissionMatrix.limit() != (long) N * M)
+			throw new IllegalArgumentException("模型参数的维度与字典不一致");
+
+		this.pi = pi;
+		this.transitionMatrix = transitionMatrix;
+		this.emissionMatrix = emissionMatrix;
+	}
+
+	/**
+	 * 检查发射矩阵的大小不超过缓冲区的索引范围
+	 */
+	private void checkDimension() {
+		if((long) N * M > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("发射矩阵过大：" + N + " * " + M);
+	}
+
+	/**
+	 * 分配本地字节序的直接缓冲区
+	 * @param length	double的个数
+	 * @return			缓冲区
+	 */
+	private static DoubleBuffer allocate(int length) {
+		return ByteBuffer.allocateDirect(length * 8).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+	}
+
+	@Override
+	public double getLogPi(int i) {
+		return pi.get(i);
+	}
+
+	@Override
+	public double transitionLogProb(int i, int j) {
+		return transitionMatrix.get(i * N + j);
+	}
+
+	@Override
+	public double emissionLogProb(int i, int t) {
+		if(t < 0)
+			t = unknownIndex;
+
+		return emissionMatrix.get(i * M + t);
+	}
+
+	/**
+	 * 序列化时写出等价的数组模型，缓冲区(尤其是映射的模型文件)本身不能序列化
+	 * @return	等价的HMModelBasedArray
+	 * @throws ObjectStreamException
+	 */
+	private Object writeReplace() throws ObjectStreamException {
+		return new HMModelBasedArray(this);
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((dict == null) ? 0 : dict.hashCode());
+		result = prime * result + N;
+		result = prime * result + M;
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		HMModelBasedBuffer other = (HMModelBasedBuffer) obj;
+		if (pi == other.pi && transitionMatrix == other.transitionMatrix && emissionMatrix == other.emissionMatrix)
+			return true;
+		if (dict == null) {
+			if (other.dict != null)
+				return false;
+		} else if (!dict.equals(other.dict))
+			return false;
+		if (emissionMatrix == null) {
+			if (other.emissionMatrix != null)
+				return false;
+		} else if (!emissionMatrix.equals(other.emissionMatrix))
+			return false;
+		if (pi == null) {
+			if (other.pi != null)
+				return false;
+		} else if (!pi.equals(other.pi))
+			return false;
+		if (transitionMatrix == null) {
+			if (other.transitionMatrix != null)
+				return false;
+		} else if (!transitionMatrix.equals(other.transitionMatrix))
+			return false;
+		return true;
+	}
+}
@@ -0,0 +1,163 @@
+package hust.tools.hmm.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import hust.tools.hmm.utils.Dictionary;
+import hust.tools.hmm.utils.Observation;
+import hust.tools.hmm.utils.State;
+
+/**
+ *<ul>
+ *<li>Description: 发射概率稀疏存储的1阶隐式马尔科夫模型，pi[N]、A[N*N]为稠密数组，B为按行压缩的SparseEmissionMatrix
+ *<li>适用于隐藏状态多、观测多而每个观测只由少数隐藏状态发射的模型(如词性标注)，发射概率的内存由N*M降为保存的发射数量
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月19日
+ *</ul>
+ */
+public class HMModelBasedSparse extends AbstractFirstOrderHMModel {
+
+	/**
+	 * 版本序列号
+	 */
+	private static final long serialVersionUID = 8406273151296730164L;
+
+	/**
+	 * 初始转移概率对数，pi[i]
+	 */
+	private double[] pi;
+
+	/**
+	 * 转移概率对数，A[i * N + j]
+	 */
+	private double[] transitionMatrix;
+
+	/**
+	 * 稀疏存储的发射概率对数
+	 */
+	private SparseEmissionMatrix emissionMatrix;
+
+	/**
+	 * 构造方法，将给定的1阶HMM模型转换为发射概率稀疏存储的模型
+	 * @param model	1阶HMM模型
+	 */
+	public HMModelBasedSparse(HMModel model) {
+		super(firstOrderDict(model, "发射概率稀疏存储的模型只支持1阶HMM"));
+		pi = new double[N];
+		transitionMatrix = new double[N * N];
+		for(int i = 0; i < N; i++) {
+			pi[i] = model.getLogPi(i);
+			for(int j = 0; j < N; j++)
+				transitionMatrix[i * N + j] = model.transitionLogProb(new int[]{i}, j);
+		}
+
+		emissionMatrix = new SparseEmissionMatrix(model);
+	}
+
+	/**
+	 * 构造方法
+	 * @param dict				隐藏状态和观测状态的索引
+	 * @param pi				初始转移概率对数，长度为N
+	 * @param transitionMatrix	转移概率对数，长度为N*N
+	 * @param emissionMatrix	稀疏存储的发射概率对数，N行M列(M包含未登录观测)
+	 */
+	public HMModelBasedSparse(Dictionary dict, double[] pi, double[] transitionMatrix, SparseEmissionMatrix emissionMatrix) {
+		super(dict);
+		if(pi.length != N || transitionMatrix.length != N * N || emissionMatrix.rowCount() != N || emissionMatrix.columnCount() != M)
+			throw new IllegalArgumentException("模型参数的维度与字典不一致");
+
+		this.pi = pi;
+		this.transitionMatrix = transitionMatrix;
+		this.emissionMatrix = emissionMatrix;
+	}
+
+	@Override
+	public double getLogPi(int i) {
+		return pi[i];
+	}
+
+	@Override
+	public double transitionLogProb(int i, int j) {
+		return transitionMatrix[i * N + j];
+	}
+
+	@Override
+	public double emissionLogProb(int i, int t) {
+		if(t < 0)
+			t = unknownIndex;
+
+		return emissionMatrix.get(i, t);
+	}
+
+	/**
+	 * 写入全部隐藏状态时由列视图填充，不逐个查找；只写入部分隐藏状态时在各自的行中二分查找
+	 */
+	@Override
+	void emissionColumn(int k, int[] states, double[] column) {
+		if(k < 0)
+			k = unknownIndex;
+
+		if(states == null || states.length == N) {
+			emissionMatrix.column(k, column);
+		} else {
+			for(int i : states)
+				column[i] = emissionMatrix.get(i, k);
+		}
+	}
+
+	/**
+	 * 返回稀疏存储的发射概率对数
+	 * @return	稀疏发射矩阵
+	 */
+	public SparseEmissionMatrix getSparseEmissionMatrix() {
+		return emissionMatrix;
+	}
+
+	@Override
+	public HashMap<State, EmissionProbEntry> getEmissionMatrix() {
+		Observation[] observations = columnObservations();
+		HashMap<State, EmissionProbEntry> map = new HashMap<>();
+		for(int i = 0; i < N; i++)
+			map.put(dict.getState(i), emissionMatrix.toEntry(i, observations));
+
+		return map;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((dict == null) ? 0 : dict.hashCode());
+		result = prime * result + ((emissionMatrix == null) ? 0 : emissionMatrix.hashCode());
+		result = prime * result + Arrays.hashCode(pi);
+		result = prime * result + Arrays.hashCode(transitionMatrix);
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		HMModelBasedSparse other = (HMModelBasedSparse) obj;
+		if (dict == null) {
+			if (other.dict != null)
+				return false;
+		} else if (!dict.equals(other.dict))
+			return false;
+		if (emissionMatrix == null) {
+			if (other.emissionMatrix != null)
+				return false;
+		} else if (!emissionMatrix.equals(other.emissionMatrix))
+			return false;
+		if (!Arrays.equals(pi, other.pi))
+			return false;
+		if (!Arrays.equals(transitionMatrix, other.transitionMatrix))
+			return false;
+		return true;
+	}
+}
@@ -0,0 +1,232 @@
+package hust.tools.hmm.model;
+
+import java.util.HashMap;
+
+import hust.tools.hmm.utils.Dictionary;
+import hust.tools.hmm.utils.Observation;
+import hust.tools.hmm.utils.State;
+import hust.tools.hmm.utils.StateHistoryIndex;
+import hust.tools.hmm.utils.StateSequence;
+
+/**
+ *<ul>
+ *<li>Description: 转移概率以回退形式稀疏存储的高阶隐式马尔科夫模型
+ *<li>初始概率和发射概率由给定的模型提供，转移概率由BackoffTransitionTable在查询时回退计算，
+ *<li>所有长度为1至order的上文都有完整的转移分布，内存只与训练语料中出现过的n元转移数量有关
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月23日
+ *</ul>
+ */
+public class HMModelWithBackoff implements HMModel {
+
+	/**
+	 * 版本序列号
+	 */
+	private static final long serialVersionUID = 2735924310659486316L;
+
+	/**
+	 * 概率为0时的对数
+	 */
+	private static final double LOG_ZERO = Math.log10(Double.MIN_VALUE);
+
+	/**
+	 * 提供初始概率和发射概率的模型
+	 */
+	private HMModel model;
+
+	/**
+	 * 回退形式的转移概率
+	 */
+	private BackoffTransitionTable transitions;
+
+	/**
+	 * 构造方法
+	 * @param model			提供初始概率和发射概率的模型，其转移概率不被使用
+	 * @param transitions	回退形式的转移概率
+	 */
+	public HMModelWithBackoff(HMModel model, BackoffTransitionTable transitions) {
+		if(model.statesCount() != transitions.statesCount())
+			throw new IllegalArgumentException("转移概率的隐藏状态数量与模型不一致");
+
+		this.model = model;
+		this.transitions = transitions;
+	}
+
+	@Override
+	public double getLogPi(State i) {
+		return model.getLogPi(i);
+	}
+
+	@Override
+	public double getLogPi(int i) {
+		return model.getLogPi(i);
+	}
+
+	@Override
+	public double transitionLogProb(int[] start, int target) {
+		return transitions.logProb(start, 0, start.length, target);
+	}
+
+	@Override
+	public double transitionLogProb(StateSequence start, State target) {
+		Dictionary dict = model.getDict();
+		int[] context = new int[start.length()];
+		for(int n = 0; n < context.length; n++) {
+			context[n] = dict.getIndex(start.get(n));
+			if(context[n] == -1)
+				return LOG_ZERO;
+		}
+
+		return transitions.logProb(context, 0, context.length, dict.getIndex(target));
+	}
+
+	@Override
+	public double emissionLogProb(State state, Observation observation) {
+		return model.emissionLogProb(state, observation);
+	}
+
+	@Override
+	public double emissionLogProb(int i, int t) {
+		return model.emissionLogProb(i, t);
+	}
+
+	@Override
+	public Observation[] getObservations() {
+		return model.getObservations();
+	}
+
+	@Override
+	public State[] getStates() {
+		return model.getStates();
+	}
+
+	@Override
+	public State getState(int index) {
+		return model.getState(index);
+	}
+
+	@Override
+	public int statesCount() {
+		return model.statesCount();
+	}
+
+	@Override
+	public int observationsCount() {
+		return model.observationsCount();
+	}
+
+	@Override
+	public int getObservationIndex(Observation observation) {
+		return model.getObservationIndex(observation);
+	}
+
+	@Override
+	public int getOrder() {
+		return transitions.getOrder();
+	}
+
+	@Override
+	public Dictionary getDict() {
+		return model.getDict();
+	}
+
+	/**
+	 * 返回回退形式的转移概率
+	 * @return	转移概率
+	 */
+	public BackoffTransitionTable getBackoffTransitionTable() {
+		return transitions;
+	}
+
+	@Override
+	public HashMap<State, Double> getPi() {
+		return model.getPi();
+	}
+
+	/**
+	 * 返回所有长度为1的上文和出现过的更长上文的完整转移分布，未出现的上文不展开
+	 * @return	转移概率矩阵
+	 */
+	@Override
+	public HashMap<StateSequence, TransitionProbEntry> getTransitionMatrix() {
+		int N = statesCount();
+		HashMap<StateSequence, TransitionProbEntry> map = new HashMap<>();
+		for(int i = 0; i < N; i++)
+			map.put(new StateSequence(getState(i)), toEntry(new int[]{i}));
+
+		StateHistoryIndex contexts = transitions.getContexts();
+		for(int h = 0; h < contexts.size(); h++) {
+			int[] context = contexts.toArray(h);
+			if(context.length == 1)
+				continue;
+
+			State[] states = new State[context.length];
+			for(int n = 0; n < context.length; n++)
+				states[n] = getState(context[n]);
+			map.put(new StateSequence(states), toEntry(context));
+		}
+
+		return map;
+	}
+
+	/**
+	 * 将给定上文的转移分布展开为TransitionProbEntry
+	 * @param context	隐藏状态索引
+	 * @return			转移概率
+	 */
+	private TransitionProbEntry toEntry(int[] context) {
+		TransitionProbEntry entry = new TransitionProbEntry();
+		for(int j = 0; j < statesCount(); j++)
+			entry.put(getState(j), transitions.logProb(context, 0, context.length, j));
+
+		return entry;
+	}
+
+	@Override
+	public HashMap<State, EmissionProbEntry> getEmissionMatrix() {
+		return model.getEmissionMatrix();
+	}
+
+	@Override
+	public HMModel clone(){
+        try {
+			return (HMModel)super.clone();
+		} catch (CloneNotSupportedException e) {
+			e.printStackTrace();
+		}
+
+		return null;
+    }
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((model == null) ? 0 : model.hashCode());
+		result = prime * result + ((transitions == null) ? 0 : transitions.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		HMModelWithBackoff other = (HMModelWithBackoff) obj;
+		if (model == null) {
+			if (other.model != null)
+				return false;
+		} else if (!model.equals(other.model))
+			return false;
+		if (transitions == null) {
+			if (other.transitions != null)
+				return false;
+		} else if (!transitions.equals(other.transitions))
+			return false;
+		return true;
+	}
+}
@@ -0,0 +1,356 @@
+package hust.tools.hmm.model;
+
+import hust.tools.hmm.utils.CommonUtils;
+import hust.tools.hmm.utils.ObservationSequence;
+
+/**
+ *<ul>
+ *<li>Description: 带比例因子（Rabiner scaling）的前向-后向算法，用于1阶HMM
+ *<li>模型参数在构造时一次性转为线性概率并保存在一维数组中，递推只做乘加，每个时刻只计算一次对数，避免下溢
+ *<li>alpha[t * N + i]为归一化后的前向概率，scale[t]为t时刻未归一化前向概率之和；beta按同样的比例因子缩放，
+ *<li>因此gamma[t][i] = alpha[t][i] * beta[t][i] * scale[t]，xi[t][i][j] = alpha[t][i] * A[i][j] * B[j][O(t+1)] * beta[t+1][j]
+ *<li>观测索引可以直接来自EncodedCorpus，小于0的索引视为未登录观测
+ *<li>缓冲区在多次计算间复用，实例不是线程安全的，多线程时每个线程通过fork()获得共享模型参数的实例
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月10日
+ *</ul>
+ */
+public class ScaledForwardBackwardAlgorithm {
+
+	/**
+	 * 基于数组的HMM模型
+	 */
+	private final HMModelBasedArray model;
+
+	/**
+	 * 隐藏状态数量
+	 */
+	private final int N;
+
+	/**
+	 * 发射矩阵的列数(包含未登录观测)
+	 */
+	private final int M;
+
+	/**
+	 * 未登录观测对应的列
+	 */
+	private final int unknown;
+
+	/**
+	 * 初始转移概率，pi[i]
+	 */
+	private final double[] pi;
+
+	/**
+	 * 转移概率，A[i * N + j]
+	 */
+	private final double[] A;
+
+	/**
+	 * 转置的发射概率，BT[k * N + i]
+	 */
+	private final double[] BT;
+
+	/**
+	 * 归一化的前向概率，alpha[t * N + i]
+	 */
+	private double[] alpha;
+
+	/**
+	 * 按比例因子缩放的后向概率，beta[t * N + i]
+	 */
+	private double[] beta;
+
+	/**
+	 * 比例因子，scale[t]为t时刻未归一化前向概率之和
+	 */
+	private double[] scale;
+
+	/**
+	 * 后向递推的临时变量
+	 */
+	private double[] temp;
+
+	public ScaledForwardBackwardAlgorithm(HMModel model) {
+		if(model.getOrder() != 1)
+			throw new IllegalArgumentException("前向-后向算法只支持1阶HMM");
+
+		this.model = model instanceof HMModelBasedArray ? (HMModelBasedArray) model : new HMModelBasedArray(model);
+		N = this.model.statesCount();
+		M = this.model.emissionColumns();
+		unknown = this.model.getObservationIndex(CommonUtils.UNKNOWN);
+
+		double[] logPi = this.model.piArray();
+		double[] logA = this.model.transitionArray();
+		double[] logB = this.model.emissionArray();
+		pi = new double[N];
+		A = new double[N * N];
+		BT = new double[M * N];
+		for(int i = 0; i < N; i++) {
+			pi[i] = Math.pow(10, logPi[i]);
+			for(int j = 0; j < N; j++)
+				A[i * N + j] = Math.pow(10, logA[i * N + j]);
+			for(int k = 0; k < M; k++)
+				BT[k * N + i] = Math.pow(10, logB[i * M + k]);
+		}
+
+		initBuffers();
+	}
+
+	/**
+	 * 构造方法，与给定的实例共享模型参数，使用独立的缓冲区
+	 * @param shared	共享模型参数的实例
+	 */
+	private ScaledForwardBackwardAlgorithm(ScaledForwardBackwardAlgorithm shared) {
+		model = shared.model;
+		N = shared.N;
+		M = shared.M;
+		unknown = shared.unknown;
+		pi = shared.pi;
+		A = shared.A;
+		BT = shared.BT;
+
+		initBuffers();
+	}
+
+	private void initBuffers() {
+		alpha = new double[0];
+		beta = new double[0];
+		scale = new double[0];
+		temp = new double[N];
+	}
+
+	/**
+	 * 返回与当前实例共享模型参数、缓冲区独立的实例，供其他线程使用
+	 * @return	新的实例
+	 */
+	public ScaledForwardBackwardAlgorithm fork() {
+		return new ScaledForwardBackwardAlgorithm(this);
+	}
+
+	/**
+	 * 将观测序列转为发射矩阵的列索引，未登录观测对应未登录列
+	 * @param observations	观测序列
+	 * @return				观测索引序列
+	 */
+	public int[] encode(ObservationSequence observations) {
+		int[] indices = new int[observations.length()];
+		for(int t = 0; t < indices.length; t++)
+			indices[t] = model.getObservationIndex(observations.get(t));
+
+		return indices;
+	}
+
+	/**
+	 * 返回观测序列的概率的对数
+	 * @param observations	观测序列
+	 * @return				概率的对数
+	 */
+	public double logLikelihood(ObservationSequence observations) {
+		int[] indices = encode(observations);
+
+		return forward(indices, 0, indices.length);
+	}
+
+	/**
+	 * 计算observations[from, from + T)的归一化前向概率和比例因子
+	 * @param observations	观测索引序列
+	 * @param from			起始位置
+	 * @param T				观测序列长度
+	 * @return				观测序列概率的对数
+	 */
+	public double forward(int[] observations, int from, int T) {
+		if(T <= 0)
+			throw new IllegalArgumentException("观测序列不能为空");
+
+		ensureCapacity(T);
+
+		//初始化
+		int column = emissionColumn(observations[from]) * N;
+		double sum = 0.0;
+		for(int i = 0; i < N; i++) {
+			alpha[i] = pi[i] * BT[column + i];
+			sum += alpha[i];
+		}
+		double logProb = normalize(0, sum);
+
+		//递推
+		for(int t = 1; t < T; t++) {
+			int prev = (t - 1) * N;
+			int current = t * N;
+			for(int j = 0; j < N; j++)
+				alpha[current + j] = 0.0;
+
+			for(int i = 0; i < N; i++) {
+				double a = alpha[prev + i];
+				int row = i * N;
+				for(int j = 0; j < N; j++)
+					alpha[current + j] += a * A[row + j];
+			}
+
+			column = emissionColumn(observations[from + t]) * N;
+			sum = 0.0;
+			for(int j = 0; j < N; j++) {
+				alpha[current + j] *= BT[column + j];
+				sum += alpha[current + j];
+			}
+			logProb += normalize(t, sum);
+		}
+
+		return logProb;
+	}
+
+	/**
+	 * 使用最近一次forward的比例因子计算observations[from, from + T)的缩放后向概率
+	 * @param observations	观测索引序列，须与最近一次forward相同
+	 * @param from			起始位置
+	 * @param T				观测序列长度
+	 */
+	public void backward(int[] observations, int from, int T) {
+		int last = (T - 1) * N;
+		for(int i = 0; i < N; i++)
+			beta[last + i] = 1.0 / scale[T - 1];
+
+		for(int t = T - 2; t >= 0; t--) {
+			int next = (t + 1) * N;
+			int current = t * N;
+			int column = emissionColumn(observations[from + t + 1]) * N;
+			for(int j = 0; j < N; j++)
+				temp[j] = BT[column + j] * beta[next + j];
+
+			for(int i = 0; i < N; i++) {
+				int row = i * N;
+				double sum = 0.0;
+				for(int j = 0; j < N; j++)
+					sum += A[row + j] * temp[j];
+
+				beta[current + i] = sum / scale[t];
+			}
+		}
+	}
+
+	/**
+	 * 返回观测索引在发射矩阵中对应的列，小于0的索引对应未登录观测
+	 * @param observation	观测索引
+	 * @return				发射矩阵的列
+	 */
+	public int emissionColumn(int observation) {
+		return observation < 0 ? unknown : observation;
+	}
+
+	/**
+	 * 归一化t时刻的前向概率
+	 * @param t		当前时刻
+	 * @param sum	未归一化前向概率之和
+	 * @return		比例因子的对数
+	 */
+	private double normalize(int t, double sum) {
+		if(sum <= 0.0)//观测在所有状态下概率均为0
+			sum = Double.MIN_VALUE;
+
+		scale[t] = sum;
+		int current = t * N;
+		for(int i = 0; i < N; i++)
+			alpha[current + i] /= sum;
+
+		return Math.log10(sum);
+	}
+
+	/**
+	 * 确保缓冲区能容纳长度为T的观测序列，不足时按1.5倍增长
+	 * @param T	观测序列长度
+	 */
+	private void ensureCapacity(int T) {
+		if(T <= scale.length)
+			return;
+
+		int capacity = Math.max(T, scale.length + (scale.length >> 1));
+		alpha = new double[capacity * N];
+		beta = new double[capacity * N];
+		scale = new double[capacity];
+	}
+
+	/**
+	 * 返回t时刻处于状态i的概率
+	 * @param t	观测序列的时刻
+	 * @param i	隐藏状态的索引
+	 * @return	gamma[t][i]
+	 */
+	public double gamma(int t, int i) {
+		return alpha[t * N + i] * beta[t * N + i] * scale[t];
+	}
+
+	/**
+	 * 返回归一化的前向概率，alpha[t * N + i]
+	 * @return	前向概率
+	 */
+	public double[] getAlpha() {
+		return alpha;
+	}
+
+	/**
+	 * 返回缩放的后向概率，beta[t * N + i]
+	 * @return	后向概率
+	 */
+	public double[] getBeta() {
+		return beta;
+	}
+
+	/**
+	 * 返回比例因子，scale[t]
+	 * @return	比例因子
+	 */
+	public double[] getScale() {
+		return scale;
+	}
+
+	/**
+	 * 返回初始转移概率，pi[i]
+	 * @return	初始转移概率
+	 */
+	public double[] getPi() {
+		return pi;
+	}
+
+	/**
+	 * 返回转移概率，A[i * N + j]
+	 * @return	转移概率
+	 */
+	public double[] getTransition() {
+		return A;
+	}
+
+	/**
+	 * 返回转置的发射概率，BT[k * N + i]
+	 * @return	发射概率
+	 */
+	public double[] getEmission() {
+		return BT;
+	}
+
+	/**
+	 * 返回基于数组的HMM模型
+	 * @return	HMM模型
+	 */
+	public HMModelBasedArray getModel() {
+		return model;
+	}
+
+	/**
+	 * 返回隐藏状态数量
+	 * @return	隐藏状态数量
+	 */
+	public int statesCount() {
+		return N;
+	}
+
+	/**
+	 * 返回发射矩阵的列数(包含未登录观测)
+	 * @return	发射矩阵的列数
+	 */
+	public int emissionColumns() {
+		return M;
+	}
+}
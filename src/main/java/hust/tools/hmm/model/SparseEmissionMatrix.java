@@ -0,0 +1,394 @@
+package hust.tools.hmm.model;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import hust.tools.hmm.utils.CommonUtils;
+import hust.tools.hmm.utils.Observation;
+import hust.tools.hmm.utils.State;
+
+/**
+ *<ul>
+ *<li>Description: 按行压缩(CSR)存储的稀疏发射概率对数矩阵，行为隐藏状态，列为观测(包含未登录观测)
+ *<li>每个隐藏状态只保存与该状态的底值不同的发射，列索引升序排列，未保存的发射取该状态的底值
+ *<li>底值取每行中出现次数最多的概率，平滑后未见发射共享同一概率，因此只需保存训练语料中见过的发射
+ *<li>同时保存按列压缩(CSC)的视图，用于由观测查找发射它的隐藏状态
+ *<li>矩阵在构造后只读，可以被多个线程共享
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月19日
+ *</ul>
+ */
+public class SparseEmissionMatrix implements Serializable {
+
+	/**
+	 * 版本序列号
+	 */
+	private static final long serialVersionUID = 2370194869520953427L;
+
+	/**
+	 * 概率为0时的对数
+	 */
+	private static final double LOG_ZERO = Math.log10(Double.MIN_VALUE);
+
+	/**
+	 * 隐藏状态数量
+	 */
+	private final int N;
+
+	/**
+	 * 列数(包含未登录观测)
+	 */
+	private final int M;
+
+	/**
+	 * 隐藏状态i的发射保存在[rowOffsets[i], rowOffsets[i + 1])中
+	 */
+	private final int[] rowOffsets;
+
+	/**
+	 * 按行保存的发射的列索引
+	 */
+	private final int[] columns;
+
+	/**
+	 * 按行保存的发射概率对数
+	 */
+	private final double[] values;
+
+	/**
+	 * 每个隐藏状态未保存的发射的概率对数
+	 */
+	private final double[] floor;
+
+	/**
+	 * 观测k的发射保存在[columnOffsets[k], columnOffsets[k + 1])中
+	 */
+	private final int[] columnOffsets;
+
+	/**
+	 * 按列保存的发射的隐藏状态索引
+	 */
+	private final int[] rows;
+
+	/**
+	 * 按列保存的发射概率对数
+	 */
+	private final double[] columnValues;
+
+	/**
+	 * 构造方法，将给定的1阶HMM模型的发射概率压缩为稀疏矩阵
+	 * @param model	1阶HMM模型
+	 */
+	public SparseEmissionMatrix(HMModel model) {
+		N = model.statesCount();
+		M = AbstractFirstOrderHMModel.emissionColumns(model.getDict());
+		int unknownIndex = model.getDict().containObservation(CommonUtils.UNKNOWN) ? model.getDict().getIndex(CommonUtils.UNKNOWN) : model.getDict().observationCount();
+
+		rowOffsets = new int[N + 1];
+		floor = new double[N];
+		double[][] rowValues = new double[N][];
+		int[][] rowColumns = new int[N][];
+		double[] row = new double[M];
+		for(int i = 0; i < N; i++) {
+			State state = model.getState(i);
+			for(int k = 0; k < M; k++)
+				row[k] = k == unknownIndex ? model.emissionLogProb(state, CommonUtils.UNKNOWN) : model.emissionLogProb(i, k);
+
+			floor[i] = mode(row);
+			int size = 0;
+			for(int k = 0; k < M; k++) {
+				if(row[k] != floor[i])
+					size++;
+			}
+
+			rowColumns[i] = new int[size];
+			rowValues[i] = new double[size];
+			size = 0;
+			for(int k = 0; k < M; k++) {
+				if(row[k] != floor[i]) {
+					rowColumns[i][size] = k;
+					rowValues[i][size++] = row[k];
+				}
+			}
+			rowOffsets[i + 1] = rowOffsets[i] + size;
+		}
+
+		columns = new int[rowOffsets[N]];
+		values = new double[rowOffsets[N]];
+		for(int i = 0; i < N; i++) {
+			System.arraycopy(rowColumns[i], 0, columns, rowOffsets[i], rowColumns[i].length);
+			System.arraycopy(rowValues[i], 0, values, rowOffsets[i], rowValues[i].length);
+		}
+
+		columnOffsets = new int[M + 1];
+		rows = new int[columns.length];
+		columnValues = new double[columns.length];
+		transpose();
+	}
+
+	/**
+	 * 构造方法
+	 * @param N				隐藏状态数量
+	 * @param M				列数(包含未登录观测)
+	 * @param rowOffsets	隐藏状态i的发射保存在[rowOffsets[i], rowOffsets[i + 1])中，长度为N+1
+	 * @param columns		按行保存的发射的列索引，每行升序排列
+	 * @param values		按行保存的发射概率对数
+	 * @param floor			每个隐藏状态未保存的发射的概率对数，长度为N
+	 */
+	public SparseEmissionMatrix(int N, int M, int[] rowOffsets, int[] columns, double[] values, double[] floor) {
+		if(rowOffsets.length != N + 1 || floor.length != N || rowOffsets[0] != 0 || rowOffsets[N] != columns.length || columns.length != values.length)
+			throw new IllegalArgumentException("稀疏发射矩阵的维度不一致");
+
+		for(int i = 0; i < N; i++) {
+			for(int p = rowOffsets[i]; p < rowOffsets[i + 1]; p++) {
+				if(columns[p] < 0 || columns[p] >= M || (p > rowOffsets[i] && columns[p] <= columns[p - 1]))
+					throw new IllegalArgumentException("稀疏发射矩阵的列索引必须在[0, M)之间且每行升序排列");
+			}
+		}
+
+		this.N = N;
+		this.M = M;
+		this.rowOffsets = rowOffsets;
+		this.columns = columns;
+		this.values = values;
+		this.floor = floor;
+
+		columnOffsets = new int[M + 1];
+		rows = new int[columns.length];
+		columnValues = new double[columns.length];
+		transpose();
+	}
+
+	/**
+	 * 返回一行中出现次数最多的值，所有值均不相同时返回LOG_ZERO
+	 * @param row	一行发射概率对数
+	 * @return		出现次数最多的值
+	 */
+	private static double mode(double[] row) {
+		double[] sorted = row.clone();
+		Arrays.sort(sorted);
+
+		double mode = LOG_ZERO;
+		int best = 1;
+		for(int start = 0, end = 1; start < sorted.length; start = end++) {
+			while(end < sorted.length && sorted[end] == sorted[start])
+				end++;
+
+			if(end - start > best) {
+				best = end - start;
+				mode = sorted[start];
+			}
+		}
+
+		return mode;
+	}
+
+	/**
+	 * 由按行保存的发射生成按列保存的视图，每列的隐藏状态升序排列
+	 */
+	private void transpose() {
+		for(int column : columns)
+			columnOffsets[column + 1]++;
+		for(int k = 0; k < M; k++)
+			columnOffsets[k + 1] += columnOffsets[k];
+
+		int[] next = Arrays.copyOf(columnOffsets, M);
+		for(int i = 0; i < N; i++) {
+			for(int p = rowOffsets[i]; p < rowOffsets[i + 1]; p++) {
+				int q = next[columns[p]]++;
+				rows[q] = i;
+				columnValues[q] = values[p];
+			}
+		}
+	}
+
+	/**
+	 * 返回隐藏状态i发射观测k的概率对数
+	 * @param i	隐藏状态索引
+	 * @param k	列索引
+	 * @return	发射概率对数
+	 */
+	public double get(int i, int k) {
+		int p = Arrays.binarySearch(columns, rowOffsets[i], rowOffsets[i + 1], k);
+
+		return p >= 0 ? values[p] : floor[i];
+	}
+
+	/**
+	 * 将所有隐藏状态发射观测k的概率对数写入column[i]：先写入各隐藏状态的底值，再由列视图覆盖保存的发射
+	 * @param k			列索引
+	 * @param column	长度不小于N的数组
+	 */
+	void column(int k, double[] column) {
+		System.arraycopy(floor, 0, column, 0, N);
+		for(int q = columnOffsets[k]; q < columnOffsets[k + 1]; q++)
+			column[rows[q]] = columnValues[q];
+	}
+
+	/**
+	 * 返回隐藏状态i未保存的发射的概率对数
+	 * @param i	隐藏状态索引
+	 * @return	底值
+	 */
+	public double floor(int i) {
+		return floor[i];
+	}
+
+	/**
+	 * 返回隐藏状态i保存的发射的起始位置，与rowEnd(i)一起用于rowColumn(p)和rowValue(p)
+	 * @param i	隐藏状态索引
+	 * @return	起始位置
+	 */
+	public int rowStart(int i) {
+		return rowOffsets[i];
+	}
+
+	/**
+	 * 返回隐藏状态i保存的发射的结束位置(不包含)
+	 * @param i	隐藏状态索引
+	 * @return	结束位置
+	 */
+	public int rowEnd(int i) {
+		return rowOffsets[i + 1];
+	}
+
+	/**
+	 * 返回按行保存的第p个发射的列索引
+	 * @param p	位置
+	 * @return	列索引
+	 */
+	public int rowColumn(int p) {
+		return columns[p];
+	}
+
+	/**
+	 * 返回按行保存的第p个发射的概率对数
+	 * @param p	位置
+	 * @return	概率对数
+	 */
+	public double rowValue(int p) {
+		return values[p];
+	}
+
+	/**
+	 * 返回观测k保存的发射在列视图中的起始位置，与columnEnd(k)一起用于columnState(q)和columnValue(q)
+	 * @param k	列索引
+	 * @return	起始位置
+	 */
+	public int columnStart(int k) {
+		return columnOffsets[k];
+	}
+
+	/**
+	 * 返回观测k保存的发射在列视图中的结束位置(不包含)
+	 * @param k	列索引
+	 * @return	结束位置
+	 */
+	public int columnEnd(int k) {
+		return columnOffsets[k + 1];
+	}
+
+	/**
+	 * 返回列视图中第q个发射的隐藏状态索引
+	 * @param q	位置
+	 * @return	隐藏状态索引
+	 */
+	public int columnState(int q) {
+		return rows[q];
+	}
+
+	/**
+	 * 返回列视图中第q个发射的概率对数
+	 * @param q	位置
+	 * @return	概率对数
+	 */
+	public double columnValue(int q) {
+		return columnValues[q];
+	}
+
+	/**
+	 * 返回隐藏状态数量
+	 * @return	隐藏状态数量
+	 */
+	public int rowCount() {
+		return N;
+	}
+
+	/**
+	 * 返回列数(包含未登录观测)
+	 * @return	列数
+	 */
+	public int columnCount() {
+		return M;
+	}
+
+	/**
+	 * 返回保存的发射数量
+	 * @return	保存的发射数量
+	 */
+	public int size() {
+		return columns.length;
+	}
+
+	/**
+	 * 返回行视图和列视图占用的字节数的估计值
+	 * @return	字节数
+	 */
+	public long memoryBytes() {
+		return 4L * (rowOffsets.length + columnOffsets.length) + 8L * floor.length + 2 * 12L * columns.length;
+	}
+
+	/**
+	 * 将隐藏状态i的发射展开为EmissionProbEntry
+	 * @param i				隐藏状态索引
+	 * @param observations	列索引对应的观测
+	 * @return				发射概率
+	 */
+	EmissionProbEntry toEntry(int i, Observation[] observations) {
+		EmissionProbEntry entry = new EmissionProbEntry();
+		for(int k = 0; k < M; k++)
+			entry.put(observations[k], floor[i]);
+		for(int p = rowOffsets[i]; p < rowOffsets[i + 1]; p++)
+			entry.put(observations[columns[p]], values[p]);
+
+		return entry;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + M;
+		result = prime * result + N;
+		result = prime * result + Arrays.hashCode(columns);
+		result = prime * result + Arrays.hashCode(floor);
+		result = prime * result + Arrays.hashCode(rowOffsets);
+		result = prime * result + Arrays.hashCode(values);
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		SparseEmissionMatrix other = (SparseEmissionMatrix) obj;
+		if (M != other.M)
+			return false;
+		if (N != other.N)
+			return false;
+		if (!Arrays.equals(columns, other.columns))
+			return false;
+		if (!Arrays.equals(floor, other.floor))
+			return false;
+		if (!Arrays.equals(rowOffsets, other.rowOffsets))
+			return false;
+		if (!Arrays.equals(values, other.values))
+			return false;
+		return true;
+	}
+}
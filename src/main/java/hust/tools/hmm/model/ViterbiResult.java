@@ -0,0 +1,54 @@
+package hust.tools.hmm.model;
+
+import hust.tools.hmm.utils.StateSequence;
+
+/**
+ *<ul>
+ *<li>Description: 维特比解码结果，包含最优隐藏序列、其索引、概率对数以及可选的Viterbi变量网格
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月6日
+ *</ul>
+ */
+public class ViterbiResult extends StateSequenceWithScore {
+
+	/**
+	 * 最优隐藏序列的状态索引
+	 */
+	private int[] path;
+	
+	/**
+	 * Viterbi变量网格，lattice[t][i]，未要求时为null
+	 */
+	private double[][] lattice;
+
+	public ViterbiResult(StateSequence sequence, int[] path, double score, double[][] lattice) {
+		super(sequence, score);
+		this.path = path;
+		this.lattice = lattice;
+	}
+	
+	/**
+	 * 返回最优隐藏序列的状态索引
+	 * @return	状态索引
+	 */
+	public int[] getPath() {
+		return path;
+	}
+	
+	/**
+	 * 返回Viterbi变量网格，lattice[t][i]为t时刻到达状态i的最大概率对数
+	 * @return	Viterbi变量网格，解码时未要求则返回null
+	 */
+	public double[][] getLattice() {
+		return lattice;
+	}
+	
+	/**
+	 * 返回是否包含Viterbi变量网格
+	 * @return	true-包含/false-不包含
+	 */
+	public boolean hasLattice() {
+		return lattice != null;
+	}
+}
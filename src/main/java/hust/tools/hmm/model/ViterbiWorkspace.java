@@ -0,0 +1,296 @@
+package hust.tools.hmm.model;
+
+import java.util.Arrays;
+
+import hust.tools.hmm.utils.ObservationSequence;
+
+/**
+ *<ul>
+ *<li>Description: 维特比解码的可复用工作区，delta、psi等缓冲区为一维数组，按遇到的最长观测序列增长，解码时不再分配内存
+ *<li>每个时刻由模型取出当前观测的一列发射概率，稠密模型直接读取数组，稀疏模型由列视图填充，不需要展开为N*M的稠密矩阵
+ *<li>工作区不是线程安全的，每个线程应使用各自的工作区
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月4日
+ *</ul>
+ */
+class ViterbiWorkspace {
+
+	/**
+	 * 概率为0时的对数
+	 */
+	static final double LOG_ZERO = Math.log10(Double.MIN_VALUE);
+
+	/**
+	 * Viterbi变量，delta[t * N + i]
+	 */
+	double[] delta;
+
+	/**
+	 * 回退路径，psi[t * N + i]
+	 */
+	int[] psi;
+
+	/**
+	 * 观测序列的索引
+	 */
+	int[] observations;
+
+	/**
+	 * 最优路径的状态索引
+	 */
+	int[] path;
+
+	/**
+	 * 当前时刻各隐藏状态发射当前观测的概率对数，emission[i]
+	 */
+	private double[] emission;
+
+	/**
+	 * 当前缓冲区能容纳的最大序列长度
+	 */
+	private int capacity;
+
+	/**
+	 * 当前缓冲区对应的隐藏状态数量
+	 */
+	private int stateCount;
+
+	ViterbiWorkspace() {
+		delta = new double[0];
+		psi = new int[0];
+		observations = new int[0];
+		path = new int[0];
+		emission = new double[0];
+	}
+
+	/**
+	 * 确保缓冲区能容纳长度为T、状态数为N的解码，不足时按1.5倍增长
+	 * @param T	观测序列长度
+	 * @param N	隐藏状态数量
+	 */
+	void ensureCapacity(int T, int N) {
+		if(T <= capacity && N == stateCount)
+			return;
+
+		int newCapacity = Math.max(T, capacity + (capacity >> 1));
+		delta = new double[newCapacity * N];
+		psi = new int[newCapacity * N];
+		observations = new int[newCapacity];
+		path = new int[newCapacity];
+		emission = new double[N];
+		capacity = newCapacity;
+		stateCount = N;
+	}
+
+	/**
+	 * 将观测序列转为索引存入工作区
+	 * @param model			HMM模型
+	 * @param sequence		观测序列
+	 * @return				观测序列长度
+	 */
+	int encode(HMModel model, ObservationSequence sequence) {
+		int T = sequence.length();
+		if(T == 0)
+			throw new IllegalArgumentException("观测序列不能为空");
+
+		ensureCapacity(T, model.statesCount());
+		for(int t = 0; t < T; t++)
+			observations[t] = model.getObservationIndex(sequence.get(t));
+
+		return T;
+	}
+
+	/**
+	 * 对工作区中长度为T的观测索引序列进行维特比解码，最优路径写入path
+	 * @param N				隐藏状态数量
+	 * @param T				观测序列长度
+	 * @param logPi			初始转移概率对数，pi[i]
+	 * @param logAT			转置的转移概率对数，logAT[j * N + i]为由i转移到j的概率对数
+	 * @param model			提供发射概率的1阶HMM模型
+	 * @return				最优路径的概率对数
+	 */
+	double viterbi(int N, int T, double[] logPi, double[] logAT, AbstractFirstOrderHMModel model) {
+		//初始化
+		int o = observations[0];
+		model.emissionColumn(o, null, emission);
+		for(int i = 0; i < N; i++) {
+			delta[i] = logPi[i] + emission[i];
+			psi[i] = 0;
+		}
+
+		//归纳计算
+		for(int t = 1; t < T; t++) {
+			int prev = (t - 1) * N;
+			int current = t * N;
+			o = observations[t];
+			model.emissionColumn(o, null, emission);
+
+			for(int j = 0; j < N; j++) {
+				int row = j * N;
+				double maxDelta = LOG_ZERO;
+				int maxPsi = 0;
+
+				for(int i = 0; i < N; i++) {
+					double currentDelta = delta[prev + i] + logAT[row + i];
+					if(maxDelta < currentDelta) {
+						maxDelta = currentDelta;
+						maxPsi = i;
+					}
+				}
+
+				delta[current + j] = maxDelta + emission[j];
+				psi[current + j] = maxPsi;
+			}
+		}
+
+		//结束
+		int last = (T - 1) * N;
+		double logProb = LOG_ZERO;
+		path[T - 1] = 0;
+		for(int i = 0; i < N; i++) {
+			if(logProb < delta[last + i]) {
+				logProb = delta[last + i];
+				path[T - 1] = i;
+			}
+		}
+
+		//路径回溯
+		for(int t = T - 2; t >= 0; t--)
+			path[t] = psi[(t + 1) * N + path[t + 1]];
+
+		return logProb;
+	}
+
+	/**
+	 * 只在候选隐藏状态之间进行维特比解码，最优路径写入path；非候选状态的Viterbi变量为LOG_ZERO
+	 * @param N				隐藏状态数量
+	 * @param T				观测序列长度
+	 * @param logPi			初始转移概率对数，pi[i]
+	 * @param logAT			转置的转移概率对数，logAT[j * N + i]为由i转移到j的概率对数
+	 * @param model			提供发射概率的1阶HMM模型
+	 * @param index			观测到候选隐藏状态的索引
+	 * @return				最优路径的概率对数
+	 */
+	double viterbi(int N, int T, double[] logPi, double[] logAT, AbstractFirstOrderHMModel model, CandidateStateIndex index) {
+		//初始化
+		int o = observations[0];
+		int[] current = index.get(o);
+		model.emissionColumn(o, current, emission);
+		Arrays.fill(delta, 0, N, LOG_ZERO);
+		for(int i : current) {
+			delta[i] = logPi[i] + emission[i];
+			psi[i] = 0;
+		}
+
+		//归纳计算
+		for(int t = 1; t < T; t++) {
+			int[] previous = current;
+			int prev = (t - 1) * N;
+			int offset = t * N;
+			o = observations[t];
+			current = index.get(o);
+			model.emissionColumn(o, current, emission);
+			Arrays.fill(delta, offset, offset + N, LOG_ZERO);
+
+			for(int j : current) {
+				int row = j * N;
+				double maxDelta = LOG_ZERO;
+				int maxPsi = previous[0];
+
+				if(previous.length == N) {//前一时刻没有剪枝，按顺序访问
+					for(int i = 0; i < N; i++) {
+						double currentDelta = delta[prev + i] + logAT[row + i];
+						if(maxDelta < currentDelta) {
+							maxDelta = currentDelta;
+							maxPsi = i;
+						}
+					}
+				} else {
+					for(int i : previous) {
+						double currentDelta = delta[prev + i] + logAT[row + i];
+						if(maxDelta < currentDelta) {
+							maxDelta = currentDelta;
+							maxPsi = i;
+						}
+					}
+				}
+
+				delta[offset + j] = maxDelta + emission[j];
+				psi[offset + j] = maxPsi;
+			}
+		}
+
+		//结束
+		int last = (T - 1) * N;
+		double logProb = LOG_ZERO;
+		path[T - 1] = current[0];
+		for(int i : current) {
+			if(logProb < delta[last + i]) {
+				logProb = delta[last + i];
+				path[T - 1] = i;
+			}
+		}
+
+		//路径回溯
+		for(int t = T - 2; t >= 0; t--)
+			path[t] = psi[(t + 1) * N + path[t + 1]];
+
+		return logProb;
+	}
+
+	/**
+	 * 复制最近一次解码的Viterbi变量，lattice[t][i]
+	 * @param T	观测序列长度
+	 * @param N	隐藏状态数量
+	 * @return	Viterbi变量的副本
+	 */
+	double[][] copyLattice(int T, int N) {
+		double[][] lattice = new double[T][N];
+		for(int t = 0; t < T; t++)
+			System.arraycopy(delta, t * N, lattice[t], 0, N);
+
+		return lattice;
+	}
+
+	/**
+	 * 返回解码器使用的1阶模型：以字典索引定位概率的模型(数组、缓冲区、稀疏发射)直接使用，其余模型转换为基于数组的模型
+	 * @param model	1阶HMM模型
+	 * @return		以字典索引定位概率的模型
+	 */
+	static AbstractFirstOrderHMModel compile(HMModel model) {
+		if(model.getOrder() != 1)
+			throw new IllegalArgumentException("不支持高阶HMM解码");
+
+		return model instanceof AbstractFirstOrderHMModel ? (AbstractFirstOrderHMModel) model : new HMModelBasedArray(model);
+	}
+
+	/**
+	 * 返回初始转移概率对数数组
+	 * @param model	1阶HMM模型
+	 * @return		初始转移概率对数，pi[i]
+	 */
+	static double[] pi(AbstractFirstOrderHMModel model) {
+		int N = model.statesCount();
+		double[] logPi = new double[N];
+		for(int i = 0; i < N; i++)
+			logPi[i] = model.getLogPi(i);
+
+		return logPi;
+	}
+
+	/**
+	 * 返回转置后的转移概率对数矩阵，logAT[j * N + i]为由i转移到j的概率对数
+	 * @param model	1阶HMM模型
+	 * @return		转置后的转移概率对数矩阵
+	 */
+	static double[] transpose(AbstractFirstOrderHMModel model) {
+		int N = model.statesCount();
+		double[] logAT = new double[N * N];
+		for(int i = 0; i < N; i++)
+			for(int j = 0; j < N; j++)
+				logAT[j * N + i] = model.transitionLogProb(i, j);
+
+		return logAT;
+	}
+}
@@ -0,0 +1,20 @@
+package hust.tools.hmm.utils;
+
+/**
+ *<ul>
+ *<li>Description: 线程安全的观测/状态的索引类，可以由多个计数线程同时增加隐藏状态和观测状态
+ *<li>查询不加锁也不产生临时对象；增加新的状态时加锁，已存在的状态不加锁直接返回
+ *<li>由getIndex()得到的索引在getState()/getObservation()中一定可见
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月20日
+ *</ul>
+ */
+public class ConcurrentDictionary extends Dictionary {
+
+	private static final long serialVersionUID = 7306113465081254018L;
+
+	public ConcurrentDictionary() {
+		super(new SymbolTable.ConcurrentTable<State>(), new SymbolTable.ConcurrentTable<Observation>());
+	}
+}
@@ -15,4 +15,9 @@ public class DefaultStateSequenceValidator implements StateSequenceValidator {
 			State outcome) {
 		return true;
 	}
+
+	@Override
+	public boolean alwaysValid() {
+		return true;
+	}
 }
@@ -1,47 +1,46 @@
 package hust.tools.hmm.utils;
 
-import java.util.HashMap;
+import java.io.Serializable;
 import java.util.Set;
 
 /**
  *<ul>
  *<li>Description: 观测/状态的索引类
+ *<li>索引计数器属于实例，不同的字典互不影响；索引到状态为数组，状态到索引为ObjectIntHashMap，查询不产生临时对象
+ *<li>Dictionary不是线程安全的，需要由多个线程同时增加状态时使用ConcurrentDictionary
  *<li>Company: HUST
  *<li>@author Sonly
  *<li>Date: 2018年1月4日
  *</ul>
  */
-public class Dictionary {
+public class Dictionary implements Serializable {
 	
-	private static int observation_index;						//动态递增，为观测状态赋索引值
-	private HashMap<Observation, Integer> observationToIndex;	//观测状态及其索引的映射
-	private HashMap<Integer, Observation> indexToObservation;	//索引指向的观测状态
-	
-	private static int state_index;								//动态递增，为隐藏状态赋索引值
-	private HashMap<State, Integer> stateToIndex;				//隐藏状态及其索引的映射
-	private HashMap<Integer, State> indexToState;				//索引指向的隐藏状态
+	private static final long serialVersionUID = -2741394163870557018L;
+
+	private final SymbolTable<Observation> observations;	//观测状态及其索引的双向映射
+	private final SymbolTable<State> states;				//隐藏状态及其索引的双向映射
 	
 	public Dictionary() {
-		observationToIndex = new HashMap<>();
-		indexToObservation = new HashMap<>();
-		stateToIndex = new HashMap<>();
-		indexToState = new HashMap<>();
-		state_index = 0;
-		observation_index = 0;
+		this(new SymbolTable.ArrayTable<State>(), new SymbolTable.ArrayTable<Observation>());
 	}
 	
 	/**
-	 * 增加一个隐藏状态，返回加上索引的隐藏状态
+	 * 构造方法
+	 * @param states		隐藏状态的符号表
+	 * @param observations	观测状态的符号表
+	 */
+	Dictionary(SymbolTable<State> states, SymbolTable<Observation> observations) {
+		this.states = states;
+		this.observations = observations;
+	}
+	
+	/**
+	 * 增加一个隐藏状态，返回隐藏状态的索引
 	 * @param state	增加的隐藏状态
-	 * @return		加上索引的隐藏状态
+	 * @return		隐藏状态的索引，已存在时返回原索引
 	 */
-	public void add(State state) {
-		if(!containState(state)) {
-			stateToIndex.put(state, state_index);
-			indexToState.put(state_index, state);
-			
-			state_index++;
-		}
+	public int add(State state) {
+		return states.add(state);
 	}
 	
 	/**
@@ -50,8 +49,7 @@ public class Dictionary {
 	 * @param index	对应索引
 	 */
 	public void put(State state, int index) {
-		stateToIndex.put(state, index);
-		indexToState.put(index, state);
+		states.put(state, index);
 	}
 
 	/**
@@ -60,8 +58,7 @@ public class Dictionary {
 	 * @param index			对应索引
 	 */
 	public void put(Observation observation, int index) {
-		observationToIndex.put(observation, index);
-		indexToObservation.put(index, observation);
+		observations.put(observation, index);
 	}
 	
 	/**
@@ -75,16 +72,12 @@ public class Dictionary {
 	}
 	
 	/**
-	 * 增加一个观测状态，返回加上索引的观测状态
-	 * @param state	增加的观测状态
-	 * @return		加上索引的观测状态序列
+	 * 增加一个观测状态，返回观测状态的索引
+	 * @param observation	增加的观测状态
+	 * @return				观测状态的索引，已存在时返回原索引
 	 */
-	public void add(Observation observation) {
-		if(!containObservation(observation)) {
-			observationToIndex.put(observation, observation_index);
-			indexToObservation.put(observation_index, observation);
-			observation_index++;
-		}
+	public int add(Observation observation) {
+		return observations.add(observation);
 	}
 	
 	/**
@@ -92,9 +85,27 @@ public class Dictionary {
 	 * @param state	增加的一系列观测状态
 	 * @return		加上索引的观测状态序列
 	 */
-	public void add(ObservationSequence observations) {	
-		for(int i = 0; i < observations.length(); i++)
-			add(observations.get(i));
+	public void add(ObservationSequence sequence) {	
+		for(int i = 0; i < sequence.length(); i++)
+			add(sequence.get(i));
+	}
+	
+	/**
+	 * 按索引升序将另一个字典的隐藏状态增加到当前字典，已有的隐藏状态保持原索引
+	 * @param other	另一个字典
+	 * @return		另一个字典的隐藏状态索引到当前字典的索引的映射
+	 */
+	public int[] mergeStates(Dictionary other) {
+		return states.merge(other.states);
+	}
+	
+	/**
+	 * 按索引升序将另一个字典的观测状态增加到当前字典，已有的观测状态保持原索引
+	 * @param other	另一个字典
+	 * @return		另一个字典的观测状态索引到当前字典的索引的映射
+	 */
+	public int[] mergeObservations(Dictionary other) {
+		return observations.merge(other.observations);
 	}
 	
 	/**
@@ -103,10 +114,7 @@ public class Dictionary {
 	 * @return		给定索引对应隐藏状态
 	 */
 	public State getState(int index) {
-		if(indexToState.containsKey(index))
-			return indexToState.get(index);
-		
-		return null;
+		return states.get(index);
 	}
 	
 	/**
@@ -120,7 +128,7 @@ public class Dictionary {
 		
 		State[] sts = new State[states.length];
 		for(int i = 0; i < states.length; i++)
-			sts[i] = getState(i);
+			sts[i] = getState(states[i]);
 		
 		return new StateSequence(sts);
 	}
@@ -131,10 +139,7 @@ public class Dictionary {
 	 * @return		索引
 	 */
 	public int getIndex(State state) {
-		if(stateToIndex.containsKey(state))
-			return stateToIndex.get(state);
-		
-		return -1;
+		return states.indexOf(state);
 	}
 	
 	/**
@@ -143,10 +148,7 @@ public class Dictionary {
 	 * @return		给定索引对应观测状态
 	 */
 	public Observation getObservation(int index) {
-		if(indexToObservation.containsKey(index))
-			return indexToObservation.get(index);
-		
-		return null;
+		return observations.get(index);
 	}
 	
 	/**
@@ -160,7 +162,7 @@ public class Dictionary {
 		
 		Observation[] obs = new Observation[observations.length];
 		for(int i = 0; i < observations.length; i++)
-			obs[i] = getObservation(i);
+			obs[i] = getObservation(observations[i]);
 		
 		return new ObservationSequence(obs);
 	}
@@ -171,10 +173,7 @@ public class Dictionary {
 	 * @return		索引
 	 */
 	public int getIndex(Observation observation) {
-		if(observationToIndex.containsKey(observation))
-			return observationToIndex.get(observation);
-		
-		return -1;
+		return observations.indexOf(observation);
 	}
 	
 	/**
@@ -182,7 +181,7 @@ public class Dictionary {
 	 * @return	隐藏状态的集合
 	 */
 	public Set<State> getStates() {
-		return stateToIndex.keySet();
+		return states.symbols();
 	}
 	
 	/**
@@ -190,7 +189,7 @@ public class Dictionary {
 	 * @return	隐藏状态的类型数
 	 */
 	public int stateCount() {
-		return stateToIndex.size();
+		return states.size();
 	}
 	
 	/**
@@ -199,7 +198,7 @@ public class Dictionary {
 	 * @return		true-包含/false-不包含
 	 */
 	public boolean containState(State state) {
-		return stateToIndex.containsKey(state);
+		return states.indexOf(state) != -1;
 	}
 	
 	/**
@@ -208,7 +207,7 @@ public class Dictionary {
 	 * @return
 	 */
 	public boolean containState(int index) {
-		return indexToState.containsKey(index);
+		return states.get(index) != null;
 	}
 	
 	/**
@@ -216,7 +215,7 @@ public class Dictionary {
 	 * @return	观测状态的集合
 	 */
 	public Set<Observation> getObservations() {
-		return observationToIndex.keySet();
+		return observations.symbols();
 	}
 
 	/**
@@ -224,7 +223,7 @@ public class Dictionary {
 	 * @return	观测状态的类型数
 	 */
 	public int observationCount() {
-		return observationToIndex.size();
+		return observations.size();
 	}
 	
 	/**
@@ -233,48 +232,37 @@ public class Dictionary {
 	 * @return		true-包含/false-不包含
 	 */
 	public boolean containObservation(Observation observation) {
-		return observationToIndex.containsKey(observation);
+		return observations.indexOf(observation) != -1;
 	}
 
 	@Override
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + ((indexToObservation == null) ? 0 : indexToObservation.hashCode());
-		result = prime * result + ((indexToState == null) ? 0 : indexToState.hashCode());
-		result = prime * result + ((observationToIndex == null) ? 0 : observationToIndex.hashCode());
-		result = prime * result + ((stateToIndex == null) ? 0 : stateToIndex.hashCode());
+		result = prime * result + ((observations == null) ? 0 : observations.hashCode());
+		result = prime * result + ((states == null) ? 0 : states.hashCode());
 		return result;
 	}
 
+	/**
+	 * 索引相同的字典相等，与是否为ConcurrentDictionary无关
+	 */
 	@Override
 	public boolean equals(Object obj) {
 		if (this == obj)
 			return true;
-		if (obj == null)
-			return false;
-		if (getClass() != obj.getClass())
+		if (!(obj instanceof Dictionary))
 			return false;
 		Dictionary other = (Dictionary) obj;
-		if (indexToObservation == null) {
-			if (other.indexToObservation != null)
-				return false;
-		} else if (!indexToObservation.equals(other.indexToObservation))
-			return false;
-		if (indexToState == null) {
-			if (other.indexToState != null)
-				return false;
-		} else if (!indexToState.equals(other.indexToState))
-			return false;
-		if (observationToIndex == null) {
-			if (other.observationToIndex != null)
+		if (observations == null) {
+			if (other.observations != null)
 				return false;
-		} else if (!observationToIndex.equals(other.observationToIndex))
+		} else if (!observations.equals(other.observations))
 			return false;
-		if (stateToIndex == null) {
-			if (other.stateToIndex != null)
+		if (states == null) {
+			if (other.states != null)
 				return false;
-		} else if (!stateToIndex.equals(other.stateToIndex))
+		} else if (!states.equals(other.states))
 			return false;
 		return true;
 	}
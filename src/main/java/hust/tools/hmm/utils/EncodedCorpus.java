@@ -0,0 +1,438 @@
+package hust.tools.hmm.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+
+import hust.tools.hmm.stream.SupervisedHMMSample;
+import hust.tools.hmm.stream.SupervisedHMMSampleStream;
+import hust.tools.hmm.stream.UnSupervisedHMMSample;
+import hust.tools.hmm.stream.UnSupervisedHMMSampleStream;
+
+/**
+ *<ul>
+ *<li>Description: 预先编码的整数语料，所有序列的观测索引（以及可选的隐藏状态索引）首尾相接存放在一维整数缓冲区中，
+ *<li>第n个序列位于[offset(n), offset(n + 1))，语料的解析和字典查找只进行一次，之后每次训练都是对整数的线性扫描
+ *<li>字典中不存在的观测编码为未登录观测的索引，字典中也不包含未登录观测时编码为-1
+ *<li>语料可以写入二进制文件，并通过内存映射加载，加载后的语料只读，可以被多个线程同时读取
+ *<li>文件格式(大端)：魔数、版本、标志、序列数量、观测总数、隐藏状态数量、观测状态数量、字符串表字节数、
+ *<li>字符串表(按索引顺序的隐藏状态和观测状态，writeUTF)、偏移数组(序列数量+1)、观测索引、隐藏状态索引(标志为1时)
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月12日
+ *</ul>
+ */
+public class EncodedCorpus {
+
+	/**
+	 * 文件魔数，"HMMC"
+	 */
+	private static final int MAGIC = 0x484D4D43;
+
+	private static final int VERSION = 1;
+
+	/**
+	 * 标志位，语料包含隐藏状态索引
+	 */
+	private static final int HAS_STATES = 1;
+
+	/**
+	 * 文件头的字节数
+	 */
+	private static final int HEADER_BYTES = 8 * 4;
+
+	/**
+	 * 观测和隐藏状态的索引
+	 */
+	private final Dictionary dict;
+
+	/**
+	 * offsets[n]为第n个序列在索引缓冲区中的起始位置，offsets[size]为观测总数
+	 */
+	private final int[] offsets;
+
+	/**
+	 * 观测索引
+	 */
+	private final IntBuffer observations;
+
+	/**
+	 * 隐藏状态索引，不包含隐藏状态时为null
+	 */
+	private final IntBuffer states;
+
+	private EncodedCorpus(Dictionary dict, int[] offsets, IntBuffer observations, IntBuffer states) {
+		this.dict = dict;
+		this.offsets = offsets;
+		this.observations = observations;
+		this.states = states;
+	}
+
+	/**
+	 * 编码监督样本，由样本建立字典，索引的分配顺序与TransitionAndEmissionCounter相同
+	 * @param samples	监督样本
+	 * @return			编码后的语料
+	 */
+	public static EncodedCorpus encode(List<SupervisedHMMSample> samples) {
+		Encoder encoder = new Encoder(new Dictionary(), true);
+		for(SupervisedHMMSample sample : samples)
+			encoder.add(sample);
+
+		return encoder.build();
+	}
+
+	/**
+	 * 读取并编码监督样本流，由样本建立字典
+	 * @param sampleStream	监督样本流
+	 * @return				编码后的语料
+	 * @throws IOException
+	 */
+	public static EncodedCorpus encode(SupervisedHMMSampleStream<?> sampleStream) throws IOException {
+		Encoder encoder = new Encoder(new Dictionary(), true);
+		SupervisedHMMSample sample = null;
+		while((sample = (SupervisedHMMSample) sampleStream.read()) != null)
+			encoder.add(sample);
+
+		return encoder.build();
+	}
+
+	/**
+	 * 使用给定字典编码观测序列，字典不会被修改
+	 * @param dict		观测和隐藏状态的索引，通常为模型的字典
+	 * @param sequences	观测序列
+	 * @return			编码后的语料
+	 */
+	public static EncodedCorpus encode(Dictionary dict, List<ObservationSequence> sequences) {
+		Encoder encoder = new Encoder(dict, false);
+		for(ObservationSequence sequence : sequences)
+			encoder.add(sequence);
+
+		return encoder.build();
+	}
+
+	/**
+	 * 使用给定字典读取并编码非监督样本流，字典不会被修改
+	 * @param dict			观测和隐藏状态的索引，通常为模型的字典
+	 * @param sampleStream	非监督样本流
+	 * @return				编码后的语料
+	 * @throws IOException
+	 */
+	public static EncodedCorpus encode(Dictionary dict, UnSupervisedHMMSampleStream<?> sampleStream) throws IOException {
+		Encoder encoder = new Encoder(dict, false);
+		UnSupervisedHMMSample sample = null;
+		while((sample = (UnSupervisedHMMSample) sampleStream.read()) != null)
+			encoder.add(sample.getObservationSequence());
+
+		return encoder.build();
+	}
+
+	/**
+	 * 通过内存映射加载语料文件，索引缓冲区直接映射文件内容，不复制到堆内存
+	 * @param file	语料文件
+	 * @return		语料
+	 * @throws IOException
+	 */
+	public static EncodedCorpus load(File file) throws IOException {
+		try(RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+			if(channel.size() > Integer.MAX_VALUE)
+				throw new IllegalArgumentException("语料文件超过2GB，无法映射：" + file);
+
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if(buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC)
+				throw new IllegalArgumentException("不是编码语料文件：" + file);
+			int version = buffer.getInt();
+			if(version != VERSION)
+				throw new IllegalArgumentException("不支持的语料文件版本：" + version);
+
+			int flags = buffer.getInt();
+			int size = buffer.getInt();
+			int tokens = buffer.getInt();
+			int stateCount = buffer.getInt();
+			int observationCount = buffer.getInt();
+			int tableBytes = buffer.getInt();
+
+			//字符串表
+			byte[] table = new byte[tableBytes];
+			buffer.get(table);
+			Dictionary dict = new Dictionary();
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(table));
+			for(int i = 0; i < stateCount; i++)
+				dict.put(new StringState(in.readUTF()), i);
+			for(int i = 0; i < observationCount; i++)
+				dict.put(new StringObservation(in.readUTF()), i);
+
+			int[] offsets = new int[size + 1];
+			buffer.asIntBuffer().get(offsets);
+			buffer.position(buffer.position() + offsets.length * 4);
+
+			IntBuffer observations = slice(buffer, tokens);
+			IntBuffer states = (flags & HAS_STATES) != 0 ? slice(buffer, tokens) : null;
+
+			return new EncodedCorpus(dict, offsets, observations, states);
+		}
+	}
+
+	/**
+	 * 从当前位置截取length个整数，并将位置移到截取部分之后
+	 * @param buffer	字节缓冲区
+	 * @param length	整数个数
+	 * @return			整数缓冲区
+	 */
+	private static IntBuffer slice(ByteBuffer buffer, int length) {
+		ByteBuffer slice = buffer.slice();
+		slice.limit(length * 4);
+		buffer.position(buffer.position() + length * 4);
+
+		return slice.asIntBuffer();
+	}
+
+	/**
+	 * 将语料写入二进制文件，隐藏状态和观测状态以toString()写入字符串表，加载时还原为StringState和StringObservation
+	 * @param file	语料文件
+	 * @throws IOException
+	 */
+	public void write(File file) throws IOException {
+		int stateCount = dict.stateCount();
+		int observationCount = dict.observationCount();
+		ByteArrayOutputStream table = new ByteArrayOutputStream();
+		DataOutputStream tableWriter = new DataOutputStream(table);
+		for(int i = 0; i < stateCount; i++)
+			tableWriter.writeUTF(checked(dict.getState(i), i).toString());
+		for(int i = 0; i < observationCount; i++)
+			tableWriter.writeUTF(checked(dict.getObservation(i), i).toString());
+		tableWriter.flush();
+
+		try(DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			dos.writeInt(MAGIC);
+			dos.writeInt(VERSION);
+			dos.writeInt(hasStates() ? HAS_STATES : 0);
+			dos.writeInt(size());
+			dos.writeInt(tokens());
+			dos.writeInt(stateCount);
+			dos.writeInt(observationCount);
+			dos.writeInt(table.size());
+			table.writeTo(dos);
+
+			for(int offset : offsets)
+				dos.writeInt(offset);
+			for(int i = 0; i < tokens(); i++)
+				dos.writeInt(observations.get(i));
+			if(hasStates()) {
+				for(int i = 0; i < tokens(); i++)
+					dos.writeInt(states.get(i));
+			}
+		}
+	}
+
+	/**
+	 * 检查字典中给定索引的条目是否存在
+	 */
+	private static <T> T checked(T entry, int index) {
+		if(entry == null)
+			throw new IllegalArgumentException("字典的索引不连续：" + index);
+
+		return entry;
+	}
+
+	/**
+	 * 返回序列数量
+	 * @return	序列数量
+	 */
+	public int size() {
+		return offsets.length - 1;
+	}
+
+	/**
+	 * 返回所有序列的观测总数
+	 * @return	观测总数
+	 */
+	public int tokens() {
+		return offsets[offsets.length - 1];
+	}
+
+	/**
+	 * 返回语料是否包含隐藏状态索引
+	 * @return	true-包含/false-不包含
+	 */
+	public boolean hasStates() {
+		return states != null;
+	}
+
+	/**
+	 * 返回编码使用的字典
+	 * @return	观测和隐藏状态的索引
+	 */
+	public Dictionary getDictionary() {
+		return dict;
+	}
+
+	/**
+	 * 返回第n个序列在索引缓冲区中的起始位置
+	 * @param n	序列编号
+	 * @return	起始位置
+	 */
+	public int offset(int n) {
+		return offsets[n];
+	}
+
+	/**
+	 * 返回第n个序列的长度
+	 * @param n	序列编号
+	 * @return	序列长度
+	 */
+	public int length(int n) {
+		return offsets[n + 1] - offsets[n];
+	}
+
+	/**
+	 * 将第n个序列的观测索引复制到buffer的开头，buffer容量不足时重新分配
+	 * @param n			序列编号
+	 * @param buffer	可复用的缓冲区，可以为null
+	 * @return			存放观测索引的数组
+	 */
+	public int[] observations(int n, int[] buffer) {
+		return copy(observations, n, buffer);
+	}
+
+	/**
+	 * 将第n个序列的隐藏状态索引复制到buffer的开头，buffer容量不足时重新分配
+	 * @param n			序列编号
+	 * @param buffer	可复用的缓冲区，可以为null
+	 * @return			存放隐藏状态索引的数组
+	 */
+	public int[] states(int n, int[] buffer) {
+		if(states == null)
+			throw new IllegalStateException("语料不包含隐藏状态");
+
+		return copy(states, n, buffer);
+	}
+
+	/**
+	 * 复制第n个序列的索引，只使用绝对位置读取，多个线程可以同时调用
+	 */
+	private int[] copy(IntBuffer source, int n, int[] buffer) {
+		int from = offsets[n];
+		int length = offsets[n + 1] - from;
+		if(buffer == null || buffer.length < length)
+			buffer = new int[length];
+
+		for(int i = 0; i < length; i++)
+			buffer[i] = source.get(from + i);
+
+		return buffer;
+	}
+
+	/**
+	 * 返回第n个序列的观测序列
+	 * @param n	序列编号
+	 * @return	观测序列，编码为-1的观测还原为未登录观测
+	 */
+	public ObservationSequence getObservationSequence(int n) {
+		Observation[] sequence = new Observation[length(n)];
+		for(int i = 0; i < sequence.length; i++) {
+			int index = observations.get(offsets[n] + i);
+			sequence[i] = index < 0 ? CommonUtils.UNKNOWN : dict.getObservation(index);
+		}
+
+		return new ObservationSequence(sequence);
+	}
+
+	/**
+	 * 返回第n个序列的隐藏状态序列
+	 * @param n	序列编号
+	 * @return	隐藏状态序列
+	 */
+	public StateSequence getStateSequence(int n) {
+		if(states == null)
+			throw new IllegalStateException("语料不包含隐藏状态");
+
+		State[] sequence = new State[length(n)];
+		for(int i = 0; i < sequence.length; i++)
+			sequence[i] = dict.getState(states.get(offsets[n] + i));
+
+		return new StateSequence(sequence);
+	}
+
+	/**
+	 * 逐个序列编码样本，索引数组按1.5倍增长
+	 */
+	private static class Encoder {
+
+		private final Dictionary dict;
+
+		/**
+		 * 未登录观测的索引
+		 */
+		private final int unknown;
+
+		private int[] offsets = new int[16];
+		private int[] observations = new int[1024];
+		private int[] states;
+		private int size = 0;
+		private int tokens = 0;
+
+		Encoder(Dictionary dict, boolean withStates) {
+			this.dict = dict;
+			this.unknown = dict.getIndex(CommonUtils.UNKNOWN);
+			if(withStates)
+				states = new int[observations.length];
+		}
+
+		void add(SupervisedHMMSample sample) {
+			StateSequence stateSequence = sample.getStateSequence();
+			ObservationSequence observationSequence = sample.getObservationSequence();
+			if(stateSequence.length() != observationSequence.length())
+				throw new IllegalArgumentException("状态序列或观测序列长度不同。");
+
+			dict.add(stateSequence);
+			dict.add(observationSequence);
+
+			ensureCapacity(stateSequence.length());
+			for(int i = 0; i < stateSequence.length(); i++)
+				states[tokens + i] = dict.getIndex(stateSequence.get(i));
+
+			add(observationSequence);
+		}
+
+		void add(ObservationSequence sequence) {
+			ensureCapacity(sequence.length());
+			for(int i = 0; i < sequence.length(); i++) {
+				Observation observation = sequence.get(i);
+				int index = dict.getIndex(observation);
+				observations[tokens++] = index < 0 ? unknown : index;
+			}
+
+			if(size + 2 > offsets.length)
+				offsets = Arrays.copyOf(offsets, offsets.length + (offsets.length >> 1));
+			offsets[++size] = tokens;
+		}
+
+		private void ensureCapacity(int length) {
+			if(tokens + length <= observations.length)
+				return;
+
+			int capacity = Math.max(tokens + length, observations.length + (observations.length >> 1));
+			observations = Arrays.copyOf(observations, capacity);
+			if(states != null)
+				states = Arrays.copyOf(states, capacity);
+		}
+
+		EncodedCorpus build() {
+			IntBuffer stateBuffer = states == null ? null : IntBuffer.wrap(Arrays.copyOf(states, tokens));
+
+			return new EncodedCorpus(dict, Arrays.copyOf(offsets, size + 1), IntBuffer.wrap(Arrays.copyOf(observations, tokens)), stateBuffer);
+		}
+	}
+}
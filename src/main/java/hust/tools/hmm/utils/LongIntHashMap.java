@@ -0,0 +1,274 @@
+package hust.tools.hmm.utils;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ *<ul>
+ *<li>Description: 键为long、值为int的开放寻址哈希表，线性探测，容量为2的幂，装载因子不超过0.5
+ *<li>用于以打包的索引(如上下文索引与目标索引)为键的计数，键和值均以基本类型保存，计数不产生装箱对象
+ *<li>通过slots()、isUsed()、keyAt()、valueAt()按槽遍历；只支持增加和修改，不支持删除；不是线程安全的
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月21日
+ *</ul>
+ */
+public class LongIntHashMap implements Serializable {
+
+	/**
+	 * 版本序列号
+	 */
+	private static final long serialVersionUID = 3790315187406729013L;
+
+	/**
+	 * 不存在的键对应的值
+	 */
+	private final int missingValue;
+
+	/**
+	 * 键
+	 */
+	private long[] keys;
+
+	/**
+	 * 与键位置相同的值
+	 */
+	private int[] values;
+
+	/**
+	 * 槽是否已使用
+	 */
+	private boolean[] used;
+
+	/**
+	 * 键的数量
+	 */
+	private int size;
+
+	public LongIntHashMap() {
+		this(16, 0);
+	}
+
+	/**
+	 * 构造方法
+	 * @param expectedSize	预计的键的数量
+	 * @param missingValue	不存在的键对应的值
+	 */
+	public LongIntHashMap(int expectedSize, int missingValue) {
+		if(expectedSize < 0)
+			throw new IllegalArgumentException("预计的键的数量不能为负数");
+
+		int capacity = 4;
+		while(capacity < 2L * expectedSize)
+			capacity <<= 1;
+
+		this.missingValue = missingValue;
+		keys = new long[capacity];
+		values = new int[capacity];
+		used = new boolean[capacity];
+	}
+
+	/**
+	 * 返回键在表中的起始探测位置
+	 * @param key	键
+	 * @param mask	容量减一
+	 * @return		起始探测位置
+	 */
+	private static int slot(long key, int mask) {
+		long h = key * 0x9E3779B97F4A7C15L;
+
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	/**
+	 * 返回键所在的槽，不存在时返回应插入的空槽
+	 * @param key	键
+	 * @return		槽的位置
+	 */
+	private int find(long key) {
+		int mask = keys.length - 1;
+		int i = slot(key, mask);
+		while(used[i] && keys[i] != key)
+			i = (i + 1) & mask;
+
+		return i;
+	}
+
+	/**
+	 * 返回键对应的值
+	 * @param key	键
+	 * @return		值，键不存在时返回缺省值
+	 */
+	public int get(long key) {
+		int i = find(key);
+
+		return used[i] ? values[i] : missingValue;
+	}
+
+	/**
+	 * 判断是否包含给定的键
+	 * @param key	键
+	 * @return		true-包含/false-不包含
+	 */
+	public boolean containsKey(long key) {
+		return used[find(key)];
+	}
+
+	/**
+	 * 增加或修改键对应的值
+	 * @param key	键
+	 * @param value	值
+	 * @return		原来的值，键不存在时返回缺省值
+	 */
+	public int put(long key, int value) {
+		int i = find(key);
+		if(used[i]) {
+			int previous = values[i];
+			values[i] = value;
+
+			return previous;
+		}
+
+		insert(i, key, value);
+
+		return missingValue;
+	}
+
+	/**
+	 * 将键对应的值增加delta，键不存在时以缺省值加delta作为值
+	 * @param key	键
+	 * @param delta	增量
+	 * @return		增加后的值
+	 */
+	public int addTo(long key, int delta) {
+		int i = find(key);
+		if(used[i])
+			return values[i] += delta;
+
+		int value = missingValue + delta;
+		insert(i, key, value);
+
+		return value;
+	}
+
+	/**
+	 * 在空槽中插入键值，超过装载因子时扩容
+	 * @param i		空槽的位置
+	 * @param key	键
+	 * @param value	值
+	 */
+	private void insert(int i, long key, int value) {
+		keys[i] = key;
+		values[i] = value;
+		used[i] = true;
+		if(++size * 2 > keys.length)
+			rehash(keys.length << 1);
+	}
+
+	/**
+	 * 扩容并重新放置所有的键
+	 * @param capacity	新的容量
+	 */
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		boolean[] oldUsed = used;
+		keys = new long[capacity];
+		values = new int[capacity];
+		used = new boolean[capacity];
+
+		int mask = capacity - 1;
+		for(int j = 0; j < oldKeys.length; j++) {
+			if(!oldUsed[j])
+				continue;
+
+			int i = slot(oldKeys[j], mask);
+			while(used[i])
+				i = (i + 1) & mask;
+
+			keys[i] = oldKeys[j];
+			values[i] = oldValues[j];
+			used[i] = true;
+		}
+	}
+
+	/**
+	 * 返回键的数量
+	 * @return	键的数量
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * 返回槽的数量，与isUsed()、keyAt()、valueAt()一起用于遍历
+	 * @return	槽的数量
+	 */
+	public int slots() {
+		return keys.length;
+	}
+
+	/**
+	 * 返回槽是否已使用
+	 * @param slot	槽的位置
+	 * @return		true-已使用/false-空槽
+	 */
+	public boolean isUsed(int slot) {
+		return used[slot];
+	}
+
+	/**
+	 * 返回槽中的键
+	 * @param slot	槽的位置
+	 * @return		键
+	 */
+	public long keyAt(int slot) {
+		return keys[slot];
+	}
+
+	/**
+	 * 返回槽中的值
+	 * @param slot	槽的位置
+	 * @return		值
+	 */
+	public int valueAt(int slot) {
+		return values[slot];
+	}
+
+	/**
+	 * 清空所有的键
+	 */
+	public void clear() {
+		Arrays.fill(used, false);
+		size = 0;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = 0;
+		for(int i = 0; i < keys.length; i++) {
+			if(used[i])
+				result += (int) (keys[i] ^ (keys[i] >>> 32)) ^ values[i];
+		}
+
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		LongIntHashMap other = (LongIntHashMap) obj;
+		if (size != other.size)
+			return false;
+		for(int i = 0; i < keys.length; i++) {
+			if(used[i] && (!other.containsKey(keys[i]) || other.get(keys[i]) != values[i]))
+				return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,235 @@
+package hust.tools.hmm.utils;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ *<ul>
+ *<li>Description: 键为对象、值为int的开放寻址哈希表，线性探测，容量为2的幂，装载因子不超过0.5
+ *<li>值以基本类型保存，查询不产生装箱对象；不存在的键返回构造时给定的缺省值
+ *<li>只支持增加和修改，不支持删除；不是线程安全的
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月20日
+ *</ul>
+ */
+public class ObjectIntHashMap<K> implements Serializable {
+
+	/**
+	 * 版本序列号
+	 */
+	private static final long serialVersionUID = -6386512719484097613L;
+
+	/**
+	 * 不存在的键对应的值
+	 */
+	private final int missingValue;
+
+	/**
+	 * 键，null表示空槽
+	 */
+	private Object[] keys;
+
+	/**
+	 * 与键位置相同的值
+	 */
+	private int[] values;
+
+	/**
+	 * 键的数量
+	 */
+	private int size;
+
+	public ObjectIntHashMap() {
+		this(16, -1);
+	}
+
+	/**
+	 * 构造方法
+	 * @param expectedSize	预计的键的数量
+	 * @param missingValue	不存在的键对应的值
+	 */
+	public ObjectIntHashMap(int expectedSize, int missingValue) {
+		if(expectedSize < 0)
+			throw new IllegalArgumentException("预计的键的数量不能为负数");
+
+		int capacity = 4;
+		while(capacity < 2L * expectedSize)
+			capacity <<= 1;
+
+		this.missingValue = missingValue;
+		keys = new Object[capacity];
+		values = new int[capacity];
+	}
+
+	/**
+	 * 返回键在表中的起始探测位置
+	 * @param key	键
+	 * @param mask	容量减一
+	 * @return		起始探测位置
+	 */
+	private static int slot(Object key, int mask) {
+		int h = key.hashCode() * 0x9E3779B9;
+
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+	/**
+	 * 返回键对应的值
+	 * @param key	键
+	 * @return		值，键不存在时返回缺省值
+	 */
+	public int get(Object key) {
+		if(key == null)
+			return missingValue;
+
+		Object[] keys = this.keys;
+		int mask = keys.length - 1;
+		for(int i = slot(key, mask); ; i = (i + 1) & mask) {
+			Object current = keys[i];
+			if(current == null)
+				return missingValue;
+			if(current == key || current.equals(key))
+				return values[i];
+		}
+	}
+
+	/**
+	 * 判断是否包含给定的键
+	 * @param key	键
+	 * @return		true-包含/false-不包含
+	 */
+	public boolean containsKey(Object key) {
+		if(key == null)
+			return false;
+
+		int mask = keys.length - 1;
+		for(int i = slot(key, mask); ; i = (i + 1) & mask) {
+			Object current = keys[i];
+			if(current == null)
+				return false;
+			if(current == key || current.equals(key))
+				return true;
+		}
+	}
+
+	/**
+	 * 增加或修改键对应的值
+	 * @param key	键，不能为null
+	 * @param value	值
+	 * @return		原来的值，键不存在时返回缺省值
+	 */
+	public int put(K key, int value) {
+		if(key == null)
+			throw new IllegalArgumentException("键不能为空");
+
+		int mask = keys.length - 1;
+		int i = slot(key, mask);
+		for(; keys[i] != null; i = (i + 1) & mask) {
+			if(keys[i] == key || keys[i].equals(key)) {
+				int previous = values[i];
+				values[i] = value;
+
+				return previous;
+			}
+		}
+
+		keys[i] = key;
+		values[i] = value;
+		if(++size * 2 > keys.length)
+			rehash(keys.length << 1);
+
+		return missingValue;
+	}
+
+	/**
+	 * 扩容并重新放置所有的键
+	 * @param capacity	新的容量
+	 */
+	private void rehash(int capacity) {
+		Object[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new Object[capacity];
+		values = new int[capacity];
+
+		int mask = capacity - 1;
+		for(int j = 0; j < oldKeys.length; j++) {
+			if(oldKeys[j] == null)
+				continue;
+
+			int i = slot(oldKeys[j], mask);
+			while(keys[i] != null)
+				i = (i + 1) & mask;
+
+			keys[i] = oldKeys[j];
+			values[i] = oldValues[j];
+		}
+	}
+
+	/**
+	 * 返回键的数量
+	 * @return	键的数量
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * 返回不存在的键对应的值
+	 * @return	缺省值
+	 */
+	public int getMissingValue() {
+		return missingValue;
+	}
+
+	/**
+	 * 清空所有的键
+	 */
+	public void clear() {
+		Arrays.fill(keys, null);
+		size = 0;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = 0;
+		for(int i = 0; i < keys.length; i++) {
+			if(keys[i] != null)
+				result += keys[i].hashCode() ^ values[i];
+		}
+
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		ObjectIntHashMap<?> other = (ObjectIntHashMap<?>) obj;
+		if (size != other.size)
+			return false;
+		for(int i = 0; i < keys.length; i++) {
+			if(keys[i] != null && (!other.containsKey(keys[i]) || other.get(keys[i]) != values[i]))
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("{");
+		for(int i = 0; i < keys.length; i++) {
+			if(keys[i] != null) {
+				if(builder.length() > 1)
+					builder.append(", ");
+				builder.append(keys[i]).append('=').append(values[i]);
+			}
+		}
+
+		return builder.append('}').toString();
+	}
+}
@@ -0,0 +1,331 @@
+package hust.tools.hmm.utils;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ *<ul>
+ *<li>Description: 隐藏状态历史(若干个隐藏状态索引组成的上文)到连续编号的映射
+ *<li>历史的每个隐藏状态索引加一后占bits位，依次打包为一个long键，查询时不创建StateSequence，也不重复计算对象的哈希值
+ *<li>bits随出现的最大索引增长；当最长历史的位数超过63位(隐藏状态很多或阶数很高)时，改用带缓存哈希值的int数组作为键
+ *<li>编号从0开始按增加的顺序分配；只支持增加，不支持删除；不是线程安全的
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月22日
+ *</ul>
+ */
+public class StateHistoryIndex implements Serializable {
+
+	/**
+	 * 版本序列号
+	 */
+	private static final long serialVersionUID = -2273158804619452017L;
+
+	/**
+	 * 每个隐藏状态占用的位数
+	 */
+	private int bits;
+
+	/**
+	 * 已增加的最长历史的长度
+	 */
+	private int maxLength;
+
+	/**
+	 * 打包的历史到编号的映射，改用数组键后为null
+	 */
+	private LongIntHashMap packed;
+
+	/**
+	 * 数组键的历史到编号的映射，使用打包键时为null
+	 */
+	private ObjectIntHashMap<HistoryKey> unpacked;
+
+	/**
+	 * 编号为h的历史在states中的起始位置为offsets[h]，结束位置为offsets[h + 1]
+	 */
+	private int[] offsets;
+
+	/**
+	 * 所有历史的隐藏状态索引，按编号依次存放
+	 */
+	private int[] states;
+
+	/**
+	 * 历史的数量
+	 */
+	private int size;
+
+	public StateHistoryIndex() {
+		this(1);
+	}
+
+	/**
+	 * 构造方法
+	 * @param stateCount	预计的隐藏状态数量，出现更大的索引时自动增加位数
+	 */
+	public StateHistoryIndex(int stateCount) {
+		if(stateCount < 0)
+			throw new IllegalArgumentException("隐藏状态数量不能为负数");
+
+		bits = bitsFor(stateCount);
+		packed = new LongIntHashMap(16, -1);
+		offsets = new int[17];
+		states = new int[32];
+	}
+
+	/**
+	 * 返回容纳索引index(加一后)需要的位数
+	 * @param index	隐藏状态索引
+	 * @return		位数
+	 */
+	private static int bitsFor(int index) {
+		return Math.max(1, 32 - Integer.numberOfLeadingZeros(index + 1));
+	}
+
+	/**
+	 * 返回给定历史的编号
+	 * @param history	隐藏状态索引
+	 * @param from		历史在数组中的起始位置
+	 * @param length	历史的长度
+	 * @return			编号，不存在时返回-1
+	 */
+	public int get(int[] history, int from, int length) {
+		if(length < 1 || length > maxLength)
+			return -1;
+
+		if(packed == null)
+			return unpacked.get(new HistoryKey(history, from, length));
+
+		long key = 0;
+		for(int p = from; p < from + length; p++) {
+			int state = history[p];
+			if(state < 0 || bitsFor(state) > bits)
+				return -1;
+
+			key = (key << bits) | (state + 1);
+		}
+
+		return packed.get(key);
+	}
+
+	/**
+	 * 增加一个历史，已存在时不重新分配编号
+	 * @param history	隐藏状态索引
+	 * @param from		历史在数组中的起始位置
+	 * @param length	历史的长度
+	 * @return			编号
+	 */
+	public int add(int[] history, int from, int length) {
+		if(length < 1)
+			throw new IllegalArgumentException("历史的长度应为正整数： length = " + length);
+
+		int width = bits;
+		for(int p = from; p < from + length; p++) {
+			if(history[p] < 0)
+				throw new IllegalArgumentException("隐藏状态索引不能为负数： " + history[p]);
+
+			width = Math.max(width, bitsFor(history[p]));
+		}
+
+		if(packed != null && (width > bits || length > maxLength))
+			repack(width, Math.max(length, maxLength));
+		else
+			maxLength = Math.max(length, maxLength);
+
+		int h = get(history, from, length);
+		if(h != -1)
+			return h;
+
+		h = size++;
+		if(size == offsets.length)
+			offsets = Arrays.copyOf(offsets, offsets.length << 1);
+		int start = offsets[h];
+		if(start + length > states.length)
+			states = Arrays.copyOf(states, Math.max(start + length, states.length << 1));
+		System.arraycopy(history, from, states, start, length);
+		offsets[h + 1] = start + length;
+
+		if(packed != null)
+			packed.put(pack(h), h);
+		else
+			unpacked.put(new HistoryKey(states, start, length), h);
+
+		return h;
+	}
+
+	/**
+	 * 以新的位数和最大长度重建打包键，位数不足以容纳时改用数组键
+	 * @param width		每个隐藏状态的位数
+	 * @param length	最长历史的长度
+	 */
+	private void repack(int width, int length) {
+		bits = width;
+		maxLength = length;
+		if((long) bits * maxLength <= 63) {
+			packed = new LongIntHashMap(size, -1);
+			for(int h = 0; h < size; h++)
+				packed.put(pack(h), h);
+		}else {
+			packed = null;
+			unpacked = new ObjectIntHashMap<>(size, -1);
+			for(int h = 0; h < size; h++)
+				unpacked.put(new HistoryKey(states, offsets[h], length(h)), h);
+		}
+	}
+
+	/**
+	 * 返回编号为h的历史的打包键
+	 * @param h	编号
+	 * @return	打包键
+	 */
+	private long pack(int h) {
+		long key = 0;
+		for(int p = offsets[h]; p < offsets[h + 1]; p++)
+			key = (key << bits) | (states[p] + 1);
+
+		return key;
+	}
+
+	/**
+	 * 返回历史的数量
+	 * @return	历史的数量
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * 返回编号为h的历史的长度
+	 * @param h	编号
+	 * @return	历史的长度
+	 */
+	public int length(int h) {
+		return offsets[h + 1] - offsets[h];
+	}
+
+	/**
+	 * 返回编号为h的历史中第position个隐藏状态的索引
+	 * @param h			编号
+	 * @param position	位置
+	 * @return			隐藏状态索引
+	 */
+	public int state(int h, int position) {
+		return states[offsets[h] + position];
+	}
+
+	/**
+	 * 返回编号为h的历史的隐藏状态索引
+	 * @param h	编号
+	 * @return	隐藏状态索引
+	 */
+	public int[] toArray(int h) {
+		return Arrays.copyOfRange(states, offsets[h], offsets[h + 1]);
+	}
+
+	/**
+	 * 返回去掉编号为h的历史的第一个隐藏状态后得到的历史的编号，即回退的上文
+	 * @param h	编号
+	 * @return	去掉第一个隐藏状态后的历史的编号，不存在或长度为1时返回-1
+	 */
+	public int suffix(int h) {
+		return get(states, offsets[h] + 1, length(h) - 1);
+	}
+
+	/**
+	 * 返回编号为h的历史中去掉最后一个隐藏状态后得到的历史的编号
+	 * @param h	编号
+	 * @return	去掉最后一个隐藏状态后的历史的编号，不存在或长度为1时返回-1
+	 */
+	public int prefix(int h) {
+		return get(states, offsets[h], length(h) - 1);
+	}
+
+	/**
+	 * 返回是否使用打包的long键
+	 * @return	true-打包键/false-数组键
+	 */
+	public boolean isPacked() {
+		return packed != null;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = 1;
+		for(int h = 0; h < size; h++) {
+			for(int p = offsets[h]; p < offsets[h + 1]; p++)
+				result = 31 * result + states[p];
+			result = 31 * result - 1;
+		}
+
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		StateHistoryIndex other = (StateHistoryIndex) obj;
+		if (size != other.size)
+			return false;
+		for(int h = 0; h < size; h++) {
+			if (!Arrays.equals(toArray(h), other.toArray(h)))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 *<ul>
+	 *<li>Description: 隐藏状态很多时使用的数组键，哈希值在构造时计算一次
+	 *</ul>
+	 */
+	private static final class HistoryKey implements Serializable {
+
+		private static final long serialVersionUID = 6064516312571983472L;
+
+		private final int[] states;
+
+		private final int from;
+
+		private final int length;
+
+		private final int hash;
+
+		HistoryKey(int[] states, int from, int length) {
+			this.states = states;
+			this.from = from;
+			this.length = length;
+
+			int result = 1;
+			for(int p = from; p < from + length; p++)
+				result = 31 * result + states[p];
+			hash = result;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof HistoryKey))
+				return false;
+			HistoryKey other = (HistoryKey) obj;
+			if (hash != other.hash || length != other.length)
+				return false;
+			for(int p = 0; p < length; p++) {
+				if (states[from + p] != other.states[other.from + p])
+					return false;
+			}
+			return true;
+		}
+	}
+}
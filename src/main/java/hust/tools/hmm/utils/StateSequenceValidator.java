@@ -19,4 +19,12 @@ public interface StateSequenceValidator {
 	 * @return						true-合法/false-不合法
 	 */
 	public boolean validStateSequence(int t, ObservationSequence observationSequence, StateSequence stateSequence,  State outcome);
+	
+	/**
+	 * 返回是否对任意隐藏状态序列都返回true，为true时解码器可以跳过验证，不必生成截至当前时刻的隐藏状态序列
+	 * @return	true-总是合法/false-需要逐个验证
+	 */
+	public default boolean alwaysValid() {
+		return false;
+	}
 }
@@ -0,0 +1,300 @@
+package hust.tools.hmm.utils;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ *<ul>
+ *<li>Description: 符号与索引的双向映射，Dictionary分别用于隐藏状态和观测状态
+ *<li>索引到符号为数组，符号到索引为基本类型值的哈希表，查询不产生临时对象
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月20日
+ *</ul>
+ */
+abstract class SymbolTable<T> implements Serializable {
+
+	private static final long serialVersionUID = 4520906817243713460L;
+
+	/**
+	 * 索引指向的符号，未使用的索引为null
+	 */
+	Object[] symbols = new Object[16];
+
+	/**
+	 * 下一个待分配的索引
+	 */
+	int next;
+
+	/**
+	 * 增加一个符号，已存在时不重新分配索引
+	 * @param symbol	符号
+	 * @return			符号的索引
+	 */
+	abstract int add(T symbol);
+
+	/**
+	 * 以给定索引增加或修改一个符号
+	 * @param symbol	符号
+	 * @param index		索引
+	 */
+	abstract void put(T symbol, int index);
+
+	/**
+	 * 返回符号的索引
+	 * @param symbol	符号
+	 * @return			索引，不存在时返回-1
+	 */
+	abstract int indexOf(Object symbol);
+
+	/**
+	 * 返回符号的数量
+	 * @return	符号的数量
+	 */
+	abstract int size();
+
+	/**
+	 * 返回索引指向的符号
+	 * @param index	索引
+	 * @return		符号，不存在时返回null
+	 */
+	@SuppressWarnings("unchecked")
+	T get(int index) {
+		Object[] symbols = this.symbols;
+		if(index < 0 || index >= symbols.length)
+			return null;
+
+		return (T) symbols[index];
+	}
+
+	/**
+	 * 按索引升序将另一个符号表的符号增加到当前符号表
+	 * @param other	另一个符号表
+	 * @return		另一个符号表的索引到当前符号表的索引的映射，未使用的索引映射为-1
+	 */
+	int[] merge(SymbolTable<T> other) {
+		int[] remap = new int[other.next];
+		for(int i = 0; i < remap.length; i++) {
+			T symbol = other.get(i);
+			remap[i] = symbol == null ? -1 : add(symbol);
+		}
+
+		return remap;
+	}
+
+	/**
+	 * 确保索引数组能容纳给定索引，不足时按2倍增长，扩容时替换整个数组
+	 * @param index	索引
+	 */
+	void ensureCapacity(int index) {
+		if(index < symbols.length)
+			return;
+
+		symbols = Arrays.copyOf(symbols, Math.max(index + 1, symbols.length << 1));
+	}
+
+	/**
+	 * 返回按索引升序排列的只读符号集合
+	 * @return	符号集合
+	 */
+	Set<T> symbols() {
+		return new AbstractSet<T>() {
+
+			@Override
+			public Iterator<T> iterator() {
+				return new Iterator<T>() {
+
+					private final int bound = next;
+
+					private int index = skip(0);
+
+					private int skip(int from) {
+						while(from < bound && get(from) == null)
+							from++;
+
+						return from;
+					}
+
+					@Override
+					public boolean hasNext() {
+						return index < bound;
+					}
+
+					@Override
+					public T next() {
+						if(index >= bound)
+							throw new NoSuchElementException();
+
+						T symbol = get(index);
+						index = skip(index + 1);
+
+						return symbol;
+					}
+				};
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				return indexOf(o) != -1;
+			}
+
+			@Override
+			public int size() {
+				return SymbolTable.this.size();
+			}
+		};
+	}
+
+	@Override
+	public int hashCode() {
+		int result = 0;
+		for(int i = 0; i < next; i++) {
+			Object symbol = get(i);
+			if(symbol != null && indexOf(symbol) == i)
+				result += symbol.hashCode() ^ i;
+		}
+
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof SymbolTable))
+			return false;
+		SymbolTable<?> other = (SymbolTable<?>) obj;
+		if (size() != other.size())
+			return false;
+		for(int i = 0; i < next; i++) {
+			Object symbol = get(i);
+			if(symbol != null && indexOf(symbol) == i && other.indexOf(symbol) != i)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 *<ul>
+	 *<li>Description: 单线程使用的符号表，符号到索引为ObjectIntHashMap
+	 *</ul>
+	 */
+	static final class ArrayTable<T> extends SymbolTable<T> {
+
+		private static final long serialVersionUID = -1420766216087284905L;
+
+		private final ObjectIntHashMap<T> indices = new ObjectIntHashMap<>();
+
+		@Override
+		int add(T symbol) {
+			int index = indices.get(symbol);
+			if(index == -1) {
+				index = next;
+				put(symbol, index);
+			}
+
+			return index;
+		}
+
+		@Override
+		void put(T symbol, int index) {
+			int previous = indices.put(symbol, index);
+			if(previous != -1 && previous != index && symbols[previous] == symbol)
+				symbols[previous] = null;
+
+			ensureCapacity(index);
+			symbols[index] = symbol;
+			next = Math.max(next, index + 1);
+		}
+
+		@Override
+		int indexOf(Object symbol) {
+			return indices.get(symbol);
+		}
+
+		@Override
+		int size() {
+			return indices.size();
+		}
+	}
+
+	/**
+	 *<ul>
+	 *<li>Description: 可被多个线程同时增加和查询的符号表
+	 *<li>查询不加锁，符号到索引为ConcurrentHashMap；增加时加锁，先写索引数组再发布到哈希表，
+	 *<li>因此由indexOf()得到的索引在get()中一定可见
+	 *</ul>
+	 */
+	static final class ConcurrentTable<T> extends SymbolTable<T> {
+
+		private static final long serialVersionUID = 2994283860271904672L;
+
+		private final ConcurrentHashMap<T, Integer> indices = new ConcurrentHashMap<>();
+
+		/**
+		 * 索引数组的可见性由该字段保证，扩容后的数组通过它发布
+		 */
+		private volatile Object[] published = symbols;
+
+		@Override
+		int add(T symbol) {
+			Integer index = indices.get(symbol);
+			if(index != null)
+				return index;
+
+			synchronized(this) {
+				index = indices.get(symbol);
+				if(index != null)
+					return index;
+
+				int value = next;
+				put(symbol, value);
+
+				return value;
+			}
+		}
+
+		@Override
+		synchronized void put(T symbol, int index) {
+			Integer previous = indices.get(symbol);
+			ensureCapacity(index);
+			if(previous != null && previous != index && symbols[previous] == symbol)
+				symbols[previous] = null;
+
+			symbols[index] = symbol;
+			next = Math.max(next, index + 1);
+			published = symbols;
+			indices.put(symbol, index);
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		T get(int index) {
+			Object[] symbols = published;
+			if(index < 0 || index >= symbols.length)
+				return null;
+
+			return (T) symbols[index];
+		}
+
+		@Override
+		int indexOf(Object symbol) {
+			if(symbol == null)
+				return -1;
+
+			Integer index = indices.get(symbol);
+
+			return index == null ? -1 : index;
+		}
+
+		@Override
+		int size() {
+			return indices.size();
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package hust.tools.hmm.io;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import hust.tools.hmm.learn.SupervisedWittenBellHMMTrainer;
+import hust.tools.hmm.model.HMModelBasedArray;
+import hust.tools.hmm.stream.HMMSampleFixture;
+import hust.tools.hmm.stream.SupervisedHMMSample;
+import hust.tools.hmm.utils.CommonUtils;
+import hust.tools.hmm.utils.StringObservation;
+import hust.tools.hmm.utils.StringState;
+
+/**
+ *<ul>
+ *<li>Description: 数组二进制模型格式读写的单元测试
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月16日
+ *</ul>
+ */
+public class ArrayFileHMMWriterTest {
+
+	private HMModelBasedArray model;
+	private File file;
+
+	@Before
+	public void setUp() throws Exception {
+		String[][] hs = new String[][]{
+			{"名词", "动词", "名词", "助词"},
+			{"动词", "名词", "名词"}};
+		String[][] os = new String[][]{
+			{"我", "爱", "北京", "的"},
+			{"去", "天安门", "广场"}};
+
+		List<SupervisedHMMSample> samples = HMMSampleFixture.samples(hs, os);
+
+		model = new SupervisedWittenBellHMMTrainer(samples, 1).trainBasedArray();
+		file = File.createTempFile("model", ".hmm");
+		file.deleteOnExit();
+	}
+
+	@Test
+	public void testDouble() throws Exception {
+		new ArrayFileHMMWriter(model, file).persist();
+		HMModelBasedArray actual = new ArrayFileHMMReader(file).readModel();
+
+		assertEquals(model.getDict(), actual.getDict());
+		assertEquals(model, actual);
+		assertEquals(model.emissionLogProb(new StringState("名词"), CommonUtils.UNKNOWN), actual.emissionLogProb(new StringState("名词"), new StringObservation("上海")), 0.0);
+	}
+
+	@Test
+	public void testFloat() throws Exception {
+		new ArrayFileHMMWriter(model, file, true).persist();
+		HMModelBasedArray actual = new ArrayFileHMMReader(file).readModel();
+
+		assertEquals(model.getDict(), actual.getDict());
+		for(int i = 0; i < model.statesCount(); i++) {
+			assertEquals(model.getLogPi(i), actual.getLogPi(i), 0.00001);
+			for(int j = 0; j < model.statesCount(); j++)
+				assertEquals(model.transitionLogProb(i, j), actual.transitionLogProb(i, j), 0.00001);
+			for(int k = 0; k < model.emissionColumns(); k++)
+				assertEquals(model.emissionLogProb(i, k), actual.emissionLogProb(i, k), 0.00001);
+		}
+	}
+}
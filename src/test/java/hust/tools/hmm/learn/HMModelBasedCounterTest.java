@@ -0,0 +1,160 @@
+package hust.tools.hmm.learn;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import hust.tools.hmm.model.HMModel;
+import hust.tools.hmm.model.HMModelBasedArray;
+import hust.tools.hmm.stream.HMMSampleFixture;
+import hust.tools.hmm.stream.SupervisedHMMSample;
+import hust.tools.hmm.utils.CommonUtils;
+
+/**
+ *<ul>
+ *<li>Description: 基于计数器的HMM模型单元测试
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月24日
+ *</ul>
+ */
+public class HMModelBasedCounterTest {
+
+	private List<SupervisedHMMSample> samples;
+
+	@Before
+	public void setUp() throws Exception {
+		samples = HMMSampleFixture.threeStateSamples();
+	}
+
+	//测试按需计算的概率与各训练器预先计算的概率相同
+	@Test
+	public void testSameAsTrainers() throws IOException {
+		for(int order = 1; order <= 3; order++) {
+			TransitionAndEmissionCounter counter = new TransitionAndEmissionCounter(samples, order);
+			assertSameModel(new SupervisedMLHMMTrainer(samples, order).train(), new HMModelBasedCounter(counter, new MLSmoothingStrategy()));
+			assertSameModel(new SupervisedAdditionHMMTrainer(samples, order, 0.5).train(), new HMModelBasedCounter(counter, new AdditionSmoothingStrategy(0.5)));
+			assertSameModel(new SupervisedWittenBellHMMTrainer(samples, order).train(), new HMModelBasedCounter(counter, new WittenBellSmoothingStrategy()));
+
+			SupervisedInterpolationHMMTrainer trainer = new SupervisedInterpolationHMMTrainer(new ArrayList<>(samples), 0.25, order);
+			HMModelBasedCounter model = new HMModelBasedCounter(trainer.getCounter(), new InterpolationSmoothingStrategy(trainer.getLamdas()));
+			assertSameModel(trainer.train(), model);
+		}
+	}
+
+	//测试同一个计数器可以用不同的平滑值创建模型
+	@Test
+	public void testSweepDelta() throws IOException {
+		TransitionAndEmissionCounter counter = new TransitionAndEmissionCounter(samples, 2);
+		for(double delta = 0.1; delta < 2; delta += 0.3)
+			assertSameModel(new SupervisedAdditionHMMTrainer(samples, 2, delta).train(), new HMModelBasedCounter(counter, new AdditionSmoothingStrategy(delta)));
+	}
+
+	//测试缓存的转移概率行数不超过上限
+	@Test
+	public void testCacheBounded() {
+		TransitionAndEmissionCounter counter = new TransitionAndEmissionCounter(samples, 2);
+		HMModelBasedCounter model = new HMModelBasedCounter(counter, new AdditionSmoothingStrategy(), 2);
+		int N = model.statesCount();
+		for(int i = 0; i < N; i++) {
+			for(int j = 0; j < N; j++)
+				model.transitionLogProb(new int[]{i, j}, 0);
+		}
+		assertEquals(2, model.cacheSize());
+
+		double logProb = model.transitionLogProb(new int[]{0, 1}, 2);
+		model.clearCache();
+		assertEquals(0, model.cacheSize());
+		assertEquals(logProb, model.transitionLogProb(new int[]{0, 1}, 2), 0);
+
+		HMModelBasedCounter uncached = new HMModelBasedCounter(counter, new AdditionSmoothingStrategy(), 0);
+		assertEquals(logProb, uncached.transitionLogProb(new int[]{0, 1}, 2), 0);
+		assertEquals(0, uncached.cacheSize());
+	}
+
+	//测试冻结后的模型与训练器得到的模型相同
+	@Test
+	public void testFreeze() throws IOException {
+		TransitionAndEmissionCounter counter = new TransitionAndEmissionCounter(samples, 1);
+		HMModel frozen = new HMModelBasedCounter(counter, new WittenBellSmoothingStrategy()).freeze();
+		assertTrue(frozen instanceof HMModelBasedArray);
+		assertEquals(new SupervisedWittenBellHMMTrainer(samples, 1).trainBasedArray(), frozen);
+
+		counter = new TransitionAndEmissionCounter(samples, 2);
+		frozen = new HMModelBasedCounter(counter, new AdditionSmoothingStrategy()).freeze();
+		assertEquals(new SupervisedAdditionHMMTrainer(samples, 2).train(), frozen);
+	}
+
+	//测试多个线程共享缓存时得到的转移概率与不缓存时相同
+	@Test
+	public void testConcurrentCache() throws Exception {
+		TransitionAndEmissionCounter counter = new TransitionAndEmissionCounter(samples, 3);
+		final HMModelBasedCounter uncached = new HMModelBasedCounter(counter, new WittenBellSmoothingStrategy(), 0);
+		final HMModelBasedCounter model = new HMModelBasedCounter(counter, new WittenBellSmoothingStrategy(), 5);
+		final int N = model.statesCount();
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<Boolean>> futures = new ArrayList<>();
+		for(int n = 0; n < 8; n++) {
+			futures.add(executor.submit(new Callable<Boolean>() {
+				@Override
+				public Boolean call() {
+					int[] start = new int[3];
+					do {
+						for(int j = 0; j < N; j++) {
+							if(uncached.transitionLogProb(start, j) != model.transitionLogProb(start, j))
+								return false;
+						}
+					}while(AbstractSupervisedHMMTrainer.nextHistory(start, N));
+
+					return true;
+				}
+			}));
+		}
+
+		for(Future<Boolean> future : futures)
+			assertTrue(future.get());
+		executor.shutdown();
+		assertTrue(model.cacheSize() <= 5);
+	}
+
+	//测试序列化被明确拒绝
+	@Test(expected = NotSerializableException.class)
+	public void testSerialization() throws IOException {
+		TransitionAndEmissionCounter counter = new TransitionAndEmissionCounter(samples, 1);
+		ObjectOutputStream out = new ObjectOutputStream(new ByteArrayOutputStream());
+		out.writeObject(new HMModelBasedCounter(counter, new AdditionSmoothingStrategy()));
+	}
+
+	private void assertSameModel(HMModel expected, HMModelBasedCounter actual) {
+		int N = expected.statesCount();
+		int M = expected.observationsCount();
+		assertEquals(N, actual.statesCount());
+		for(int i = 0; i < N; i++) {
+			assertEquals(expected.getLogPi(i), actual.getLogPi(i), 1e-12);
+			for(int k = 0; k < M; k++)
+				assertEquals(expected.emissionLogProb(i, k), actual.emissionLogProb(i, k), 1e-12);
+			assertEquals(expected.emissionLogProb(expected.getState(i), CommonUtils.UNKNOWN), actual.emissionLogProb(i, -1), 1e-12);
+		}
+
+		for(int length = 1; length <= expected.getOrder(); length++) {
+			int[] start = new int[length];
+			do {
+				for(int j = 0; j < N; j++)
+					assertEquals(expected.transitionLogProb(start, j), actual.transitionLogProb(start, j), 1e-12);
+			}while(AbstractSupervisedHMMTrainer.nextHistory(start, N));
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package hust.tools.hmm.learn;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import hust.tools.hmm.model.HMModel;
+import hust.tools.hmm.stream.HMMSampleFixture;
+import hust.tools.hmm.stream.SupervisedHMMSample;
+import hust.tools.hmm.stream.UnSupervisedHMMSample;
+import hust.tools.hmm.utils.ObservationSequence;
+
+/**
+ *<ul>
+ *<li>Description: 基于E步对数似然度的收敛判断的单元测试
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月15日
+ *</ul>
+ */
+public class LikelihoodConvergencyJudgeTest {
+
+	private HMModel initModel;
+	private List<UnSupervisedHMMSample> trainSamples;
+	private List<ObservationSequence> empty = Collections.emptyList();
+
+	@Before
+	public void setUp() throws Exception {
+		List<SupervisedHMMSample> samples = HMMSampleFixture.samples().subList(0, 2);
+		trainSamples = HMMSampleFixture.unSupervised(samples);
+
+		initModel = new SupervisedAdditionHMMTrainer(samples, 1, 1.0).train();
+	}
+
+	@Test
+	public void testRelativeImprovement() {
+		LikelihoodConvergencyJudge judge = new LikelihoodConvergencyJudge(0.01, 100);
+
+		assertFalse(judge.isConvergency(initModel, initModel, empty, -100.0, 1));
+		assertTrue(Double.isNaN(judge.getImprovement()));
+		assertFalse(judge.isConvergency(initModel, initModel, empty, -90.0, 2));
+		assertEquals(0.1, judge.getImprovement(), 0.000000000001);
+		assertTrue(judge.isConvergency(initModel, initModel, empty, -89.99, 3));
+		assertEquals(-89.99, judge.getLogLikelihood(), 0.0);
+		assertEquals(0.0, judge.getMaxDelta(), 0.0);
+		assertEquals(0.0, judge.getMeanDelta(), 0.0);
+	}
+
+	@Test
+	public void testMaxIteration() {
+		LikelihoodConvergencyJudge judge = new LikelihoodConvergencyJudge(0.0, 2);
+
+		assertFalse(judge.isConvergency(initModel, initModel, empty, -100.0, 1));
+		assertTrue(judge.isConvergency(initModel, initModel, empty, -50.0, 2));
+	}
+
+	//测试Baum-Welch训练器把E步的对数似然度交给收敛判断
+	@Test
+	public void testBaumWelch() throws Exception {
+		LikelihoodConvergencyJudge judge = new LikelihoodConvergencyJudge(0.000001, 50);
+		UnSupervisedBaumWelchHMMTrainer trainer = new UnSupervisedBaumWelchHMMTrainer(initModel, trainSamples, judge);
+		trainer.train();
+
+		List<Double> logLikelihoods = trainer.getLogLikelihoods();
+		assertEquals(logLikelihoods.get(logLikelihoods.size() - 1), judge.getLogLikelihood(), 0.0);
+		for(int i = 1; i < logLikelihoods.size(); i++)
+			assertTrue(logLikelihoods.get(i) >= logLikelihoods.get(i - 1) - 0.000000001);
+		assertTrue(judge.getMaxDelta() > 0.0);
+		assertTrue(judge.getMeanDelta() <= judge.getMaxDelta());
+	}
+}
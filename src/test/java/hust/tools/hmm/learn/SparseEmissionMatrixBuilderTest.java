@@ -0,0 +1,83 @@
+package hust.tools.hmm.learn;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import hust.tools.hmm.model.HMModel;
+import hust.tools.hmm.model.HMModelBasedSparse;
+import hust.tools.hmm.model.SparseEmissionMatrix;
+import hust.tools.hmm.stream.HMMSampleFixture;
+import hust.tools.hmm.stream.SupervisedHMMSample;
+
+/**
+ *<ul>
+ *<li>Description: 由计数器构造稀疏发射矩阵的单元测试
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月25日
+ *</ul>
+ */
+public class SparseEmissionMatrixBuilderTest {
+
+	private List<SupervisedHMMSample> samples;
+
+	private TransitionAndEmissionCounter counter;
+
+	@Before
+	public void setUp() throws Exception {
+		samples = HMMSampleFixture.threeStateSamples();
+		counter = new TransitionAndEmissionCounter(samples, 1);
+	}
+
+	//测试由计数构造的稀疏模型与压缩训练器得到的模型的概率相同
+	@Test
+	public void testSameAsTrainers() throws Exception {
+		SparseEmissionMatrixBuilder builder = new SparseEmissionMatrixBuilder(counter);
+		assertSameModel(new SupervisedMLHMMTrainer(samples, 1).train(), builder.buildModel(new MLSmoothingStrategy()));
+		assertSameModel(new SupervisedAdditionHMMTrainer(samples, 1, 0.5).train(), builder.buildModel(new AdditionSmoothingStrategy(0.5)));
+		assertSameModel(new SupervisedWittenBellHMMTrainer(samples, 1).train(), builder.buildModel(new WittenBellSmoothingStrategy()));
+	}
+
+	//测试给定底值时发射过的观测取最大似然概率，且只保存发射过的观测
+	@Test
+	public void testFloor() {
+		double logFloor = -8;
+		SparseEmissionMatrix matrix = new SparseEmissionMatrixBuilder(counter).build(logFloor);
+		int N = counter.getDictionary().stateCount();
+		int M = matrix.columnCount();
+
+		int size = 0;
+		for(int i = 0; i < N; i++) {
+			size += counter.getEmissionTypeCount(i);
+			assertEquals(logFloor, matrix.floor(i), 0);
+			for(int k = 0; k < M; k++) {
+				int C = counter.getEmissionCount(i, k);
+				double expected = C == 0 ? logFloor : Math.log10(1.0 * C / counter.getEmissionStateCount(i));
+				assertEquals(expected, matrix.get(i, k), 0);
+			}
+		}
+		assertEquals(size, matrix.size());
+	}
+
+	/**
+	 * 比较两个1阶模型的参数，发射概率包含未登录观测；两者的底值选取方式不同，只比较概率，不比较保存的发射数量
+	 * @param expected	训练器得到的模型
+	 * @param actual	由计数构造的稀疏模型
+	 */
+	private static void assertSameModel(HMModel expected, HMModelBasedSparse actual) {
+		HMModelBasedSparse sparse = new HMModelBasedSparse(expected);
+		int N = actual.statesCount();
+		int M = actual.emissionColumns();
+		for(int i = 0; i < N; i++) {
+			assertEquals(expected.getLogPi(i), actual.getLogPi(i), 0.000000000001);
+			for(int j = 0; j < N; j++)
+				assertEquals(expected.transitionLogProb(new int[]{i}, j), actual.transitionLogProb(i, j), 0.000000000001);
+			for(int k = 0; k < M; k++)
+				assertEquals(sparse.emissionLogProb(i, k), actual.emissionLogProb(i, k), 0.000000000001);
+		}
+	}
+}
@@ -2,8 +2,12 @@ package hust.tools.hmm.learn;
 
 import static org.junit.Assert.*;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -11,7 +15,10 @@ import org.junit.Test;
 import hust.tools.hmm.learn.TransitionAndEmissionCounter;
 import hust.tools.hmm.utils.StringObservation;
 import hust.tools.hmm.utils.StringState;
+import hust.tools.hmm.stream.AbstractHMMSample;
 import hust.tools.hmm.stream.SupervisedHMMSample;
+import hust.tools.hmm.stream.SupervisedHMMSampleStream;
+import hust.tools.hmm.utils.Dictionary;
 import hust.tools.hmm.utils.Observation;
 import hust.tools.hmm.utils.ObservationSequence;
 import hust.tools.hmm.utils.State;
@@ -100,6 +107,28 @@ public class TransitionAndEmissionCounterTest {
 		assertEquals(0, counter.getTransitionCount(new StateSequence(states36), target));
 	}
 
+	//测试以隐藏状态索引表示起点的转移计数
+	@Test
+	public void testGetTransitionCountsByIndex() {
+		Dictionary dict = counter.getDictionary();
+		int[] start = {dict.getIndex(states23[0]), dict.getIndex(states23[1])};
+		int target = dict.getIndex(new StringState("4"));
+		int[] counts = new int[dict.stateCount()];
+		
+		assertEquals(1, counter.getTransitionCount(start, 0, 2, target));
+		assertEquals(1, counter.getTransitionStartCount(start, 0, 2));
+		assertEquals(1, counter.getTransitionCounts(start, 0, 2, counts));
+		assertEquals(1, counts[target]);
+		
+		assertEquals(2, counter.getTransitionCounts(start, 1, 1, counts));
+		assertEquals(1, counts[target]);
+		assertEquals(1, counts[dict.getIndex(new StringState("5"))]);
+		
+		int[] unseen = {dict.getIndex(states89[1]), dict.getIndex(states89[0])};
+		assertEquals(0, counter.getTransitionCounts(unseen, 0, 2, counts));
+		assertEquals(0, counts[target]);
+	}
+
 	//测试发射计数
 	@Test
 	public void testGetEmissionCount() {
@@ -131,4 +160,97 @@ public class TransitionAndEmissionCounterTest {
 		assertTrue(1 == counter.getStartStateCount(new StringState("0")));
 		assertTrue(3 == counter.getTotalStartStatesCount());
 	}
+
+	//测试合并两个计数器与一次统计全部样本的计数相同
+	@Test
+	public void testMerge() {
+		TransitionAndEmissionCounter merged = new TransitionAndEmissionCounter(samples.subList(0, 1), order);
+		merged.merge(new TransitionAndEmissionCounter(samples.subList(1, samples.size()), order));
+		
+		assertSameCounts(counter, merged);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testMergeDifferentOrder() {
+		counter.merge(new TransitionAndEmissionCounter(samples, 1));
+	}
+	
+	//测试多线程分片计数与单线程计数相同，字典索引也相同
+	@Test
+	public void testParallelCounting() throws IOException {
+		List<SupervisedHMMSample> corpus = randomCorpus();
+		TransitionAndEmissionCounter expected = new TransitionAndEmissionCounter(corpus, 2);
+		assertSameCounts(expected, new TransitionAndEmissionCounter(corpus, 2, 3));
+		assertSameCounts(expected, new TransitionAndEmissionCounter(new SupervisedHMMSampleStream<AbstractHMMSample>(new UnSupervisedBaumWelchHMMTrainerTest.ListSampleStream(corpus)) {
+			@Override
+			public AbstractHMMSample read() throws IOException {
+				return samples.read();
+			}
+		}, 2, 2));
+	}
+	
+	//测试使用并行计数的计数器训练得到的模型与单线程训练相同
+	@Test
+	public void testParallelTraining() throws IOException {
+		List<SupervisedHMMSample> corpus = randomCorpus();
+		
+		assertEquals(new SupervisedWittenBellHMMTrainer(corpus, 2).train(), new SupervisedWittenBellHMMTrainer(new TransitionAndEmissionCounter(corpus, 2, 3)).train());
+		assertEquals(new SupervisedAdditionHMMTrainer(corpus, 1, 0.5).train(), new SupervisedAdditionHMMTrainer(new TransitionAndEmissionCounter(corpus, 1, 3), 0.5).train());
+	}
+	
+	/**
+	 * 生成10000个随机样本，后一半样本出现新的隐藏状态和观测
+	 */
+	private static List<SupervisedHMMSample> randomCorpus() {
+		Random random = new Random(7);
+		List<SupervisedHMMSample> corpus = new ArrayList<>();
+		for(int n = 0; n < 10000; n++) {
+			int length = 1 + random.nextInt(8);
+			State[] states = new StringState[length];
+			Observation[] observations = new StringObservation[length];
+			for(int t = 0; t < length; t++) {
+				states[t] = new StringState("s" + random.nextInt(n < 5000 ? 6 : 12));
+				observations[t] = new StringObservation("o" + random.nextInt(n < 5000 ? 300 : 3000));
+			}
+			corpus.add(new SupervisedHMMSample(new StateSequence(states), new ObservationSequence(observations)));
+		}
+		
+		return corpus;
+	}
+	
+	private static void assertSameCounts(TransitionAndEmissionCounter expected, TransitionAndEmissionCounter actual) {
+		assertEquals(expected.getDictionary(), actual.getDictionary());
+		for(int i = 0; i < expected.getDictionary().stateCount(); i++)
+			assertEquals(expected.getDictionary().getState(i), actual.getDictionary().getState(i));
+		for(int k = 0; k < expected.getDictionary().observationCount(); k++)
+			assertEquals(expected.getDictionary().getObservation(k), actual.getDictionary().getObservation(k));
+		
+		assertEquals(expected.getTotalStatesCount(), actual.getTotalStatesCount());
+		assertEquals(expected.getTotalStartStatesCount(), actual.getTotalStartStatesCount());
+		for(int n = 1; n <= expected.getOrder(); n++)
+			assertEquals(expected.getTransitionTypeCountByOrder(n), actual.getTransitionTypeCountByOrder(n));
+		
+		assertEquals(expected.getTransitionCount().size(), actual.getTransitionCount().size());
+		Iterator<StateSequence> starts = expected.transitionIterator();
+		while(starts.hasNext()) {
+			StateSequence start = starts.next();
+			assertEquals(expected.getTransitionStartCount(start), actual.getTransitionStartCount(start));
+			assertEquals(expected.getTransitionSuffixCount(start), actual.getTransitionSuffixCount(start));
+			Iterator<Entry<State, Integer>> targets = expected.transitionTargetCountIterator(start);
+			while(targets.hasNext()) {
+				Entry<State, Integer> target = targets.next();
+				assertEquals(target.getValue().intValue(), actual.getTransitionCount(start, target.getKey()));
+			}
+		}
+		
+		for(State state : expected.getDictionary().getStates()) {
+			assertEquals(expected.getStartStateCount(state), actual.getStartStateCount(state));
+			assertEquals(expected.getEmissionStateCount(state), actual.getEmissionStateCount(state));
+			Iterator<Observation> observations = expected.iterator(state);
+			while(observations.hasNext()) {
+				Observation observation = observations.next();
+				assertEquals(expected.getEmissionCount(state, observation), actual.getEmissionCount(state, observation));
+			}
+		}
+	}
 }
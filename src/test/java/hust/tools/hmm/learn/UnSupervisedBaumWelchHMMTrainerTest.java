@@ -0,0 +1,246 @@
+package hust.tools.hmm.learn;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import hust.tools.hmm.model.HMModel;
+import hust.tools.hmm.model.HMModelBasedArray;
+import hust.tools.hmm.stream.AbstractHMMSample;
+import hust.tools.hmm.stream.HMMSampleFixture;
+import hust.tools.hmm.stream.ObjectStream;
+import hust.tools.hmm.stream.SupervisedHMMSample;
+import hust.tools.hmm.stream.UnSupervisedHMMSample;
+import hust.tools.hmm.stream.UnSupervisedHMMSampleStream;
+import hust.tools.hmm.utils.EncodedCorpus;
+import hust.tools.hmm.utils.ObservationSequence;
+
+/**
+ *<ul>
+ *<li>Description: Baum-Welch非监督训练器单元测试
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月11日
+ *</ul>
+ */
+public class UnSupervisedBaumWelchHMMTrainerTest {
+
+	private HMModel initModel;
+	private List<UnSupervisedHMMSample> trainSamples;
+
+	/**
+	 * 迭代固定次数后结束
+	 */
+	static class IterationJudge implements ConvergencyJudge {
+
+		private int iterations;
+
+		IterationJudge(int iterations) {
+			this.iterations = iterations;
+		}
+
+		@Override
+		public boolean isConvergency(HMModel preModel, HMModel currentModel, List<ObservationSequence> trainSequences, int iteration) {
+			return iteration >= iterations;
+		}
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		List<SupervisedHMMSample> samples = HMMSampleFixture.samples();
+		trainSamples = HMMSampleFixture.unSupervised(samples);
+
+		initModel = new SupervisedAdditionHMMTrainer(samples, 1, 1.0).train();
+	}
+
+	//测试多线程训练与单线程训练的结果一致
+	@Test
+	public void testParallelExpectation() throws Exception {
+		HMModel sequential = train(initModel, 1);
+		HMModel parallel = train(initModel, 3);
+
+		int N = sequential.statesCount();
+		int M = sequential.observationsCount();
+		double piSum = 0.0;
+		for(int i = 0; i < N; i++) {
+			piSum += Math.pow(10, sequential.getLogPi(i));
+			assertEquals(sequential.getLogPi(i), parallel.getLogPi(i), 0.000000000001);
+
+			for(int j = 0; j < N; j++)
+				assertEquals(sequential.transitionLogProb(new int[]{i}, j), parallel.transitionLogProb(new int[]{i}, j), 0.000000000001);
+
+			for(int k = 0; k < M; k++)
+				assertEquals(sequential.emissionLogProb(i, k), parallel.emissionLogProb(i, k), 0.000000000001);
+		}
+
+		//初始概率平滑为0.001 + 0.999 * p
+		assertEquals(0.001 * N + 0.999, piSum, 0.000000000001);
+	}
+
+	//测试每个隐藏状态的发射概率按该状态的期望次数归一化
+	@Test
+	public void testEmissionNormalization() throws Exception {
+		HMModel model = train(initModel, 1);
+		int N = model.statesCount();
+		int M = model.observationsCount();
+
+		for(int i = 0; i < N; i++) {
+			double sum = 0.0;
+			for(int k = 0; k < M; k++)
+				sum += Math.pow(10, model.emissionLogProb(i, k));
+
+			assertEquals(0.001 * M + 0.999, sum, 0.000000000001);
+		}
+	}
+
+	//测试流式训练与内存中训练的结果一致，且每次迭代都重置了样本流
+	@Test
+	public void testStreaming() throws Exception {
+		HMModel expected = train(initModel, 1);
+		
+		for(int threads = 1; threads <= 2; threads++) {
+			ListSampleStream stream = new ListSampleStream(trainSamples);
+			UnSupervisedBaumWelchHMMTrainer trainer = new UnSupervisedBaumWelchHMMTrainer(initModel, new UnSupervisedHMMSampleStream<AbstractHMMSample>(stream) {
+				@Override
+				public AbstractHMMSample read() throws IOException {
+					return samples.read();
+				}
+			}, new IterationJudge(3), true);
+			trainer.setThreads(threads);
+			HMModel model = trainer.train();
+			
+			assertEquals(3, stream.resets);
+			assertTrue(stream.closed);
+			for(int i = 0; i < model.statesCount(); i++) {
+				assertEquals(expected.getLogPi(i), model.getLogPi(i), 0.000000000001);
+				for(int j = 0; j < model.statesCount(); j++)
+					assertEquals(expected.transitionLogProb(new int[]{i}, j), model.transitionLogProb(new int[]{i}, j), 0.000000000001);
+				for(int k = 0; k < model.observationsCount(); k++)
+					assertEquals(expected.emissionLogProb(i, k), model.emissionLogProb(i, k), 0.000000000001);
+			}
+		}
+	}
+
+	//测试直接使用编码语料训练与使用观测序列训练的结果一致
+	@Test
+	public void testEncodedCorpus() throws Exception {
+		HMModel expected = train(initModel, 1);
+		
+		List<ObservationSequence> sequences = new ArrayList<>();
+		for(UnSupervisedHMMSample sample : trainSamples)
+			sequences.add(sample.getObservationSequence());
+		EncodedCorpus corpus = EncodedCorpus.encode(initModel.getDict(), sequences);
+		HMModel model = new UnSupervisedBaumWelchHMMTrainer(initModel, corpus, new IterationJudge(3)).train();
+		
+		assertEquals(expected, model);
+	}
+
+	//测试检查点的写出，以及从检查点恢复后继续训练与不间断训练的结果一致
+	@Test
+	public void testCheckpointAndResume() throws Exception {
+		File file = File.createTempFile("checkpoint", ".bin");
+		file.deleteOnExit();
+		
+		UnSupervisedBaumWelchHMMTrainer trainer = new UnSupervisedBaumWelchHMMTrainer(initModel, trainSamples, new IterationJudge(2));
+		trainer.setCheckpoint(file, 1);
+		HMModel model = trainer.train();
+		
+		BaumWelchCheckpoint checkpoint = BaumWelchCheckpoint.read(file);
+		assertEquals(2, checkpoint.getIteration());
+		assertEquals(2, checkpoint.getLogLikelihoods().length);
+		assertEquals(trainer.getLogLikelihoods().get(1), checkpoint.getLogLikelihoods()[1], 0.0);
+		assertTrue(checkpoint.getLogLikelihoods()[1] > checkpoint.getLogLikelihoods()[0]);
+		assertEquals(new HMModelBasedArray(model), checkpoint.getModel());
+		assertFalse(new File(file.getPath() + ".tmp").exists());
+		
+		HMModel expected = train(initModel, 1);
+		UnSupervisedBaumWelchHMMTrainer resumed = new UnSupervisedBaumWelchHMMTrainer(initModel, trainSamples, new IterationJudge(3));
+		resumed.resume(file);
+		HMModel actual = resumed.train();
+		assertEquals(3, resumed.getLogLikelihoods().size());
+		for(int i = 0; i < actual.statesCount(); i++) {
+			assertEquals(expected.getLogPi(i), actual.getLogPi(i), 0.000000000001);
+			for(int j = 0; j < actual.statesCount(); j++)
+				assertEquals(expected.transitionLogProb(new int[]{i}, j), actual.transitionLogProb(new int[]{i}, j), 0.000000000001);
+			for(int k = 0; k < actual.observationsCount(); k++)
+				assertEquals(expected.emissionLogProb(i, k), actual.emissionLogProb(i, k), 0.000000000001);
+		}
+	}
+
+	//测试从已收敛的检查点恢复后，第一次迭代即判断收敛
+	@Test
+	public void testResumeConverged() throws Exception {
+		File file = File.createTempFile("checkpoint", ".bin");
+		file.deleteOnExit();
+		
+		UnSupervisedBaumWelchHMMTrainer trainer = new UnSupervisedBaumWelchHMMTrainer(initModel, trainSamples, new LikelihoodConvergencyJudge(0.001, 100));
+		trainer.setCheckpoint(file, 1);
+		trainer.train();
+		int iterations = trainer.getLogLikelihoods().size();
+		assertTrue(iterations > 1 && iterations < 100);
+		
+		LikelihoodConvergencyJudge judge = new LikelihoodConvergencyJudge(0.001, 100);
+		UnSupervisedBaumWelchHMMTrainer resumed = new UnSupervisedBaumWelchHMMTrainer(initModel, trainSamples, judge);
+		resumed.resume(file);
+		resumed.train();
+		assertEquals(iterations + 1, resumed.getLogLikelihoods().size());
+		assertFalse(Double.isNaN(judge.getImprovement()));
+	}
+	
+	//测试检查点写出失败时训练抛出异常
+	@Test(expected = UncheckedIOException.class)
+	public void testCheckpointFailure() throws Exception {
+		File parent = File.createTempFile("checkpoint", ".bin");
+		parent.deleteOnExit();
+		File file = new File(parent, "checkpoint.bin");
+		
+		UnSupervisedBaumWelchHMMTrainer trainer = new UnSupervisedBaumWelchHMMTrainer(initModel, trainSamples, new IterationJudge(3));
+		trainer.setCheckpoint(file, 1);
+		trainer.train();
+	}
+	
+	/**
+	 * 基于列表的可重置样本流
+	 */
+	static class ListSampleStream implements ObjectStream<AbstractHMMSample> {
+
+		private List<? extends AbstractHMMSample> samples;
+		private int index;
+		private int resets;
+		private boolean closed;
+
+		ListSampleStream(List<? extends AbstractHMMSample> samples) {
+			this.samples = samples;
+		}
+
+		@Override
+		public AbstractHMMSample read() {
+			return index < samples.size() ? samples.get(index++) : null;
+		}
+
+		@Override
+		public void reset() {
+			index = 0;
+			resets++;
+		}
+
+		@Override
+		public void close() {
+			closed = true;
+		}
+	}
+
+	private HMModel train(HMModel initModel, int threads) throws Exception {
+		UnSupervisedBaumWelchHMMTrainer trainer = new UnSupervisedBaumWelchHMMTrainer(initModel, trainSamples, new IterationJudge(3));
+		trainer.setThreads(threads);
+
+		return trainer.train();
+	}
+}
@@ -0,0 +1,86 @@
+package hust.tools.hmm.learn;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import hust.tools.hmm.learn.UnSupervisedBaumWelchHMMTrainerTest.IterationJudge;
+import hust.tools.hmm.learn.UnSupervisedBaumWelchHMMTrainerTest.ListSampleStream;
+import hust.tools.hmm.model.HMModel;
+import hust.tools.hmm.model.ScaledForwardBackwardAlgorithm;
+import hust.tools.hmm.stream.AbstractHMMSample;
+import hust.tools.hmm.stream.HMMSampleFixture;
+import hust.tools.hmm.stream.SupervisedHMMSample;
+import hust.tools.hmm.stream.UnSupervisedHMMSample;
+import hust.tools.hmm.stream.UnSupervisedHMMSampleStream;
+
+/**
+ *<ul>
+ *<li>Description: 在线EM非监督训练器单元测试
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月13日
+ *</ul>
+ */
+public class UnSupervisedStepwiseEMHMMTrainerTest {
+
+	private HMModel initModel;
+	private List<UnSupervisedHMMSample> trainSamples;
+
+	@Before
+	public void setUp() throws Exception {
+		List<SupervisedHMMSample> samples = HMMSampleFixture.samples();
+		trainSamples = HMMSampleFixture.unSupervised(samples);
+
+		initModel = new SupervisedAdditionHMMTrainer(samples, 1, 1.0).train();
+	}
+
+	//测试整个语料为一批时，一遍在线EM与一次Baum-Welch迭代的结果一致
+	@Test
+	public void testSingleBatch() throws Exception {
+		HMModel expected = new UnSupervisedBaumWelchHMMTrainer(initModel, trainSamples, new IterationJudge(1)).train();
+		UnSupervisedStepwiseEMHMMTrainer trainer = new UnSupervisedStepwiseEMHMMTrainer(initModel, stream(), new IterationJudge(1));
+		trainer.setBatchSize(trainSamples.size());
+		HMModel model = trainer.train();
+
+		for(int i = 0; i < model.statesCount(); i++) {
+			assertEquals(expected.getLogPi(i), model.getLogPi(i), 0.000000000001);
+			for(int j = 0; j < model.statesCount(); j++)
+				assertEquals(expected.transitionLogProb(new int[]{i}, j), model.transitionLogProb(new int[]{i}, j), 0.000000000001);
+			for(int k = 0; k < model.observationsCount(); k++)
+				assertEquals(expected.emissionLogProb(i, k), model.emissionLogProb(i, k), 0.000000000001);
+		}
+	}
+
+	//测试每个序列更新一次参数时，训练语料的似然度提高
+	@Test
+	public void testLikelihoodImproves() throws Exception {
+		UnSupervisedStepwiseEMHMMTrainer trainer = new UnSupervisedStepwiseEMHMMTrainer(initModel, stream(), new IterationJudge(2));
+		trainer.setBatchSize(1);
+		HMModel model = trainer.train();
+
+		assertTrue(logLikelihood(model) > logLikelihood(initModel));
+	}
+
+	private double logLikelihood(HMModel model) {
+		ScaledForwardBackwardAlgorithm algorithm = new ScaledForwardBackwardAlgorithm(model);
+		double logProb = 0.0;
+		for(UnSupervisedHMMSample sample : trainSamples)
+			logProb += algorithm.logLikelihood(sample.getObservationSequence());
+
+		return logProb;
+	}
+
+	private UnSupervisedHMMSampleStream<AbstractHMMSample> stream() {
+		return new UnSupervisedHMMSampleStream<AbstractHMMSample>(new ListSampleStream(trainSamples)) {
+			@Override
+			public AbstractHMMSample read() throws IOException {
+				return samples.read();
+			}
+		};
+	}
+}
@@ -0,0 +1,119 @@
+package hust.tools.hmm.model;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import hust.tools.hmm.learn.SupervisedAdditionHMMTrainer;
+import hust.tools.hmm.learn.SupervisedMLHMMTrainer;
+import hust.tools.hmm.stream.HMMSampleFixture;
+import hust.tools.hmm.stream.SupervisedHMMSample;
+import hust.tools.hmm.utils.Observation;
+import hust.tools.hmm.utils.ObservationSequence;
+import hust.tools.hmm.utils.StateSequence;
+import hust.tools.hmm.utils.StringObservation;
+import hust.tools.hmm.utils.StringState;
+
+/**
+ *<ul>
+ *<li>Description: 观测到候选隐藏状态的倒排索引以及剪枝维特比解码的单元测试
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月18日
+ *</ul>
+ */
+public class CandidateStateIndexTest {
+
+	private List<SupervisedHMMSample> samples;
+	private List<ObservationSequence> sequences;
+
+	@Before
+	public void setUp() throws Exception {
+		samples = HMMSampleFixture.samples();
+
+		sequences = new ArrayList<>();
+		String[][] tests = new String[][]{
+			{"1", "2", "3", "4", "3", "2", "4", "5", "1", "0", "3"},
+			{"5"},
+			{"0"},
+			{"5", "2", "1", "4"},
+			{"3", "3", "4", "5", "2", "2", "1", "3", "5", "2", "2", "4", "1", "5", "3"}};
+		for(String[] o : tests) {
+			Observation[] observations = new StringObservation[o.length];
+			for(int i = 0; i < o.length; i++)
+				observations[i] = new StringObservation(o[i]);
+			sequences.add(new ObservationSequence(observations));
+		}
+	}
+
+	//测试只保留发射过观测的隐藏状态，未登录观测使用全部隐藏状态
+	@Test
+	public void testCandidates() throws Exception {
+		HMModel model = new SupervisedMLHMMTrainer(samples, 1).train();
+		CandidateStateIndex index = new CandidateStateIndex(model, 0);
+		int a = model.getDict().getIndex(new StringState("a"));
+
+		assertArrayEquals(new int[]{a}, index.get(model.getObservationIndex(new StringObservation("5"))));
+		assertEquals(2, index.get(model.getObservationIndex(new StringObservation("3"))).length);
+		assertEquals(2, index.get(model.getObservationIndex(new StringObservation("0"))).length);
+		assertEquals(2, index.get(-1).length);
+		assertTrue(index.averageCandidates() < 2);
+	}
+
+	//测试阈值为0且存在概率不为0的路径时，剪枝解码与不剪枝的结果相同
+	@Test
+	public void testSamePaths() throws Exception {
+		HMModel[] models = new HMModel[]{new SupervisedMLHMMTrainer(samples, 1).train(),
+				new SupervisedAdditionHMMTrainer(samples, 1, 1.0).train()};
+
+		for(HMModel model : models) {
+			HMM viterbi = new HMMWithViterbi(model);
+			HMM prunedViterbi = new HMMWithViterbi(model, 0);
+			HMM fastViterbi = new HMMWithFastViterbi(model);
+			HMM prunedFastViterbi = new HMMWithFastViterbi(model, 0);
+			ConcurrentHMMWithViterbi prunedConcurrent = new ConcurrentHMMWithViterbi(model, 0);
+
+			List<StateSequence> expected = new ArrayList<>();
+			for(ObservationSequence sequence : sequences) {
+				StateSequence path = fastViterbi.bestStateSeqence(sequence);
+				expected.add(path);
+				assertEquals(viterbi.bestStateSeqence(sequence), path);
+				assertEquals(path, prunedViterbi.bestStateSeqence(sequence));
+				assertEquals(path, prunedFastViterbi.bestStateSeqence(sequence));
+				assertEquals(path, prunedConcurrent.bestStateSeqence(sequence));
+			}
+			assertEquals(expected, prunedConcurrent.bestStateSeqences(sequences));
+		}
+	}
+
+	//测试所有路径概率都为0时剪枝解码只在候选状态中选择，与不剪枝的结果不同
+	@Test
+	public void testZeroProbabilityPaths() throws Exception {
+		HMModel model = new SupervisedMLHMMTrainer(samples, 1).train();
+		ObservationSequence sequence = new ObservationSequence(new StringObservation[]{
+				new StringObservation("0"),//未登录词，最大似然模型的发射概率为0
+				new StringObservation("2")});//只由b发射
+		double logZero = Math.log10(Double.MIN_VALUE);
+		
+		HMM viterbi = new HMMWithViterbi(model);
+		StateSequence path = viterbi.bestStateSeqence(sequence);
+		assertTrue(viterbi.getLogProb(sequence, path) <= logZero);
+		
+		StateSequence pruned = new HMMWithViterbi(model, 0).bestStateSeqence(sequence);
+		assertTrue(viterbi.getLogProb(sequence, pruned) <= logZero);
+		assertEquals(new StringState("b"), pruned.get(1));
+		assertNotEquals(path, pruned);
+		
+		assertEquals(pruned, new HMMWithFastViterbi(model, 0).bestStateSeqence(sequence));
+		assertEquals(pruned, new ConcurrentHMMWithViterbi(model, 0).bestStateSeqence(sequence));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalThreshold() throws Exception {
+		new CandidateStateIndex(new SupervisedMLHMMTrainer(samples, 1).train(), 1.0);
+	}
+}
@@ -0,0 +1,129 @@
+package hust.tools.hmm.model;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Callable;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import hust.tools.hmm.learn.SupervisedAdditionHMMTrainer;
+import hust.tools.hmm.stream.HMMSampleFixture;
+import hust.tools.hmm.stream.SupervisedHMMSample;
+import hust.tools.hmm.utils.Observation;
+import hust.tools.hmm.utils.ObservationSequence;
+import hust.tools.hmm.utils.State;
+import hust.tools.hmm.utils.StateSequence;
+import hust.tools.hmm.utils.StringObservation;
+import hust.tools.hmm.utils.StringState;
+
+/**
+ *<ul>
+ *<li>Description: 线程安全的维特比解码单元测试
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月6日
+ *</ul>
+ */
+public class ConcurrentHMMWithViterbiTest {
+
+	private HMModel model;
+	private ConcurrentHMMWithViterbi concurrentViterbi;
+	private ObservationSequence sequence1;
+	private ObservationSequence sequence2;
+	private List<ObservationSequence> sequences;
+
+	@Before
+	public void setUp() throws Exception {
+		List<SupervisedHMMSample> samples = HMMSampleFixture.samples();
+
+		SupervisedAdditionHMMTrainer learner = new SupervisedAdditionHMMTrainer(samples, 1, 1.0);
+		model = learner.train();
+		concurrentViterbi = new ConcurrentHMMWithViterbi(model);
+
+		sequence1 = new ObservationSequence(new StringObservation[]{
+				new StringObservation("2"),
+				new StringObservation("4"),
+				new StringObservation("0")});//未登录词
+		sequence2 = new ObservationSequence(new StringObservation[]{
+				new StringObservation("5"),
+				new StringObservation("3"),
+				new StringObservation("1")});
+		
+		sequences = new ArrayList<>();
+		String[] vocabulary = new String[]{"1", "2", "3", "4", "5", "0"};
+		for(int n = 1; n <= 40; n++) {
+			Observation[] observations = new StringObservation[n % 13 + 1];
+			for(int i = 0; i < observations.length; i++)
+				observations[i] = new StringObservation(vocabulary[(n * 7 + i * 3) % vocabulary.length]);
+			sequences.add(new ObservationSequence(observations));
+		}
+	}
+
+	@Test
+	public void testDecode() {
+		ViterbiResult result = concurrentViterbi.decode(sequence1, true);
+		State[] states = new StringState[]{new StringState("b"), new StringState("a"), new StringState("b")};
+		assertEquals(new StateSequence(states), result.getStateSequence());
+		assertEquals(model.getStates().length, result.getLattice()[0].length);
+		assertEquals(3, result.getLattice().length);
+		assertEquals(result.getScore(), result.getLattice()[2][result.getPath()[2]], 0.0);
+		assertEquals(concurrentViterbi.getLogProb(sequence1, result.getStateSequence()), result.getScore(), 0.000000000001);
+		
+		result = concurrentViterbi.decode(sequence2, false);
+		states = new StringState[]{new StringState("a"), new StringState("b"), new StringState("a")};
+		assertEquals(new StateSequence(states), result.getStateSequence());
+		assertFalse(result.hasLattice());
+	}
+
+	//测试多个线程共享同一个解码器时结果与单线程解码一致
+	@Test
+	public void testConcurrentDecode() throws Exception {
+		HMM viterbi = new HMMWithViterbi(model);
+		final List<StateSequence> expected = new ArrayList<>();
+		for(ObservationSequence sequence : sequences)
+			expected.add(viterbi.bestStateSeqence(sequence));
+		
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<Boolean>> futures = new ArrayList<>();
+		for(int n = 0; n < 16; n++) {
+			futures.add(executor.submit(new Callable<Boolean>() {
+				@Override
+				public Boolean call() {
+					for(int round = 0; round < 50; round++)
+						for(int i = 0; i < sequences.size(); i++)
+							if(!expected.get(i).equals(concurrentViterbi.bestStateSeqence(sequences.get(i))))
+								return false;
+					
+					return true;
+				}
+			}));
+		}
+		
+		for(Future<Boolean> future : futures)
+			assertTrue(future.get());
+		executor.shutdown();
+	}
+	
+	//测试批量解码的结果按输入顺序返回
+	@Test
+	public void testBatchDecode() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		BatchHMM batch = new ConcurrentHMMWithViterbi(model, pool, 3);
+		List<StateSequence> results = batch.bestStateSeqences(sequences);
+		pool.shutdown();
+		
+		HMM viterbi = new HMMWithViterbi(model);
+		assertEquals(sequences.size(), results.size());
+		for(int i = 0; i < sequences.size(); i++)
+			assertEquals(viterbi.bestStateSeqence(sequences.get(i)), results.get(i));
+		
+		assertTrue(batch.bestStateSeqences(new ArrayList<ObservationSequence>()).isEmpty());
+	}
+}
@@ -2,6 +2,7 @@ package hust.tools.hmm.model;
 
 import static org.junit.Assert.*;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -10,10 +11,12 @@ import org.junit.Test;
 
 import hust.tools.hmm.learn.SupervisedAdditionHMMTrainer;
 import hust.tools.hmm.stream.SupervisedHMMSample;
+import hust.tools.hmm.utils.DefaultStateSequenceValidator;
 import hust.tools.hmm.utils.Observation;
 import hust.tools.hmm.utils.ObservationSequence;
 import hust.tools.hmm.utils.State;
 import hust.tools.hmm.utils.StateSequence;
+import hust.tools.hmm.utils.StateSequenceValidator;
 import hust.tools.hmm.utils.StringObservation;
 import hust.tools.hmm.utils.StringState;
 
@@ -31,11 +34,12 @@ public class HMMWithAStarTest {
 	private HMM model;
 	private ObservationSequence sequence1;
 	private ObservationSequence sequence2;
+	private List<SupervisedHMMSample> samples;
 	
 	@Before
 	public void setUp() throws Exception {
 		order = 1;
-		List<SupervisedHMMSample> samples = new ArrayList<>();
+		samples = new ArrayList<>();
 		StateSequence stateSequence = null;
 		ObservationSequence observationSequence = null;
 		
@@ -165,4 +169,50 @@ public class HMMWithAStarTest {
 		assertEquals(Math.log10(probs1[7]), model.getLogProb(sequence1, new StateSequence(states)), 0.000000000000001);
 		assertEquals(Math.log10(probs2[7]), model.getLogProb(sequence2, new StateSequence(states)), 0.000000000000001);
 	}
+	
+	//测试高阶模型增量计算的得分与整条序列计算的概率一致，且束足够宽时得到全局最优序列
+	@Test
+	public void testBestKStateSeqencesHighOrder() throws IOException {
+		HMMWithAStar aStar = new HMMWithAStar(new SupervisedAdditionHMMTrainer(samples, 2, 1.0).train());
+		ObservationSequence sequence = sequence1.addLast(new StringObservation("3")).addLast(new StringObservation("5"));
+		
+		List<StateSequence> bestK = aStar.bestKStateSeqences(sequence, 32);
+		assertEquals(32, bestK.size());
+		
+		double best = Double.NEGATIVE_INFINITY;
+		for(int n = 0; n < 32; n++) {
+			State[] states = new State[5];
+			for(int t = 0; t < 5; t++)
+				states[t] = new StringState((n >> (4 - t) & 1) == 0 ? "a" : "b");
+			best = Math.max(best, aStar.getLogProb(sequence, new StateSequence(states)));
+		}
+		assertEquals(best, aStar.getLogProb(sequence, bestK.get(0)), 0.000000000001);
+		
+		for(int i = 1; i < bestK.size(); i++)
+			assertTrue(aStar.getLogProb(sequence, bestK.get(i - 1)) >= aStar.getLogProb(sequence, bestK.get(i)) - 0.000000000001);
+	}
+	
+	//测试默认验证的子类也会生效，不会因为类型相同或不同而被跳过
+	@Test
+	public void testValidator() throws IOException {
+		StateSequenceValidator validator = new DefaultStateSequenceValidator() {
+			@Override
+			public boolean validStateSequence(int t, ObservationSequence observationSequence, StateSequence stateSequence, State outcome) {
+				return !outcome.equals(new StringState("a"));
+			}
+			
+			@Override
+			public boolean alwaysValid() {
+				return false;
+			}
+		};
+		
+		HMMWithAStar aStar = new HMMWithAStar(new SupervisedAdditionHMMTrainer(samples, order, 1.0).train(), validator);
+		for(StateSequence sequence : aStar.bestKStateSeqences(sequence2, 4)) {
+			for(int t = 1; t < sequence.length(); t++)
+				assertEquals(new StringState("b"), sequence.get(t));
+		}
+		
+		assertTrue(new DefaultStateSequenceValidator().alwaysValid());
+	}
 }
\ No newline at end of file
@@ -0,0 +1,88 @@
+package hust.tools.hmm.model;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import hust.tools.hmm.learn.SupervisedAdditionHMMTrainer;
+import hust.tools.hmm.stream.HMMSampleFixture;
+import hust.tools.hmm.stream.SupervisedHMMSample;
+import hust.tools.hmm.utils.Observation;
+import hust.tools.hmm.utils.ObservationSequence;
+import hust.tools.hmm.utils.State;
+import hust.tools.hmm.utils.StateSequence;
+import hust.tools.hmm.utils.StringObservation;
+import hust.tools.hmm.utils.StringState;
+
+/**
+ *<ul>
+ *<li>Description: 基于可复用工作区的维特比解码单元测试
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月4日
+ *</ul>
+ */
+public class HMMWithFastViterbiTest {
+
+	private HMModel model;
+	private HMMWithFastViterbi fastViterbi;
+	private ObservationSequence sequence1;
+	private ObservationSequence sequence2;
+
+	@Before
+	public void setUp() throws Exception {
+		List<SupervisedHMMSample> samples = HMMSampleFixture.samples();
+
+		SupervisedAdditionHMMTrainer learner = new SupervisedAdditionHMMTrainer(samples, 1, 1.0);
+		model = learner.train();
+		fastViterbi = new HMMWithFastViterbi(model);
+
+		sequence1 = new ObservationSequence(new StringObservation[]{
+				new StringObservation("2"),
+				new StringObservation("4"),
+				new StringObservation("0")});//未登录词
+		sequence2 = new ObservationSequence(new StringObservation[]{
+				new StringObservation("5"),
+				new StringObservation("3"),
+				new StringObservation("1")});
+	}
+
+	@Test
+	public void testBestStateSeqence() {
+		State[] states = new StringState[]{new StringState("b"), new StringState("a"), new StringState("b")};
+		assertEquals(new StateSequence(states), fastViterbi.bestStateSeqence(sequence1));
+		
+		states = new StringState[]{new StringState("a"), new StringState("b"), new StringState("a")};
+		assertEquals(new StateSequence(states), fastViterbi.bestStateSeqence(sequence2));
+	}
+
+	//测试工作区在不同长度的序列间复用时结果与HMMWithViterbi一致
+	@Test
+	public void testReuseWorkspace() {
+		HMM viterbi = new HMMWithViterbi(model);
+		String[][] os = new String[][]{
+			{"1", "2", "3", "4", "3", "2", "4", "5", "1", "0", "3"},
+			{"3"},
+			{"5", "2", "1", "4"},
+			{"3", "3", "4", "5", "2", "2", "1", "3", "5", "2", "2", "4", "1", "5", "3"}};
+		
+		for(String[] o : os) {
+			Observation[] observations = new StringObservation[o.length];
+			for(int i = 0; i < o.length; i++)
+				observations[i] = new StringObservation(o[i]);
+			ObservationSequence sequence = new ObservationSequence(observations);
+			
+			StateSequence expected = viterbi.bestStateSeqence(sequence);
+			assertEquals(expected, fastViterbi.bestStateSeqence(sequence));
+			
+			int[] path = new int[o.length];
+			double logProb = fastViterbi.bestStateSeqence(sequence, path);
+			assertEquals(viterbi.getLogProb(sequence, expected), logProb, 0.000000000001);
+			for(int t = 0; t < path.length; t++)
+				assertEquals(expected.get(t), model.getState(path[t]));
+		}
+	}
+}
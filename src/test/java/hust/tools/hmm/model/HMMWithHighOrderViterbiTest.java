@@ -0,0 +1,113 @@
+package hust.tools.hmm.model;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import hust.tools.hmm.learn.AdditionSmoothingStrategy;
+import hust.tools.hmm.learn.HMModelBasedCounter;
+import hust.tools.hmm.learn.SupervisedAdditionHMMTrainer;
+import hust.tools.hmm.learn.TransitionAndEmissionCounter;
+import hust.tools.hmm.stream.HMMSampleFixture;
+import hust.tools.hmm.stream.SupervisedHMMSample;
+import hust.tools.hmm.utils.ObservationSequence;
+import hust.tools.hmm.utils.State;
+import hust.tools.hmm.utils.StateSequence;
+import hust.tools.hmm.utils.StringObservation;
+import hust.tools.hmm.utils.StringState;
+
+/**
+ *<ul>
+ *<li>Description: 高阶维特比解码单元测试
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月9日
+ *</ul>
+ */
+public class HMMWithHighOrderViterbiTest {
+
+	private List<SupervisedHMMSample> samples;
+	private ObservationSequence sequence;
+
+	@Before
+	public void setUp() throws Exception {
+		samples = HMMSampleFixture.samples();
+
+		sequence = new ObservationSequence(new StringObservation[]{
+				new StringObservation("2"),
+				new StringObservation("4"),
+				new StringObservation("0"),//未登录词
+				new StringObservation("3"),
+				new StringObservation("5"),
+				new StringObservation("1")});
+	}
+
+	//测试1阶模型的解码结果与维特比解码一致
+	@Test
+	public void testFirstOrder() throws IOException {
+		HMModel model = new SupervisedAdditionHMMTrainer(samples, 1, 1.0).train();
+		HMM viterbi = new HMMWithViterbi(model);
+		HMM highOrderViterbi = new HMMWithHighOrderViterbi(model);
+
+		assertEquals(viterbi.bestStateSeqence(sequence), highOrderViterbi.bestStateSeqence(sequence));
+	}
+
+	//测试2阶和3阶模型的解码结果为穷举得到的最优序列
+	@Test
+	public void testHighOrder() throws IOException {
+		for(int order = 2; order <= 3; order++) {
+			HMMWithHighOrderViterbi viterbi = new HMMWithHighOrderViterbi(new SupervisedAdditionHMMTrainer(samples, order, 1.0).train());
+
+			int T = sequence.length();
+			double best = Double.NEGATIVE_INFINITY;
+			StateSequence bestStates = null;
+			for(int n = 0; n < 1 << T; n++) {
+				State[] states = new State[T];
+				for(int t = 0; t < T; t++)
+					states[t] = new StringState((n >> (T - 1 - t) & 1) == 0 ? "a" : "b");
+
+				double logProb = viterbi.getLogProb(sequence, new StateSequence(states));
+				if(logProb > best) {
+					best = logProb;
+					bestStates = new StateSequence(states);
+				}
+			}
+
+			int[] path = new int[T];
+			assertEquals(best, viterbi.bestStateSeqence(sequence, path), 0.000000000001);
+			assertEquals(bestStates, viterbi.bestStateSeqence(sequence));
+			assertEquals(new HMMWithAStar(new SupervisedAdditionHMMTrainer(samples, order, 1.0).train()).getLogProb(sequence, bestStates),
+					viterbi.getLogProb(sequence, bestStates), 0.0);
+		}
+	}
+
+	//测试基于计数器的高阶模型的解码结果与训练器得到的模型相同，且不展开转移表
+	@Test
+	public void testCounterModel() throws IOException {
+		for(int order = 2; order <= 3; order++) {
+			TransitionAndEmissionCounter counter = new TransitionAndEmissionCounter(samples, order);
+			HMModelBasedCounter model = new HMModelBasedCounter(counter, new AdditionSmoothingStrategy(1.0)) {
+
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				public HashMap<StateSequence, TransitionProbEntry> getTransitionMatrix() {
+					throw new UnsupportedOperationException("解码时不应展开转移表");
+				}
+			};
+
+			HMMWithHighOrderViterbi expected = new HMMWithHighOrderViterbi(new SupervisedAdditionHMMTrainer(samples, order, 1.0).train());
+			HMMWithHighOrderViterbi actual = new HMMWithHighOrderViterbi(model);
+			int[] expectedPath = new int[sequence.length()];
+			int[] actualPath = new int[sequence.length()];
+			assertEquals(expected.bestStateSeqence(sequence, expectedPath), actual.bestStateSeqence(sequence, actualPath), 0.000000000001);
+			assertArrayEquals(expectedPath, actualPath);
+			assertEquals(expected.bestStateSeqence(sequence), actual.bestStateSeqence(sequence));
+		}
+	}
+}
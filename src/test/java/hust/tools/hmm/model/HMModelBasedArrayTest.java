@@ -0,0 +1,91 @@
+package hust.tools.hmm.model;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import hust.tools.hmm.learn.SupervisedAdditionHMMTrainer;
+import hust.tools.hmm.stream.HMMSampleFixture;
+import hust.tools.hmm.stream.SupervisedHMMSample;
+import hust.tools.hmm.utils.CommonUtils;
+import hust.tools.hmm.utils.ObservationSequence;
+import hust.tools.hmm.utils.State;
+import hust.tools.hmm.utils.StateSequence;
+import hust.tools.hmm.utils.StringObservation;
+
+/**
+ *<ul>
+ *<li>Description: 基于数组的HMM模型单元测试
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月2日
+ *</ul>
+ */
+public class HMModelBasedArrayTest {
+
+	private HMModel mapModel;
+	private HMModelBasedArray arrayModel;
+	private ObservationSequence sequence;
+
+	@Before
+	public void setUp() throws Exception {
+		List<SupervisedHMMSample> samples = HMMSampleFixture.samples();
+
+		SupervisedAdditionHMMTrainer learner = new SupervisedAdditionHMMTrainer(samples, 1, 1.0);
+		mapModel = learner.train();
+		arrayModel = new HMModelBasedArray(mapModel);
+
+		sequence = new ObservationSequence(new StringObservation[]{
+				new StringObservation("2"),
+				new StringObservation("4"),
+				new StringObservation("0")});//未登录词
+	}
+
+	//测试数组模型与Map模型的参数一致
+	@Test
+	public void testSameParameters() {
+		int N = mapModel.statesCount();
+		int M = mapModel.observationsCount();
+		assertEquals(N, arrayModel.statesCount());
+		assertEquals(M, arrayModel.observationsCount());
+
+		for(int i = 0; i < N; i++) {
+			State state = mapModel.getState(i);
+			assertEquals(mapModel.getLogPi(i), arrayModel.getLogPi(i), 0.0);
+			assertEquals(mapModel.getLogPi(state), arrayModel.getLogPi(state), 0.0);
+
+			for(int j = 0; j < N; j++) {
+				assertEquals(mapModel.transitionLogProb(new int[]{i}, j), arrayModel.transitionLogProb(i, j), 0.0);
+				assertEquals(mapModel.transitionLogProb(new StateSequence(state), mapModel.getState(j)),
+						arrayModel.transitionLogProb(new StateSequence(state), mapModel.getState(j)), 0.0);
+			}
+
+			for(int k = 0; k < M; k++)
+				assertEquals(mapModel.emissionLogProb(i, k), arrayModel.emissionLogProb(i, k), 0.0);
+
+			assertEquals(mapModel.emissionLogProb(state, CommonUtils.UNKNOWN), arrayModel.emissionLogProb(state, new StringObservation("0")), 0.0);
+			assertEquals(mapModel.emissionLogProb(i, -1), arrayModel.emissionLogProb(i, -1), 0.0);
+		}
+	}
+
+	//测试两种模型的解码结果与概率一致
+	@Test
+	public void testDecode() {
+		HMM mapHMM = new HMMWithViterbi(mapModel);
+		HMM arrayHMM = new HMMWithViterbi(arrayModel);
+
+		assertEquals(mapHMM.bestStateSeqence(sequence), arrayHMM.bestStateSeqence(sequence));
+		assertEquals(mapHMM.getLogProb(sequence), arrayHMM.getLogProb(sequence), 0.000000000000001);
+	}
+
+	//测试转换后的Map视图
+	@Test
+	public void testMatrixView() {
+		HMModel model = new HMModelBasedMap(1, arrayModel.getDict(), arrayModel.getPi(), arrayModel.getTransitionMatrix(), arrayModel.getEmissionMatrix());
+
+		assertEquals(arrayModel, new HMModelBasedArray(model));
+	}
+}
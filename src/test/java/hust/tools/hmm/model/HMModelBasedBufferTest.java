@@ -0,0 +1,96 @@
+package hust.tools.hmm.model;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import hust.tools.hmm.io.ArrayFileHMMReader;
+import hust.tools.hmm.io.ArrayFileHMMWriter;
+import hust.tools.hmm.learn.SupervisedAdditionHMMTrainer;
+import hust.tools.hmm.stream.HMMSampleFixture;
+import hust.tools.hmm.stream.SupervisedHMMSample;
+import hust.tools.hmm.utils.ObservationSequence;
+import hust.tools.hmm.utils.StringObservation;
+
+/**
+ *<ul>
+ *<li>Description: 基于缓冲区的HMM模型单元测试
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月17日
+ *</ul>
+ */
+public class HMModelBasedBufferTest {
+
+	private HMModelBasedArray arrayModel;
+	private ObservationSequence sequence;
+
+	@Before
+	public void setUp() throws Exception {
+		List<SupervisedHMMSample> samples = HMMSampleFixture.samples();
+
+		arrayModel = new SupervisedAdditionHMMTrainer(samples, 1, 1.0).trainBasedArray();
+		sequence = new ObservationSequence(new StringObservation[]{
+				new StringObservation("2"),
+				new StringObservation("4"),
+				new StringObservation("0")});//未登录词
+	}
+
+	//测试直接缓冲区模型和映射文件模型与数组模型的参数一致
+	@Test
+	public void testSameParameters() throws Exception {
+		File file = File.createTempFile("model", ".hmm");
+		file.deleteOnExit();
+		new ArrayFileHMMWriter(arrayModel, file).persist();
+
+		HMModelBasedBuffer[] models = new HMModelBasedBuffer[]{new HMModelBasedBuffer(arrayModel), new ArrayFileHMMReader(file).readBufferModel()};
+		for(HMModelBasedBuffer model : models) {
+			int N = arrayModel.statesCount();
+			assertEquals(N, model.statesCount());
+			assertEquals(arrayModel.emissionColumns(), model.emissionColumns());
+			assertEquals(arrayModel.getUnknownIndex(), model.getUnknownIndex());
+			for(int i = 0; i < N; i++) {
+				assertEquals(arrayModel.getLogPi(i), model.getLogPi(i), 0.0);
+				for(int j = 0; j < N; j++)
+					assertEquals(arrayModel.transitionLogProb(i, j), model.transitionLogProb(i, j), 0.0);
+				for(int k = -1; k < arrayModel.emissionColumns(); k++)
+					assertEquals(arrayModel.emissionLogProb(i, k), model.emissionLogProb(i, k), 0.0);
+			}
+		}
+		assertEquals(models[0], models[1]);
+	}
+
+	//测试基于缓冲区的模型可以直接用于维特比解码
+	@Test
+	public void testDecode() throws Exception {
+		HMModelBasedBuffer model = new HMModelBasedBuffer(arrayModel);
+		assertEquals(new HMMWithViterbi(arrayModel).bestStateSeqence(sequence), new HMMWithViterbi(model).bestStateSeqence(sequence));
+	}
+
+	//测试映射文件模型序列化为等价的数组模型
+	@Test
+	public void testSerialization() throws Exception {
+		File file = File.createTempFile("model", ".hmm");
+		file.deleteOnExit();
+		new ArrayFileHMMWriter(arrayModel, file).persist();
+		HMModelBasedBuffer model = new ArrayFileHMMReader(file).readBufferModel();
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try(ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+			oos.writeObject(model);
+		}
+
+		try(ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			assertEquals(arrayModel, ois.readObject());
+		}
+		assertEquals(model.hashCode(), new HMModelBasedBuffer(arrayModel).hashCode());
+	}
+}
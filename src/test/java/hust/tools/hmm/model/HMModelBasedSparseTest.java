@@ -0,0 +1,106 @@
+package hust.tools.hmm.model;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import hust.tools.hmm.learn.SupervisedAdditionHMMTrainer;
+import hust.tools.hmm.learn.SupervisedMLHMMTrainer;
+import hust.tools.hmm.stream.HMMSampleFixture;
+import hust.tools.hmm.stream.SupervisedHMMSample;
+import hust.tools.hmm.utils.ObservationSequence;
+import hust.tools.hmm.utils.StateSequence;
+import hust.tools.hmm.utils.StringObservation;
+
+/**
+ *<ul>
+ *<li>Description: 发射概率稀疏存储的模型单元测试
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月19日
+ *</ul>
+ */
+public class HMModelBasedSparseTest {
+
+	private List<SupervisedHMMSample> samples;
+
+	@Before
+	public void setUp() throws Exception {
+		samples = HMMSampleFixture.samples();
+	}
+
+	//测试稀疏存储的发射概率与稠密模型相同，且只保存与底值不同的发射
+	@Test
+	public void testSameParameters() throws Exception {
+		HMModel[] models = new HMModel[]{new SupervisedMLHMMTrainer(samples, 1).train(),
+				new SupervisedAdditionHMMTrainer(samples, 1, 1.0).train()};
+
+		for(HMModel model : models) {
+			HMModelBasedArray arrayModel = new HMModelBasedArray(model);
+			HMModelBasedSparse sparseModel = new HMModelBasedSparse(model);
+			SparseEmissionMatrix matrix = sparseModel.getSparseEmissionMatrix();
+			int N = arrayModel.statesCount();
+			int M = arrayModel.emissionColumns();
+
+			assertEquals(M, matrix.columnCount());
+			assertTrue(matrix.size() < N * M);
+			for(int i = 0; i < N; i++) {
+				assertEquals(arrayModel.getLogPi(i), sparseModel.getLogPi(i), 0);
+				for(int j = 0; j < N; j++)
+					assertEquals(arrayModel.transitionLogProb(i, j), sparseModel.transitionLogProb(i, j), 0);
+				for(int k = 0; k < M; k++)
+					assertEquals(arrayModel.emissionLogProb(i, k), sparseModel.emissionLogProb(i, k), 0);
+				assertEquals(arrayModel.emissionLogProb(model.getState(i), new StringObservation("0")),
+						sparseModel.emissionLogProb(model.getState(i), new StringObservation("0")), 0);
+			}
+
+			//列视图与行视图保存的发射相同
+			int count = 0;
+			for(int k = 0; k < M; k++) {
+				for(int q = matrix.columnStart(k); q < matrix.columnEnd(k); q++) {
+					assertEquals(matrix.get(matrix.columnState(q), k), matrix.columnValue(q), 0);
+					count++;
+				}
+			}
+			assertEquals(matrix.size(), count);
+
+			assertEquals(arrayModel.getEmissionMatrix(), sparseModel.getEmissionMatrix());
+		}
+	}
+
+	//测试稀疏模型的解码以及由列视图构造的候选状态索引
+	@Test
+	public void testDecode() throws Exception {
+		HMModel model = new SupervisedMLHMMTrainer(samples, 1).train();
+		HMModelBasedSparse sparseModel = new HMModelBasedSparse(model);
+		ObservationSequence sequence = new ObservationSequence(new StringObservation[]{
+				new StringObservation("5"),
+				new StringObservation("3"),
+				new StringObservation("0"),
+				new StringObservation("1")});
+
+		StateSequence expected = new HMMWithViterbi(model).bestStateSeqence(sequence);
+		assertEquals(expected, new HMMWithViterbi(sparseModel, 0).bestStateSeqence(sequence));
+
+		//快速解码器直接读取稀疏矩阵的列，不展开为稠密模型
+		assertEquals(expected, new HMMWithFastViterbi(sparseModel).bestStateSeqence(sequence));
+		assertEquals(expected, new HMMWithFastViterbi(sparseModel, 0).bestStateSeqence(sequence));
+		ConcurrentHMMWithViterbi concurrent = new ConcurrentHMMWithViterbi(sparseModel, 0);
+		assertSame(sparseModel, concurrent.getModel());
+		assertEquals(expected, concurrent.bestStateSeqence(sequence));
+		assertEquals(expected, new ConcurrentHMMWithViterbi(sparseModel).bestStateSeqence(sequence));
+
+		CandidateStateIndex denseIndex = new CandidateStateIndex(model, 0);
+		CandidateStateIndex sparseIndex = new CandidateStateIndex(sparseModel, 0);
+		for(int k = -1; k <= model.observationsCount(); k++)
+			assertArrayEquals(denseIndex.get(k), sparseIndex.get(k));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsortedColumns() {
+		new SparseEmissionMatrix(1, 3, new int[]{0, 2}, new int[]{2, 1}, new double[]{-1, -1}, new double[]{-3});
+	}
+}
@@ -0,0 +1,129 @@
+package hust.tools.hmm.model;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import hust.tools.hmm.learn.SupervisedInterpolationHMMTrainer;
+import hust.tools.hmm.learn.SupervisedWittenBellHMMTrainer;
+import hust.tools.hmm.stream.HMMSampleFixture;
+import hust.tools.hmm.stream.SupervisedHMMSample;
+import hust.tools.hmm.utils.ObservationSequence;
+import hust.tools.hmm.utils.State;
+import hust.tools.hmm.utils.StateSequence;
+import hust.tools.hmm.utils.StringObservation;
+import hust.tools.hmm.utils.StringState;
+
+/**
+ *<ul>
+ *<li>Description: 回退形式转移概率的HMM模型单元测试
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月23日
+ *</ul>
+ */
+public class HMModelWithBackoffTest {
+
+	private List<SupervisedHMMSample> samples;
+
+	@Before
+	public void setUp() throws Exception {
+		samples = HMMSampleFixture.threeStateSamples();
+	}
+
+	//测试所有上文(包括未出现的上文)的转移概率之和为1
+	@Test
+	public void testNormalized() throws IOException {
+		for(int order = 1; order <= 3; order++) {
+			assertNormalized(new SupervisedWittenBellHMMTrainer(samples, order).trainBackoff());
+			assertNormalized(new SupervisedInterpolationHMMTrainer(new ArrayList<>(samples), 0.25, order).trainBackoff());
+		}
+	}
+
+	//测试只保存出现过的转移，未出现的上文回退到去掉首个隐藏状态的上文
+	@Test
+	public void testBackoff() throws IOException {
+		HMModelWithBackoff model = new SupervisedWittenBellHMMTrainer(samples, 3).trainBackoff();
+		BackoffTransitionTable table = model.getBackoffTransitionTable();
+		int N = model.statesCount();
+		int c = model.getDict().getIndex(new StringState("c"));
+		int a = model.getDict().getIndex(new StringState("a"));
+		int b = model.getDict().getIndex(new StringState("b"));
+
+		assertTrue(table.contextCount() < N + N * N + N * N * N);
+		assertFalse(table.containsContext(new int[]{c, c, c}, 0, 3));
+		assertEquals(0.0, table.backoffWeight(new int[]{c, c, c}, 0, 3), 0.0);
+		for(int j = 0; j < N; j++)
+			assertEquals(model.transitionLogProb(new int[]{c, c}, j), model.transitionLogProb(new int[]{c, c, c}, j), 0.0);
+
+		//Witten-Bell: P(b|a) = (C(a, b) + T(a) * P(b)) / (C(a) + T(a))
+		double unigram = model.transitionLogProb(new int[0], b);
+		int ab = 0, aTotal = 0;
+		for(SupervisedHMMSample sample : samples) {
+			StateSequence states = sample.getStateSequence();
+			for(int t = 1; t < states.length(); t++) {
+				if(states.get(t - 1).equals(new StringState("a"))) {
+					aTotal++;
+					if(states.get(t).equals(new StringState("b")))
+						ab++;
+				}
+			}
+		}
+		assertEquals((ab + 3 * Math.pow(10, unigram)) / (aTotal + 3), Math.pow(10, model.transitionLogProb(new int[]{a}, b)), 1e-12);
+		assertEquals(model.transitionLogProb(new int[]{a}, b),
+				model.transitionLogProb(new StateSequence(new StringState("a")), new StringState("b")), 0.0);
+	}
+
+	//测试高阶维特比解码展开回退模型的所有上文，结果为穷举得到的最优序列
+	@Test
+	public void testHighOrderDecode() throws IOException {
+		HMMWithHighOrderViterbi viterbi = new HMMWithHighOrderViterbi(new SupervisedWittenBellHMMTrainer(samples, 2).trainBackoff());
+		ObservationSequence sequence = new ObservationSequence(new StringObservation[]{
+				new StringObservation("2"),
+				new StringObservation("4"),
+				new StringObservation("0"),
+				new StringObservation("3"),
+				new StringObservation("5")});
+
+		String[] names = {"a", "b", "c"};
+		int T = sequence.length();
+		double best = Double.NEGATIVE_INFINITY;
+		StateSequence bestStates = null;
+		int total = (int) Math.pow(names.length, T);
+		for(int n = 0; n < total; n++) {
+			State[] states = new State[T];
+			for(int t = 0, code = n; t < T; t++, code /= names.length)
+				states[t] = new StringState(names[code % names.length]);
+
+			double logProb = viterbi.getLogProb(sequence, new StateSequence(states));
+			if(logProb > best) {
+				best = logProb;
+				bestStates = new StateSequence(states);
+			}
+		}
+
+		assertEquals(bestStates, viterbi.bestStateSeqence(sequence));
+	}
+
+	private static void assertNormalized(HMModelWithBackoff model) {
+		int N = model.statesCount();
+		int order = model.getOrder();
+		int[] context = new int[order];
+		for(int code = 0; code < Math.pow(N, order); code++) {
+			for(int n = 0, c = code; n < order; n++, c /= N)
+				context[n] = c % N;
+
+			for(int length = 0; length <= order; length++) {
+				double sum = 0.0;
+				for(int j = 0; j < N; j++)
+					sum += Math.pow(10, model.getBackoffTransitionTable().logProb(context, order - length, length, j));
+				assertEquals(1.0, sum, 1e-12);
+			}
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package hust.tools.hmm.model;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import hust.tools.hmm.learn.SupervisedAdditionHMMTrainer;
+import hust.tools.hmm.stream.HMMSampleFixture;
+import hust.tools.hmm.stream.SupervisedHMMSample;
+import hust.tools.hmm.utils.Observation;
+import hust.tools.hmm.utils.ObservationSequence;
+import hust.tools.hmm.utils.StringObservation;
+
+/**
+ *<ul>
+ *<li>Description: 带比例因子的前向-后向算法单元测试
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月10日
+ *</ul>
+ */
+public class ScaledForwardBackwardAlgorithmTest {
+
+	private HMModel model;
+	private ObservationSequence sequence;
+
+	@Before
+	public void setUp() throws Exception {
+		List<SupervisedHMMSample> samples = HMMSampleFixture.samples();
+
+		SupervisedAdditionHMMTrainer learner = new SupervisedAdditionHMMTrainer(samples, 1, 1.0);
+		model = learner.train();
+
+		sequence = new ObservationSequence(new StringObservation[]{
+				new StringObservation("2"),
+				new StringObservation("4"),
+				new StringObservation("0")});//未登录词
+	}
+
+	//测试观测序列概率与前向算法一致
+	@Test
+	public void testLogLikelihood() {
+		ScaledForwardBackwardAlgorithm algorithm = new ScaledForwardBackwardAlgorithm(model);
+		double expected = Math.log10(new ForwardAlgorithm(model, sequence).getProb());
+
+		assertEquals(expected, algorithm.logLikelihood(sequence), 0.000000000001);
+		assertEquals(expected, algorithm.fork().logLikelihood(sequence), 0.000000000001);
+	}
+
+	//测试gamma与前向、后向算法的结果一致
+	@Test
+	public void testGamma() {
+		ScaledForwardBackwardAlgorithm algorithm = new ScaledForwardBackwardAlgorithm(model);
+		int[] observations = algorithm.encode(sequence);
+		int T = observations.length;
+		algorithm.forward(observations, 0, T);
+		algorithm.backward(observations, 0, T);
+
+		double[][] alpha = new ForwardAlgorithm(model, sequence).getAlpha();
+		double[][] beta = new BackwardAlgorithm(model, sequence).getBeta();
+		int N = model.statesCount();
+		for(int t = 0; t < T; t++) {
+			double sum = 0.0;
+			for(int i = 0; i < N; i++)
+				sum += Math.pow(10, alpha[t][i] + beta[t][i]);
+
+			for(int i = 0; i < N; i++)
+				assertEquals(Math.pow(10, alpha[t][i] + beta[t][i]) / sum, algorithm.gamma(t, i), 0.000000000001);
+		}
+	}
+
+	//测试长序列不会下溢
+	@Test
+	public void testLongSequence() {
+		int T = 3000;
+		Observation[] observations = new StringObservation[T];
+		for(int t = 0; t < T; t++)
+			observations[t] = sequence.get(t % sequence.length());
+
+		ScaledForwardBackwardAlgorithm algorithm = new ScaledForwardBackwardAlgorithm(model);
+		double logLikelihood = algorithm.logLikelihood(new ObservationSequence(observations));
+		assertEquals(0.0, new ForwardAlgorithm(model, new ObservationSequence(observations)).getProb(), 0.0);
+		assertTrue(logLikelihood < -1000);
+		assertFalse(Double.isInfinite(logLikelihood));
+	}
+}
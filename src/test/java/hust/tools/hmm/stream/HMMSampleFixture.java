@@ -0,0 +1,110 @@
+package hust.tools.hmm.stream;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import hust.tools.hmm.utils.Observation;
+import hust.tools.hmm.utils.ObservationSequence;
+import hust.tools.hmm.utils.State;
+import hust.tools.hmm.utils.StateSequence;
+import hust.tools.hmm.utils.StringObservation;
+import hust.tools.hmm.utils.StringState;
+
+/**
+ *<ul>
+ *<li>Description: 单元测试共用的训练语料
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月25日
+ *</ul>
+ */
+public final class HMMSampleFixture {
+
+	/**
+	 * 两个隐藏状态的语料的隐藏状态序列
+	 */
+	private static final String[][] STATES = new String[][]{
+		{"a", "b", "b", "a", "b", "b", "b", "a"},
+		{"b", "a", "b", "a", "b", "b", "a", "b", "a"},
+		{"a", "b", "a", "a", "b", "a", "b"}};
+
+	/**
+	 * 两个隐藏状态的语料的观测序列
+	 */
+	private static final String[][] OBSERVATIONS = new String[][]{
+		{"1", "2", "3", "4", "3", "2", "4", "5"},
+		{"3", "3", "4", "5", "2", "2", "1", "3", "5"},
+		{"5", "2", "1", "4", "3", "1", "1"}};
+
+	/**
+	 * 三个隐藏状态的语料的隐藏状态序列
+	 */
+	private static final String[][] THREE_STATES = new String[][]{
+		{"a", "b", "b", "a", "c", "b", "b", "a"},
+		{"b", "a", "b", "a", "b", "c", "a", "b", "a"},
+		{"a", "b", "a", "a", "b", "a", "b"},
+		{"c", "c", "a", "b", "a", "c", "b"}};
+
+	/**
+	 * 三个隐藏状态的语料的观测序列
+	 */
+	private static final String[][] THREE_STATES_OBSERVATIONS = new String[][]{
+		{"1", "2", "3", "4", "3", "2", "4", "5"},
+		{"3", "3", "4", "5", "2", "2", "1", "3", "5"},
+		{"5", "2", "1", "4", "3", "1", "1"},
+		{"2", "4", "5", "1", "3", "1", "2"}};
+
+	private HMMSampleFixture() {
+
+	}
+
+	/**
+	 * 返回隐藏状态为a、b的三个训练样本
+	 * @return	训练样本
+	 */
+	public static List<SupervisedHMMSample> samples() {
+		return samples(STATES, OBSERVATIONS);
+	}
+
+	/**
+	 * 返回隐藏状态为a、b、c的四个训练样本
+	 * @return	训练样本
+	 */
+	public static List<SupervisedHMMSample> threeStateSamples() {
+		return samples(THREE_STATES, THREE_STATES_OBSERVATIONS);
+	}
+
+	/**
+	 * 由隐藏状态和观测的字符串构造训练样本
+	 * @param hs	每个样本的隐藏状态
+	 * @param os	每个样本的观测，长度与对应的隐藏状态相同
+	 * @return		训练样本
+	 */
+	public static List<SupervisedHMMSample> samples(String[][] hs, String[][] os) {
+		List<SupervisedHMMSample> samples = new ArrayList<>();
+		for(int n = 0; n < hs.length; n++) {
+			State[] states = new StringState[hs[n].length];
+			Observation[] observations = new StringObservation[os[n].length];
+			for(int i = 0; i < hs[n].length; i++) {
+				states[i] = new StringState(hs[n][i]);
+				observations[i] = new StringObservation(os[n][i]);
+			}
+			samples.add(new SupervisedHMMSample(new StateSequence(states), new ObservationSequence(observations)));
+		}
+
+		return samples;
+	}
+
+	/**
+	 * 返回去掉隐藏状态后的无监督样本
+	 * @param samples	有监督样本
+	 * @return			无监督样本
+	 */
+	public static List<UnSupervisedHMMSample> unSupervised(List<SupervisedHMMSample> samples) {
+		List<UnSupervisedHMMSample> result = new ArrayList<>(samples.size());
+		for(SupervisedHMMSample sample : samples)
+			result.add(new UnSupervisedHMMSample(sample.getObservationSequence()));
+
+		return result;
+	}
+}
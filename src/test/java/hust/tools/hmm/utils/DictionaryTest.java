@@ -0,0 +1,131 @@
+package hust.tools.hmm.utils;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ *<ul>
+ *<li>Description: 观测/状态的索引类单元测试
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月20日
+ *</ul>
+ */
+public class DictionaryTest {
+
+	//测试索引计数器属于实例，新建字典不影响已有字典
+	@Test
+	public void testInstanceCounters() {
+		Dictionary first = new Dictionary();
+		first.add(new StringState("a"));
+		first.add(new StringObservation("x"));
+
+		Dictionary second = new Dictionary();
+		second.add(new StringState("b"));
+
+		first.add(new StringState("c"));
+		first.add(new StringState("a"));
+		first.add(new StringObservation("y"));
+		assertEquals(0, first.getIndex(new StringState("a")));
+		assertEquals(1, first.getIndex(new StringState("c")));
+		assertEquals(1, first.getIndex(new StringObservation("y")));
+		assertEquals(2, first.stateCount());
+		assertEquals(0, second.getIndex(new StringState("b")));
+		assertEquals(-1, second.getIndex(new StringState("a")));
+	}
+
+	//测试索引序列转为状态序列
+	@Test
+	public void testSequences() {
+		Dictionary dict = new Dictionary();
+		dict.add(new StateSequence(new State[]{new StringState("a"), new StringState("b")}));
+		dict.add(new ObservationSequence(new Observation[]{new StringObservation("x"), new StringObservation("y")}));
+
+		assertEquals(new StateSequence(new State[]{new StringState("b"), new StringState("b"), new StringState("a")}),
+				dict.getStateSequence(new int[]{1, 1, 0}));
+		assertEquals(new ObservationSequence(new Observation[]{new StringObservation("y"), new StringObservation("x")}),
+				dict.getObservationSequence(new int[]{1, 0}));
+		assertNull(dict.getState(2));
+		assertNull(dict.getObservation(-1));
+	}
+
+	//测试按给定索引增加状态后，状态集合按索引升序排列，后续增加的状态不与已有索引冲突
+	@Test
+	public void testPut() {
+		Dictionary dict = new Dictionary();
+		dict.put(new StringState("c"), 2);
+		dict.put(new StringState("a"), 0);
+		dict.add(new StringState("d"));
+
+		assertEquals(3, dict.getIndex(new StringState("d")));
+		assertFalse(dict.containState(1));
+		assertTrue(dict.containState(2));
+
+		Iterator<State> iterator = dict.getStates().iterator();
+		assertEquals(new StringState("a"), iterator.next());
+		assertEquals(new StringState("c"), iterator.next());
+		assertEquals(new StringState("d"), iterator.next());
+		assertFalse(iterator.hasNext());
+		assertEquals(3, dict.getStates().size());
+	}
+
+	//测试多个线程同时增加状态时每个状态只分配一个索引，且与单线程构造的字典索引一一对应
+	@Test
+	public void testConcurrentDictionary() throws Exception {
+		final ConcurrentDictionary dict = new ConcurrentDictionary();
+		final int count = 2000;
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<?>> futures = new ArrayList<>();
+		for(int n = 0; n < 4; n++) {
+			final int offset = n;
+			futures.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() {
+					for(int i = 0; i < count; i++) {
+						Observation observation = new StringObservation(String.valueOf((i * 7 + offset * 13) % count));
+						dict.add(observation);
+						assertEquals(observation, dict.getObservation(dict.getIndex(observation)));
+					}
+					return null;
+				}
+			}));
+		}
+		for(Future<?> future : futures)
+			future.get();
+		executor.shutdown();
+
+		assertEquals(count, dict.observationCount());
+		Dictionary expected = new Dictionary();
+		for(int k = 0; k < count; k++) {
+			Observation observation = dict.getObservation(k);
+			assertNotNull(observation);
+			expected.put(observation, k);
+		}
+		assertEquals(expected, dict);
+		assertEquals(expected.hashCode(), dict.hashCode());
+	}
+
+	//测试开放寻址哈希表扩容后查询结果不变
+	@Test
+	public void testObjectIntHashMap() {
+		ObjectIntHashMap<String> map = new ObjectIntHashMap<>();
+		for(int i = 0; i < 1000; i++)
+			assertEquals(-1, map.put("k" + i, i));
+
+		assertEquals(1000, map.size());
+		assertEquals(500, map.put("k500", 5000));
+		assertEquals(5000, map.get("k500"));
+		assertEquals(999, map.get("k999"));
+		assertEquals(-1, map.get("k1000"));
+		assertFalse(map.containsKey(null));
+	}
+}
@@ -0,0 +1,102 @@
+package hust.tools.hmm.utils;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import hust.tools.hmm.learn.SupervisedWittenBellHMMTrainer;
+import hust.tools.hmm.model.HMModel;
+import hust.tools.hmm.stream.HMMSampleFixture;
+import hust.tools.hmm.stream.SupervisedHMMSample;
+
+/**
+ *<ul>
+ *<li>Description: 编码语料的单元测试
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月12日
+ *</ul>
+ */
+public class EncodedCorpusTest {
+
+	private List<SupervisedHMMSample> samples;
+
+	@Before
+	public void setUp() throws Exception {
+		String[][] hs = new String[][]{
+			{"a", "b", "b", "a", "b", "c", "b", "a"},
+			{"b", "a", "c", "a", "b", "b", "a", "b", "a"},
+			{"c"},
+			{"a", "b", "a", "a", "b", "a", "c"}};
+		String[][] os = new String[][]{
+			{"1", "2", "3", "4", "3", "2", "4", "5"},
+			{"3", "3", "4", "5", "2", "2", "1", "3", "5"},
+			{"6"},
+			{"5", "2", "1", "4", "3", "1", "1"}};
+
+		samples = HMMSampleFixture.samples(hs, os);
+	}
+
+	@Test
+	public void testEncode() {
+		EncodedCorpus corpus = EncodedCorpus.encode(samples);
+
+		assertEquals(4, corpus.size());
+		assertEquals(25, corpus.tokens());
+		assertTrue(corpus.hasStates());
+		assertEquals(3, corpus.getDictionary().stateCount());
+		assertEquals(6, corpus.getDictionary().observationCount());
+		for(int n = 0; n < samples.size(); n++) {
+			assertEquals(samples.get(n).getStateSequence(), corpus.getStateSequence(n));
+			assertEquals(samples.get(n).getObservationSequence(), corpus.getObservationSequence(n));
+		}
+
+		int[] buffer = corpus.observations(1, null);
+		assertEquals(corpus.getDictionary().getIndex(new StringObservation("3")), buffer[0]);
+		assertSame(buffer, corpus.observations(0, buffer));
+	}
+
+	//测试写入文件并通过内存映射加载后，语料和由语料训练的模型都保持不变
+	@Test
+	public void testWriteAndLoad() throws Exception {
+		EncodedCorpus corpus = EncodedCorpus.encode(samples);
+		File file = File.createTempFile("corpus", ".bin");
+		file.deleteOnExit();
+		corpus.write(file);
+
+		EncodedCorpus loaded = EncodedCorpus.load(file);
+		assertEquals(corpus.getDictionary(), loaded.getDictionary());
+		assertEquals(corpus.size(), loaded.size());
+		assertEquals(corpus.tokens(), loaded.tokens());
+		for(int n = 0; n < corpus.size(); n++) {
+			assertEquals(corpus.length(n), loaded.length(n));
+			assertEquals(corpus.getStateSequence(n), loaded.getStateSequence(n));
+			assertEquals(corpus.getObservationSequence(n), loaded.getObservationSequence(n));
+		}
+
+		HMModel expected = new SupervisedWittenBellHMMTrainer(samples, 2).train();
+		HMModel actual = new SupervisedWittenBellHMMTrainer(loaded, 2).train();
+		assertEquals(expected, actual);
+	}
+
+	//测试使用给定字典编码时，未登录观测编码为-1
+	@Test
+	public void testUnknownObservation() {
+		Dictionary dict = EncodedCorpus.encode(samples).getDictionary();
+		List<ObservationSequence> sequences = new ArrayList<>();
+		sequences.add(new ObservationSequence(new Observation[]{new StringObservation("1"), new StringObservation("x")}));
+		EncodedCorpus corpus = EncodedCorpus.encode(dict, sequences);
+
+		assertFalse(corpus.hasStates());
+		int[] observations = corpus.observations(0, null);
+		assertEquals(dict.getIndex(new StringObservation("1")), observations[0]);
+		assertEquals(-1, observations[1]);
+		assertEquals(CommonUtils.UNKNOWN, corpus.getObservationSequence(0).get(1));
+		assertEquals(6, dict.observationCount());
+	}
+}
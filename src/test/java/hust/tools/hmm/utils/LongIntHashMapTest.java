@@ -0,0 +1,59 @@
+package hust.tools.hmm.utils;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ *<ul>
+ *<li>Description: 键为long、值为int的哈希表单元测试
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月21日
+ *</ul>
+ */
+public class LongIntHashMapTest {
+
+	//测试累加、扩容后查询与按槽遍历
+	@Test
+	public void testAddToAndRehash() {
+		LongIntHashMap map = new LongIntHashMap();
+		for(int i = 0; i < 1000; i++) {
+			long key = ((long) i << 32) | (i % 7);
+			assertEquals(1, map.addTo(key, 1));
+			assertEquals(i + 1, map.addTo(key, i));
+		}
+		
+		assertEquals(1000, map.size());
+		assertEquals(0, map.get(1L << 40));
+		assertFalse(map.containsKey(1L << 40));
+		assertEquals(6, map.get((5L << 32) | 5));
+		
+		long total = 0;
+		for(int slot = 0; slot < map.slots(); slot++) {
+			if(map.isUsed(slot))
+				total += map.valueAt(slot);
+		}
+		assertEquals(1000 * 1001 / 2, total);
+	}
+	
+	//测试缺省值、修改与相等性
+	@Test
+	public void testPutAndEquals() {
+		LongIntHashMap first = new LongIntHashMap(4, -1);
+		LongIntHashMap second = new LongIntHashMap(100, -1);
+		assertEquals(-1, first.get(3));
+		assertEquals(-1, first.put(3, 5));
+		assertEquals(5, first.put(3, 8));
+		first.put(-2, 1);
+		
+		second.put(-2, 1);
+		second.put(3, 8);
+		assertEquals(first, second);
+		assertEquals(first.hashCode(), second.hashCode());
+		
+		second.clear();
+		assertEquals(0, second.size());
+		assertEquals(-1, second.get(3));
+	}
+}
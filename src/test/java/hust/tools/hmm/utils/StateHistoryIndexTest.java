@@ -0,0 +1,57 @@
+package hust.tools.hmm.utils;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ *<ul>
+ *<li>Description: 隐藏状态历史编号单元测试
+ *<li>Company: HUST
+ *<li>@author Sonly
+ *<li>Date: 2018年4月22日
+ *</ul>
+ */
+public class StateHistoryIndexTest {
+
+	//测试编号分配、前后缀查询以及索引增大时重新打包
+	@Test
+	public void testAddAndRepack() {
+		StateHistoryIndex index = new StateHistoryIndex(4);
+		int[] states = {0, 1, 2, 3, 1, 2};
+		assertEquals(0, index.add(states, 1, 2));
+		assertEquals(1, index.add(states, 0, 3));
+		assertEquals(0, index.add(states, 4, 2));
+		assertEquals(-1, index.get(states, 2, 2));
+		assertEquals(0, index.suffix(1));
+		assertEquals(-1, index.prefix(1));
+		assertTrue(index.isPacked());
+		
+		int h = index.add(new int[]{1000, 2}, 0, 2);
+		assertEquals(2, h);
+		assertTrue(index.isPacked());
+		assertEquals(0, index.get(states, 1, 2));
+		assertEquals(1, index.get(states, 0, 3));
+		assertEquals(1000, index.state(h, 0));
+		assertArrayEquals(new int[]{0, 1, 2}, index.toArray(1));
+		assertEquals(3, index.size());
+	}
+	
+	//测试历史超过63位时改用数组键，已有的编号保持不变
+	@Test
+	public void testUnpackedFallback() {
+		StateHistoryIndex index = new StateHistoryIndex(2);
+		int[] small = {1, 0, 1};
+		assertEquals(0, index.add(small, 0, 3));
+		
+		int[] large = {1 << 20, 5, 1 << 20, 7};
+		assertEquals(1, index.add(large, 0, 4));
+		assertFalse(index.isPacked());
+		assertEquals(0, index.get(small, 0, 3));
+		assertEquals(1, index.get(large, 0, 4));
+		assertEquals(-1, index.get(large, 1, 3));
+		assertEquals(2, index.add(large, 1, 3));
+		assertEquals(2, index.suffix(1));
+		assertEquals(4, index.length(1));
+	}
+}